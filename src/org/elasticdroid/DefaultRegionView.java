@@ -22,6 +22,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import org.elasticdroid.db.DBExecutor;
 import org.elasticdroid.db.ElasticDroidDB;
 
 import android.app.ListActivity;
@@ -50,6 +51,8 @@ public class DefaultRegionView extends ListActivity {
 	private ArrayList<String> regionData;
 	/** the existing default region */
 	private String username;
+	/** The DB read for the existing default region, if in progress */
+	private DBExecutor.Task<String> defaultRegionTask;
 	
 	/**
 	 * Called when activity is first displayed.
@@ -59,9 +62,6 @@ public class DefaultRegionView extends ListActivity {
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState); //call superclass onCreate
 		
-		//the default region
-		String defaultRegion = null;
-		
     	//this class is called from any dashboard, and is passed an argument in the intent.
     	Intent intent = this.getIntent();
     	try {
@@ -85,13 +85,45 @@ public class DefaultRegionView extends ListActivity {
     	//set the content view
     	this.setContentView(R.layout.defaultregion);
     	
-    	try {
-			defaultRegion = new ElasticDroidDB(this).getDefaultRegion(this.username);
-		} catch (SQLException sqlException) {
-			Log.e(this.getClass().getName(), "Unexpected error. Cannot access DB: " + 
-					sqlException.getMessage());
-			finish();//kill the activity
+    	//read the default region off the UI thread, and show the regions once we have it.
+    	final String username = this.username;
+    	defaultRegionTask = DBExecutor.read(this, new DBExecutor.Operation<String>() {
+    		public String run(ElasticDroidDB db) throws SQLException {
+    			return db.getDefaultRegion(username);
+    		}
+    	}, new DBExecutor.Callback<String>() {
+    		public void onResult(String defaultRegion) {
+    			defaultRegionTask = null;
+    			showRegions(defaultRegion);
+    		}
+    		
+    		public void onError(Exception exception) {
+    			defaultRegionTask = null;
+    			Log.e(DefaultRegionView.class.getName(), "Unexpected error. Cannot access DB: " + 
+    					exception.getMessage());
+    			finish();//kill the activity
+    		}
+    	});
+	}
+	
+	/**
+	 * Stop waiting for the DB when the activity goes away.
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		if (defaultRegionTask != null) {
+			defaultRegionTask.cancel();
 		}
+	}
+	
+	/**
+	 * Show the list of regions, with the default region checked.
+	 * 
+	 * @param defaultRegion The default region; null if none.
+	 */
+	private void showRegions(String defaultRegion) {
     	//use the custom adapter to display the list of regions.
     	DefaultRegionAdapter regionsListAdapter = new DefaultRegionAdapter(this,
     			R.layout.customspinnerdropdownitem,
@@ -111,8 +143,16 @@ public class DefaultRegionView extends ListActivity {
 		
 		((CheckedTextView)v).setChecked(true); //sort of pointless as the whole activity will
 		//disappear anyway! ;)
-		//set the default region to the new default region chosen
-		new ElasticDroidDB(this).setDefaultRegion(this.username, regionData.get(position));
+		//set the default region to the new default region chosen. The write carries on after
+		//we finish; the calling view gets the new default region from the result intent.
+		final String username = this.username;
+		final String defaultRegion = regionData.get(position);
+		DBExecutor.write(this, new DBExecutor.Operation<Void>() {
+			public Void run(ElasticDroidDB db) {
+				db.setDefaultRegion(username, defaultRegion);
+				return null;
+			}
+		}, null);
 		
 		//return the new default region to the calling view.
 		resultIntent.putExtra("defaultRegion", regionData.get(position));
@@ -24,10 +24,16 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap; 
 
+import org.elasticdroid.db.DBExecutor;
 import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.model.AWSClientFactory;
+import org.elasticdroid.model.AllRegionsDashboardModel;
 import org.elasticdroid.model.EC2DashboardModel;
 import org.elasticdroid.model.EC2InstancesModel;
+import org.elasticdroid.model.InstanceRepository;
+import org.elasticdroid.model.InstanceStateTracker;
 import org.elasticdroid.model.RetrieveRegionModel;
+import org.elasticdroid.model.SecurityGroupCache;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.DialogConstants;
 import org.elasticdroid.utils.AWSConstants.InstanceStateConstants;
@@ -100,6 +106,24 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 	 * Reference to RetrieveRegionModel object
 	 */
 	private RetrieveRegionModel retrieveRegionModel;
+	/**
+	 * Reference to AllRegionsDashboardModel object, used when "All regions" is selected.
+	 */
+	private AllRegionsDashboardModel allRegionsDashboardModel;
+	/**
+	 * set if the user selected "All regions" in the region spinner. {@link #selectedRegion} 
+	 * keeps the last region selected, as the sub-activities need a real region.
+	 */
+	private boolean allRegionsSelected;
+	/**
+	 * The dashboard data for each region, indexed by region name. A null value means
+	 * the region failed or timed out.
+	 */
+	private HashMap<String, HashMap<String, Integer>> allRegionsData;
+	/**
+	 * The region displayed in each row of the all regions dashboard. null for the totals.
+	 */
+	private ArrayList<String> allRegionsRowRegions;
 	
 	/** Dialog box for credential verification errors */
 	private AlertDialog alertDialogBox;
@@ -126,6 +150,12 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 	 * hack
 	 */
 	private boolean defaultRegionChanged;
+	/** The number of instance groups in the selected region; null until read from the DB */
+	private Integer instanceGroupCount;
+	/** The DB read for {@link #instanceGroupCount}, if in progress */
+	private DBExecutor.Task<Integer> instanceGroupCountTask;
+	/** The DB read (and write, if there is none) of the default region, if in progress */
+	private DBExecutor.Task<String> defaultRegionTask;
 	/**
 	 * Log tag
 	 */
@@ -192,11 +222,18 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 			retrieveRegionModel = (RetrieveRegionModel) retained;
 			retrieveRegionModel.setActivity(this);
 		}
+		else if (retained instanceof AllRegionsDashboardModel) {
+			Log.i(this.getClass().getName(),
+			"Reclaiming previous background AllRegionsDashboardModel task.");
+			allRegionsDashboardModel = (AllRegionsDashboardModel) retained;
+			allRegionsDashboardModel.setActivity(this);
+		}
 		else {
 			//onResume can also be executed on the press of the home button
 			//in whic case we have not lost our object references. Therefore,
 			//disable your progress bar Only IF there are no model objects.
-			if ((retrieveRegionModel == null) && (ec2DashboardModel == null)) {
+			if ((retrieveRegionModel == null) && (ec2DashboardModel == null) && 
+					(allRegionsDashboardModel == null)) {
 				Log.v(this.getClass().getName(),
 						"No model object, or model finished before activity "
 								+ "was recreated.");
@@ -301,6 +338,15 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 			//onResume will get this data later
 		}
 
+		// restore all regions data if any.
+		allRegionsSelected = stateToRestore.getBoolean("allRegionsSelected");
+		try {
+			allRegionsData = (HashMap<String, HashMap<String, Integer>>) stateToRestore
+					.getSerializable("allRegionsData");
+		} catch (Exception exception) {
+			allRegionsData = null;
+		}
+		
 		// restore default region
 		selectedRegion = stateToRestore.getString("selectedRegion");
 		Log.v(this.getClass().getName(),
@@ -398,6 +444,10 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 			Log.v(this.getClass().getName(), "Saving dashboardData...");
 			saveState.putSerializable("dashboardData", dashboardData);
 		}
+		saveState.putBoolean("allRegionsSelected", allRegionsSelected);
+		if ((allRegionsData != null) && (allRegionsDashboardModel == null)) {
+			saveState.putSerializable("allRegionsData", allRegionsData);
+		}
 		// similarly write the region data so we do not have to query AWS every
 		// time
 		// the user twists his screen around
@@ -440,10 +490,31 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 			retrieveRegionModel.setActivityNull();
 			return retrieveRegionModel;
 		}
+		else if (allRegionsDashboardModel != null) {
+			Log.v(this.getClass().getName() + ".onRetainNonConfigInstance()", "Saving " +
+					"allRegionsDashboardModel");
+			allRegionsDashboardModel.setActivityNull();
+			return allRegionsDashboardModel;
+		}
 		//both are null, return null
 		return null;
 	}
 
+	/**
+	 * Stop waiting for the DB; the results would go to a dead activity.
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		if (instanceGroupCountTask != null) {
+			instanceGroupCountTask.cancel();
+		}
+		if (defaultRegionTask != null) {
+			defaultRegionTask.cancel();
+		}
+	}
+
 	/**
 	 * Execute the model to retrieve the list of regions. The model
 	 * runs in a different thread and calls processModelResults when done.
@@ -456,13 +527,58 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 	/**
 	 * Execute the model to retrieve EC2 data for the selected region. The model
 	 * runs in a different thread and calls processModelResults when done.
+	 * 
+	 * @param forceRefresh true if the user asked for a refresh, and the instances have to be
+	 * retrieved from AWS even if another view retrieved them moments ago.
 	 */
-	private void executeEC2DashboardModel() {
+	private void executeEC2DashboardModel(boolean forceRefresh) {
+		cancelDashboardModels();
 		ec2DashboardModel = new EC2DashboardModel(this);		
+		ec2DashboardModel.setForceRefresh(forceRefresh);
+		//the model fills this in piece by piece. See processModelProgress.
+		dashboardData = new HashMap<String, Integer>();
 		
 		connectionData.put("endpoint", regionData.get(selectedRegion));
 		ec2DashboardModel.execute(new HashMap<?, ?>[] { connectionData });
 		
+		//the region may have changed.
+		loadInstanceGroupCount();
+	}
+
+	/**
+	 * Execute the model to retrieve EC2 data for all of the regions. The model runs in a 
+	 * different thread, publishes each region's data as it arrives, and calls 
+	 * processModelResults when done.
+	 * 
+	 * @param forceRefresh true if the user asked for a refresh. See 
+	 * {@link #executeEC2DashboardModel(boolean)}.
+	 */
+	private void executeAllRegionsDashboardModel(boolean forceRefresh) {
+		cancelDashboardModels();
+		allRegionsDashboardModel = new AllRegionsDashboardModel(this, regionData);
+		allRegionsDashboardModel.setForceRefresh(forceRefresh);
+		//the model fills this in region by region. See processModelProgress.
+		allRegionsData = new HashMap<String, HashMap<String, Integer>>();
+		allRegionsDashboardModel.execute(new HashMap<?, ?>[] { connectionData });
+	}
+	
+	/**
+	 * Cancel the dashboard models if they are running. The dashboard can be changed while
+	 * they run, as the progress dialog goes away as soon as the first results arrive.
+	 * 
+	 * The models are detached from the activity first so that they do not report back.
+	 */
+	private void cancelDashboardModels() {
+		if (ec2DashboardModel != null) {
+			ec2DashboardModel.setActivityNull();
+			ec2DashboardModel.cancel(true);
+			ec2DashboardModel = null;
+		}
+		if (allRegionsDashboardModel != null) {
+			allRegionsDashboardModel.setActivityNull();
+			allRegionsDashboardModel.cancel(true);
+			allRegionsDashboardModel = null;
+		}
 	}
 
 	/**
@@ -533,6 +649,27 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 				killActivityOnError = true;
 			}
 		}
+		//it was the all regions dashboard model
+		else if (allRegionsDashboardModel != null) {
+			allRegionsDashboardModel = null;
+			
+			if (result instanceof HashMap<?, ?>) {
+				allRegionsData = (HashMap<String, HashMap<String, Integer>>) result;
+				populateAllRegionsDashboard();
+			}
+			else if (result instanceof AmazonClientException) {
+				//every region failed. Assume connectivity problems; allow the user to retry.
+				alertDialogMessage = this.getString(R.string.loginview_no_connxn_dlg);
+				alertDialogDisplayed = true;
+				killActivityOnError = false;
+			}
+			else if (result instanceof IllegalArgumentException) {
+				alertDialogMessage = this
+						.getString(R.string.ec2dashview_illegal_arg_exception);
+				alertDialogDisplayed = true;
+				killActivityOnError = true;
+			}
+		}
 		//it was the dashboard model
 		else {
 			//set model reference to null
@@ -587,41 +724,116 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 	}
 
 
+	/**
+	 * Process the partial dashboard data published by {@link EC2DashboardModel} as each of
+	 * its requests returns. The dashboard is redrawn with whatever we have so far.
+	 * 
+	 * @see org.elasticdroid.tpl.GenericListActivity#processModelProgress(java.lang.Object)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void processModelProgress(Object progress) {
+		//ignore anything that does not come from the dashboard models
+		if (((ec2DashboardModel == null) && (allRegionsDashboardModel == null)) || 
+				!(progress instanceof HashMap<?, ?>)) {
+			return;
+		}
+		
+		//we have something to show. Get rid of the progress dialog so that the user can see
+		//the dashboard fill in.
+		if (progressDialogDisplayed) {
+			progressDialogDisplayed = false;
+			removeDialog(DialogConstants.PROGRESS_DIALOG.ordinal());
+		}
+		
+		if (allRegionsDashboardModel != null) {
+			allRegionsData.putAll((HashMap<String, HashMap<String, Integer>>) progress);
+			populateAllRegionsDashboard();
+		}
+		else {
+			dashboardData.putAll((HashMap<String, Integer>) progress);
+			populateEC2Dashboard();
+		}
+	}
+
 	/**
 	 * Private method to repopulate spinners. gets region data if absent
+	 * 
+	 * If the user has not selected a region yet, the default region is read from the DB (and 
+	 * set to the first region if there is none) off the UI thread first.
 	 */
 	private void populateRegionSpinner() {
-		
-		String defaultRegion = null;
-		ElasticDroidDB elasticDroidDb = new ElasticDroidDB(this);
-		//get the default region
-		try {
-			defaultRegion = elasticDroidDb.getDefaultRegion(connectionData.
-					get("username"));
-		} catch (SQLException e) {
-			Log.e(this.getClass().getName() + ".populateRegionSpinner", "SQL Exception.Exiting: "+ 
-					e.getMessage());
-		}
-
-		//if there is no default region, set the first item in regionData as the default region
-		if (defaultRegion == null) {
-			//this is still O(1). Gingerbread didn't like my unsafe class casts.
-			for (String region : regionData.keySet()) {
-				defaultRegion = region;
-				break;
-			}
-			elasticDroidDb.setDefaultRegion(connectionData.get("username"), defaultRegion);
+		if (selectedRegion != null) {
+			showRegionSpinner();
+			return;
+		}
+		else if (defaultRegionTask != null) {
+			//already reading it.
+			return;
 		}
 		
-		//if we dont have an already selected region, set it to default region
-		if (selectedRegion == null) {
-			selectedRegion = defaultRegion;
+		final String username = connectionData.get("username");
+		//this is still O(1). Gingerbread didn't like my unsafe class casts.
+		String firstRegion = null;
+		for (String region : regionData.keySet()) {
+			firstRegion = region;
+			break;
 		}
+		final String fallbackRegion = firstRegion;
 		
-		// populate the android spinner with region data
+		//a write: it sets the default region if there is none.
+		defaultRegionTask = DBExecutor.write(this, new DBExecutor.Operation<String>() {
+			public String run(ElasticDroidDB db) {
+				String defaultRegion = null;
+				//get the default region
+				try {
+					defaultRegion = db.getDefaultRegion(username);
+				} catch (SQLException e) {
+					Log.e(TAG + ".populateRegionSpinner", "SQL Exception.Exiting: " + 
+							e.getMessage());
+				}
+				
+				//if there is no default region, set the first item in regionData as the 
+				//default region
+				if (defaultRegion == null) {
+					defaultRegion = fallbackRegion;
+					db.setDefaultRegion(username, defaultRegion);
+				}
+				
+				return defaultRegion;
+			}
+		}, new DBExecutor.Callback<String>() {
+			public void onResult(String defaultRegion) {
+				defaultRegionTask = null;
+				
+				//if we dont have an already selected region, set it to default region
+				if (selectedRegion == null) {
+					selectedRegion = defaultRegion;
+				}
+				showRegionSpinner();
+			}
+			
+			public void onError(Exception exception) {
+				defaultRegionTask = null;
+				Log.e(TAG, "Couldn't set the default region: " + exception.getMessage());
+				
+				if (selectedRegion == null) {
+					selectedRegion = fallbackRegion;
+				}
+				showRegionSpinner();
+			}
+		});
+	}
+	
+	/**
+	 * Fill the region spinner, select {@link #selectedRegion}, and show its dashboard.
+	 */
+	private void showRegionSpinner() {
+		// populate the android spinner with region data. The "All regions" item goes last.
+		ArrayList<String> spinnerItems = new ArrayList<String>(regionData.keySet());
+		spinnerItems.add(this.getString(R.string.ec2dashview_allregions));
 		ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<String>(this,
-				R.layout.customspinneritem, (String[]) regionData.keySet()
-						.toArray(new String[regionData.keySet().size()]));
+				R.layout.customspinneritem, spinnerItems.toArray(new String[spinnerItems.size()]));
 		spinnerAdapter.setDropDownViewResource(R.layout.customspinnerdropdownitem);
 	
 		// get the spinner and set the adapter as ITS adapter
@@ -659,13 +871,24 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 						+ selectedRegionPosition);
 		regionSpinner.setSelection(selectedRegionPosition);
 		
+		if (allRegionsSelected) {
+			regionSpinner.setSelection(regionData.size());
+			
+			if ((allRegionsData != null) && (allRegionsDashboardModel == null)) {
+				populateAllRegionsDashboard();
+			} else if (allRegionsDashboardModel == null) {
+				executeAllRegionsDashboardModel(false);
+			}
+			return;
+		}
+		
 		//if we have data, don't re-execute
 		if ((dashboardData != null) && (ec2DashboardModel == null)) {
 			// if there is no model, just repopulate
 			populateEC2Dashboard();
 		} else if (ec2DashboardModel == null) {
 			Log.v(this.getClass().getName(), "Starting model...");
-			executeEC2DashboardModel();
+			executeEC2DashboardModel(false);
 		}
 		//third condition: dashboard model already executing
 	}
@@ -677,50 +900,130 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 	private void populateEC2Dashboard() {
 		ArrayList<String> dashboardItems = new ArrayList<String>();
 
-		//get the instance groups count and add it to the dashboard items
-		int instanceGroupCount = 0;
-		try{
-			instanceGroupCount = getInstanceGroupCount();
-		} catch (SQLException exception) {
-			Log.e(this.getClass().getName(),
-							"Couldn't query for the group instances count.");
-			finish();
+		//add the instance groups count to the dashboard items, once we have it.
+		if ((instanceGroupCount == null) && (instanceGroupCountTask == null)) {
+			loadInstanceGroupCount();
 		}
 		dashboardItems.add(this
 				.getString(R.string.ec2dashview_instancegroups)
-				+ instanceGroupCount);
+				+ ((instanceGroupCount == null) ? "..." : instanceGroupCount.toString()));
 		
 		// add entries to dashboard items
 		dashboardItems.add(this
 				.getString(R.string.ec2dashview_runninginstances)
-				+ dashboardData.get("runningInstances"));
+				+ getDashboardCount("runningInstances"));
 		dashboardItems.add(this
 				.getString(R.string.ec2dashview_stoppedinstances)
-				+ dashboardData.get("stoppedInstances"));
+				+ getDashboardCount("stoppedInstances"));
 		dashboardItems.add(this.getString(R.string.ec2dashview_elasticip)
-				+ dashboardData.get("elasticIp"));
+				+ getDashboardCount("elasticIp"));
 		dashboardItems.add(this.getString(R.string.ec2dashview_securitygroups)
-				+ dashboardData.get("securityGroups"));
+				+ getDashboardCount("securityGroups"));
 		dashboardItems.add(this.getString(R.string.ec2dashview_keypairs)
-				+ dashboardData.get("keyPairs"));
+				+ getDashboardCount("keyPairs"));
 
 		// add the dashboard items to the list adapter to display.
 		setListAdapter(new ArrayAdapter<String>(this,
 				android.R.layout.simple_list_item_1,
-				(String[]) dashboardItems.toArray(new String[dashboardItems
+				dashboardItems.toArray(new String[dashboardItems
 						.size()])));
 	}
 
 	/**
-	 * Private method that queries the db for the count of instance groups
+	 * Populates the list view with the dashboard data for all regions: a row with the totals,
+	 * followed by a row for each region. Regions which have not returned yet, or which 
+	 * failed, are shown as such.
+	 */
+	private void populateAllRegionsDashboard() {
+		ArrayList<String> dashboardItems = new ArrayList<String>();
+		String[] keys = new String[] {"runningInstances", "stoppedInstances", "elasticIp", 
+				"securityGroups", "keyPairs"};
+		int[] totals = new int[keys.length];
+		
+		allRegionsRowRegions = new ArrayList<String>();
+		//the totals go first
+		allRegionsRowRegions.add(null);
+		
+		for (String regionName : regionData.keySet()) {
+			HashMap<String, Integer> regionDashboardData = allRegionsData.get(regionName);
+			
+			if (!allRegionsData.containsKey(regionName)) {
+				dashboardItems.add(this.getString(R.string.ec2dashview_allregions_pending, 
+						regionName));
+			}
+			else if (regionDashboardData == null) {
+				dashboardItems.add(this.getString(R.string.ec2dashview_allregions_failed, 
+						regionName));
+			}
+			else {
+				for (int idx = 0; idx < keys.length; idx ++) {
+					totals[idx] += regionDashboardData.get(keys[idx]);
+				}
+				dashboardItems.add(this.getString(R.string.ec2dashview_allregions_summary, 
+						regionName,
+						regionDashboardData.get(keys[0]), regionDashboardData.get(keys[1]), 
+						regionDashboardData.get(keys[2]), regionDashboardData.get(keys[3]), 
+						regionDashboardData.get(keys[4])));
+			}
+			allRegionsRowRegions.add(regionName);
+		}
+		
+		dashboardItems.add(0, this.getString(R.string.ec2dashview_allregions_summary, 
+				this.getString(R.string.ec2dashview_allregions_total), totals[0], totals[1], 
+				totals[2], totals[3], totals[4]));
+		
+		setListAdapter(new ArrayAdapter<String>(this,
+				android.R.layout.simple_list_item_1,
+				dashboardItems.toArray(new String[dashboardItems.size()])));
+	}
+
+	/**
+	 * Get the count to display for a dashboard item.
 	 * 
-	 * @return the count of instance groups
-	 * @throws SQLException
+	 * @param key The key in {@link #dashboardData}
+	 * @return The count, or "..." if the model has not returned it yet.
 	 */
-	private int getInstanceGroupCount() throws SQLException {
-		return new ElasticDroidDB(this)
-			.instanceGroupCount(connectionData.get("username"), selectedRegion);
+	private String getDashboardCount(String key) {
+		Integer count = dashboardData.get(key);
+		
+		return (count == null) ? "..." : count.toString();
+	}
 
+	/**
+	 * Private method that queries the db for the count of instance groups in the selected
+	 * region, off the UI thread. Repopulates the dashboard when done.
+	 */
+	private void loadInstanceGroupCount() {
+		final String username = connectionData.get("username");
+		final String region = selectedRegion;
+		
+		if (instanceGroupCountTask != null) {
+			instanceGroupCountTask.cancel();
+		}
+		instanceGroupCount = null;
+		
+		instanceGroupCountTask = DBExecutor.read(this, new DBExecutor.Operation<Integer>() {
+			public Integer run(ElasticDroidDB db) throws SQLException {
+				return db.instanceGroupCount(username, region);
+			}
+		}, new DBExecutor.Callback<Integer>() {
+			public void onResult(Integer result) {
+				instanceGroupCountTask = null;
+				instanceGroupCount = result;
+				
+				//unless the user has moved on to another region
+				if (!allRegionsSelected && region.equals(selectedRegion) && 
+						(dashboardData != null)) {
+					populateEC2Dashboard();
+				}
+			}
+			
+			public void onError(Exception exception) {
+				instanceGroupCountTask = null;
+				Log.e(TAG, "Couldn't query for the group instances count.");
+				finish();
+			}
+		});
 	}
 
 	/**
@@ -741,6 +1044,24 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 		String selectedItem = list.getItemAtPosition(position).toString();
 		Log.v(this.getClass().getName() + "onListItemClick:",
 				"Selected list item: " + selectedItem);
+		
+		//in the all regions dashboard, clicking on a region switches to that region.
+		if (allRegionsSelected) {
+			if ((allRegionsRowRegions != null) && (position < allRegionsRowRegions.size()) && 
+					(allRegionsRowRegions.get(position) != null)) {
+				short regionPosition = 0;
+				for (String regionName : regionData.keySet()) {
+					if (regionName.equals(allRegionsRowRegions.get(position))) {
+						break;
+					}
+					regionPosition ++;
+				}
+				//onItemSelected takes it from here.
+				((Spinner) findViewById(R.id.ec2DashboardRegionSpinner)).setSelection(
+						regionPosition);
+			}
+			return;
+		}
 
 		selectedItem = selectedItem.split(":")[0] + ": "; // split the item out
 															// to remove the
@@ -827,14 +1148,24 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 				.getItemAtPosition(pos).toString();
 		Log.v(this.getClass().getName(), "Selected region: " + selectedRegion
 				+ ", Selected item text: " + selectedItemText);
+		
+		//the "All regions" item is always the last one
+		if (pos == regionData.size()) {
+			if (!allRegionsSelected) {
+				allRegionsSelected = true;
+				executeAllRegionsDashboardModel(false);
+			}
+			return;
+		}
 
-		if (!selectedRegion.equals(selectedItemText)) {
+		if (allRegionsSelected || !selectedRegion.equals(selectedItemText)) {
+			allRegionsSelected = false;
 			Log.v(this.getClass().getName(), "Region selected: "
 					+ selectedRegion);
 			selectedRegion = ((Spinner) findViewById(R.id.ec2DashboardRegionSpinner))
 					.getItemAtPosition(pos).toString();
 			// repopulate ListView with data for this region
-			executeEC2DashboardModel();
+			executeEC2DashboardModel(false);
 		}
 	}
 
@@ -865,6 +1196,11 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 	public boolean onOptionsItemSelected(MenuItem selectedItem) {
 		switch (selectedItem.getItemId()) {
 		case R.id.dashboard_menuitem_another_user:
+			//the user is logging out. Release the AWS clients held for him.
+			AWSClientFactory.evictClients(connectionData.get("accessKey"));
+			InstanceRepository.evict(connectionData.get("accessKey"));
+			InstanceStateTracker.evict(connectionData.get("accessKey"));
+			SecurityGroupCache.evict(connectionData.get("accessKey"));
 			finish(); // kill this activity and start login activity
 			Intent loginIntent = new Intent();
 			loginIntent.setClassName("org.elasticdroid",
@@ -880,8 +1216,10 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 			if (regionData == null) {
 				executeRetrieveRegionModel();
 				//this will execute EC2DashboardModel automagically.
+			} else if (allRegionsSelected) {
+				executeAllRegionsDashboardModel(true);
 			} else {
-				executeEC2DashboardModel();
+				executeEC2DashboardModel(true);
 			}
 			return true;
 		case R.id.dashboard_menuitem_default_region:
@@ -929,7 +1267,7 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 						executeRetrieveRegionModel();
 						//this will execute EC2DashboardModel automagically.
 					} else {
-						executeEC2DashboardModel();
+						executeEC2DashboardModel(false);
 					}
 				}
 			}
@@ -973,10 +1311,11 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 						finish();
 					}
 					// set the selection to be the new region...
+					allRegionsSelected = false;
 					regionSpinner.setSelection(selectedRegionPosition);
 	
 					// repopulate ListView with data for this region
-					executeEC2DashboardModel();
+					executeEC2DashboardModel(false);
 				}
 				break;
 			case RESULT_CANCELED:
@@ -1005,5 +1344,8 @@ public class EC2DashboardView extends GenericListActivity implements OnItemSelec
 		else if (ec2DashboardModel != null) {
 			ec2DashboardModel.cancel(true);
 		}
+		else if (allRegionsDashboardModel != null) {
+			allRegionsDashboardModel.cancel(true);
+		}
 	}
 }
@@ -23,20 +23,32 @@ import static org.elasticdroid.utils.ResultConstants.RESULT_ERROR;
 import java.util.HashMap;
 import java.util.List;
 
+import org.elasticdroid.db.DBExecutor;
 import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.model.BulkControlInstancesModel;
+import org.elasticdroid.model.ControlInstancesModel.ControlType;
+import org.elasticdroid.model.ds.BulkControlReport;
 import org.elasticdroid.model.orm.InstanceGroup;
-import android.app.ListActivity;
+import org.elasticdroid.tpl.GenericListActivity;
+import org.elasticdroid.utils.BulkControlDialogs;
+import org.elasticdroid.utils.DialogConstants;
+
+import android.app.AlertDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Html;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.Window;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 /**
  * Class to show a list of instance groups to choose from.
@@ -45,7 +57,7 @@ import android.widget.TextView;
  * 
  *         18 Jan 2011
  */
-public class EC2DisplayInstanceGroupsView extends ListActivity {
+public class EC2DisplayInstanceGroupsView extends GenericListActivity {
 
 	/**
 	 * AWS login details: username, access key, secret access key. Can be IAM
@@ -61,6 +73,11 @@ public class EC2DisplayInstanceGroupsView extends ListActivity {
 
 	/** List to store the instance groups */
 	private List<InstanceGroup> instanceGroups;
+	
+	/** The model starting, stopping or tagging all of the instances in a group, if any */
+	private BulkControlInstancesModel bulkControlModel;
+	/** The DB read for {@link #instanceGroups}, if in progress */
+	private DBExecutor.Task<List<InstanceGroup>> instanceGroupsTask;
 
 	/**
 	 * Called when the activity is first created or recreated.
@@ -90,6 +107,8 @@ public class EC2DisplayInstanceGroupsView extends ListActivity {
 		}
 
 		// GUI
+		// progress bar in the title bar, to show bulk operations progressing
+		requestWindowFeature(Window.FEATURE_PROGRESS);
 		setContentView(R.layout.ec2instancegroups);
 		this.setTitle(selectedRegion);
 
@@ -98,6 +117,40 @@ public class EC2DisplayInstanceGroupsView extends ListActivity {
 				+ connectionData.get("username") + "," + selectedRegion + ")");
 
 		loadInstanceGroups();
+		
+		// reclaim the bulk control model if the screen was rotated while it ran
+		Object retained = getLastNonConfigurationInstance();
+		if (retained instanceof BulkControlInstancesModel) {
+			bulkControlModel = (BulkControlInstancesModel) retained;
+			bulkControlModel.setActivity(this);
+			setProgressBarVisibility(true);
+		}
+	}
+	
+	/**
+	 * Save reference to the bulk control model when the activity is destroyed (for instance
+	 * when the screen is rotated), as it is running in the background.
+	 */
+	@Override
+	public Object onRetainNonConfigurationInstance() {
+		if (bulkControlModel != null) {
+			bulkControlModel.setActivityNull();
+			return bulkControlModel;
+		}
+		
+		return null;
+	}
+
+	/**
+	 * Stop waiting for the DB; the results would go to a dead activity.
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		if (instanceGroupsTask != null) {
+			instanceGroupsTask.cancel();
+		}
 	}
 
 	/**
@@ -131,10 +184,133 @@ public class EC2DisplayInstanceGroupsView extends ListActivity {
 			//TODO move the following statement after the if-then-else
 			startActivityForResult(intent, 0); //second arg ignored.
 
+		} else if ((selectedInstanceGroup.getInstanceIds() != null)
+				&& (selectedInstanceGroup.getInstanceIds().size() != 0)) {
+			showGroupActionsDialog(selectedInstanceGroup);
+		}
+	}
+
+	/**
+	 * Let the user start, stop or tag all of the instances in a group.
+	 * 
+	 * @param instanceGroup
+	 *            The group selected.
+	 */
+	private void showGroupActionsDialog(InstanceGroup instanceGroup) {
+		final String[] instanceIds = instanceGroup.getInstanceIds().toArray(
+				new String[instanceGroup.getInstanceIds().size()]);
+		final ControlType[] operationTypes = new ControlType[] {
+				ControlType.START_INSTANCE, ControlType.STOP_INSTANCE,
+				ControlType.TAG_INSTANCE };
+
+		new AlertDialog.Builder(this)
+				.setTitle(instanceGroup.getGroupName())
+				.setItems(
+						new String[] { getString(R.string.bulkcontrol_start),
+								getString(R.string.bulkcontrol_stop),
+								getString(R.string.bulkcontrol_tag) },
+						new DialogInterface.OnClickListener() {
+							public void onClick(DialogInterface dialog, int which) {
+								final ControlType operationType = operationTypes[which];
+
+								if (operationType == ControlType.TAG_INSTANCE) {
+									BulkControlDialogs.showTagNameDialog(
+											EC2DisplayInstanceGroupsView.this,
+											new BulkControlDialogs.TagNameListener() {
+												public void onTagName(String tagName) {
+													executeBulkModel(operationType, tagName,
+															instanceIds);
+												}
+											});
+								} else {
+									executeBulkModel(operationType, null, instanceIds);
+								}
+							}
+						}).show();
+	}
+
+	/**
+	 * Execute the model to start, stop or tag the instances in a group.
+	 * 
+	 * @param operationType
+	 *            Start, stop or tag.
+	 * @param tagName
+	 *            The name tag, for {@link ControlType#TAG_INSTANCE}. null
+	 *            otherwise.
+	 * @param instanceIds
+	 *            The instances in the group.
+	 */
+	private void executeBulkModel(ControlType operationType, String tagName,
+			String[] instanceIds) {
+		bulkControlModel = new BulkControlInstancesModel(this, connectionData,
+				operationType, tagName);
+
+		setProgress(0);
+		setProgressBarVisibility(true);
+		bulkControlModel.execute(instanceIds);
+	}
+
+	/**
+	 * Show the number of instances in the group done so far.
+	 * 
+	 * @see org.elasticdroid.tpl.GenericListActivity#processModelProgress(java.lang.Object)
+	 */
+	@Override
+	public void processModelProgress(Object progress) {
+		if ((bulkControlModel == null) || !(progress instanceof Integer)
+				|| (bulkControlModel.getInstanceCount() == 0)) {
+			return;
+		}
+
+		setProgress((Window.PROGRESS_END - Window.PROGRESS_START)
+				* (Integer) progress / bulkControlModel.getInstanceCount());
+	}
+
+	/**
+	 * Show the user the report returned by the bulk control model.
+	 * 
+	 * @see org.elasticdroid.tpl.GenericListActivity#processModelResults(java.lang.Object)
+	 */
+	@Override
+	public void processModelResults(Object result) {
+		if (progressDialogDisplayed) {
+			removeDialog(DialogConstants.PROGRESS_DIALOG.ordinal());
+			progressDialogDisplayed = false;
+		}
+		setProgressBarVisibility(false);
+
+		int instanceCount = (bulkControlModel != null) ? bulkControlModel
+				.getInstanceCount() : 0;
+		bulkControlModel = null;
+
+		if (result == null) {
+			Toast.makeText(this, Html.fromHtml(getString(R.string.cancelled)),
+					Toast.LENGTH_LONG).show();
+			return;
+		}
+
+		String message;
+		if (result instanceof BulkControlReport) {
+			message = BulkControlDialogs.getReportMessage(this,
+					(BulkControlReport) result, instanceCount);
 		} else {
-			Log.v(this.getClass().getName(), "Display group instance");
-			// show instances list
-			// the intent should carry the connection data and the group id
+			message = getString(R.string.ec2dashview_illegal_arg_exception);
+		}
+
+		new AlertDialog.Builder(this).setMessage(message)
+				.setPositiveButton(android.R.string.ok, null).show();
+	}
+
+	/**
+	 * Handle cancel of progress dialog
+	 * 
+	 * @see android.content.DialogInterface.OnCancelListener#onCancel(android.content.DialogInterface)
+	 */
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		progressDialogDisplayed = false;
+		if (bulkControlModel != null) {
+			bulkControlModel.cancel(true);
 		}
 	}
 
@@ -189,19 +365,45 @@ public class EC2DisplayInstanceGroupsView extends ListActivity {
 		}
 	}
 
+	/**
+	 * Read the instance groups from the DB, off the UI thread, and display them.
+	 */
 	private void loadInstanceGroups() {
-		instanceGroups = new ElasticDroidDB(this).listInstanceGroups(
-				connectionData.get("username"), selectedRegion);
-
-		// Add New Instance Group to list of instance groups.
-		instanceGroups
-				.add(new InstanceGroup(
-						-1l,
-						this.getString(R.string.ec2instancegroupsview_new_instance_groups)));
-
-		// add the usernames to the list adapter to display
-		setListAdapter(new InstanceGroupAdapter(this,
-				R.layout.ec2instancegroupsrow, instanceGroups));
+		final String username = connectionData.get("username");
+		final String region = selectedRegion;
+		
+		if (instanceGroupsTask != null) {
+			instanceGroupsTask.cancel();
+		}
+		
+		instanceGroupsTask = DBExecutor.read(this, 
+				new DBExecutor.Operation<List<InstanceGroup>>() {
+			public List<InstanceGroup> run(ElasticDroidDB db) {
+				return db.listInstanceGroups(username, region);
+			}
+		}, new DBExecutor.Callback<List<InstanceGroup>>() {
+			public void onResult(List<InstanceGroup> result) {
+				instanceGroupsTask = null;
+				instanceGroups = result;
+
+				// Add New Instance Group to list of instance groups.
+				instanceGroups
+						.add(new InstanceGroup(
+								-1l,
+								getString(R.string.ec2instancegroupsview_new_instance_groups)));
+
+				// add the usernames to the list adapter to display
+				setListAdapter(new InstanceGroupAdapter(EC2DisplayInstanceGroupsView.this,
+						R.layout.ec2instancegroupsrow, instanceGroups));
+			}
+			
+			public void onError(Exception exception) {
+				instanceGroupsTask = null;
+				Log.e(EC2DisplayInstanceGroupsView.class.getName(), "Couldn't list the instance "
+						+ "groups: " + exception.getMessage());
+				finish();
+			}
+		});
 	}
 }
 
@@ -22,21 +22,34 @@ import static org.elasticdroid.utils.ResultConstants.RESULT_ERROR;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.elasticdroid.db.DBExecutor;
+import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.model.BulkControlInstancesModel;
+import org.elasticdroid.model.ControlInstancesModel.ControlType;
 import org.elasticdroid.model.EC2InstancesModel;
+import org.elasticdroid.model.ds.BulkControlReport;
+import org.elasticdroid.model.ds.ModelCodec;
 import org.elasticdroid.model.ds.SerializableInstance;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.AWSConstants.InstanceStateConstants;
+import org.elasticdroid.utils.BulkControlDialogs;
+import org.elasticdroid.utils.ClockTick;
 import org.elasticdroid.utils.DialogConstants;
+import org.elasticdroid.utils.InstanceListDiff;
 
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Parcelable;
 import android.text.Html;
+import android.text.format.DateUtils;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
@@ -45,6 +58,7 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.Window;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
@@ -66,7 +80,8 @@ import com.amazonaws.services.ec2.model.Filter;
  *
  * 5 Dec 2010
  */
-public class EC2DisplayInstancesView extends GenericListActivity {
+public class EC2DisplayInstancesView extends GenericListActivity implements 
+	ClockTick.Listener {
 
 	/**
 	 * The type of list to display. Accepted values atm are RUNNING and STOPPED
@@ -78,6 +93,8 @@ public class EC2DisplayInstancesView extends GenericListActivity {
     private HashMap<String,String> connectionData;
     /**The model object */
     private EC2InstancesModel ec2InstancesModel;
+    /** The model starting, stopping or tagging the instances selected by the user, if any */
+    private BulkControlInstancesModel bulkControlModel;
     
 	/** Dialog box for credential verification errors */
 	private AlertDialog alertDialogBox;
@@ -103,6 +120,13 @@ public class EC2DisplayInstancesView extends GenericListActivity {
      * Uses Serializable Instance and not AWS Instance. {@link SerializableInstance} 
      * */
     private ArrayList<SerializableInstance> instanceData;
+    /** 
+     * The text shown in the list rows, worked out once per instance. Instances are marked as 
+     * out of date after the age (in secs) in R.integer.ec2displayinstances_stale_age.
+     */
+    private InstanceRowTexts rowTexts;
+    /** The DB read for the list of instances saved the last time round, if in progress */
+    private DBExecutor.Task<ArrayList<SerializableInstance>> snapshotTask;
     
     /**
      * Logging Tag
@@ -176,8 +200,14 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 					}
 				});
 		
+		//progress bar in the title bar, to show bulk operations progressing chunk by chunk.
+		requestWindowFeature(Window.FEATURE_PROGRESS);
+		//spinner in the title bar, to show the list being brought up to date.
+		requestWindowFeature(Window.FEATURE_INDETERMINATE_PROGRESS);
 		//set the content view
 		setContentView(R.layout.ec2displayinstances);
+		rowTexts = new InstanceRowTexts(this, listType, getResources().getInteger(
+				R.integer.ec2displayinstances_stale_age) * 1000L);
 		//set the title
 		this.setTitle(connectionData.get("username") + " (" + selectedRegion +")");
 		
@@ -212,7 +242,8 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 		alertDialogMessage = stateToRestore.getString("alertDialogMessage");
 		
 		//restore instance data if any
-		instanceData = (ArrayList<SerializableInstance>)stateToRestore.getSerializable("instanceData");
+		instanceData = ModelCodec.getList(stateToRestore, "instanceData", 
+				SerializableInstance.DECODER);
 		
 		//has the instance state been changed.
 		instanceStateChanged = stateToRestore.getBoolean("instanceStateChanged");
@@ -231,7 +262,25 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 			
 			ec2InstancesModel = (EC2InstancesModel) retained;//force typecast
 			ec2InstancesModel.setActivity(this);//pass the model reference to activity
+			
+			//if we were showing a saved list while the model brought it up to date, carry on.
+			if (instanceData != null) {
+				setInstanceListAdapter();
+				setProgressBarIndeterminateVisibility(true);
+			}
 		} 
+		else if (retained instanceof BulkControlInstancesModel) {
+			Log.i(this.getClass().getName() + ".onRestoreInstanceState()","Reclaiming previous " +
+					"bulk control task");
+			
+			bulkControlModel = (BulkControlInstancesModel) retained;
+			bulkControlModel.setActivity(this);
+			
+			//the list is still valid until the bulk operation is done.
+			if (instanceData != null) {
+				setInstanceListAdapter();
+			}
+		}
 		else {
 			ec2InstancesModel = null;
 			
@@ -246,8 +295,7 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 		
 			//if we have instance data, reload the list
 			if (instanceData != null) {
-				setListAdapter(new EC2DisplayInstancesAdapter(this, R.layout.ec2displayinstancesrow, 
-						instanceData, listType));
+				setInstanceListAdapter();
 			}
 		}
 	}
@@ -260,18 +308,95 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 	 * <li>There is no currently running model.</li>
 	 * <li>There is no instance data already computed.</li>
 	 * </ul>
+	 * 
+	 * If a list of instances was saved the last time round, it is shown straight away, and 
+	 * the model brings it up to date in the background.
 	 */
 	@Override
 	public void onResume() {
 		super.onResume(); //call base class method
 		
+		//keep the "started n hrs ago" labels up to date while we're on screen.
+		ClockTick.addListener(this);
+		
 		//if there was a dialog box, display it
 		//if failed, then display dialog box.
 		if (alertDialogDisplayed) {
 			alertDialogBox.setMessage(alertDialogMessage);
 			alertDialogBox.show();
-		} else if ((ec2InstancesModel == null) && (instanceData == null)) {
-			executeModel();
+		} else if ((ec2InstancesModel == null) && (bulkControlModel == null) && 
+				(instanceData == null) && (snapshotTask == null)) {
+			loadInstanceSnapshot();
+		}
+	}
+	
+	/**
+	 * Read the list of instances saved the last time round off the UI thread, show it if 
+	 * there is one, and then execute the model to bring it up to date. The model is started
+	 * from the callback so that it knows whether there is a list on screen already, and does
+	 * not put up a progress dialog over it.
+	 */
+	private void loadInstanceSnapshot() {
+		final String username = connectionData.get("username");
+		final String region = selectedRegion;
+		final String snapshotKey = EC2InstancesModel.getSnapshotKey(getInstanceStateFilter());
+		
+		snapshotTask = DBExecutor.read(this, 
+				new DBExecutor.Operation<ArrayList<SerializableInstance>>() {
+			public ArrayList<SerializableInstance> run(ElasticDroidDB db) {
+				return db.getInstanceSnapshot(username, region, snapshotKey);
+			}
+		}, new DBExecutor.Callback<ArrayList<SerializableInstance>>() {
+			public void onResult(ArrayList<SerializableInstance> result) {
+				snapshotTask = null;
+				
+				if (result != null) {
+					instanceData = result;
+					setInstanceListAdapter();
+				}
+				executeModel(false);
+			}
+			
+			public void onError(Exception exception) {
+				snapshotTask = null;
+				//nothing to show until the model returns; no harm done.
+				Log.w(EC2DisplayInstancesView.class.getName(), "Couldn't read the instance "
+						+ "snapshot: " + exception.getMessage());
+				executeModel(false);
+			}
+		});
+	}
+	
+	/**
+	 * Stop waiting for the DB when the activity goes away.
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		if (snapshotTask != null) {
+			snapshotTask.cancel();
+		}
+	}
+	
+	/**
+	 * Stop updating the row ages when we go off screen.
+	 */
+	@Override
+	public void onPause() {
+		super.onPause();
+		
+		ClockTick.removeListener(this);
+	}
+	
+	/**
+	 * Update the age labels of the rows on screen as the clock ticks.
+	 * 
+	 * @see org.elasticdroid.utils.ClockTick.Listener#onTick(long)
+	 */
+	public void onTick(long tick) {
+		if (getListAdapter() instanceof EC2DisplayInstancesAdapter) {
+			((EC2DisplayInstancesAdapter) getListAdapter()).updateVisibleRows(getListView(), tick);
 		}
 	}
 	
@@ -296,11 +421,10 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 		//were any of the instances' states changed by the user?
 		saveState.putBoolean("instanceStateChanged", instanceStateChanged);
 		
-		//if we have instance data, save it.
-		//but don't bother saving it if the model is not null, i.e. a new model
-		//is executing.
-		if ((instanceData != null) && (ec2InstancesModel == null)) {
-			saveState.putSerializable("instanceData", instanceData);
+		//if we have instance data, save it. Save it even if a new model is executing, as
+		//we show it until the model returns.
+		if (instanceData != null) {
+			ModelCodec.putList(saveState, "instanceData", instanceData);
 		}
 		
 		//save if progress dialog is being displayed.
@@ -324,6 +448,10 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 			ec2InstancesModel.setActivityNull();
 			return ec2InstancesModel;
 		}
+		else if (bulkControlModel != null) {
+			bulkControlModel.setActivityNull();
+			return bulkControlModel;
+		}
 		//if there was no model being executed, just return null
 		return null;
 	}
@@ -332,12 +460,33 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 	/**
 	 * Execute the model to retrieve EC2 instance data for the selected region. The model
 	 * runs in a different thread and calls processModelResults when done.
+	 * 
+	 * If we are already showing a list, the model brings it up to date without a progress 
+	 * dialog, and the title bar shows a spinner instead.
+	 * 
+	 * @param forceRefresh true if the user asked for a refresh, and the instances have to be
+	 * retrieved from AWS even if another view retrieved them moments ago.
 	 */
-	private void executeModel() {
+	private void executeModel(boolean forceRefresh) {
 		ec2InstancesModel = new EC2InstancesModel(this, connectionData, selectedRegion);
-		// add the endpoint for this region to connectionData
-		// it's not nice to modify a member like this, now, is it?
+		ec2InstancesModel.setForceRefresh(forceRefresh);
+		//save what we get, so that we can show it straight away next time.
+		ec2InstancesModel.saveSnapshot(this);
+		//format the row text in the model's thread, not ours.
+		ec2InstancesModel.setResultPreparer(rowTexts);
 		
+		if (instanceData != null) {
+			ec2InstancesModel.setRevalidating(true);
+			setProgressBarIndeterminateVisibility(true);
+		}
+		
+		ec2InstancesModel.execute(getInstanceStateFilter());
+	}
+	
+	/**
+	 * @return The filter for the instances in the state we are listing.
+	 */
+	private Filter getInstanceStateFilter() {
 		Filter instanceStateFilter = new Filter("instance-state-code");
 		if (listType == InstanceStateConstants.RUNNING) {
 			instanceStateFilter.setValues(Arrays.asList(
@@ -348,7 +497,164 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 					new String[]{String.valueOf(InstanceStateConstants.STOPPED)}));
 		}
 		
-		ec2InstancesModel.execute(instanceStateFilter);
+		return instanceStateFilter;
+	}
+	
+	/**
+	 * Bring the list being shown up to date, redrawing only the rows that changed. See
+	 * {@link InstanceListDiff}.
+	 * 
+	 * @param updatedInstanceData The instances just retrieved.
+	 */
+	private void updateInstanceList(ArrayList<SerializableInstance> updatedInstanceData) {
+		EC2DisplayInstancesAdapter adapter = (EC2DisplayInstancesAdapter) getListAdapter();
+		
+		//instanceData is the adapter's list; this changes it in place.
+		InstanceListDiff.Result diff = InstanceListDiff.apply(instanceData, updatedInstanceData, 
+				adapter);
+		Log.v(TAG, "List update: " + diff.getInsertedCount() + " inserted, " + 
+				diff.getRemovedCount() + " removed, " + diff.getMovedCount() + " moved, " + 
+				diff.getChangedPositions().size() + " changed.");
+		
+		diff.updateListView(getListView(), adapter);
+	}
+	
+	/**
+	 * Show {@link #instanceData} in the list, or a message if there are no instances.
+	 */
+	private void setInstanceListAdapter() {
+		if (instanceData.size() != 0) {
+			//add the instances to the list adapter to display.
+			setListAdapter(new EC2DisplayInstancesAdapter(this, R.layout.ec2displayinstancesrow, 
+					instanceData, rowTexts));
+		}
+		//if no data found, just show a String adapter
+		else {
+			ArrayAdapter<String> listAdapter = new ArrayAdapter<String>(this, 
+					android.R.layout.simple_list_item_1, new String[]{getString(
+							R.string.ec2displayinstances_menu_no_instances)});
+			setListAdapter(listAdapter);
+		}
+	}
+	
+	/**
+	 * Let the user pick the instances to start, stop or tag, and run 
+	 * {@link BulkControlInstancesModel} on them.
+	 * 
+	 * @param operationType Start, stop or tag.
+	 */
+	private void showBulkControlDialog(final ControlType operationType) {
+		if ((instanceData == null) || (instanceData.size() == 0)) {
+			Toast.makeText(this, R.string.ec2displayinstances_menu_no_instances, 
+					Toast.LENGTH_SHORT).show();
+			return;
+		}
+		
+		String[] labels = new String[instanceData.size()];
+		//everything is selected to begin with: the usual case is "all of them".
+		final boolean[] checked = new boolean[instanceData.size()];
+		for (int idx = 0; idx < instanceData.size(); idx ++) {
+			SerializableInstance instance = instanceData.get(idx);
+			labels[idx] = (instance.getTag() == null) ? instance.getInstanceId() : 
+				instance.getTag() + " (" + instance.getInstanceId() + ")";
+			checked[idx] = true;
+		}
+		
+		new AlertDialog.Builder(this)
+			.setTitle((operationType == ControlType.START_INSTANCE) ? R.string.bulkcontrol_start :
+				((operationType == ControlType.STOP_INSTANCE) ? R.string.bulkcontrol_stop : 
+					R.string.bulkcontrol_tag))
+			.setMultiChoiceItems(labels, checked, 
+					new DialogInterface.OnMultiChoiceClickListener() {
+						public void onClick(DialogInterface dialog, int which, boolean isChecked) {
+							checked[which] = isChecked;
+						}
+					})
+			.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int which) {
+					final ArrayList<String> instanceIds = new ArrayList<String>();
+					for (int idx = 0; idx < checked.length; idx ++) {
+						if (checked[idx]) {
+							instanceIds.add(instanceData.get(idx).getInstanceId());
+						}
+					}
+					
+					if (instanceIds.size() == 0) {
+						Toast.makeText(EC2DisplayInstancesView.this, 
+								R.string.bulkcontrol_no_selection, Toast.LENGTH_SHORT).show();
+					}
+					else if (operationType == ControlType.TAG_INSTANCE) {
+						BulkControlDialogs.showTagNameDialog(EC2DisplayInstancesView.this, 
+								new BulkControlDialogs.TagNameListener() {
+							public void onTagName(String tagName) {
+								executeBulkModel(operationType, tagName, instanceIds);
+							}
+						});
+					}
+					else {
+						executeBulkModel(operationType, null, instanceIds);
+					}
+				}
+			})
+			.setNegativeButton(android.R.string.cancel, null)
+			.show();
+	}
+	
+	/**
+	 * Execute the model to start, stop or tag the instances. The model runs in a different
+	 * thread, publishes progress as each chunk of instances is done, and calls 
+	 * processModelResults when all of them are.
+	 * 
+	 * @param operationType Start, stop or tag.
+	 * @param tagName The name tag, for {@link ControlType#TAG_INSTANCE}. null otherwise.
+	 * @param instanceIds The instances.
+	 */
+	private void executeBulkModel(ControlType operationType, String tagName, 
+			ArrayList<String> instanceIds) {
+		bulkControlModel = new BulkControlInstancesModel(this, connectionData, operationType, 
+				tagName);
+		
+		setProgress(0);
+		setProgressBarVisibility(true);
+		bulkControlModel.execute(instanceIds.toArray(new String[instanceIds.size()]));
+	}
+	
+	/**
+	 * Process the result of {@link BulkControlInstancesModel}: show the user the report, and
+	 * reload the list, as the instances have changed state or name.
+	 * 
+	 * @param result The model result.
+	 */
+	private void processBulkControlResults(Object result) {
+		int instanceCount = bulkControlModel.getInstanceCount();
+		
+		bulkControlModel = null;
+		setProgressBarVisibility(false);
+		
+		if (result == null) {
+			Toast.makeText(this, Html.fromHtml(this.getString(R.string.cancelled)), Toast.
+					LENGTH_LONG).show();
+			return;
+		}
+		
+		if (result instanceof BulkControlReport) {
+			alertDialogMessage = BulkControlDialogs.getReportMessage(this, 
+					(BulkControlReport) result, instanceCount);
+			
+			if (((BulkControlReport) result).getSucceededCount() != 0) {
+				//let the dashboard know it has to refresh.
+				instanceStateChanged = true;
+				executeModel(false);
+			}
+		}
+		else {
+			alertDialogMessage = this.getString(R.string.ec2dashview_illegal_arg_exception);
+		}
+		
+		alertDialogDisplayed = true;
+		killActivityOnError = false;
+		alertDialogBox.setMessage(alertDialogMessage);
+		alertDialogBox.show();
 	}
 
 	//overriden methods
@@ -367,6 +673,14 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 			progressDialogDisplayed = false;
 		}
 		
+		//the bulk control model has its own results.
+		if (bulkControlModel != null) {
+			processBulkControlResults(result);
+			return;
+		}
+		
+		setProgressBarIndeterminateVisibility(false);
+		
 		//i.e. user did not cancel
 		if (result != null) {
 			//set reference to model object to null
@@ -375,7 +689,15 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 			//get the model data
 			if (result instanceof ArrayList<?>) {
 				try {
-					instanceData = (ArrayList<SerializableInstance>)result;
+					//if we're showing a list already, update it rather than start again.
+					if ((getListAdapter() instanceof EC2DisplayInstancesAdapter) && 
+							(((ArrayList<SerializableInstance>) result).size() != 0)) {
+						updateInstanceList((ArrayList<SerializableInstance>) result);
+					}
+					else {
+						instanceData = (ArrayList<SerializableInstance>)result;
+						setInstanceListAdapter();
+					}
 				}
 				catch(Exception exception) {
 		    		Log.e(this.getClass().getName(), exception.getMessage());
@@ -385,19 +707,6 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 					resultIntent.putExtra("EXCEPTION_MSG", this.getClass().getName() + ":" + 
 							exception.getMessage());
 					setResult(RESULT_ERROR, resultIntent);
-				}	
-				
-				if (instanceData.size() != 0) {
-					//add the instances to the list adapter to display.
-					setListAdapter(new EC2DisplayInstancesAdapter(this, R.layout.ec2displayinstancesrow, 
-							instanceData, listType));
-				}
-				//if no data found, just show a String adapter
-				else {
-					
-					ArrayAdapter<String> listAdapter = new ArrayAdapter<String>(this, android.R.layout.simple_list_item_1, 
-							new String[]{getString(R.string.ec2displayinstances_menu_no_instances)});
-					setListAdapter(listAdapter);
 				}
 			}
 			else if (result instanceof AmazonServiceException) {
@@ -435,6 +744,24 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 		}
 	}
 
+	/**
+	 * Show the progress of {@link BulkControlInstancesModel}: the number of instances done so 
+	 * far.
+	 * 
+	 * @see org.elasticdroid.tpl.GenericListActivity#processModelProgress(java.lang.Object)
+	 */
+	@Override
+	public void processModelProgress(Object progress) {
+		if ((bulkControlModel == null) || !(progress instanceof Integer) || 
+				(bulkControlModel.getInstanceCount() == 0)) {
+			return;
+		}
+		
+		setProgressBarVisibility(true);
+		setProgress((Window.PROGRESS_END - Window.PROGRESS_START) * (Integer) progress / 
+				bulkControlModel.getInstanceCount());
+	}
+
 	/**
 	 * Handle the selection of a given instance, and pass the relevant SerializableInstance object
 	 * on.
@@ -454,7 +781,7 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 				connectionData); // aws connection info
 		//send it a single SerializableInstance
 		displaySingleInstanceIntent.putExtra("org.elasticdroid.model.SerializableInstance",
-				instanceData.get(position));
+				(Parcelable) instanceData.get(position));
 		//send it the selected region
 		displaySingleInstanceIntent.putExtra("selectedRegion", selectedRegion);
 		
@@ -493,6 +820,14 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 	public boolean onCreateOptionsMenu(Menu menu) {
 		MenuInflater inflater = getMenuInflater();
 		inflater.inflate(R.menu.displayinstances_menu, menu);
+		
+		//you can only start stopped instances, and stop running ones.
+		if (listType == InstanceStateConstants.RUNNING) {
+			menu.findItem(R.id.displayinstances_menuitem_start).setVisible(false);
+		}
+		else {
+			menu.findItem(R.id.displayinstances_menuitem_stop).setVisible(false);
+		}
 		return true;
 	}
 
@@ -508,9 +843,18 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 			startActivity(aboutIntent);
 			return true;
 		case R.id.displayinstances_menuitem_refresh:
-			executeModel();
+			executeModel(true);
 			
 			return true;
+		case R.id.displayinstances_menuitem_start:
+			showBulkControlDialog(ControlType.START_INSTANCE);
+			return true;
+		case R.id.displayinstances_menuitem_stop:
+			showBulkControlDialog(ControlType.STOP_INSTANCE);
+			return true;
+		case R.id.displayinstances_menuitem_tag:
+			showBulkControlDialog(ControlType.TAG_INSTANCE);
+			return true;
 		
 		default:
 			return super.onOptionsItemSelected(selectedItem);
@@ -535,7 +879,7 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 				
 				instanceStateChanged = true;
 				
-				executeModel(); //force refresh
+				executeModel(false); //force refresh
 			}
 		}
 	}
@@ -550,36 +894,278 @@ public class EC2DisplayInstancesView extends GenericListActivity {
 		//this cannot be called UNLESS the user has the model running.
 		//i.e. the prog bar is visible
 		progressDialogDisplayed = false;
-		ec2InstancesModel.cancel(true);
+		if (bulkControlModel != null) {
+			bulkControlModel.cancel(true);
+		}
+		else {
+			ec2InstancesModel.cancel(true);
+		}
 	}
 }
 
 /**
- * Adapter to display the instances in a list view. 
+ * The text shown in the instance list rows, worked out once per instance rather than every 
+ * time a row is bound.
+ * 
+ * The headline and details only change when the instance data does, so they are formatted 
+ * when the model retrieves the instances, in its background thread (see 
+ * {@link EC2InstancesModel.ResultPreparer}), or when first needed for instances that did not
+ * come from the model. The age ("started 2.5 hrs ago", "last updated 10 minutes ago") changes 
+ * with time, so it is reformatted at most once per {@link ClockTick}.
+ */
+class InstanceRowTexts implements EC2InstancesModel.ResultPreparer {
+	
+	/** Application context, to get the strings from */
+	private Context context;
+	/** List type */
+	private int listType;
+	/** Age (in msecs) after which an instance is marked as out of date */
+	private long staleAge;
+	/** The row text for each instance, indexed by instance ID */
+	private ConcurrentHashMap<String, RowText> rowTexts = new ConcurrentHashMap<String, 
+		RowText>();
+	
+	/**
+	 * The text for one row.
+	 */
+	static class RowText {
+		/** The instance the text is for */
+		private volatile SerializableInstance instance;
+		/** The headline: tag or instance ID */
+		private final CharSequence headline;
+		/** The details: type and OS */
+		private final CharSequence details;
+		/** The age label. Only touched on the UI thread. */
+		private CharSequence age;
+		/**
+		 * The tick the age label was formatted in. -1 if never, or if the instance has been
+		 * swapped for a newer copy since.
+		 */
+		private volatile long ageTick = -1;
+		
+		/**
+		 * Constructor
+		 */
+		private RowText(SerializableInstance instance, CharSequence headline, 
+				CharSequence details) {
+			this.instance = instance;
+			this.headline = headline;
+			this.details = details;
+		}
+		
+		/**
+		 * @return The headline: tag or instance ID.
+		 */
+		CharSequence getHeadline() {
+			return headline;
+		}
+		
+		/**
+		 * @return The details: type and OS.
+		 */
+		CharSequence getDetails() {
+			return details;
+		}
+	}
+	
+	/**
+	 * @param context Any context.
+	 * @param listType The type of list: running or stopped.
+	 * @param staleAge Age (in msecs) after which an instance is marked as out of date.
+	 */
+	InstanceRowTexts(Context context, int listType, long staleAge) {
+		this.context = context.getApplicationContext();
+		this.listType = listType;
+		this.staleAge = staleAge;
+	}
+	
+	/**
+	 * Format the text for all of the instances just retrieved, and drop the text for the 
+	 * instances no longer in the list. Called by the model in its background thread.
+	 * 
+	 * @see org.elasticdroid.model.EC2InstancesModel.ResultPreparer#prepare(java.util.List)
+	 */
+	public void prepare(List<SerializableInstance> instances) {
+		HashSet<String> instanceIds = new HashSet<String>();
+		
+		for (SerializableInstance instance : instances) {
+			get(instance);
+			instanceIds.add(instance.getInstanceId());
+		}
+		
+		rowTexts.keySet().retainAll(instanceIds);
+	}
+	
+	/**
+	 * Get the text for an instance, formatting it if we do not have it already. Safe to call
+	 * from any thread.
+	 * 
+	 * @param instance The instance.
+	 * @return The text for its row.
+	 */
+	RowText get(SerializableInstance instance) {
+		RowText rowText = rowTexts.get(instance.getInstanceId());
+		
+		if (rowText != null) {
+			if (rowText.instance == instance) {
+				return rowText;
+			}
+			//a refresh gives us a new object for every instance; most of them won't have changed.
+			if (rowText.instance.hasSameData(instance)) {
+				rowText.instance = instance;
+				//it has just been brought up to date; the age label has to say so.
+				rowText.ageTick = -1;
+				return rowText;
+			}
+		}
+		
+		rowText = format(instance);
+		rowTexts.put(instance.getInstanceId(), rowText);
+		
+		return rowText;
+	}
+	
+	/**
+	 * Get the age label for a row, reformatting it if the clock has ticked since it was last
+	 * formatted. Call on the UI thread.
+	 * 
+	 * @param rowText The row text.
+	 * @param tick The current tick. See {@link ClockTick#getTick()}.
+	 * @return The age label. Empty if there is nothing to say.
+	 */
+	CharSequence getAge(RowText rowText, long tick) {
+		if (rowText.ageTick != tick) {
+			rowText.age = formatAge(rowText.instance);
+			rowText.ageTick = tick;
+		}
+		
+		return rowText.age;
+	}
+	
+	/**
+	 * @param instance An instance.
+	 * @return true if the instance is to be marked as out of date.
+	 */
+	boolean isStale(SerializableInstance instance) {
+		return System.currentTimeMillis() - instance.getLastUpdated() > staleAge;
+	}
+	
+	/**
+	 * Format the headline and details of a row.
+	 */
+	private RowText format(SerializableInstance instance) {
+		CharSequence headline;
+		
+		//set Instance ID as headline if no tag named "name"(case-insensitive) found.
+		if (instance.getTag() == null) {
+			headline = Html.fromHtml(String.format(context.getString(
+					R.string.ec2displayinstances_instanceID), instance.getInstanceId()));
+		}
+		else {
+			headline = Html.fromHtml(String.format(context.getString(
+					R.string.ec2displayinstances_tag), instance.getTag()));
+		}
+		
+		CharSequence details = Html.fromHtml(String.format(context.getString(
+				R.string.ec2displayinstances_type), instance.getInstanceType()) + ", " + 
+				String.format(context.getString(R.string.ec2displayinstances_os), 
+						(instance.getPlatform() == null) ? "Linux" : instance.getPlatform()));
+		
+		return new RowText(instance, headline, details);
+	}
+	
+	/**
+	 * Format the age label of a row: how long a running instance has been running, and when 
+	 * an out of date instance was last updated.
+	 */
+	private CharSequence formatAge(SerializableInstance instance) {
+		StringBuilder age = new StringBuilder();
+		
+		//don't bother getting day launched if the instance is stopped
+		if (listType == InstanceStateConstants.RUNNING) {
+			//get period running in hours.
+			float timeRunning = (System.currentTimeMillis() - instance.getLaunchTime()) / 
+				(1000f * 60 * 60);
+			
+			//if been running greater than 24 hours, convert to days
+			if (timeRunning > 24) {
+				age.append(String.format(context.getString(R.string.ec2displayinstances_rundays), 
+						timeRunning / 24));
+			}
+			else {
+				age.append(String.format(context.getString(R.string.ec2displayinstances_runhrs), 
+						timeRunning));
+			}
+		}
+		
+		//if this comes from a snapshot that's not been brought up to date, say so.
+		if (isStale(instance)) {
+			if (age.length() != 0) {
+				age.append("<br>");
+			}
+			age.append(String.format(context.getString(R.string.ec2displayinstances_stale),
+					DateUtils.getRelativeTimeSpanString(instance.getLastUpdated())));
+		}
+		
+		return Html.fromHtml(age.toString());
+	}
+}
+
+/**
+ * Adapter to display the instances in a list view. The row text comes from 
+ * {@link InstanceRowTexts}, and the row widgets are looked up once per row, not per bind.
  * @author Siddhu Warrier
  *
  * 6 Dec 2010
  */
-class EC2DisplayInstancesAdapter extends ArrayAdapter<SerializableInstance>{
+class EC2DisplayInstancesAdapter extends ArrayAdapter<SerializableInstance> implements 
+	InstanceListDiff.RowComparer {
 
 	/** Instance list */
 	private ArrayList<SerializableInstance> instanceData;
 	/** Context; typically the Activity that sets an object of this class as the Adapter */
 	private Context context;
-	/** List type */
-	private int listType;
+	/** The text for the rows */
+	private InstanceRowTexts rowTexts;
+	
+	/**
+	 * The widgets of a row, kept in the row's tag.
+	 */
+	private static class ViewHolder {
+		/** Headline: tag or instance ID */
+		private TextView headline;
+		/** Details: type and OS */
+		private TextView details;
+		/** Age: time running, last updated */
+		private TextView age;
+		/** The text the row is showing */
+		private InstanceRowTexts.RowText rowText;
+	}
+	
 	/**
 	 * @param context
 	 * @param textViewResourceId
+	 * @param rowTexts The text for the rows.
 	 */
 	public EC2DisplayInstancesAdapter(Context context, int textViewResourceId, 
-			ArrayList<SerializableInstance> instanceData, int listType) {
+			ArrayList<SerializableInstance> instanceData, InstanceRowTexts rowTexts) {
 		super(context, textViewResourceId, instanceData);
 		
-		//save the context, data, and list type
+		//save the context, data, and row text
 		this.context = context;
 		this.instanceData = instanceData;
-		this.listType = listType;
+		this.rowTexts = rowTexts;
+	}
+	
+	/**
+	 * A row has to be redrawn if its data has changed, or if it is no longer out of date.
+	 * 
+	 * @see org.elasticdroid.utils.InstanceListDiff.RowComparer#isRowChanged(
+	 * SerializableInstance, SerializableInstance)
+	 */
+	public boolean isRowChanged(SerializableInstance shown, SerializableInstance updated) {
+		return InstanceListDiff.DATA_CHANGED.isRowChanged(shown, updated) || 
+			(rowTexts.isStale(shown) != rowTexts.isStale(updated));
 	}
 	
 	/**
@@ -591,63 +1177,55 @@ class EC2DisplayInstancesAdapter extends ArrayAdapter<SerializableInstance>{
 	@Override
 	public View getView(int position, View convertView, ViewGroup parent) {
 		View instanceDataRow = convertView;
-		String details = "";
+		ViewHolder holder;
+		
 		if (instanceDataRow == null) {
 			LayoutInflater inflater = (LayoutInflater) context.getSystemService
 			(Context.LAYOUT_INFLATER_SERVICE);
 		
 			instanceDataRow = inflater.inflate(R.layout.ec2displayinstancesrow, parent, false);
-		}
-		//set main text view
-		TextView textViewHeadline = (TextView)instanceDataRow.findViewById(R.id.instanceHeadline);
-		TextView textViewDetails = (TextView)instanceDataRow.findViewById(R.id.instanceDetails);
-		
-		//set Instance ID as headline if no tag named "name"(case-insensitive) found.
-		if (instanceData.get(position).getTag() == null) {
-			textViewHeadline.setText(String.format(
-					context.getString(R.string.ec2displayinstances_instanceID),
-					instanceData.get(position).getInstanceId()));
+			
+			holder = new ViewHolder();
+			holder.headline = (TextView) instanceDataRow.findViewById(R.id.instanceHeadline);
+			holder.details = (TextView) instanceDataRow.findViewById(R.id.instanceDetails);
+			holder.age = (TextView) instanceDataRow.findViewById(R.id.instanceAge);
+			instanceDataRow.setTag(holder);
 		}
 		else {
-			textViewHeadline.setText(String.format(
-					context.getString(R.string.ec2displayinstances_tag),
-					instanceData.get(position).getTag()));
+			holder = (ViewHolder) instanceDataRow.getTag();
 		}
 		
-		details += String.format(
-				context.getString(R.string.ec2displayinstances_type),
-				instanceData.get(position).getInstanceType()) + ", ";
-		 
-		//get platform
-		details += String.format(
-				context.getString(R.string.ec2displayinstances_os),
-				(instanceData.get(position).getPlatform() == null?"Linux": instanceData.
-				get(position).getPlatform())) + ", ";
+		holder.rowText = rowTexts.get(instanceData.get(position));
+		holder.headline.setText(holder.rowText.getHeadline());
+		holder.details.setText(holder.rowText.getDetails());
+		bindAge(holder, ClockTick.getTick());
 		
-		//don't bother getting day launched if the instance is stopped
-		if (listType == InstanceStateConstants.RUNNING) {
-			//get period running in hours.
-			float timeRunning = ((new Date().getTime() - instanceData.get(position).getLaunchTime()) / 
-					(1000 * 60 * 60)); //convert from milliseconds to hours
+		return instanceDataRow;
+	}
+	
+	/**
+	 * Update the age labels of the rows on screen. Called as the clock ticks.
+	 * 
+	 * @param listView The list view showing this adapter.
+	 * @param tick The current tick.
+	 */
+	public void updateVisibleRows(ListView listView, long tick) {
+		for (int childIdx = 0; childIdx < listView.getChildCount(); childIdx ++) {
+			Object holder = listView.getChildAt(childIdx).getTag();
 			
-			//if been running greater than 24 hours, convert to days
-			if (timeRunning > 24) {
-				timeRunning /= 24;
-				
-				details += String.format(
-						context.getString(R.string.ec2displayinstances_rundays),
-						timeRunning
-						) ;
-			}
-			else {
-				details += String.format(
-						context.getString(R.string.ec2displayinstances_runhrs),
-						timeRunning
-						);
+			if ((holder instanceof ViewHolder) && (((ViewHolder) holder).rowText != null)) {
+				bindAge((ViewHolder) holder, tick);
 			}
 		}
-		textViewDetails.setText(Html.fromHtml(details));
-		return instanceDataRow;
 	}
 	
+	/**
+	 * Set the age label of a row, hiding it if there is nothing to say.
+	 */
+	private void bindAge(ViewHolder holder, long tick) {
+		CharSequence age = rowTexts.getAge(holder.rowText, tick);
+		
+		holder.age.setText(age);
+		holder.age.setVisibility((age.length() == 0) ? View.GONE : View.VISIBLE);
+	}
 }
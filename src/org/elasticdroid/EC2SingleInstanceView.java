@@ -160,7 +160,7 @@ public class EC2SingleInstanceView extends GenericListActivity {
     	}
     	
     	try {
-    		this.instance = (SerializableInstance)intent.getSerializableExtra(
+    		this.instance = intent.getParcelableExtra(
     				"org.elasticdroid.model.SerializableInstance");
     	}
     	catch(Exception exception) {
@@ -221,8 +221,8 @@ public class EC2SingleInstanceView extends GenericListActivity {
 		//restore the instance if the instance has been saved. This is for when we
 		//may have changed the state of the instance due to start/stop operations by the
 		//ControlInstancesModel.
-		if (stateToRestore.getSerializable("instance") != null) {
-			instance = (SerializableInstance)stateToRestore.getSerializable("instance");
+		if (stateToRestore.getParcelable("instance") != null) {
+			instance = stateToRestore.getParcelable("instance");
 		}
 		
 		//restore the boolean that indicates if state has changed.
@@ -313,12 +313,29 @@ public class EC2SingleInstanceView extends GenericListActivity {
 		else {
 			//populate the list
 			if (isElasticIpAssigned != null) {
-				setListAdapter(new EC2SingleInstanceAdapter(this, R.layout.ec2singleinstance, 
-					instance, isElasticIpAssigned));
+				populateInstanceList();
 			}
 		}
 	}
 	
+	/**
+	 * Show {@link #instance} in the list. If the list is already showing it, the rows are only
+	 * redrawn if something has changed; the list keeps its scroll position.
+	 */
+	private void populateInstanceList() {
+		if (getListAdapter() instanceof EC2SingleInstanceAdapter) {
+			EC2SingleInstanceAdapter adapter = (EC2SingleInstanceAdapter) getListAdapter();
+			
+			if (adapter.setInstance(instance, isElasticIpAssigned)) {
+				adapter.notifyDataSetChanged();
+			}
+		}
+		else {
+			setListAdapter(new EC2SingleInstanceAdapter(this, R.layout.ec2singleinstance, 
+					instance, isElasticIpAssigned));
+		}
+	}
+	
 	/**
 	 * Save state of the activity on destroy/stop.
 	 * Saves:
@@ -347,7 +364,7 @@ public class EC2SingleInstanceView extends GenericListActivity {
 		}
 		
 		if (instance != null) {
-			saveState.putSerializable("instance", instance);
+			saveState.putParcelable("instance", instance);
 		}
 	}
 	
@@ -409,6 +426,8 @@ public class EC2SingleInstanceView extends GenericListActivity {
 		Log.v(TAG, "Region:" + connectionData.get("region"));
 		Log.v(TAG, "Instance ID:" + instance.getInstanceId());
 		ec2InstancesModel = new EC2InstancesModel(this, connectionData, selectedRegion);
+		//the user asked for this; don't hand them the instance another view got a moment ago.
+		ec2InstancesModel.setForceRefresh(true);
 		ec2InstancesModel.execute(singleInstanceFilter);
 	}
 	
@@ -546,8 +565,7 @@ public class EC2SingleInstanceView extends GenericListActivity {
 			}
 			
 			//populate the list
-			setListAdapter(new EC2SingleInstanceAdapter(this, R.layout.ec2singleinstance, 
-					instance, isElasticIpAssigned));
+			populateInstanceList();
 		}
 		else if (result instanceof AmazonServiceException) {
 			// if a server error
@@ -601,8 +619,7 @@ public class EC2SingleInstanceView extends GenericListActivity {
 			
 			if (isElasticIpAssigned != null) {
 				//populate the list
-				setListAdapter(new EC2SingleInstanceAdapter(this, R.layout.ec2singleinstance, 
-						instance, isElasticIpAssigned));
+				populateInstanceList();
 			}
 			else {
 				//elastic IP not assigned; rerun model.
@@ -669,8 +686,7 @@ public class EC2SingleInstanceView extends GenericListActivity {
 			}
 			
 			//populate the list
-			setListAdapter(new EC2SingleInstanceAdapter(this, R.layout.ec2singleinstance, 
-					instance, isElasticIpAssigned));
+			populateInstanceList();
 			
 			//start refresh until state is not equal to expected state.
 			//i.e. running if stopped, stopped if running.
@@ -964,6 +980,24 @@ class EC2SingleInstanceAdapter extends ArrayAdapter<RowData> {
 		this.isElasticIpAssigned = isElasticIpAssigned;
 	}
 	
+	/**
+	 * Change the instance shown.
+	 * 
+	 * @param instance The instance.
+	 * @param isElasticIpAssigned Does it have an Elastic IP assigned?
+	 * @return true if the rows have to be redrawn. The instance passed in may be the one
+	 * already shown, changed in place, in which case we cannot tell, and assume so.
+	 */
+	public boolean setInstance(SerializableInstance instance, boolean isElasticIpAssigned) {
+		boolean changed = (instance == this.instance) || !this.instance.hasSameData(instance) ||
+			(isElasticIpAssigned != this.isElasticIpAssigned);
+		
+		this.instance = instance;
+		this.isElasticIpAssigned = isElasticIpAssigned;
+		
+		return changed;
+	}
+	
 	/**
 	 * Overriden method called when ListView is initialised with data.
 	 * @param position The position in {@link #instanceData}.
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.elasticdroid.model.ElasticIPsModel;
+import org.elasticdroid.model.ds.ModelCodec;
 import org.elasticdroid.model.ds.SerializableAddress;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.DialogConstants;
@@ -179,7 +180,7 @@ public class ElasticIPsView extends GenericListActivity implements OnCancelListe
 				+ alertDialogDisplayed);
 		alertDialogMessage = stateToRestore.getString("alertDialogMessage");
 		
-		elasticIps = (ArrayList<SerializableAddress>)stateToRestore.getSerializable("elasticIps");
+		elasticIps = ModelCodec.getList(stateToRestore, "elasticIps", SerializableAddress.DECODER);
 		
 		//was a progress dialog being displayed.
 		progressDialogDisplayed = stateToRestore.getBoolean("progressDialogDisplayed");
@@ -256,7 +257,7 @@ public class ElasticIPsView extends GenericListActivity implements OnCancelListe
 		
 		//don't bother saving it if there's no data.
 		if (elasticIps != null) {
-			saveState.putSerializable("elasticIps", elasticIps);
+			ModelCodec.putList(saveState, "elasticIps", elasticIps);
 		}
 		
 		//save if progress dialog is being displayed.
@@ -423,13 +424,27 @@ class ElasticIPsAdapter extends ArrayAdapter<SerializableAddress>{
 	private List<SerializableAddress> elasticIps;
 	/** Context; typically the Activity that sets an object of this class as the Adapter */
 	private Context context;
+	/** The details text for each elastic IP */
+	private CharSequence[] details;
 	
 	/**
-	 * Adapter constructor
+	 * The widgets of a row, kept in the row's tag.
+	 */
+	private static class ViewHolder {
+		/** The IP address */
+		private TextView headline;
+		/** The instance it's associated with */
+		private TextView details;
+		/** Associated or not */
+		private ImageView statusIcon;
+	}
+	
+	/**
+	 * Adapter constructor. Works out the text for all of the rows, so that binding a row is
+	 * just a matter of setting it.
 	 * @param context The context to display this in
 	 * @param textViewResourceId 
-	 * @param instanceData
-	 * @param listType
+	 * @param elasticIps The elastic IPs to display
 	 */
 	public ElasticIPsAdapter(Context context, int textViewResourceId, 
 			ArrayList<SerializableAddress> elasticIps) {
@@ -437,41 +452,50 @@ class ElasticIPsAdapter extends ArrayAdapter<SerializableAddress>{
 		
 		this.context = context;
 		this.elasticIps = elasticIps;
+		
+		details = new CharSequence[elasticIps.size()];
+		String instanceIdTxt = context.getString(R.string.elasticips_instanceID);
+		for (int idx = 0; idx < details.length; idx ++) {
+			if (elasticIps.get(idx).getInstanceId() != null) {
+				details[idx] = Html.fromHtml(String.format(instanceIdTxt, elasticIps.get(idx).
+						getInstanceId()));
+			}
+			else {
+				details[idx] = context.getString(R.string.elasticips_unassociated);
+			}
+		}
 	}
 	
 	/**
-	 * 
+	 * Overriden method called when ListView is initialised with data.
 	 */
 	@Override
 	public View getView(int position, View convertView, ViewGroup parent) {
 		View elasticIpRow = convertView;
+		ViewHolder holder;
 		
 		if (elasticIpRow == null) {
 			LayoutInflater inflater = (LayoutInflater) context.getSystemService
 			(Context.LAYOUT_INFLATER_SERVICE);
 		
 			elasticIpRow = inflater.inflate(R.layout.elasticipsrow, parent, false);
-		}
-	
-		//get text view widgets
-		TextView textViewHeadline = (TextView)elasticIpRow.findViewById(R.id.ipHeadline);
-		TextView textViewDetails = (TextView)elasticIpRow.findViewById(R.id.ipDetails);
-		ImageView imageViewStatusIcon = (ImageView)elasticIpRow.findViewById(R.id.ipStatusIcon);
-		
-		textViewHeadline.setText(elasticIps.get(position).getPublicIp());
-		
-		if (elasticIps.get(position).getInstanceId() != null) {
-			imageViewStatusIcon.setImageResource(R.drawable.green_light);
-			textViewDetails.setText(Html.fromHtml(
-					String.format(
-					context.getString(R.string.elasticips_instanceID), elasticIps.get(position).
-					getInstanceId())));
+			
+			//get the widgets once per row
+			holder = new ViewHolder();
+			holder.headline = (TextView) elasticIpRow.findViewById(R.id.ipHeadline);
+			holder.details = (TextView) elasticIpRow.findViewById(R.id.ipDetails);
+			holder.statusIcon = (ImageView) elasticIpRow.findViewById(R.id.ipStatusIcon);
+			elasticIpRow.setTag(holder);
 		}
 		else {
-			imageViewStatusIcon.setImageResource(R.drawable.red_light);
-			textViewDetails.setText(context.getString(R.string.elasticips_unassociated));
+			holder = (ViewHolder) elasticIpRow.getTag();
 		}
 		
+		holder.headline.setText(elasticIps.get(position).getPublicIp());
+		holder.details.setText(details[position]);
+		holder.statusIcon.setImageResource((elasticIps.get(position).getInstanceId() != null) ?
+				R.drawable.green_light : R.drawable.red_light);
+		
 		return elasticIpRow; //return the populated row to display
 	}
 	
@@ -5,13 +5,17 @@ import static org.elasticdroid.utils.ResultConstants.RESULT_ERROR;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
+import org.elasticdroid.db.DBExecutor;
 import org.elasticdroid.db.ElasticDroidDB;
 import org.elasticdroid.model.EC2InstancesModel;
+import org.elasticdroid.model.ds.ModelCodec;
 import org.elasticdroid.model.ds.SerializableInstance;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.DialogConstants;
+import org.elasticdroid.utils.InstanceListDiff;
 
 import android.app.AlertDialog;
 import android.content.Context;
@@ -158,7 +162,8 @@ public class InstanceGroupEditView extends GenericListActivity {
 		alertDialogMessage = stateToRestore.getString("alertDialogMessage");
 		
 		//restore instance data if any
-		instanceData = (ArrayList<SerializableInstance>)stateToRestore.getSerializable("instanceData");
+		instanceData = ModelCodec.getList(stateToRestore, "instanceData", 
+				SerializableInstance.DECODER);
 		
 		//was a progress dialog being displayed.
 		progressDialogDisplayed = stateToRestore.getBoolean("progressDialogDisplayed");
@@ -248,7 +253,7 @@ public class InstanceGroupEditView extends GenericListActivity {
 		//but don't bother saving it if the model is not null, i.e. a new model
 		//is executing.
 		if ((instanceData != null) && (ec2InstancesModel == null)) {
-			saveState.putSerializable("instanceData", instanceData);
+			ModelCodec.putList(saveState, "instanceData", instanceData);
 		}
 		
 		//save if progress dialog is being displayed.
@@ -306,6 +311,13 @@ public class InstanceGroupEditView extends GenericListActivity {
 			//get the model data
 			if (result instanceof ArrayList<?>) {
 				try {
+					//if we're showing a list already, update it rather than start again.
+					if ((getListAdapter() instanceof SelectableInstanceDisplayAdapter) && 
+							(((ArrayList<SerializableInstance>) result).size() != 0)) {
+						updateInstanceList((ArrayList<SerializableInstance>) result);
+						return;
+					}
+					
 					instanceData = (ArrayList<SerializableInstance>)result;
 				}
 				catch(Exception exception) {
@@ -443,6 +455,40 @@ public class InstanceGroupEditView extends GenericListActivity {
 		}
 	}
 	
+	/**
+	 * Bring the list being shown up to date, redrawing only the rows that changed (see
+	 * {@link InstanceListDiff}), and keeping the instances the user has ticked ticked.
+	 * 
+	 * @param updatedInstanceData The instances just retrieved.
+	 */
+	private void updateInstanceList(ArrayList<SerializableInstance> updatedInstanceData) {
+		ListView listView = getListView();
+		SelectableInstanceDisplayAdapter adapter = (SelectableInstanceDisplayAdapter) 
+			getListAdapter();
+		
+		//ticks are by position; remember them by instance ID.
+		HashSet<String> checkedInstanceIds = new HashSet<String>();
+		for (int listItemPos = 0; listItemPos < instanceData.size(); listItemPos ++) {
+			if (listView.isItemChecked(listItemPos)) {
+				checkedInstanceIds.add(instanceData.get(listItemPos).getInstanceId());
+			}
+		}
+		
+		//instanceData is the adapter's list; this changes it in place.
+		InstanceListDiff.Result diff = InstanceListDiff.apply(instanceData, updatedInstanceData, 
+				InstanceListDiff.DATA_CHANGED);
+		
+		if (diff.isStructureChanged()) {
+			listView.clearChoices();
+			for (int listItemPos = 0; listItemPos < instanceData.size(); listItemPos ++) {
+				listView.setItemChecked(listItemPos, checkedInstanceIds.contains(instanceData.get(
+						listItemPos).getInstanceId()));
+			}
+		}
+		
+		diff.updateListView(listView, adapter);
+	}
+	
 	private List<String> instanceIds;
 	/**
 	 * Method to save instance group data to DB.
@@ -488,31 +534,40 @@ public class InstanceGroupEditView extends GenericListActivity {
 			//set the listener up.
 			groupNameDialog.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
 				public void onClick(DialogInterface dialog, int whichButton) {
-					String newGroupName = groupNameInput.getText().toString();
-					  //write to DB
-					try {
-						new ElasticDroidDB(getApplicationContext()).writeInstanceGroupsToDb(connectionData.get("username"),
-							selectedRegion, 
-							newGroupName, 
-							instanceIds);
-					
-						Toast.makeText(
-								getApplicationContext(), 
-								getApplicationContext().getString(R.string.ec2instancegroupsview_new_group_notification), 
-								Toast.LENGTH_LONG)
-								.show();
+					final String newGroupName = groupNameInput.getText().toString();
+					final String username = connectionData.get("username");
+					final String region = selectedRegion;
+					final List<String> groupInstanceIds = instanceIds;
+					  //write to DB, off the UI thread
+					DBExecutor.write(InstanceGroupEditView.this, new DBExecutor.Operation<Void>() {
+						public Void run(ElasticDroidDB db) throws SQLException {
+							db.writeInstanceGroupsToDb(username, region, newGroupName, 
+									groupInstanceIds);
+							return null;
+						}
+					}, new DBExecutor.Callback<Void>() {
+						public void onResult(Void result) {
+							Toast.makeText(
+									getApplicationContext(), 
+									getApplicationContext().getString(
+											R.string.ec2instancegroupsview_new_group_notification), 
+									Toast.LENGTH_LONG)
+									.show();
+						}
 						
-					} catch (SQLException e) {
-						alertDialogMessage = "Group creation failed: " + e.getLocalizedMessage();
+						public void onError(Exception exception) {
+							alertDialogMessage = "Group creation failed: " + 
+								exception.getLocalizedMessage();
 							alertDialogDisplayed = true;
 							killActivityOnError = true;
-					}
-					
-					//display alert dialog if requested
-					if (alertDialogDisplayed) {
-						alertDialogBox.setMessage(alertDialogMessage);
-						alertDialogBox.show();
-					}
+							
+							//display alert dialog if it's still around to be displayed
+							if (!isFinishing()) {
+								alertDialogBox.setMessage(alertDialogMessage);
+								alertDialogBox.show();
+							}
+						}
+					});
 				}
 			});
 			
@@ -25,6 +25,7 @@ import java.util.HashMap;
 
 import org.apache.commons.httpclient.HttpStatus;
 import org.elasticdroid.model.LoginModel;
+import org.elasticdroid.service.WatchService;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.utils.DialogConstants;
 
@@ -101,6 +102,9 @@ public class LoginView extends GenericActivity implements OnClickListener {
         }        
         //set content view
     	setContentView(R.layout.login);
+    	
+    	//resume polling watched instances, in case the phone has been rebooted since.
+    	WatchService.start(this);
         
         //create the alert dialog
 		alertDialogBox = new AlertDialog.Builder(this).create(); //create alert box to
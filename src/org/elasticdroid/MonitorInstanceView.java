@@ -16,11 +16,12 @@
 package org.elasticdroid;
 
 import java.sql.SQLException;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 
 import org.achartengine.ChartFactory;
 import org.achartengine.GraphicalView;
@@ -30,10 +31,14 @@ import org.achartengine.model.XYSeries;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYSeriesRenderer;
 
+import org.elasticdroid.db.DBExecutor;
 import org.elasticdroid.db.ElasticDroidDB;
 import org.elasticdroid.db.tblinfo.MonitorTbl;
 import org.elasticdroid.model.CloudWatchMetricsModel;
 import org.elasticdroid.model.MonitorInstanceModel;
+import org.elasticdroid.model.ds.MetricTimeSeries;
+import org.elasticdroid.model.ds.ModelCodec;
+import org.elasticdroid.service.WatchService;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.utils.CloudWatchInput;
 import org.elasticdroid.utils.DialogConstants;
@@ -57,7 +62,6 @@ import android.widget.Toast;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.cloudwatch.model.Datapoint;
 import com.amazonaws.services.cloudwatch.model.Dimension;
 
 public class MonitorInstanceView extends GenericActivity {
@@ -97,7 +101,9 @@ public class MonitorInstanceView extends GenericActivity {
 	/** String holding selected region */
 	private String selectedRegion;
 	/** Data from CloudWatch; returned by {@link MonitorInstanceModel} */
-	private List<Datapoint> cloudWatchData;
+	private LinkedHashMap<String, MetricTimeSeries> cloudWatchData;
+	/** The measures overlaid on the chart, along with the one in cloudWatchInput */
+	private ArrayList<String> overlayMeasureNames;
 	/** Cloudwatch metrics; returneed by  {@link CloudWatchMetricsModel}*/
 	private ArrayList<String> measureNames;
 	
@@ -121,6 +127,8 @@ public class MonitorInstanceView extends GenericActivity {
 	 * The chart itself. Added to layout.
 	 */
 	private GraphicalView chartView;
+	/** The DB read for the monitoring defaults, if in progress */
+	private DBExecutor.Task<CloudWatchInput> monitoringDefaultsTask;
 	
   	/**
   	 * Executed when the activity is first (re)created.
@@ -215,13 +223,22 @@ public class MonitorInstanceView extends GenericActivity {
 		}
 		
 		//restore the input data
-		cloudWatchInput = (CloudWatchInput)(stateToRestore.getSerializable("cloudWatchInput"));
+		cloudWatchInput = stateToRestore.getParcelable("cloudWatchInput");
 		//restore the measure data if any
 		measureNames = stateToRestore.getStringArrayList("measureNames");
 		
-		//restore the chart data
-		multiRenderer = (XYMultipleSeriesRenderer) stateToRestore.getSerializable("multiRenderer");
-		dataset = (XYMultipleSeriesDataset) stateToRestore.getSerializable("dataset");
+		//restore the chart data. The chart is rebuilt from it in onResume.
+		ArrayList<String> cloudWatchDataNames = stateToRestore.getStringArrayList(
+				"cloudWatchDataNames");
+		ArrayList<MetricTimeSeries> cloudWatchSeries = ModelCodec.getList(stateToRestore, 
+				"cloudWatchData", MetricTimeSeries.DECODER);
+		if ((cloudWatchDataNames != null) && (cloudWatchSeries != null)) {
+			cloudWatchData = new LinkedHashMap<String, MetricTimeSeries>();
+			for (int idx = 0; idx < cloudWatchDataNames.size(); idx ++) {
+				cloudWatchData.put(cloudWatchDataNames.get(idx), cloudWatchSeries.get(idx));
+			}
+		}
+		overlayMeasureNames = stateToRestore.getStringArrayList("overlayMeasureNames");
 		
 		((TextView)findViewById(R.id.monitorInstanceTextView)).setText(stateToRestore.getString(
 				"titleText"));
@@ -254,6 +271,11 @@ public class MonitorInstanceView extends GenericActivity {
 			//this will now add the chart into the layout.Whee!
 			addChartToLayout();
 		}
+		//if we have been recreated with chart data, rebuild the chart from it
+		else if (cloudWatchData != null) {
+			Log.d(TAG, "Rebuilding charts");
+			drawChart(cloudWatchData);
+		}
   	}
 	
 	/**
@@ -279,18 +301,24 @@ public class MonitorInstanceView extends GenericActivity {
 		saveState.putBoolean("progressDialogDisplayed", progressDialogDisplayed);
 		
 		if (cloudWatchInput != null) {
-			saveState.putSerializable("cloudWatchInput", cloudWatchInput);
+			saveState.putParcelable("cloudWatchInput", cloudWatchInput);
 		}
 		
-		//save chart info
-		if (chartView != null) {
-			saveState.putSerializable("dataset", dataset);
-			saveState.putSerializable("multiRenderer", multiRenderer);
+		//save chart data. Much smaller than the achartengine dataset, which boxes every value.
+		if ((chartView != null) && (cloudWatchData != null)) {
+			//the measure names and their series go in separate lists, in the same order.
+			saveState.putStringArrayList("cloudWatchDataNames", new ArrayList<String>(
+					cloudWatchData.keySet()));
+			ModelCodec.putList(saveState, "cloudWatchData", new ArrayList<MetricTimeSeries>(
+					cloudWatchData.values()));
 		}
 		
 		if (measureNames != null) {
 			saveState.putStringArrayList("measureNames", measureNames);
 		}
+		if (overlayMeasureNames != null) {
+			saveState.putStringArrayList("overlayMeasureNames", overlayMeasureNames);
+		}
 		
 		//save the title text
 		saveState.putString("titleText", 
@@ -319,17 +347,27 @@ public class MonitorInstanceView extends GenericActivity {
 		
 		return null;
 	}
+
+	/**
+	 * Stop waiting for the DB; the results would go to a dead activity.
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		if (monitoringDefaultsTask != null) {
+			monitoringDefaultsTask.cancel();
+		}
+	}
   	
 	/**
 	 * Method that tries to get the default selections of the user from the DB.
 	 * If it can't find it in the DB, it uses the first measureName obtained from the metrics model.
 	 * If it can't find the measureNames, it calls the metricModel. When the MetricModel finishes,
 	 * it calls this method again.
+	 * The DB is read off the UI thread; the chart model is executed once that is done.
 	 */
 	private void executeAllModels() {
-		long timeNow = new Date().getTime();
-		long timeOneHrAgo = timeNow - 3600000; //subtract 3,600,000 milliseconds	
-		
 		//we have no data in DB!
 		if (measureNames == null) {
 			executeMetricsModel();
@@ -344,52 +382,108 @@ public class MonitorInstanceView extends GenericActivity {
 				
 				//dont try to plot the graph; just kill it.
 				finish();
+				return;
 			}
-			cloudWatchInput = new CloudWatchInput(timeOneHrAgo, timeNow, new Integer(300), 
-					measureNames.get(0), "AWS/EC2", 
-					new ArrayList<String>(Arrays.asList(new String[]{"Average"})), selectedRegion);
 			
-			//Get defaults from DB
-			try {
-				cloudWatchInput = new ElasticDroidDB(this).getMonitoringDefaults(instanceId, 
-						selectedRegion);
-			} catch (SQLException e) {
-				// Error fetching from DB.
-				//set CloudWatchInput to use CPUUtilization if present, or the first in the list
-				//measure names if CPUUtilization isn't.
-				if (measureNames.contains("CPUUtilization")) {
-					cloudWatchInput = new CloudWatchInput(timeOneHrAgo, timeNow, new Integer(300), 
-							"CPUUtilization", "AWS/EC2", new ArrayList<String>(
-									Arrays.asList(new String[]{"Average"})), selectedRegion);
+			//already reading them
+			if (monitoringDefaultsTask != null) {
+				return;
+			}
+			
+			//Get defaults from DB, off the UI thread. The chart model is executed once we have
+			//them.
+			final String instanceId = this.instanceId;
+			final String selectedRegion = this.selectedRegion;
+			monitoringDefaultsTask = DBExecutor.read(this, 
+					new DBExecutor.Operation<CloudWatchInput>() {
+				public CloudWatchInput run(ElasticDroidDB db) throws SQLException {
+					return db.getMonitoringDefaults(instanceId, selectedRegion);
 				}
-				else {
-					cloudWatchInput = new CloudWatchInput(timeOneHrAgo, timeNow, new Integer(300), 
-							measureNames.get(0), "AWS/EC2", new ArrayList<String>(
-									Arrays.asList(new String[]{"Average"})), selectedRegion);					
+			}, new DBExecutor.Callback<CloudWatchInput>() {
+				public void onResult(CloudWatchInput result) {
+					monitoringDefaultsTask = null;
+					cloudWatchInput = result;
+					
+					Log.v(TAG, "Calling chart model...");
+					executeChartModel();
 				}
 				
-				//write this in as the default
-				try {
-					long retVal = new ElasticDroidDB(this).setMonitoringDefaults(
-							connectionData.get("username"), 
-							instanceId, 
-							"instance", 
-							cloudWatchInput, 
-							false);
-					if (retVal == -1) {
-						Toast.makeText(this, this.getString(R.string.
-								monitorinstanceview_cannotsave), Toast.LENGTH_LONG).show();
-					}
-				} catch (SQLException exception) {
-					Log.e(TAG, exception.getMessage());
-					Toast.makeText(this, "Could not save monitoring defaults to DB", Toast.
-							LENGTH_LONG).show();
+				public void onError(Exception exception) {
+					monitoringDefaultsTask = null;
+					// Error fetching from DB. Use the first measure name, and write it in as the
+					// default.
+					cloudWatchInput = getFirstMeasureInput();
+					saveMonitoringDefaults(cloudWatchInput);
+					
+					Log.v(TAG, "Calling chart model...");
+					executeChartModel();
 				}
-			}
+			});
 		}
 	}
-
-
+	
+	/**
+	 * @return CloudWatchInput to use if there are no defaults in the DB: the last hour of
+	 * CPUUtilization if present, or the first in the list of measure names if it isn't.
+	 */
+	private CloudWatchInput getFirstMeasureInput() {
+		long timeNow = new Date().getTime();
+		long timeOneHrAgo = timeNow - 3600000; //subtract 3,600,000 milliseconds	
+		
+		return new CloudWatchInput(timeOneHrAgo, timeNow, new Integer(300), 
+				measureNames.contains("CPUUtilization") ? "CPUUtilization" : measureNames.get(0), 
+				"AWS/EC2", new ArrayList<String>(Arrays.asList(new String[]{"Average"})), 
+				selectedRegion);
+	}
+	
+	/**
+	 * Write the monitoring defaults for this instance to the DB, off the UI thread. Tells the
+	 * user if that fails.
+	 * 
+	 * @param defaults The defaults.
+	 */
+	private void saveMonitoringDefaults(final CloudWatchInput defaults) {
+		final String username = connectionData.get("username");
+		final String instanceId = this.instanceId;
+		
+		DBExecutor.write(this, new DBExecutor.Operation<Long>() {
+			public Long run(ElasticDroidDB db) throws SQLException {
+				return db.setMonitoringDefaults(username, instanceId, "instance", defaults, 
+						false);
+			}
+		}, new DBExecutor.Callback<Long>() {
+			public void onResult(Long retVal) {
+				if (retVal == -1) {
+					Toast.makeText(MonitorInstanceView.this, getString(R.string.
+							monitorinstanceview_cannotsave), Toast.LENGTH_LONG).show();
+				}
+			}
+			
+			public void onError(Exception exception) {
+				Log.e(TAG, exception.getMessage());
+				Toast.makeText(MonitorInstanceView.this, "Could not save monitoring defaults to " +
+						"DB", Toast.LENGTH_LONG).show();
+			}
+		});
+	}
+	
+	/**
+	 * Update some of the monitoring defaults for this instance in the DB, off the UI thread.
+	 * 
+	 * @param columns The columns in {@link MonitorTbl} to update.
+	 * @param data The values to put in them.
+	 * @param callback Called when done. May be null.
+	 */
+	private void updateMonitoringDefaults(final String[] columns, final String[] data, 
+			DBExecutor.Callback<Integer> callback) {
+		final String instanceId = this.instanceId;
+		
+		DBExecutor.write(this, new DBExecutor.Operation<Integer>() {
+			public Integer run(ElasticDroidDB db) {
+				return db.updateMonitoringDefaults(columns, data, instanceId);
+			}
+		}, callback);
+	}
 
 	/**
 	 * Execute model to get list of valid metrics for this instance.
@@ -413,7 +507,9 @@ public class MonitorInstanceView extends GenericActivity {
   		dimension.setName("InstanceId");
   		dimension.setValue(instanceId);
   		//create and start the model
-  		monitorInstanceModel = new MonitorInstanceModel(this, connectionData, cloudWatchInput);
+  		//downsample to twice the chart's pixel width; the chart is as wide as the screen.
+  		monitorInstanceModel = new MonitorInstanceModel(this, connectionData, cloudWatchInput, 
+  				overlayMeasureNames, 2 * getWindowManager().getDefaultDisplay().getWidth());
   		monitorInstanceModel.execute(dimension);
   	}
   	
@@ -429,6 +525,10 @@ public class MonitorInstanceView extends GenericActivity {
   		if (measureNames == null) {
   			executeMetricsModel(); //this will cause the chart model to be executed as well
   		}
+  		else if (cloudWatchInput == null) {
+  			//still reading the defaults from the DB. The chart model will be executed then.
+  			return;
+  		}
   		else {
 	  		//get the duration
 	  		long duration = cloudWatchInput.getEndTime() - cloudWatchInput.getStartTime();
@@ -469,10 +569,11 @@ public class MonitorInstanceView extends GenericActivity {
 		if (monitorInstanceModel != null) {
 			monitorInstanceModel = null; //set the model to null
 			
-			if (result instanceof List<?>) {
+			if (result instanceof LinkedHashMap<?, ?>) {
 				Log.v(TAG, "Drawing chart...");
 				//draw chart
-				drawChart((List<Datapoint>) result);
+				cloudWatchData = (LinkedHashMap<String, MetricTimeSeries>) result;
+				drawChart(cloudWatchData);
 			}
 			else if (result instanceof AmazonServiceException) {
 				// if a server error
@@ -503,11 +604,8 @@ public class MonitorInstanceView extends GenericActivity {
 				for (String measureName : measureNames) {
 					Log.v(TAG, "Measure: "+ measureName);
 				}
-				//set the cloudwatch input defaults
+				//set the cloudwatch input defaults; this executes the chart model when done.
 				executeAllModels();
-				//now execute chart model
-				Log.v(TAG, "Calling chart model...");
-				executeChartModel();
 			}
 			else if (result instanceof AmazonServiceException) {
 				// if a server error
@@ -536,10 +634,16 @@ public class MonitorInstanceView extends GenericActivity {
 	}
 	
 	/**
-	 * Draw chart
+	 * Draw chart. The first time series is drawn against the Y axis. The chart library only 
+	 * does one Y scale, so the rest are scaled to fit the range of the first, and their legend 
+	 * shows their real range.
+	 * 
+	 * @param cloudWatchData The time series to draw, indexed by measure name.
 	 */
-	private void drawChart(List<Datapoint> cloudWatchData) {
-		XYSeries cloudWatchSeries = new XYSeries(cloudWatchInput.getMeasureName());
+	private void drawChart(LinkedHashMap<String, MetricTimeSeries> cloudWatchData) {
+		//colours for the series, in order. Wrap around if there are more series.
+		int[] colours = new int[] {Color.RED, Color.CYAN, Color.GREEN, Color.YELLOW, 
+				Color.MAGENTA};
 		
 		//initialise the datasert and multi-series renderer if they are uninitialised ATM.
 		if (dataset == null) {
@@ -548,39 +652,84 @@ public class MonitorInstanceView extends GenericActivity {
 		if (multiRenderer == null) {
 			multiRenderer = new XYMultipleSeriesRenderer();
 		}
-		//remove all existing series. We are going to display only one at a time
-		for (int seriesCount = 0; seriesCount < dataset.getSeriesCount(); seriesCount ++) {
-			dataset.removeSeries(seriesCount);
-			multiRenderer.removeSeriesRenderer(multiRenderer.getSeriesRendererAt(seriesCount));
+		//remove all existing series. The chart view holds on to the dataset and renderer, so 
+		//empty them rather than creating new ones.
+		while (dataset.getSeriesCount() > 0) {
+			dataset.removeSeries(0);
+			multiRenderer.removeSeriesRenderer(multiRenderer.getSeriesRendererAt(0));
+		}
+		
+		//the series whose range the others are scaled to: the first one with any data.
+		MetricTimeSeries referenceData = null;
+		for (MetricTimeSeries timeSeries : cloudWatchData.values()) {
+			if (timeSeries.size() != 0) {
+				referenceData = timeSeries;
+				break;
+			}
 		}
 		
-		if (cloudWatchData.size() == 0) {
+		if (referenceData == null) {
 			Toast.makeText(this, this.getString(R.string.monitorinstanceview_nodata), Toast.
 					LENGTH_LONG).show();
 			
 			//dont try to plot the graph
 			return;
 		}
-
-		for (Datapoint cloudWatchDatum : cloudWatchData) {
-			//add the timestamp and the data
-			cloudWatchSeries.add(cloudWatchDatum.getTimestamp().getTime(), cloudWatchDatum.
-					getAverage());
-		}
 		
-		dataset.addSeries(cloudWatchSeries);
-		XYSeriesRenderer renderer = new XYSeriesRenderer();
-		renderer.setColor(Color.RED);
-		renderer.setPointStyle(PointStyle.CIRCLE);
-		renderer.setLineWidth(5);
+		double[] referenceRange = getAverageRange(referenceData);
+		//a flat reference series (0% CPU on an idle box, say) would squash every overlay into
+		//a flat line. Give them a unit-wide band above it instead.
+		if (referenceRange[1] <= referenceRange[0]) {
+			referenceRange = new double[] {referenceRange[0], referenceRange[0] + 1};
+		}
+		for (String measureName : cloudWatchData.keySet()) {
+			MetricTimeSeries timeSeries = cloudWatchData.get(measureName);
+			if (timeSeries.size() == 0) {
+				continue;
+			}
+			
+			double[] range = getAverageRange(timeSeries);
+			//scale = 1, offset = 0 for the reference series
+			double scale = 1;
+			double offset = 0;
+			XYSeries cloudWatchSeries;
+			if (timeSeries == referenceData) {
+				cloudWatchSeries = new XYSeries(measureName);
+			}
+			else {
+				if (range[1] > range[0]) {
+					scale = (referenceRange[1] - referenceRange[0]) / (range[1] - range[0]);
+				}
+				offset = referenceRange[0] - range[0] * scale;
+				cloudWatchSeries = new XYSeries(this.getString(
+						R.string.monitorinstanceview_overlay_legend, measureName, 
+						formatValue(range[0]), formatValue(range[1]), 
+						(timeSeries.getUnit() == null) ? "" : timeSeries.getUnit()));
+			}
+			
+			for (int idx = 0; idx < timeSeries.size(); idx ++) {
+				//add the timestamp and the data. Skip datapoints without an average.
+				double average = timeSeries.getValue(MetricTimeSeries.Statistic.AVERAGE, idx);
+				if (!Double.isNaN(average)) {
+					cloudWatchSeries.add(timeSeries.getTimestamp(idx), average * scale + offset);
+				}
+			}
+			
+			dataset.addSeries(cloudWatchSeries);
+			XYSeriesRenderer renderer = new XYSeriesRenderer();
+			renderer.setColor(colours[(dataset.getSeriesCount() - 1) % colours.length]);
+			renderer.setPointStyle(PointStyle.CIRCLE);
+			renderer.setLineWidth(5);
+			multiRenderer.addSeriesRenderer(renderer);
+		}
 		
-		multiRenderer.addSeriesRenderer(renderer);
 		multiRenderer.setAntialiasing(true);
-		multiRenderer.setYTitle(cloudWatchData.get(0).getUnit());
+		multiRenderer.setYTitle(referenceData.getUnit());
 		
 		multiRenderer.setLabelsTextSize(16);
 		multiRenderer.setAxisTitleTextSize(16);
-		multiRenderer.setShowLegend(false);
+		//the legend is only needed to tell overlays apart
+		multiRenderer.setShowLegend(dataset.getSeriesCount() > 1);
 		multiRenderer.setShowGrid(true);
 		
 		
@@ -608,6 +757,69 @@ public class MonitorInstanceView extends GenericActivity {
 		addChartToLayout(); //wasteful, but forceLayout does not work all the time (immediately)
 	}
 	
+	/**
+	 * @return double[]{min, max} of the averages in the time series. {0, 0} if there are none.
+	 */
+	private static double[] getAverageRange(MetricTimeSeries timeSeries) {
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		
+		for (int idx = 0; idx < timeSeries.size(); idx ++) {
+			double average = timeSeries.getValue(MetricTimeSeries.Statistic.AVERAGE, idx);
+			if (!Double.isNaN(average)) {
+				min = Math.min(min, average);
+				max = Math.max(max, average);
+			}
+		}
+		
+		return (min > max) ? new double[] {0, 0} : new double[] {min, max};
+	}
+	
+	/**
+	 * @return The value, with at most two decimal places, for the legend.
+	 */
+	private static String formatValue(double value) {
+		return new DecimalFormat("#,##0.##").format(value);
+	}
+	
+	/**
+	 * Show a dialog box to pick the measures to overlay on the chart, and redraw the chart
+	 * once the user has picked them.
+	 */
+	private void showCompareDialog() {
+		//all of the measures except the one charted already
+		final ArrayList<String> choices = new ArrayList<String>(measureNames);
+		choices.remove(cloudWatchInput.getMeasureName());
+		final boolean[] checked = new boolean[choices.size()];
+		for (int idx = 0; idx < choices.size(); idx ++) {
+			checked[idx] = (overlayMeasureNames != null) && overlayMeasureNames.contains(
+					choices.get(idx));
+		}
+		
+		new AlertDialog.Builder(this)
+			.setTitle(R.string.monitorinstanceview_compare)
+			.setMultiChoiceItems(choices.toArray(new String[choices.size()]), checked, 
+					new DialogInterface.OnMultiChoiceClickListener() {
+						public void onClick(DialogInterface dialog, int which, boolean isChecked) {
+							checked[which] = isChecked;
+						}
+					})
+			.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int which) {
+					overlayMeasureNames = new ArrayList<String>();
+					for (int idx = 0; idx < choices.size(); idx ++) {
+						if (checked[idx]) {
+							overlayMeasureNames.add(choices.get(idx));
+						}
+					}
+					//fetch them all in one go
+					executeChartModel();
+				}
+			})
+			.setNegativeButton(android.R.string.cancel, null)
+			.show();
+	}
+	
 	/**
 	 * Utility method to add ChartView to their layout
 	 */
@@ -681,11 +893,27 @@ public class MonitorInstanceView extends GenericActivity {
 			
 			return true;
 		
+		case R.id.monitorinstance_menuitem_compare:
+			//we need the measure names and the charted measure first
+			if ((measureNames != null) && (cloudWatchInput != null)) {
+				showCompareDialog();
+			}
+			return true;
+		
 		case R.id.monitorinstance_menuitem_watch:
-			new ElasticDroidDB(this).updateMonitoringDefaults(
+			updateMonitoringDefaults(
 					new String[]{MonitorTbl.COL_WATCH}, 
 					new String[]{String.valueOf(1)}, //SQLite does not support booleans; so 1=true 
-					instanceId); //instance ID
+					new DBExecutor.Callback<Integer>() {
+						public void onResult(Integer numAffectedRows) {
+							//start polling it in the background, now that it's in the DB
+							WatchService.start(getApplicationContext());
+						}
+						
+						public void onError(Exception exception) {
+							//updateMonitoringDefaults logs its own errors.
+						}
+					});
 			
 			//set alert dialog box params
 			alertDialogMessage = this.getString(R.string.monitorinstanceview_watch_alert);
@@ -732,12 +960,12 @@ public class MonitorInstanceView extends GenericActivity {
 			
 			//if this should be set as default, write to DB
 			if (data.getBooleanExtra("setAsDefault", false)) {
-				new ElasticDroidDB(this).updateMonitoringDefaults(
+				updateMonitoringDefaults(
 						new String[]{MonitorTbl.COL_DEFAULTDURATION, MonitorTbl.
 								COL_DEFAULTMEASURENAME}, 
 						new String[]{String.valueOf(cloudWatchInput.getEndTime() - 
 								cloudWatchInput.getStartTime()), cloudWatchInput.getMeasureName()}, 
-						instanceId);
+						null);
 			}
 			
 			//execute the model to repopulate.
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.elasticdroid.model.SecurityGroupsModel;
+import org.elasticdroid.model.ds.ModelCodec;
 import org.elasticdroid.model.ds.SerializableSecurityGroup;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.DialogConstants;
@@ -176,7 +177,8 @@ public class SecurityGroupsView extends GenericListActivity {
 				+ alertDialogDisplayed);
 		alertDialogMessage = stateToRestore.getString("alertDialogMessage");
 		
-		securityGroups = (ArrayList<SerializableSecurityGroup>)stateToRestore.getSerializable("securityGroups");
+		securityGroups = ModelCodec.getList(stateToRestore, "securityGroups", 
+				SerializableSecurityGroup.DECODER);
 		
 		//was a progress dialog being displayed.
 		progressDialogDisplayed = stateToRestore.getBoolean("progressDialogDisplayed");
@@ -253,7 +255,7 @@ public class SecurityGroupsView extends GenericListActivity {
 		
 		//don't bother saving it if there's no data.
 		if (securityGroups != null) {
-			saveState.putSerializable("securityGroups", securityGroups);
+			ModelCodec.putList(saveState, "securityGroups", securityGroups);
 		}
 		
 		//save if progress dialog is being displayed.
@@ -282,7 +284,18 @@ public class SecurityGroupsView extends GenericListActivity {
 	 * Private method to execute the model.
 	 */
 	private void executeModel() {
+		executeModel(false);
+	}
+	
+	/**
+	 * Private method to execute the model.
+	 * 
+	 * @param forceRefresh true if the user asked for a refresh, and the security groups have to
+	 * come from AWS rather than the {@link org.elasticdroid.model.SecurityGroupCache}.
+	 */
+	private void executeModel(boolean forceRefresh) {
 		securityGroupsModel = new SecurityGroupsModel(this, connectionData);
+		securityGroupsModel.setForceRefresh(forceRefresh);
 		securityGroupsModel.execute(); //execute the Elastic IP model without any filters.
 	}
 	
@@ -387,7 +400,7 @@ public class SecurityGroupsView extends GenericListActivity {
 		
 		//refresh data
 		case R.id.securitygroups_menuitem_refresh:
-			executeModel();
+			executeModel(true);
 			return true;
 		
 		//unrecognised
@@ -422,13 +435,25 @@ class SecurityGroupsAdapter extends ArrayAdapter<SerializableSecurityGroup>{
 	private List<SerializableSecurityGroup> securityGroups;
 	/** Context; typically the Activity that sets an object of this class as the Adapter */
 	private Context context;
+	/** The open ports text for each security group */
+	private String[] descriptions;
+	
+	/**
+	 * The widgets of a row, kept in the row's tag.
+	 */
+	private static class ViewHolder {
+		/** Security group name */
+		private TextView securityGroup;
+		/** Open ports */
+		private TextView description;
+	}
 	
 	/**
-	 * Adapter constructor
+	 * Adapter constructor. Works out the text for all of the rows, so that binding a row is
+	 * just a matter of setting it.
 	 * @param context The context to display this in
 	 * @param textViewResourceId 
-	 * @param instanceData
-	 * @param listType
+	 * @param securityGroups The security groups to display
 	 */
 	public SecurityGroupsAdapter(Context context, int textViewResourceId, 
 			ArrayList<SerializableSecurityGroup> securityGroups) {
@@ -436,50 +461,59 @@ class SecurityGroupsAdapter extends ArrayAdapter<SerializableSecurityGroup>{
 		
 		this.context = context;
 		this.securityGroups = securityGroups;
+		
+		descriptions = new String[securityGroups.size()];
+		String openPortsTxt = context.getString(R.string.securityGroups_open_ports);
+		for (int idx = 0; idx < descriptions.length; idx ++) {
+			ArrayList<String> openPorts = securityGroups.get(idx).getOpenPorts();
+			if (openPorts.size() == 0) {
+				descriptions[idx] = context.getString(R.string.securityGroups_no_open_ports);
+				continue;
+			}
+			
+			StringBuilder descrTxt = new StringBuilder(openPortsTxt);
+			descrTxt.append(" "); //append an extra space as context.getString() seems to strip 
+			//spaces
+			
+			for (String openPort : openPorts) {
+				descrTxt.append(openPort);
+				descrTxt.append(", ");
+			}
+			
+			//delete the last ", "
+			descrTxt.setLength(descrTxt.length() - 2);
+			descriptions[idx] = descrTxt.toString();
+		}
 	}
 	
 	/**
-	 * 
+	 * Overriden method called when ListView is initialised with data.
 	 */
 	@Override
 	public View getView(int position, View convertView, ViewGroup parent) {
 		View securityGroupRow = convertView;
+		ViewHolder holder;
 		
 		if (securityGroupRow == null) {
 			LayoutInflater inflater = (LayoutInflater) context.getSystemService
 			(Context.LAYOUT_INFLATER_SERVICE);
 		
 			securityGroupRow = inflater.inflate(R.layout.securitygrouprow, parent, false);
-		}
-	
-		//get text view widgets
-		TextView textViewSecurityGroup = (TextView)securityGroupRow.findViewById(R.id.securityGroupName);
-		TextView textViewDescription = (TextView)securityGroupRow.findViewById(R.id.
-				securityGroupDescription);
-		
-		textViewSecurityGroup.setText(securityGroups.get(position).getGroupName());
-		
-		ArrayList<String> openPorts = securityGroups.get(position).getOpenPorts();
-		if (openPorts.size() == 0) {
-			textViewDescription.setText(context.getString(R.string.securityGroups_no_open_ports));
+			
+			//get text view widgets once per row
+			holder = new ViewHolder();
+			holder.securityGroup = (TextView) securityGroupRow.findViewById(
+					R.id.securityGroupName);
+			holder.description = (TextView) securityGroupRow.findViewById(
+					R.id.securityGroupDescription);
+			securityGroupRow.setTag(holder);
 		}
 		else {
-			StringBuffer descrTxt = new StringBuffer(context.getString(R.string.
-					securityGroups_open_ports));
-			descrTxt.append(" "); //append an extra space as context.getString() seems to strip 
-			//spaces
-			
-			//O(n). Shame on me! On top of another O(n) method. Shoot me.
-			for (String openPort : openPorts) {
-				descrTxt.append(openPort);
-				descrTxt.append(", ");
-			}
-			
-			//delete the last ", "
-			descrTxt.deleteCharAt(descrTxt.length() - 1);
-			descrTxt.deleteCharAt(descrTxt.length() - 1);
-			textViewDescription.setText(descrTxt);
+			holder = (ViewHolder) securityGroupRow.getTag();
 		}
+		
+		holder.securityGroup.setText(securityGroups.get(position).getGroupName());
+		holder.description.setText(descriptions[position]);
 
 		return securityGroupRow; //return the populated row to display
 	}
@@ -21,6 +21,7 @@ package org.elasticdroid;
 import java.util.ArrayList;
 import java.util.Hashtable;
 
+import org.elasticdroid.db.DBExecutor;
 import org.elasticdroid.db.ElasticDroidDB;
 import static org.elasticdroid.utils.ResultConstants.*;
 
@@ -49,6 +50,8 @@ public class UserPickerView extends ListActivity {
 	
 	/** hashtable to store userdata (username, accesskey, secret accesskey) keyed by username*/
 	private Hashtable<String, ArrayList<String>> userData; 
+	/** The DB read for {@link #userData}, if in progress */
+	private DBExecutor.Task<Hashtable<String, ArrayList<String>>> userDataTask;
 	
 	/** 
 	 * Called when the activity is first created or recreated. 
@@ -59,8 +62,48 @@ public class UserPickerView extends ListActivity {
 		super.onCreate(savedInstanceState);
 	
 		setContentView(R.layout.userpicker);
-		//get the list of users from the Database
-		userData = new ElasticDroidDB(this).listUserData();
+		//get the list of users from the Database, off the UI thread.
+		userDataTask = DBExecutor.read(this, 
+				new DBExecutor.Operation<Hashtable<String, ArrayList<String>>>() {
+			public Hashtable<String, ArrayList<String>> run(ElasticDroidDB db) {
+				return db.listUserData();
+			}
+		}, new DBExecutor.Callback<Hashtable<String, ArrayList<String>>>() {
+			public void onResult(Hashtable<String, ArrayList<String>> result) {
+				userDataTask = null;
+				showUsers(result);
+			}
+			
+			public void onError(Exception exception) {
+				userDataTask = null;
+				Log.e(UserPickerView.class.getName(), "Couldn't list the users: " + 
+						exception.getMessage());
+				//no users we can show; ask for user input.
+				showUsers(new Hashtable<String, ArrayList<String>>());
+			}
+		});
+	}
+	
+	/**
+	 * Stop waiting for the DB when the activity goes away.
+	 */
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		
+		if (userDataTask != null) {
+			userDataTask.cancel();
+		}
+	}
+	
+	/**
+	 * Show the users read from the DB.
+	 * 
+	 * @param userData The user data, keyed by username.
+	 */
+	private void showUsers(Hashtable<String, ArrayList<String>> userData) {
+		this.userData = userData;
+		
 		//if there are no users in the DB, tell the calling activity it needs to ask for user input
 		if (userData.size() == 0) {
 			Intent resultIntent = new Intent();
@@ -68,6 +111,7 @@ public class UserPickerView extends ListActivity {
 			resultIntent.putExtra("SELECTION_SIZE", 0);
 			setResult(RESULT_OK, resultIntent);
 			finish(); //kill the activity
+			return;
 		}
 		
 		//Add New User to list of usernames.
@@ -0,0 +1,225 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.db;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Runs {@link ElasticDroidDB} calls off the UI thread, and hands their results back on it.
+ *
+ * Writes go to a single thread, one at a time and in the order they were submitted. Reads go
+ * to a small pool of their own, so that they do not queue up behind a long write (a big batch
+ * of datapoints, say); so a read is only sure to see a write if it is submitted once the
+ * write's callback has been called. Note that before Honeycomb SQLite has no write-ahead log,
+ * so a read that runs during a write still waits for it to finish; it just does not wait on
+ * the UI thread.
+ *
+ * Operations run at background priority, like the models, and their callbacks are called on
+ * the UI thread unless {@link Task#cancel()} was called first. Cancel the tasks an activity
+ * is waiting for in its onDestroy().
+ */
+public final class DBExecutor {
+
+	/**
+	 * Some work with the database. Runs on one of the DB threads.
+	 *
+	 * @param <T> The result type. Use Void (and return null) if there is none.
+	 */
+	public static interface Operation<T> {
+		/**
+		 * @param db The database.
+		 * @return The result, passed to {@link Callback#onResult(Object)}.
+		 * @throws Exception Passed to {@link Callback#onError(Exception)}.
+		 */
+		public T run(ElasticDroidDB db) throws Exception;
+	}
+
+	/**
+	 * Receives the result of an {@link Operation}. Called on the UI thread.
+	 *
+	 * @param <T> The result type.
+	 */
+	public static interface Callback<T> {
+		/**
+		 * @param result What the operation returned.
+		 */
+		public void onResult(T result);
+
+		/**
+		 * @param exception What the operation threw.
+		 */
+		public void onError(Exception exception);
+	}
+
+	/** The number of reads that can run at the same time */
+	private static final int READER_POOL_SIZE = 2;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.db.DBExecutor";
+
+	/** The writer thread */
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(
+			new DBThreadFactory("DBExecutor writer"));
+	/** The reader threads */
+	private static final ExecutorService readers = Executors.newFixedThreadPool(
+			READER_POOL_SIZE, new DBThreadFactory("DBExecutor reader"));
+	/** Posts the callbacks to the UI thread */
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private DBExecutor() {
+	}
+
+	/**
+	 * Queue an operation which only reads from the database.
+	 *
+	 * @param context Any context. Only the application context is used.
+	 * @param operation The operation.
+	 * @param callback Receives the result. May be null.
+	 * @return The task, to cancel the callback with.
+	 */
+	public static <T> Task<T> read(Context context, Operation<T> operation,
+			Callback<T> callback) {
+		Task<T> task = new Task<T>(context.getApplicationContext(), operation, callback);
+		readers.execute(task);
+
+		return task;
+	}
+
+	/**
+	 * Queue an operation which writes to the database. Writes run one at a time, in the order
+	 * they were submitted.
+	 *
+	 * @param context Any context. Only the application context is used.
+	 * @param operation The operation.
+	 * @param callback Receives the result. May be null.
+	 * @return The task, to cancel the callback with. Cancelling does not stop the write.
+	 */
+	public static <T> Task<T> write(Context context, Operation<T> operation,
+			Callback<T> callback) {
+		Task<T> task = new Task<T>(context.getApplicationContext(), operation, callback);
+		task.mustRun = true;
+		writer.execute(task);
+
+		return task;
+	}
+
+	/**
+	 * An operation queued for execution, and the callback waiting for it.
+	 *
+	 * @param <T> The result type.
+	 */
+	public static final class Task<T> implements Runnable {
+		/** The application context, to get at the database */
+		private final Context context;
+		/** The operation */
+		private final Operation<T> operation;
+		/** The callback; null if none */
+		private final Callback<T> callback;
+		/** Whether the operation runs even if cancelled before it starts. True for writes. */
+		private boolean mustRun;
+		/** Set by {@link #cancel()} */
+		private volatile boolean cancelled;
+
+		private Task(Context context, Operation<T> operation, Callback<T> callback) {
+			this.context = context;
+			this.operation = operation;
+			this.callback = callback;
+		}
+
+		/**
+		 * Do not call the callback. A read which has not started yet will not run either.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 * @return true if {@link #cancel()} has been called.
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		public void run() {
+			if (cancelled && !mustRun) {
+				return;
+			}
+
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+			T result = null;
+			Exception exception = null;
+			try {
+				result = operation.run(ElasticDroidDB.getInstance(context));
+			} catch (Exception caught) {
+				Log.e(TAG, "DB operation failed: " + caught.getMessage());
+				exception = caught;
+			}
+
+			if (callback != null) {
+				final T finalResult = result;
+				final Exception finalException = exception;
+
+				handler.post(new Runnable() {
+					public void run() {
+						//the activity may have gone away while we were at it.
+						if (cancelled) {
+							return;
+						}
+
+						if (finalException != null) {
+							callback.onError(finalException);
+						} else {
+							callback.onResult(finalResult);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Names the DB threads, so that they can be told apart in traces.
+	 */
+	private static class DBThreadFactory implements ThreadFactory {
+		/** The name of the threads, less their number */
+		private final String name;
+		/** The number of threads created so far */
+		private final AtomicInteger count = new AtomicInteger(1);
+
+		private DBThreadFactory(String name) {
+			this.name = name;
+		}
+
+		public Thread newThread(Runnable runnable) {
+			return new Thread(runnable, name + " #" + count.getAndIncrement());
+		}
+	}
+}
@@ -18,6 +18,7 @@
  */
 package org.elasticdroid.db;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,27 +29,43 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
 
+import org.elasticdroid.db.tblinfo.DatapointTbl;
 import org.elasticdroid.db.tblinfo.InstanceGroupTbl;
+import org.elasticdroid.db.tblinfo.InstanceSnapshotTbl;
 import org.elasticdroid.db.tblinfo.InstanceTbl;
 import org.elasticdroid.db.tblinfo.LoginTbl;
+import org.elasticdroid.db.tblinfo.MetricCatalogTbl;
+import org.elasticdroid.db.tblinfo.MetricSeriesTbl;
 import org.elasticdroid.db.tblinfo.MonitorTbl;
+import org.elasticdroid.db.tblinfo.RegionTbl;
 import org.elasticdroid.db.tblinfo.ResourceTypeTbl;
+import org.elasticdroid.model.ds.MetricTimeSeries;
+import org.elasticdroid.model.ds.ModelCodec;
+import org.elasticdroid.model.ds.SerializableInstance;
 import org.elasticdroid.model.orm.InstanceGroup;
+import org.elasticdroid.model.orm.WatchedResource;
 import org.elasticdroid.utils.CloudWatchInput;
 
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import com.amazonaws.services.cloudwatch.model.Datapoint;
+
 /**
  * Database class for ElasticDroid.
  * 
  * Has methods to create tables etc
  * 
+ * There is one instance per process, got with {@link #getInstance(Context)}, and it keeps one
+ * connection open for the life of the process; SQLiteDatabase does its own locking, so the
+ * models can share it. Do not close the databases it hands out.
+ * 
  * @author Siddhu Warrier
  * 
  *         4 Nov 2010
@@ -58,21 +75,162 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 	/** Name of database */
 	private static final String DATABASE_NAME = "elasticdroid.db";
 	/** Database version */
-	private static final int DATABASE_VERSION = 9;
+	private static final int DATABASE_VERSION = 14;
 	/** Logging tag */
 	private static final String TAG = "org.elasticdroid.db.ElasticDroidDB";
 
+	/** Looks up the id of a resource type by name */
+	private static final String RESOURCE_TYPE_QUERY = "SELECT " + ResourceTypeTbl.COL_RESTYPE
+			+ " FROM " + ResourceTypeTbl.TBL_NAME + " WHERE " + ResourceTypeTbl.COL_RESNAME
+			+ " = ?";
+	/** Counts the instance groups for a region and username */
+	private static final String INSTANCE_GROUP_COUNT_QUERY = "SELECT count(*) FROM "
+			+ InstanceGroupTbl.TBL_NAME + " WHERE " + InstanceGroupTbl.COL_REGION + " = ? AND "
+			+ InstanceGroupTbl.COL_USERNAME + " = ?";
+	/**
+	 * Gets the monitoring defaults for a resource. Several columns, so it can't be a
+	 * SQLiteStatement; being the same string each time, SQLiteDatabase compiles it once and
+	 * reuses it from its own statement cache.
+	 */
+	private static final String MONITORING_DEFAULTS_QUERY = "SELECT "
+			+ MonitorTbl.COL_DEFAULTMEASURENAME + ", " + MonitorTbl.COL_DEFAULTDURATION + ", "
+			+ MonitorTbl.COL_PERIOD + ", " + MonitorTbl.COL_NAMESPACE + " FROM "
+			+ MonitorTbl.TBL_NAME + " WHERE " + MonitorTbl.COL_AWSID + " = ?";
+	/** Gets the watched resources of a type for a username. Cached like the one above. */
+	private static final String WATCHED_RESOURCES_QUERY = "SELECT " + MonitorTbl.COL_AWSID
+			+ ", " + MonitorTbl.COL_REGION + " FROM " + MonitorTbl.TBL_NAME + " WHERE "
+			+ MonitorTbl.COL_RESTYPE + " = ? AND " + MonitorTbl.COL_USERNAME + " = ? AND "
+			+ MonitorTbl.COL_WATCH + " = 1";
+
+	/** Gets the instance groups for a region and username, with their instances */
+	private static final String INSTANCE_GROUPS_QUERY = "SELECT g." + InstanceGroupTbl._ID
+			+ ", g." + InstanceGroupTbl.COL_GROUP_NAME + ", i." + InstanceTbl.COL_INSTANCEID
+			+ " FROM " + InstanceGroupTbl.TBL_NAME + " g LEFT JOIN " + InstanceTbl.TBL_NAME
+			+ " i ON i." + InstanceTbl.COL_INSTANCEGROUPID + " = g." + InstanceGroupTbl._ID
+			+ " WHERE g." + InstanceGroupTbl.COL_REGION + " = ? AND g."
+			+ InstanceGroupTbl.COL_USERNAME + " = ? ORDER BY g." + InstanceGroupTbl._ID;
+	/** Adds an instance to an instance group */
+	private static final String INSERT_INSTANCE_STATEMENT = "INSERT INTO " + InstanceTbl.TBL_NAME
+			+ "(" + InstanceTbl.COL_INSTANCEGROUPID + ", " + InstanceTbl.COL_INSTANCEID
+			+ ") VALUES (?, ?)";
+	/** Takes an instance out of an instance group */
+	private static final String DELETE_INSTANCE_STATEMENT = "DELETE FROM " 
+			+ InstanceTbl.TBL_NAME + " WHERE " + InstanceTbl.COL_INSTANCEGROUPID + " = ? AND "
+			+ InstanceTbl.COL_INSTANCEID + " = ?";
+
+	/** The one instance in this process */
+	private static ElasticDroidDB instance;
+
+	/** The compiled statements, indexed by their SQL. Closed only with the DB. */
+	private final HashMap<String, SQLiteStatement> statements = new HashMap<String,
+		SQLiteStatement>();
 	/**
-	 * Initialises the superclass constructor.
+	 * The ids of the resource types, indexed by name. They're written when the DB is created
+	 * and never change, so we only ever look each one up once.
+	 */
+	private final HashMap<String, Long> resourceTypes = new HashMap<String, Long>();
+
+	/**
+	 * Initialises the superclass constructor. Use {@link #getInstance(Context)}.
 	 * 
 	 * @param context
-	 *            the view that created this object/
+	 *            the application context.
 	 */
-	public ElasticDroidDB(Context context) {
+	private ElasticDroidDB(Context context) {
 		super(context, DATABASE_NAME, null, DATABASE_VERSION);
 
-		// check for upgrades by getting a writable database and then close it.
-		this.getWritableDatabase().close();
+		// check for upgrades by opening the connection we'll keep.
+		this.getWritableDatabase();
+	}
+
+	/**
+	 * Get the database, opening it if this is the first time round in this process.
+	 * 
+	 * @param context
+	 *            Any context. Only the application context is held on to.
+	 * @return the database.
+	 */
+	public static synchronized ElasticDroidDB getInstance(Context context) {
+		if (instance == null) {
+			instance = new ElasticDroidDB(context.getApplicationContext());
+		}
+
+		return instance;
+	}
+
+	/**
+	 * @return the connection shared by all of the methods. Do not close it!
+	 */
+	private SQLiteDatabase getDatabase() {
+		// SQLiteOpenHelper hangs on to the database it opened, and returns it while open.
+		return this.getWritableDatabase();
+	}
+
+	/**
+	 * Get a compiled statement, compiling it the first time round. Statements are not thread
+	 * safe: synchronize on them while binding and executing.
+	 * 
+	 * @param sql
+	 *            the SQL. Use one of the constants, so that it is the same string each time.
+	 * @return the statement.
+	 */
+	private synchronized SQLiteStatement getStatement(String sql) {
+		SQLiteStatement statement = statements.get(sql);
+
+		if (statement == null) {
+			statement = getDatabase().compileStatement(sql);
+			statements.put(sql, statement);
+		}
+
+		return statement;
+	}
+
+	/**
+	 * Get the id of a resource type in {@link ResourceTypeTbl}.
+	 * 
+	 * @param resName
+	 *            Acceptable values: instance, volume
+	 * @return the id.
+	 * @throws SQLException
+	 *             If there's no such resource type.
+	 */
+	private long getResourceType(String resName) throws SQLException {
+		synchronized (resourceTypes) {
+			Long resType = resourceTypes.get(resName);
+			if (resType != null) {
+				return resType;
+			}
+		}
+
+		SQLiteStatement statement = getStatement(RESOURCE_TYPE_QUERY);
+		long resType;
+		synchronized (statement) {
+			statement.bindString(1, resName);
+			try {
+				resType = statement.simpleQueryForLong();
+			} catch (SQLiteDoneException exception) {
+				throw new SQLException("No data");
+			}
+		}
+
+		synchronized (resourceTypes) {
+			resourceTypes.put(resName, resType);
+		}
+
+		return resType;
+	}
+
+	/**
+	 * Close the compiled statements along with the database.
+	 */
+	@Override
+	public synchronized void close() {
+		for (SQLiteStatement statement : statements.values()) {
+			statement.close();
+		}
+		statements.clear();
+
+		super.close();
 	}
 
 	/**
@@ -91,6 +249,11 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 		createMonitorTbl(db);
 		createInstanceGroupTbl(db);
 		createInstanceTbl(db);
+		createRegionTbl(db);
+		createMetricCatalogTbl(db);
+		createMetricSeriesTbl(db);
+		createDatapointTbl(db);
+		createInstanceSnapshotTbl(db);
 	}
 
 	/**
@@ -138,6 +301,18 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 		case 8:
 			createInstanceGroupTbl(db);
 			createInstanceTbl(db);
+		case 9:
+			createRegionTbl(db);
+		case 10:
+			createMetricCatalogTbl(db);
+		case 11:
+			createMetricSeriesTbl(db);
+			createDatapointTbl(db);
+		case 12:
+			createInstanceSnapshotTbl(db);
+		case 13:
+			createInstanceGroupIndexes(db);
+			createMonitorIndexes(db);
 		}
 	}
 
@@ -174,9 +349,98 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 				+ InstanceTbl.COL_INSTANCEID + " text not null unique, "
 				+ InstanceTbl.COL_INSTANCEGROUPID + " integer not null, "
 				+ InstanceTbl.FOREIGN_KEY_INSTANCEGROUPID + ");");
-		
+		// InstanceGroupTbl is always created first.
+		createInstanceGroupIndexes(db);
+	}
+
+	/**
+	 * Index the instance groups by (username, region), and their instances by group, so that 
+	 * listing and counting the groups doesn't scan either table. Does nothing if they exist.
+	 */
+	private void createInstanceGroupIndexes(SQLiteDatabase db) {
+		db.execSQL("Create INDEX if not exists " + InstanceGroupTbl.TBL_NAME + "_user_region on "
+				+ InstanceGroupTbl.TBL_NAME + "(" + InstanceGroupTbl.COL_USERNAME + ", "
+				+ InstanceGroupTbl.COL_REGION + ");");
+		db.execSQL("Create INDEX if not exists " + InstanceTbl.TBL_NAME + "_group on "
+				+ InstanceTbl.TBL_NAME + "(" + InstanceTbl.COL_INSTANCEGROUPID + ");");
+	}
+
+
+	private void createRegionTbl(SQLiteDatabase db) {
+		db.execSQL("Create TABLE " + RegionTbl.TBL_NAME + "(" + RegionTbl._ID
+				+ " integer primary key autoincrement, "
+				+ RegionTbl.COL_REGIONNAME + " text not null unique, "
+				+ RegionTbl.COL_EC2ENDPOINT + " text not null, "
+				+ RegionTbl.COL_CLOUDWATCHENDPOINT + " text not null, "
+				+ RegionTbl.COL_LASTUPDATED + " integer not null);");
+	}
+
+	private void createMetricCatalogTbl(SQLiteDatabase db) {
+		db.execSQL("Create TABLE " + MetricCatalogTbl.TBL_NAME + "(" + MetricCatalogTbl._ID
+				+ " integer primary key autoincrement, "
+				+ MetricCatalogTbl.COL_USERNAME + " text not null, "
+				+ MetricCatalogTbl.COL_REGION + " text not null, "
+				+ MetricCatalogTbl.COL_DIMENSIONVALUE + " text not null, "
+				+ MetricCatalogTbl.COL_MEASURENAME + " text not null, "
+				+ MetricCatalogTbl.COL_LASTUPDATED + " integer not null, "
+				+ MetricCatalogTbl.FOREIGN_KEY_USERNAME + ");");
+		//the catalog is always read and replaced a (username, region) at a time
+		db.execSQL("Create INDEX " + MetricCatalogTbl.TBL_NAME + "_user_region on " 
+				+ MetricCatalogTbl.TBL_NAME + "(" + MetricCatalogTbl.COL_USERNAME + ", " 
+				+ MetricCatalogTbl.COL_REGION + ");");
+	}
+
+	private void createMetricSeriesTbl(SQLiteDatabase db) {
+		db.execSQL("Create TABLE " + MetricSeriesTbl.TBL_NAME + "(" + MetricSeriesTbl._ID
+				+ " integer primary key autoincrement, "
+				+ MetricSeriesTbl.COL_USERNAME + " text not null, "
+				+ MetricSeriesTbl.COL_REGION + " text not null, "
+				+ MetricSeriesTbl.COL_AWSID + " text not null, "
+				+ MetricSeriesTbl.COL_MEASURENAME + " text not null, "
+				+ MetricSeriesTbl.COL_NAMESPACE + " text not null, "
+				+ MetricSeriesTbl.COL_STATISTICS + " text not null, "
+				+ MetricSeriesTbl.COL_PERIOD + " integer not null, "
+				+ MetricSeriesTbl.COL_COVEREDFROM + " integer not null, "
+				+ MetricSeriesTbl.COL_COVEREDTO + " integer not null, "
+				+ "UNIQUE(" + MetricSeriesTbl.COL_USERNAME + ", " + MetricSeriesTbl.COL_REGION 
+				+ ", " + MetricSeriesTbl.COL_AWSID + ", " + MetricSeriesTbl.COL_MEASURENAME 
+				+ ", " + MetricSeriesTbl.COL_NAMESPACE + ", " + MetricSeriesTbl.COL_STATISTICS
+				+ ", " + MetricSeriesTbl.COL_PERIOD + "));");
 	}
 
+	private void createDatapointTbl(SQLiteDatabase db) {
+		db.execSQL("Create TABLE " + DatapointTbl.TBL_NAME + "(" + DatapointTbl._ID
+				+ " integer primary key autoincrement, "
+				+ DatapointTbl.COL_SERIESID + " integer not null, "
+				+ DatapointTbl.COL_TIMESTAMP + " integer not null, "
+				+ DatapointTbl.COL_UNIT + " text, "
+				+ DatapointTbl.COL_AVERAGE + " real, "
+				+ DatapointTbl.COL_SUM + " real, "
+				+ DatapointTbl.COL_MINIMUM + " real, "
+				+ DatapointTbl.COL_MAXIMUM + " real, "
+				+ DatapointTbl.COL_SAMPLES + " real, "
+				//re-fetched datapoints replace the cached ones.
+				+ "UNIQUE(" + DatapointTbl.COL_SERIESID + ", " + DatapointTbl.COL_TIMESTAMP 
+				+ ") on conflict replace, "
+				+ DatapointTbl.FOREIGN_KEY_SERIESID + ");");
+		db.execSQL("Create INDEX " + DatapointTbl.TBL_NAME + "_timestamp on " 
+				+ DatapointTbl.TBL_NAME + "(" + DatapointTbl.COL_TIMESTAMP + ");");
+	}
+
+	private void createInstanceSnapshotTbl(SQLiteDatabase db) {
+		db.execSQL("Create TABLE " + InstanceSnapshotTbl.TBL_NAME + "(" + InstanceSnapshotTbl._ID
+				+ " integer primary key autoincrement, "
+				+ InstanceSnapshotTbl.COL_USERNAME + " text not null, "
+				+ InstanceSnapshotTbl.COL_REGION + " text not null, "
+				+ InstanceSnapshotTbl.COL_FILTERKEY + " text not null, "
+				+ InstanceSnapshotTbl.COL_INSTANCES + " blob not null, "
+				+ InstanceSnapshotTbl.COL_LASTUPDATED + " integer not null, "
+				//a new list replaces the old one.
+				+ "UNIQUE(" + InstanceSnapshotTbl.COL_USERNAME + ", " 
+				+ InstanceSnapshotTbl.COL_REGION + ", " + InstanceSnapshotTbl.COL_FILTERKEY
+				+ ") on conflict replace, "
+				+ InstanceSnapshotTbl.FOREIGN_KEY_USERNAME + ");");
+	}
 
 	private void createMonitorTbl(SQLiteDatabase db) {
 		db.execSQL("Create TABLE " + MonitorTbl.TBL_NAME + "(" + MonitorTbl._ID
@@ -192,6 +456,19 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 				+ MonitorTbl.COL_WATCH + " integer not null, "
 				+ MonitorTbl.FOREIGN_KEY_USERNAME + ", "
 				+ MonitorTbl.FOREIGN_KEY_RESTYPE + ");");
+		createMonitorIndexes(db);
+	}
+
+	/**
+	 * Index the monitor table by AWS ID (monitoring defaults), and by (username, restype, 
+	 * watch) (watched resources). Does nothing if they exist.
+	 */
+	private void createMonitorIndexes(SQLiteDatabase db) {
+		db.execSQL("Create INDEX if not exists " + MonitorTbl.TBL_NAME + "_awsid on "
+				+ MonitorTbl.TBL_NAME + "(" + MonitorTbl.COL_AWSID + ");");
+		db.execSQL("Create INDEX if not exists " + MonitorTbl.TBL_NAME + "_user_restype_watch on "
+				+ MonitorTbl.TBL_NAME + "(" + MonitorTbl.COL_USERNAME + ", "
+				+ MonitorTbl.COL_RESTYPE + ", " + MonitorTbl.COL_WATCH + ");");
 	}
 
 	/**
@@ -200,7 +477,7 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 	 * @return Hashtable<String, ArrayList<String>> of user data.
 	 */
 	public Hashtable<String, ArrayList<String>> listUserData() {
-		SQLiteDatabase db = this.getReadableDatabase();
+		SQLiteDatabase db = getDatabase();
 		Hashtable<String, ArrayList<String>> userData = new Hashtable<String, ArrayList<String>>();
 		Cursor queryCursor;
 
@@ -223,7 +500,6 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 		}
 
 		queryCursor.close();
-		db.close();
 
 		return userData;
 	}
@@ -236,25 +512,24 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 	 * @throws SQLException
 	 */
 	public String getDefaultRegion(String username) throws SQLException {
-		SQLiteDatabase db = this.getReadableDatabase();
+		SQLiteDatabase db = getDatabase();
 		String defaultRegion = null;
 		Cursor queryCursor;
 
+		queryCursor = db.query(LoginTbl.TBL_NAME,
+				new String[] { LoginTbl.COL_DEFAULTREGION },
+				LoginTbl.COL_USERNAME + "= ?", new String[] { username },
+				null, null, null);
 		try {
-			queryCursor = db.query(LoginTbl.TBL_NAME,
-					new String[] { LoginTbl.COL_DEFAULTREGION },
-					LoginTbl.COL_USERNAME + "= ?", new String[] { username },
-					null, null, null);
 			if (queryCursor.getCount() != 1) {
 				throw new SQLException("No data");
 			}
 
 			queryCursor.moveToFirst();
 			defaultRegion = queryCursor.getString(0);
-		} catch (SQLException exception) {
-			throw exception;
 		} finally {
-			db.close();
+			// the connection stays open, so the cursors mustn't.
+			queryCursor.close();
 		}
 
 		return defaultRegion;
@@ -268,7 +543,7 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 	 * @throws SQLException
 	 */
 	public void setDefaultRegion(String username, String defaultRegion) {
-		SQLiteDatabase db = this.getReadableDatabase();
+		SQLiteDatabase db = getDatabase();
 
 		ContentValues updateValues = new ContentValues();
 		updateValues.put(LoginTbl.COL_DEFAULTREGION, defaultRegion);
@@ -278,8 +553,508 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 					+ "=?", new String[] { username });
 		} catch (Exception ignore) {
 			Log.e(TAG, ignore.getMessage());
+		}
+	}
+
+	/**
+	 * Get the cached region data.
+	 * 
+	 * @return HashMap of String[]{EC2 endpoint, CloudWatch endpoint} indexed by region name. 
+	 * Empty if nothing has been cached.
+	 */
+	public HashMap<String, String[]> listRegions() {
+		HashMap<String, String[]> regions = new HashMap<String, String[]>();
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(RegionTbl.TBL_NAME, new String[] {
+					RegionTbl.COL_REGIONNAME, RegionTbl.COL_EC2ENDPOINT,
+					RegionTbl.COL_CLOUDWATCHENDPOINT }, null, null, null, null, null);
+
+			while (queryCursor.moveToNext()) {
+				regions.put(queryCursor.getString(0), new String[] {
+						queryCursor.getString(1), queryCursor.getString(2) });
+			}
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+
+		return regions;
+	}
+
+	/**
+	 * Get the time at which the cached region data was retrieved from AWS.
+	 * 
+	 * @return the time (in msecs since epoch) of the oldest row, or 0 if there is no cached
+	 * region data.
+	 */
+	public long getRegionsLastUpdated() {
+		long lastUpdated = 0;
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(RegionTbl.TBL_NAME,
+					new String[] { "min(" + RegionTbl.COL_LASTUPDATED + ")" }, null, null, 
+					null, null, null);
+
+			if (queryCursor.moveToFirst() && !queryCursor.isNull(0)) {
+				lastUpdated = queryCursor.getLong(0);
+			}
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+
+		return lastUpdated;
+	}
+
+	/**
+	 * Replace the cached region data.
+	 * 
+	 * @param regions HashMap of String[]{EC2 endpoint, CloudWatch endpoint} indexed by region
+	 * name.
+	 * @param lastUpdated the time (in msecs since epoch) at which the data was retrieved.
+	 */
+	public void writeRegions(HashMap<String, String[]> regions, long lastUpdated) {
+		SQLiteDatabase db = getDatabase();
+
+		db.beginTransaction();
+		try {
+			db.delete(RegionTbl.TBL_NAME, null, null);
+
+			ContentValues insertValues = new ContentValues();
+			for (String regionName : regions.keySet()) {
+				insertValues.put(RegionTbl.COL_REGIONNAME, regionName);
+				insertValues.put(RegionTbl.COL_EC2ENDPOINT, regions.get(regionName)[0]);
+				insertValues.put(RegionTbl.COL_CLOUDWATCHENDPOINT, regions.get(regionName)[1]);
+				insertValues.put(RegionTbl.COL_LASTUPDATED, lastUpdated);
+				db.insert(RegionTbl.TBL_NAME, null, insertValues);
+			}
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Get the cached CloudWatch metric catalog for a user and region.
+	 * 
+	 * @param username The AWS username
+	 * @param region The AWS region
+	 * @return HashMap of measure names indexed by dimension value. Empty if nothing has been
+	 * cached.
+	 */
+	public HashMap<String, ArrayList<String>> getMetricCatalog(String username, 
+			String region) {
+		HashMap<String, ArrayList<String>> catalog = new HashMap<String, ArrayList<String>>();
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(MetricCatalogTbl.TBL_NAME, new String[] {
+					MetricCatalogTbl.COL_DIMENSIONVALUE, MetricCatalogTbl.COL_MEASURENAME }, 
+					MetricCatalogTbl.COL_USERNAME + "=? AND " + MetricCatalogTbl.COL_REGION 
+					+ "=?", new String[] { username, region }, null, null, null);
+
+			while (queryCursor.moveToNext()) {
+				ArrayList<String> measureNames = catalog.get(queryCursor.getString(0));
+				if (measureNames == null) {
+					measureNames = new ArrayList<String>();
+					catalog.put(queryCursor.getString(0), measureNames);
+				}
+				measureNames.add(queryCursor.getString(1));
+			}
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+
+		return catalog;
+	}
+
+	/**
+	 * Get the time at which the cached metric catalog for a user and region was retrieved 
+	 * from AWS.
+	 * 
+	 * @param username The AWS username
+	 * @param region The AWS region
+	 * @return the time (in msecs since epoch) of the oldest row, or 0 if there is no cached
+	 * catalog.
+	 */
+	public long getMetricCatalogLastUpdated(String username, String region) {
+		long lastUpdated = 0;
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(MetricCatalogTbl.TBL_NAME,
+					new String[] { "min(" + MetricCatalogTbl.COL_LASTUPDATED + ")" }, 
+					MetricCatalogTbl.COL_USERNAME + "=? AND " + MetricCatalogTbl.COL_REGION 
+					+ "=?", new String[] { username, region }, null, null, null);
+
+			if (queryCursor.moveToFirst() && !queryCursor.isNull(0)) {
+				lastUpdated = queryCursor.getLong(0);
+			}
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+
+		return lastUpdated;
+	}
+
+	/**
+	 * Replace the cached metric catalog for a user and region.
+	 * 
+	 * @param username The AWS username
+	 * @param region The AWS region
+	 * @param catalog HashMap of measure names indexed by dimension value.
+	 * @param lastUpdated the time (in msecs since epoch) at which the data was retrieved.
+	 */
+	public void writeMetricCatalog(String username, String region, 
+			HashMap<String, ArrayList<String>> catalog, long lastUpdated) {
+		SQLiteDatabase db = getDatabase();
+
+		db.beginTransaction();
+		try {
+			db.delete(MetricCatalogTbl.TBL_NAME, MetricCatalogTbl.COL_USERNAME + "=? AND " 
+					+ MetricCatalogTbl.COL_REGION + "=?", new String[] { username, region });
+
+			//one compiled statement for all of the rows
+			SQLiteStatement insertStatement = db.compileStatement("INSERT INTO " 
+					+ MetricCatalogTbl.TBL_NAME + "(" + MetricCatalogTbl.COL_USERNAME + ", "
+					+ MetricCatalogTbl.COL_REGION + ", " + MetricCatalogTbl.COL_DIMENSIONVALUE 
+					+ ", " + MetricCatalogTbl.COL_MEASURENAME + ", " 
+					+ MetricCatalogTbl.COL_LASTUPDATED + ") VALUES (?, ?, ?, ?, ?)");
+			try {
+				for (String dimensionValue : catalog.keySet()) {
+					for (String measureName : catalog.get(dimensionValue)) {
+						insertStatement.bindString(1, username);
+						insertStatement.bindString(2, region);
+						insertStatement.bindString(3, dimensionValue);
+						insertStatement.bindString(4, measureName);
+						insertStatement.bindLong(5, lastUpdated);
+						insertStatement.executeInsert();
+					}
+				}
+			} finally {
+				insertStatement.close();
+			}
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Get the last list of instances saved for a user, region and filter.
+	 * 
+	 * @param username The AWS username
+	 * @param region The AWS region
+	 * @param filterKey The filters the list was retrieved with.
+	 * @return The instances, or null if none were saved, or they could not be read back
+	 * (say, because they were saved before we switched to {@link ModelCodec}).
+	 */
+	public ArrayList<SerializableInstance> getInstanceSnapshot(String username, String region,
+			String filterKey) {
+		byte[] instances = null;
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(InstanceSnapshotTbl.TBL_NAME, 
+					new String[] { InstanceSnapshotTbl.COL_INSTANCES }, 
+					InstanceSnapshotTbl.COL_USERNAME + "=? AND " + InstanceSnapshotTbl.COL_REGION 
+					+ "=? AND " + InstanceSnapshotTbl.COL_FILTERKEY + "=?", 
+					new String[] { username, region, filterKey }, null, null, null);
+
+			if (queryCursor.moveToFirst()) {
+				instances = queryCursor.getBlob(0);
+			}
 		} finally {
-			db.close();
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+		
+		if (instances == null) {
+			return null;
+		}
+		
+		try {
+			return ModelCodec.decodeList(instances, SerializableInstance.DECODER);
+		} catch (IOException exception) {
+			//written by an older version of ElasticDroid, most likely. It'll be replaced.
+			Log.w(TAG, "Discarding unreadable instance snapshot: " + exception.getMessage());
+		}
+		
+		return null;
+	}
+
+	/**
+	 * Replace the list of instances saved for a user, region and filter.
+	 * 
+	 * @param username The AWS username
+	 * @param region The AWS region
+	 * @param filterKey The filters the list was retrieved with.
+	 * @param instances The instances.
+	 * @param lastUpdated the time (in msecs since epoch) at which the list was retrieved.
+	 */
+	public void writeInstanceSnapshot(String username, String region, String filterKey, 
+			ArrayList<SerializableInstance> instances, long lastUpdated) {
+		SQLiteDatabase db = getDatabase();
+		ContentValues insertValues = new ContentValues();
+		insertValues.put(InstanceSnapshotTbl.COL_USERNAME, username);
+		insertValues.put(InstanceSnapshotTbl.COL_REGION, region);
+		insertValues.put(InstanceSnapshotTbl.COL_FILTERKEY, filterKey);
+		insertValues.put(InstanceSnapshotTbl.COL_INSTANCES, ModelCodec.encodeList(instances));
+		insertValues.put(InstanceSnapshotTbl.COL_LASTUPDATED, lastUpdated);
+		
+		db.insert(InstanceSnapshotTbl.TBL_NAME, null, insertValues);
+	}
+
+	/**
+	 * Get the locally cached time series for a resource.
+	 * 
+	 * @param username The AWS username
+	 * @param awsId The AWS ID of the resource (instance or vol id)
+	 * @param cloudWatchInput The measure name, namespace, statistics, period and region.
+	 * @return long[]{series ID, covered from, covered to}, or null if the series is not cached.
+	 */
+	public long[] getMetricSeries(String username, String awsId, 
+			CloudWatchInput cloudWatchInput) {
+		long[] series = null;
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(MetricSeriesTbl.TBL_NAME, new String[] {
+					MetricSeriesTbl._ID, MetricSeriesTbl.COL_COVEREDFROM, 
+					MetricSeriesTbl.COL_COVEREDTO }, getMetricSeriesSelection(), 
+					getMetricSeriesSelectionArgs(username, awsId, cloudWatchInput), null, null, 
+					null);
+
+			if (queryCursor.moveToFirst()) {
+				series = new long[] { queryCursor.getLong(0), queryCursor.getLong(1), 
+						queryCursor.getLong(2) };
+			}
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+
+		return series;
+	}
+
+	/**
+	 * Get the cached datapoints for a series, straight into a {@link MetricTimeSeries}.
+	 * 
+	 * @param seriesId The series ID returned by 
+	 * {@link #getMetricSeries(String, String, CloudWatchInput)}.
+	 * @param startTime The start of the time range (msecs since epoch), inclusive.
+	 * @param endTime The end of the time range (msecs since epoch), inclusive.
+	 * @return The time series.
+	 */
+	public MetricTimeSeries getTimeSeries(long seriesId, long startTime, long endTime) {
+		//the statistics columns, in the order of MetricTimeSeries.Statistic
+		String[] statisticColumns = new String[] { DatapointTbl.COL_AVERAGE, DatapointTbl.COL_SUM,
+				DatapointTbl.COL_MINIMUM, DatapointTbl.COL_MAXIMUM, DatapointTbl.COL_SAMPLES };
+		String[] columns = new String[statisticColumns.length + 2];
+		columns[0] = DatapointTbl.COL_TIMESTAMP;
+		columns[1] = DatapointTbl.COL_UNIT;
+		System.arraycopy(statisticColumns, 0, columns, 2, statisticColumns.length);
+		
+		String unit = null;
+		long[] timestamps;
+		double[][] values = new double[statisticColumns.length][];
+		SQLiteDatabase db = getDatabase();
+
+		Cursor queryCursor = null;
+		try {
+			queryCursor = db.query(DatapointTbl.TBL_NAME, columns, 
+					DatapointTbl.COL_SERIESID + "=? AND " + DatapointTbl.COL_TIMESTAMP 
+					+ " between ? and ?", new String[] { String.valueOf(seriesId), 
+					String.valueOf(startTime), String.valueOf(endTime) }, null, null, 
+					DatapointTbl.COL_TIMESTAMP);
+		
+			int size = queryCursor.getCount();
+			timestamps = new long[size];
+
+			for (int row = 0; queryCursor.moveToNext(); row ++) {
+				timestamps[row] = queryCursor.getLong(0);
+				if ((unit == null) && !queryCursor.isNull(1)) {
+					unit = queryCursor.getString(1);
+				}
+			
+				for (int stat = 0; stat < statisticColumns.length; stat ++) {
+					if (queryCursor.isNull(stat + 2)) {
+						continue;
+					}
+					//only allocate the columns for the statistics we have.
+					if (values[stat] == null) {
+						values[stat] = new double[size];
+						Arrays.fill(values[stat], Double.NaN);
+					}
+					values[stat][row] = queryCursor.getDouble(stat + 2);
+				}
+			}
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (queryCursor != null) {
+				queryCursor.close();
+			}
+		}
+
+		return new MetricTimeSeries(unit, timestamps, values);
+	}
+
+	/**
+	 * Merge datapoints fetched from CloudWatch into a cached series (creating the series if 
+	 * need be), and evict every cached datapoint older than the retention time.
+	 * 
+	 * @param username The AWS username
+	 * @param awsId The AWS ID of the resource (instance or vol id)
+	 * @param cloudWatchInput The measure name, namespace, statistics, period and region.
+	 * @param datapoints The datapoints fetched. Replace cached datapoints with the same 
+	 * timestamp.
+	 * @param coveredFrom The start of the time range the series now covers.
+	 * @param coveredTo The end of the time range the series now covers.
+	 * @param retainFrom Datapoints older than this (msecs since epoch) are deleted, from all
+	 * series.
+	 * @return The series ID.
+	 */
+	public long writeDatapoints(String username, String awsId, CloudWatchInput cloudWatchInput,
+			List<Datapoint> datapoints, long coveredFrom, long coveredTo, long retainFrom) {
+		long seriesId;
+		SQLiteDatabase db = getDatabase();
+
+		db.beginTransaction();
+		try {
+			ContentValues seriesValues = new ContentValues();
+			seriesValues.put(MetricSeriesTbl.COL_COVEREDFROM, Math.max(coveredFrom, 
+					retainFrom));
+			seriesValues.put(MetricSeriesTbl.COL_COVEREDTO, coveredTo);
+			
+			String[] selectionArgs = getMetricSeriesSelectionArgs(username, awsId, 
+					cloudWatchInput);
+			Cursor queryCursor = db.query(MetricSeriesTbl.TBL_NAME, new String[] { 
+					MetricSeriesTbl._ID }, getMetricSeriesSelection(), selectionArgs, null, 
+					null, null);
+			if (queryCursor.moveToFirst()) {
+				seriesId = queryCursor.getLong(0);
+				db.update(MetricSeriesTbl.TBL_NAME, seriesValues, MetricSeriesTbl._ID + "=?", 
+						new String[] { String.valueOf(seriesId) });
+			}
+			else {
+				seriesValues.put(MetricSeriesTbl.COL_USERNAME, selectionArgs[0]);
+				seriesValues.put(MetricSeriesTbl.COL_REGION, selectionArgs[1]);
+				seriesValues.put(MetricSeriesTbl.COL_AWSID, selectionArgs[2]);
+				seriesValues.put(MetricSeriesTbl.COL_MEASURENAME, selectionArgs[3]);
+				seriesValues.put(MetricSeriesTbl.COL_NAMESPACE, selectionArgs[4]);
+				seriesValues.put(MetricSeriesTbl.COL_STATISTICS, selectionArgs[5]);
+				seriesValues.put(MetricSeriesTbl.COL_PERIOD, cloudWatchInput.getPeriod());
+				seriesId = db.insert(MetricSeriesTbl.TBL_NAME, null, seriesValues);
+			}
+			queryCursor.close();
+
+			//one compiled statement for all of the datapoints
+			SQLiteStatement insertStatement = db.compileStatement("INSERT INTO " 
+					+ DatapointTbl.TBL_NAME + "(" + DatapointTbl.COL_SERIESID + ", "
+					+ DatapointTbl.COL_TIMESTAMP + ", " + DatapointTbl.COL_UNIT + ", " 
+					+ DatapointTbl.COL_AVERAGE + ", " + DatapointTbl.COL_SUM + ", " 
+					+ DatapointTbl.COL_MINIMUM + ", " + DatapointTbl.COL_MAXIMUM + ", " 
+					+ DatapointTbl.COL_SAMPLES + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+			try {
+				for (Datapoint datapoint : datapoints) {
+					insertStatement.clearBindings();
+					insertStatement.bindLong(1, seriesId);
+					insertStatement.bindLong(2, datapoint.getTimestamp().getTime());
+					if (datapoint.getUnit() != null) {
+						insertStatement.bindString(3, datapoint.getUnit());
+					}
+					bindNullableDouble(insertStatement, 4, datapoint.getAverage());
+					bindNullableDouble(insertStatement, 5, datapoint.getSum());
+					bindNullableDouble(insertStatement, 6, datapoint.getMinimum());
+					bindNullableDouble(insertStatement, 7, datapoint.getMaximum());
+					bindNullableDouble(insertStatement, 8, datapoint.getSamples());
+					insertStatement.executeInsert();
+				}
+			} finally {
+				insertStatement.close();
+			}
+
+			//evict by retention: old datapoints, and the series which have nothing left.
+			String retainFromArg = String.valueOf(retainFrom);
+			db.delete(DatapointTbl.TBL_NAME, DatapointTbl.COL_TIMESTAMP + "<?", 
+					new String[] { retainFromArg });
+			db.delete(DatapointTbl.TBL_NAME, DatapointTbl.COL_SERIESID + " in (select " 
+					+ MetricSeriesTbl._ID + " from " + MetricSeriesTbl.TBL_NAME + " where " 
+					+ MetricSeriesTbl.COL_COVEREDTO + "<?)", new String[] { retainFromArg });
+			db.delete(MetricSeriesTbl.TBL_NAME, MetricSeriesTbl.COL_COVEREDTO + "<?", 
+					new String[] { retainFromArg });
+			db.execSQL("UPDATE " + MetricSeriesTbl.TBL_NAME + " SET " 
+					+ MetricSeriesTbl.COL_COVEREDFROM + "=? WHERE " 
+					+ MetricSeriesTbl.COL_COVEREDFROM + "<?", new Object[] { retainFrom, 
+					retainFrom });
+
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+
+		return seriesId;
+	}
+
+	/**
+	 * @return The where clause identifying a series in {@link MetricSeriesTbl}.
+	 */
+	private String getMetricSeriesSelection() {
+		return MetricSeriesTbl.COL_USERNAME + "=? AND " + MetricSeriesTbl.COL_REGION + "=? AND "
+				+ MetricSeriesTbl.COL_AWSID + "=? AND " + MetricSeriesTbl.COL_MEASURENAME 
+				+ "=? AND " + MetricSeriesTbl.COL_NAMESPACE + "=? AND " 
+				+ MetricSeriesTbl.COL_STATISTICS + "=? AND " + MetricSeriesTbl.COL_PERIOD + "=?";
+	}
+
+	/**
+	 * @return The arguments for {@link #getMetricSeriesSelection()}.
+	 */
+	private String[] getMetricSeriesSelectionArgs(String username, String awsId, 
+			CloudWatchInput cloudWatchInput) {
+		StringBuilder statistics = new StringBuilder();
+		for (String statistic : cloudWatchInput.getStatistics()) {
+			if (statistics.length() != 0) {
+				statistics.append(',');
+			}
+			statistics.append(statistic);
+		}
+
+		return new String[] { username, cloudWatchInput.getRegion(), awsId, 
+				cloudWatchInput.getMeasureName(), cloudWatchInput.getNamespace(), 
+				statistics.toString(), String.valueOf(cloudWatchInput.getPeriod()) };
+	}
+
+	/**
+	 * Bind the value, or leave the parameter null if the value is null.
+	 */
+	private static void bindNullableDouble(SQLiteStatement statement, int index, Double value) {
+		if (value != null) {
+			statement.bindDouble(index, value);
 		}
 	}
 
@@ -290,16 +1065,12 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 			throws SQLException {
 		CloudWatchInput cloudWatchInput = null;
 
-		SQLiteDatabase db = this.getReadableDatabase();
+		SQLiteDatabase db = getDatabase();
 
 		Cursor queryCursor;
 
+		queryCursor = db.rawQuery(MONITORING_DEFAULTS_QUERY, new String[] { awsId });
 		try {
-			queryCursor = db.query(MonitorTbl.TBL_NAME, new String[] {
-					MonitorTbl.COL_DEFAULTMEASURENAME,
-					MonitorTbl.COL_DEFAULTDURATION, MonitorTbl.COL_PERIOD,
-					MonitorTbl.COL_NAMESPACE }, MonitorTbl.COL_AWSID + "= ?",
-					new String[] { awsId }, null, null, null);
 			if (queryCursor.getCount() != 1) {
 				throw new SQLException("No data");
 			}
@@ -317,10 +1088,8 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 							.asList(new String[] { "Average" })),// TODO fix
 																	// this
 					region);
-		} catch (SQLException exception) {
-			throw exception;
 		} finally {
-			db.close();
+			queryCursor.close();
 		}
 
 		return cloudWatchInput;
@@ -341,26 +1110,9 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 			String resName, CloudWatchInput input, boolean watch)
 			throws SQLException {
 
-		int resType; // the resource type (id in ResourceTypeTbl) for the
-						// resName passed in.
-		SQLiteDatabase db = this.getWritableDatabase();
+		SQLiteDatabase db = getDatabase();
 		// get the res ID for this resName
-		Cursor queryCursor;
-		try {
-			queryCursor = db.query(ResourceTypeTbl.TBL_NAME,
-					new String[] { ResourceTypeTbl.COL_RESTYPE },
-					ResourceTypeTbl.COL_RESNAME + "= ?",
-					new String[] { resName }, null, null, null);
-
-			if (queryCursor.getCount() != 1) {
-				throw new SQLException("No data");
-			}
-
-			queryCursor.moveToFirst();
-			resType = queryCursor.getInt(0);
-		} catch (SQLException exception) {
-			throw exception;
-		}
+		long resType = getResourceType(resName);
 
 		Log.v(TAG, "ResType: " + resType);
 		// write in values
@@ -384,15 +1136,12 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 				insertValues); // null
 		// column hack is ignored
 
-		db.close(); // Close DB. This is, like, as important as brushing ur
-					// teeth before bed, man.
-
 		return retVal;
 	}
 
 	public int updateMonitoringDefaults(String[] columns, String[] data,
 			String awsId) {
-		SQLiteDatabase db = this.getReadableDatabase();
+		SQLiteDatabase db = getDatabase();
 		int numAffectedRows = 0; // number of Rows affected
 		ContentValues updateValues = new ContentValues();
 
@@ -405,8 +1154,6 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 					MonitorTbl.COL_AWSID + "=?", new String[] { awsId });
 		} catch (Exception ignore) {
 			Log.e(TAG, ignore.getMessage());
-		} finally {
-			db.close();
 		}
 
 		return numAffectedRows;
@@ -426,34 +1173,15 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 			String resName) throws SQLException {
 		HashMap<String, String> watchedResources = new HashMap<String, String>();
 
-		SQLiteDatabase db = this.getReadableDatabase(); // handle to the DB
-		Cursor resCursor; // the query cursor for resource type tbl
-		Cursor monitorCursor; // query cursor for monitor tabl
-		int resType; // the resource type for the resource name passed in
+		SQLiteDatabase db = getDatabase(); // handle to the DB
+		Cursor monitorCursor = null; // query cursor for monitor tabl
+		// first, get the res ID for this resName (from memory, after the first time)
+		long resType = getResourceType(resName);
 
-		// first, get the res ID for this resName
 		// then get the watched instances
 		try {
-			resCursor = db.query(ResourceTypeTbl.TBL_NAME,
-					new String[] { ResourceTypeTbl.COL_RESTYPE },
-					ResourceTypeTbl.COL_RESNAME + "= ?",
-					new String[] { resName }, null, null, null);
-
-			if (resCursor.getCount() != 1) {
-				throw new SQLException("No data");
-			}
-
-			resCursor.moveToFirst();
-			resType = resCursor.getInt(0);
-
-			monitorCursor = db
-					.query(MonitorTbl.TBL_NAME, new String[] {
-							MonitorTbl.COL_AWSID, MonitorTbl.COL_REGION },
-							MonitorTbl.COL_RESTYPE + "=?" + " AND "
-									+ MonitorTbl.COL_USERNAME + "=?" + " AND "
-									+ MonitorTbl.COL_WATCH + " = ?",
-							new String[] { String.valueOf(resType), username,
-									String.valueOf(1) }, null, null, null);
+			monitorCursor = db.rawQuery(WATCHED_RESOURCES_QUERY, new String[] {
+					String.valueOf(resType), username });
 
 			// loop through the data in the cursor, and add watched resources
 			// data
@@ -462,12 +1190,11 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 				watchedResources.put(monitorCursor.getString(0),
 						monitorCursor.getString(1));
 			}
-			
-			monitorCursor.close();
-		} catch (SQLException exception) {
-			throw exception;
 		} finally {
-			db.close();
+			// the connection stays open, so the cursors mustn't.
+			if (monitorCursor != null) {
+				monitorCursor.close();
+			}
 		}
 
 		Log.v(TAG, "ResType: " + resType);
@@ -476,6 +1203,56 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 
 	}
 
+	/**
+	 * Return the resources watched by all of the users, with their monitoring defaults.
+	 * 
+	 * @param resName
+	 *            Acceptable values: instance, volume
+	 * @return List of watched resources. Empty if none.
+	 */
+	public ArrayList<WatchedResource> listWatchedResources(String resName)
+			throws SQLException {
+		ArrayList<WatchedResource> watchedResources = new ArrayList<WatchedResource>();
+		SQLiteDatabase db = getDatabase();
+		long endTime = System.currentTimeMillis();
+
+		Cursor monitorCursor = null;
+		try {
+			// one query: join the resource type in rather than looking it up first
+			monitorCursor = db.rawQuery("SELECT m." + MonitorTbl.COL_USERNAME + ", m."
+					+ MonitorTbl.COL_AWSID + ", m." + MonitorTbl.COL_REGION + ", m."
+					+ MonitorTbl.COL_DEFAULTMEASURENAME + ", m."
+					+ MonitorTbl.COL_DEFAULTDURATION + ", m." + MonitorTbl.COL_PERIOD
+					+ ", m." + MonitorTbl.COL_NAMESPACE + " FROM " + MonitorTbl.TBL_NAME
+					+ " m JOIN " + ResourceTypeTbl.TBL_NAME + " r ON m."
+					+ MonitorTbl.COL_RESTYPE + " = r." + ResourceTypeTbl.COL_RESTYPE
+					+ " WHERE r." + ResourceTypeTbl.COL_RESNAME + " = ? AND m."
+					+ MonitorTbl.COL_WATCH + " = 1",
+					new String[] { resName });
+
+			while (monitorCursor.moveToNext()) {
+				CloudWatchInput cloudWatchInput = new CloudWatchInput(endTime
+						- monitorCursor.getLong(4), endTime,
+						Integer.valueOf(monitorCursor.getInt(5)),
+						monitorCursor.getString(3), monitorCursor.getString(6),
+						new ArrayList<String>(Arrays
+								.asList(new String[] { "Average" })),
+						monitorCursor.getString(2));
+
+				watchedResources.add(new WatchedResource(monitorCursor
+						.getString(0), monitorCursor.getString(1), cloudWatchInput));
+			}
+
+		} finally {
+			// the connection stays open, so the cursors mustn't.
+			if (monitorCursor != null) {
+				monitorCursor.close();
+			}
+		}
+
+		return watchedResources;
+	}
+
 	/**
 	 * Returns the count of instance groups for a given username and region
 	 * 
@@ -490,30 +1267,14 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 			throws SQLException {
 		int count;
 
-		SQLiteDatabase db = this.getReadableDatabase(); // handle to the DB
-
 		Log.v(TAG, "(username, region): (" + username + "," + region + ")");
 
-		// trying to get the instance groups
-		try {
-			Cursor igCursor = db.query(InstanceGroupTbl.TBL_NAME,
-					new String[] { " count(*) " }, InstanceGroupTbl.COL_REGION
-							+ "= ? AND " + InstanceGroupTbl.COL_USERNAME
-							+ " = ? ", new String[] { region, username }, null,
-					null, null);
-
-			if (igCursor.getCount() != 1) {
-				throw new SQLException("No data");
-			}
-
-			igCursor.moveToFirst();
-			count = igCursor.getInt(0);
-			igCursor.close();
-			
-		} catch (SQLException exception) {
-			throw exception;
-		} finally {
-			db.close();
+		// count the instance groups; a count always returns one row.
+		SQLiteStatement countStatement = getStatement(INSTANCE_GROUP_COUNT_QUERY);
+		synchronized (countStatement) {
+			countStatement.bindString(1, region);
+			countStatement.bindString(2, username);
+			count = (int) countStatement.simpleQueryForLong();
 		}
 
 		return count;
@@ -531,50 +1292,32 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 	public List<InstanceGroup> listInstanceGroups(String username, String region) {
 		List<InstanceGroup> instanceGroups = new ArrayList<InstanceGroup>();
 
-		SQLiteDatabase db = this.getReadableDatabase(); // handle to the DB
+		SQLiteDatabase db = getDatabase(); // handle to the DB
 
 		Log.v(TAG, "ListInstanceGroups (username, region): (" + username + "," + region + ")");
 		
-		// trying to get the instance groups
+		// one query for the groups and their instances, a row per instance (or one row with a
+		// null instance ID for an empty group), ordered by group.
+		Cursor igCursor = db.rawQuery(INSTANCE_GROUPS_QUERY, new String[] { region, username });
 		try {
-			Cursor igCursor = db.query(InstanceGroupTbl.TBL_NAME,
-					new String[] { InstanceGroupTbl._ID, InstanceGroupTbl.COL_GROUP_NAME },
-					InstanceGroupTbl.COL_REGION + "= ? and "
-							+ InstanceGroupTbl.COL_USERNAME + " = ? ",
-					new String[] { region, username }, null, null, null);
-			
-			Log.d(TAG, "Number of instance groups: " + igCursor.getCount());
-
-			if (igCursor.getCount() >= 1) {
-				
-				Log.d(TAG, "Instance groups found...");
-
-				// reading the instance group names and instance ids
-				while (igCursor.moveToNext()) {
-					InstanceGroup instanceGroup = new InstanceGroup(
-							igCursor.getLong(0), igCursor.getString(1));
-					Set<String> instances = new HashSet<String>();
-					
-					Cursor iCursor = db.query(InstanceTbl.TBL_NAME,
-							new String[] { InstanceTbl.COL_INSTANCEID},
-							InstanceTbl.COL_INSTANCEGROUPID + "= ?",
-							new String[] { instanceGroup.getId().toString() }, 
-							null, null, null);
-					
-					Log.d(TAG, iCursor.getCount() + " Instances found in this instance group...");
-					
-					while(iCursor.moveToNext()) {
-						Log.d(TAG, "Insertion of instance: " + instances.add(iCursor.getString(0)));
-					}
-					iCursor.close();
-					
+			InstanceGroup instanceGroup = null;
+			Set<String> instances = null;
+
+			while (igCursor.moveToNext()) {
+				// the first row of a new group
+				if ((instanceGroup == null) || (instanceGroup.getId() != igCursor.getLong(0))) {
+					instanceGroup = new InstanceGroup(igCursor.getLong(0), igCursor.getString(1));
+					instances = new HashSet<String>();
 					instanceGroup.setInstanceIds(instances);
 					instanceGroups.add(instanceGroup);
 				}
-				igCursor.close();
+
+				if (!igCursor.isNull(2)) {
+					instances.add(igCursor.getString(2));
+				}
 			}
 		} finally {
-			db.close();
+			igCursor.close();
 		}
 
 		Log.v(TAG, "Number of instance groups found: " + instanceGroups.size());
@@ -583,66 +1326,97 @@ public class ElasticDroidDB extends SQLiteOpenHelper {
 	}
 	
 	/**
-	 * Write new instance group to Db
+	 * Write an instance group to Db. If the user already has a group by this name in this
+	 * region, its instances are replaced with the ones passed in. Either all of it is written,
+	 * or none of it.
+	 * 
 	 * @param awsUsername
 	 * @param region
 	 * @param groupName
-	 * @param instanceIds
+	 * @param instanceIds All of the instances in the group.
+	 * @throws SQLException If the group name is taken by another user or region, or one of the
+	 * instances is already in another group.
 	 */
 	public void writeInstanceGroupsToDb(String awsUsername, String region, String groupName, 
 			List<String> instanceIds) throws SQLException {
 		
-		SQLiteDatabase db = this.getWritableDatabase();
-		SQLiteStatement bulkInsert = null;
+		SQLiteDatabase db = getDatabase();
+		Set<String> existingInstanceIds = new HashSet<String>();
+		long instanceGroupId = -1;
 		
+		// one transaction, so that there's only the one sync to disk.
+		db.beginTransaction();
 		try {
-			//create a new group in the InstanceGroupTbl
-			ContentValues insertValues = new ContentValues();
-			insertValues.put(InstanceGroupTbl.COL_USERNAME, awsUsername);
-			insertValues.put(InstanceGroupTbl.COL_REGION, region);
-			insertValues.put(InstanceGroupTbl.COL_GROUP_NAME, groupName);
-			
-			db.insert(InstanceGroupTbl.TBL_NAME, null, insertValues);
-			
-			//query the DB to get the group ID
-			Cursor resultCursor = db.query(
-					InstanceGroupTbl.TBL_NAME,
-					new String[]{InstanceGroupTbl._ID},
-					InstanceGroupTbl.COL_GROUP_NAME + "=?",
-					new String[]{groupName},
-					null,
-					null,
-					null);
-					
-			if (resultCursor.getCount() != 1) {
-				Log.e(TAG, "Insert failed.");
-				return;
+			// is there a group by this name already? Group names are unique.
+			Cursor groupCursor = db.query(InstanceGroupTbl.TBL_NAME, new String[] { 
+					InstanceGroupTbl._ID, InstanceGroupTbl.COL_USERNAME, 
+					InstanceGroupTbl.COL_REGION }, InstanceGroupTbl.COL_GROUP_NAME + "=?", 
+					new String[] { groupName }, null, null, null);
+			try {
+				if (groupCursor.moveToFirst()) {
+					if (!awsUsername.equals(groupCursor.getString(1)) || !region.equals(
+							groupCursor.getString(2))) {
+						throw new SQLException("There is already a group called " + groupName
+								+ ".");
+					}
+					instanceGroupId = groupCursor.getLong(0);
+				}
+			} finally {
+				groupCursor.close();
 			}
-			resultCursor.moveToFirst();
-			long instanceGroupId = resultCursor.getLong(0);
 			
-			//use the instance group ID to write the data into the InstanceTbl
-			String bulkInsertString = "insert into " + InstanceTbl.TBL_NAME + "(" +
-			InstanceTbl.COL_INSTANCEGROUPID + ", " + InstanceTbl.COL_INSTANCEID + ") values(?,?)";
-			
-			Log.d(TAG, "Bulk insert statement: " + bulkInsertString);
-			
-			bulkInsert = db.compileStatement(bulkInsertString);
+			if (instanceGroupId == -1) {
+				//create a new group in the InstanceGroupTbl
+				ContentValues insertValues = new ContentValues();
+				insertValues.put(InstanceGroupTbl.COL_USERNAME, awsUsername);
+				insertValues.put(InstanceGroupTbl.COL_REGION, region);
+				insertValues.put(InstanceGroupTbl.COL_GROUP_NAME, groupName);
+				
+				instanceGroupId = db.insert(InstanceGroupTbl.TBL_NAME, null, insertValues);
+				if (instanceGroupId == -1) {
+					throw new SQLException("Insert failed.");
+				}
+			}
+			else {
+				Cursor instanceCursor = db.query(InstanceTbl.TBL_NAME, new String[] { 
+						InstanceTbl.COL_INSTANCEID }, InstanceTbl.COL_INSTANCEGROUPID + "=?", 
+						new String[] { String.valueOf(instanceGroupId) }, null, null, null);
+				while (instanceCursor.moveToNext()) {
+					existingInstanceIds.add(instanceCursor.getString(0));
+				}
+				instanceCursor.close();
+			}
 			
-			short idx;
-			for (String instanceId : instanceIds) {
-				Log.d(TAG, "Writing " + instanceId + " to DB...");
-				idx = 1;
-				bulkInsert.bindLong(idx ++, instanceGroupId);
-				bulkInsert.bindString(idx ++, instanceId);
-				bulkInsert.execute();
+			//write the difference: take out the instances no longer in the group...
+			SQLiteStatement deleteStatement = getStatement(DELETE_INSTANCE_STATEMENT);
+			synchronized (deleteStatement) {
+				for (String instanceId : existingInstanceIds) {
+					if (!instanceIds.contains(instanceId)) {
+						deleteStatement.bindLong(1, instanceGroupId);
+						deleteStatement.bindString(2, instanceId);
+						deleteStatement.execute();
+					}
+				}
 			}
-		}
-		finally {
-			db.close();
-			if (bulkInsert != null) {
-				bulkInsert.close();
+			
+			//...and put in the ones which weren't.
+			SQLiteStatement insertStatement = getStatement(INSERT_INSTANCE_STATEMENT);
+			synchronized (insertStatement) {
+				for (String instanceId : instanceIds) {
+					if (!existingInstanceIds.contains(instanceId)) {
+						insertStatement.bindLong(1, instanceGroupId);
+						insertStatement.bindString(2, instanceId);
+						insertStatement.executeInsert();
+					}
+				}
 			}
+			
+			db.setTransactionSuccessful();
+		} catch (android.database.SQLException exception) {
+			// a constraint failed, most likely. Nothing has been written.
+			throw new SQLException(exception.getMessage());
+		} finally {
+			db.endTransaction();
 		}
 	}
-}
\ No newline at end of file
+}
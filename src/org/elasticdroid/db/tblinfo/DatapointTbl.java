@@ -0,0 +1,55 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.db.tblinfo;
+
+import android.provider.BaseColumns;
+
+/**
+ * Class to hold metadata for the table DatapointTbl in the database
+ * {@link org.elasticdroid.db.ElasticDroidDB.#DATABASE_NAME}.
+ * 
+ * Holds the cached CloudWatch datapoints for the series in {@link MetricSeriesTbl}. The 
+ * statistics columns are null if they were not asked for.
+ */
+public class DatapointTbl implements BaseColumns {
+	/** table name */
+	public static final String TBL_NAME = "DatapointTbl";
+	/** Number of cols in the table */
+	public static final int NUM_COLS = 8;
+	/** column to hold the series the datapoint belongs to */
+	public static final String COL_SERIESID = "seriesid";
+	/** column to hold the datapoint timestamp (msecs since epoch) */
+	public static final String COL_TIMESTAMP = "timestamp";
+	/** column to hold the unit */
+	public static final String COL_UNIT = "unit";
+	/** column to hold the average */
+	public static final String COL_AVERAGE = "average";
+	/** column to hold the sum */
+	public static final String COL_SUM = "sum";
+	/** column to hold the minimum */
+	public static final String COL_MINIMUM = "minimum";
+	/** column to hold the maximum */
+	public static final String COL_MAXIMUM = "maximum";
+	/** column to hold the number of samples */
+	public static final String COL_SAMPLES = "samples";
+	/** Foreign key references */	
+	public static final String FOREIGN_KEY_SERIESID = "Foreign Key (" + COL_SERIESID +  ") " +
+			"references " + MetricSeriesTbl.TBL_NAME + "(" + MetricSeriesTbl._ID + ") on " +
+			"delete cascade";
+}
@@ -0,0 +1,49 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.db.tblinfo;
+
+import android.provider.BaseColumns;
+
+/**
+ * Class to hold metadata for the table InstanceSnapshotTbl in the database
+ * {@link org.elasticdroid.db.ElasticDroidDB.#DATABASE_NAME}.
+ * 
+ * Holds the last list of instances retrieved for each (user, region, filter), so that the 
+ * list can be shown straight away the next time round. One row per list; the list itself is
+ * stored serialized.
+ */
+public class InstanceSnapshotTbl implements BaseColumns {
+	/** table name */
+	public static final String TBL_NAME = "InstanceSnapshotTbl";
+	/** Number of cols in the table */
+	public static final int NUM_COLS = 5;
+	/** column to hold AWS username */
+	public static final String COL_USERNAME = "username";
+	/** column to hold the AWS region */
+	public static final String COL_REGION = "region";
+	/** column to hold the filters the list was retrieved with */
+	public static final String COL_FILTERKEY = "filterkey";
+	/** column to hold the serialized list of instances */
+	public static final String COL_INSTANCES = "instances";
+	/** column to hold the time (msecs since epoch) at which the list was retrieved from AWS */
+	public static final String COL_LASTUPDATED = "lastupdated";
+	/** Foreign key references */	
+	public static final String FOREIGN_KEY_USERNAME = "Foreign Key (" + COL_USERNAME +  ") " +
+			"references " + LoginTbl.TBL_NAME + "(" + LoginTbl.COL_USERNAME + ") on delete cascade";
+}
@@ -0,0 +1,54 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.db.tblinfo;
+
+import android.provider.BaseColumns;
+
+/**
+ * Class to hold metadata for the table MetricSeriesTbl in the database
+ * {@link org.elasticdroid.db.ElasticDroidDB.#DATABASE_NAME}.
+ * 
+ * One row per CloudWatch time series cached locally: (user, region, resource, measure, 
+ * namespace, statistics, period). The datapoints are in {@link DatapointTbl}. The series
+ * holds the time range the cached datapoints cover, so that we know which gaps to fill in.
+ */
+public class MetricSeriesTbl implements BaseColumns {
+	/** table name */
+	public static final String TBL_NAME = "MetricSeriesTbl";
+	/** Number of cols in the table */
+	public static final int NUM_COLS = 9;
+	/** column to hold AWS username */
+	public static final String COL_USERNAME = "username";
+	/** column to hold the AWS region for the resource */
+	public static final String COL_REGION = "region";
+	/** column to hold the AWS ID of the resource monitored (instance or vol id) */
+	public static final String COL_AWSID = "awsid";
+	/** column to hold the measure name */
+	public static final String COL_MEASURENAME = "measurename";
+	/** column to hold the namespace */
+	public static final String COL_NAMESPACE = "namespace";
+	/** column to hold the comma-separated statistics (Average etc) */
+	public static final String COL_STATISTICS = "statistics";
+	/** column to hold the period (in secs) */
+	public static final String COL_PERIOD = "period";
+	/** column to hold the start of the time range covered (msecs since epoch) */
+	public static final String COL_COVEREDFROM = "coveredfrom";
+	/** column to hold the end of the time range covered (msecs since epoch) */
+	public static final String COL_COVEREDTO = "coveredto";
+}
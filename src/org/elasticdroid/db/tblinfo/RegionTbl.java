@@ -0,0 +1,42 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.db.tblinfo;
+
+import android.provider.BaseColumns;
+
+/**
+ * Class to hold metadata for the table RegionTbl in the database
+ * {@link org.elasticdroid.db.ElasticDroidDB.#DATABASE_NAME}.
+ * 
+ * Caches the region to endpoint mapping returned by describeRegions.
+ */
+public class RegionTbl implements BaseColumns {
+	/** table name */
+	public static final String TBL_NAME = "RegionTbl";
+	/** Number of cols in the table */
+	public static final int NUM_COLS = 4;
+	/** column to hold the AWS region name */
+	public static final String COL_REGIONNAME = "regionname";
+	/** column to hold the EC2 endpoint for the region */
+	public static final String COL_EC2ENDPOINT = "ec2endpoint";
+	/** column to hold the CloudWatch endpoint for the region */
+	public static final String COL_CLOUDWATCHENDPOINT = "cloudwatchendpoint";
+	/** column to hold the time (msecs since epoch) at which the row was retrieved from AWS */
+	public static final String COL_LASTUPDATED = "lastupdated";
+}
@@ -0,0 +1,361 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.elasticdroid.model.tpl.RetryPolicy;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+
+/**
+ * Process-wide registry of AWS clients.
+ *
+ * Building an AmazonEC2Client/AmazonCloudWatchClient is not free, and every new client
+ * starts off with a cold HTTP connection pool. The AWS clients are thread-safe once their
+ * endpoint has been set, so we hand out one client per (access key, service, endpoint) and
+ * share it between all of the models.
+ *
+ * <b>Do not call setEndpoint() on a client returned by this class!</b> The endpoint is part of
+ * the key; ask for a client with the endpoint you want instead.
+ *
+ * Clients are evicted (and their connections released) when the user logs out using
+ * {@link #evictClients(String)}.
+ *
+ * The SDK cannot abort a single request; the only way to stop a request in flight is to shut
+ * its client down. Models therefore lease their clients (see
+ * {@link #leaseClient(HashMap, ServiceType, String)}), and a model being cancelled can
+ * {@link #abortClient(AmazonWebServiceClient, int)} the clients it holds. The client is taken
+ * out of the registry, and shut down as soon as no other model holds a lease on it.
+ */
+public class AWSClientFactory {
+
+	/**
+	 * The AWS services we hand out clients for.
+	 */
+	public static enum ServiceType {
+		EC2,
+		CLOUDWATCH
+	}
+
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.AWSClientFactory";
+	/** Key part used when the caller wants the SDK's default endpoint */
+	private static final String DEFAULT_ENDPOINT = "default";
+
+	/** The clients, indexed by {@link #getKey(String, ServiceType, String)} */
+	private static HashMap<String, CachedClient> clients = new HashMap<String, CachedClient>();
+	/** The clients with outstanding leases. Includes aborted clients awaiting shutdown */
+	private static IdentityHashMap<AmazonWebServiceClient, CachedClient> leasedClients = new 
+		IdentityHashMap<AmazonWebServiceClient, CachedClient>();
+	/** Number of requests satisfied by a client in the registry */
+	private static long hitCount;
+	/** Number of requests which required a new client to be created */
+	private static long missCount;
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private AWSClientFactory() {
+	}
+
+	/**
+	 * Get a shared EC2 client for the credentials in connectionData.
+	 *
+	 * @param connectionData The AWS connection data. Requires keys accessKey and secretAccessKey.
+	 * @param endpoint The EC2 endpoint to talk to. Pass null to use the SDK default (us-east-1).
+	 * @return A (possibly shared) AmazonEC2Client with its endpoint set.
+	 */
+	public static AmazonEC2Client getEC2Client(HashMap<String, String> connectionData,
+			String endpoint) {
+		return (AmazonEC2Client) getClient(connectionData, ServiceType.EC2, endpoint);
+	}
+
+	/**
+	 * Get a shared CloudWatch client for the credentials in connectionData.
+	 *
+	 * @param connectionData The AWS connection data. Requires keys accessKey and secretAccessKey.
+	 * @param endpoint The CloudWatch endpoint to talk to. Pass null to use the SDK default.
+	 * @return A (possibly shared) AmazonCloudWatchClient with its endpoint set.
+	 */
+	public static AmazonCloudWatchClient getCloudWatchClient(HashMap<String, String>
+		connectionData, String endpoint) {
+		return (AmazonCloudWatchClient) getClient(connectionData, ServiceType.CLOUDWATCH,
+				endpoint);
+	}
+
+	/**
+	 * Lease a shared client. Same as {@link #getEC2Client(HashMap, String)} and 
+	 * {@link #getCloudWatchClient(HashMap, String)}, except that the caller must give the
+	 * client back using {@link #releaseClient(AmazonWebServiceClient)} when done with it.
+	 * 
+	 * @param connectionData The AWS connection data. Requires keys accessKey and secretAccessKey.
+	 * @param serviceType The AWS service.
+	 * @param endpoint The endpoint to talk to. Pass null to use the SDK default.
+	 * @return A (possibly shared) client with its endpoint set.
+	 */
+	public static synchronized AmazonWebServiceClient leaseClient(HashMap<String, String> 
+		connectionData, ServiceType serviceType, String endpoint) {
+		AmazonWebServiceClient client = getClient(connectionData, serviceType, endpoint);
+		CachedClient cachedClient = clients.get(getKey(connectionData.get("accessKey"), 
+				serviceType, endpoint));
+		
+		cachedClient.leases ++;
+		leasedClients.put(client, cachedClient);
+		
+		return client;
+	}
+	
+	/**
+	 * Give back a client obtained from {@link #leaseClient(HashMap, ServiceType, String)}.
+	 * If the client has been aborted and this was the last lease on it, it is shut down.
+	 * 
+	 * @param client The leased client.
+	 */
+	public static synchronized void releaseClient(AmazonWebServiceClient client) {
+		CachedClient cachedClient = leasedClients.get(client);
+		
+		if (cachedClient == null) {
+			return;
+		}
+		
+		cachedClient.leases --;
+		if (cachedClient.leases <= 0) {
+			leasedClients.remove(client);
+			if (cachedClient.aborted && !cachedClient.shutDown) {
+				cachedClient.shutDown = true;
+				cachedClient.client.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * Abort the requests in flight on a leased client, by taking it out of the registry and
+	 * shutting it down. Requests for the same (access key, service, endpoint) get a new client
+	 * from now on.
+	 * 
+	 * If other callers still hold leases on the client, it is not shut down until the last of
+	 * them releases it, so that one model's cancellation does not fail another model's
+	 * requests. 
+	 * 
+	 * @param client The leased client.
+	 * @param callerLeases The number of leases the caller holds on the client.
+	 * @return true if the client was shut down straight away.
+	 */
+	public static synchronized boolean abortClient(AmazonWebServiceClient client, 
+			int callerLeases) {
+		CachedClient cachedClient = leasedClients.get(client);
+		
+		if ((cachedClient == null) || cachedClient.aborted) {
+			return false;
+		}
+		
+		//take it out of the registry, unless it has already been replaced.
+		Iterator<CachedClient> clientIter = clients.values().iterator();
+		while (clientIter.hasNext()) {
+			if (clientIter.next() == cachedClient) {
+				clientIter.remove();
+				break;
+			}
+		}
+		
+		Log.v(TAG, "Aborting client. " + getStatistics());
+		//a cancelled request is often a slow one; see if we are being throttled.
+		Log.v(TAG, "Retries: " + RetryPolicy.getStatistics());
+		return retireClient(cachedClient, callerLeases);
+	}
+	
+	/**
+	 * Mark a client which has been taken out of the registry as aborted, and shut it down if
+	 * nobody but the caller holds a lease on it. Otherwise it is shut down by
+	 * {@link #releaseClient(AmazonWebServiceClient)} when the last lease is given back, so
+	 * that requests other models have in flight on it are not failed.
+	 * 
+	 * @param cachedClient The client.
+	 * @param callerLeases The number of leases the caller holds on the client.
+	 * @return true if the client was shut down straight away.
+	 */
+	private static boolean retireClient(CachedClient cachedClient, int callerLeases) {
+		cachedClient.aborted = true;
+		if (!cachedClient.shutDown && (cachedClient.leases <= callerLeases)) {
+			cachedClient.shutDown = true;
+			cachedClient.client.shutdown();
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Look up (or create) the client for this (access key, service, endpoint) tuple.
+	 *
+	 * If the secret access key does not match the one the cached client was created with
+	 * (the user re-entered his credentials), the cached client is taken out of the registry,
+	 * and shut down once the models leasing it are done with it.
+	 */
+	private static synchronized AmazonWebServiceClient getClient(HashMap<String, String>
+		connectionData, ServiceType serviceType, String endpoint) {
+		String accessKey = connectionData.get("accessKey");
+		String secretAccessKey = connectionData.get("secretAccessKey");
+		String key = getKey(accessKey, serviceType, endpoint);
+
+		CachedClient cachedClient = clients.get(key);
+
+		if ((cachedClient != null) && (cachedClient.secretAccessKey.equals(secretAccessKey))) {
+			hitCount ++;
+			return cachedClient.client;
+		}
+		else if (cachedClient != null) {
+			Log.v(TAG, "Credentials changed for " + key + ". Replacing client.");
+			clients.remove(key);
+			retireClient(cachedClient, 0);
+		}
+
+		missCount ++;
+
+		BasicAWSCredentials credentials = new BasicAWSCredentials(accessKey, secretAccessKey);
+		AmazonWebServiceClient client;
+		//RetryPolicy does the retrying, with jitter and a deadline; stop the SDK from 
+		//retrying underneath it.
+		ClientConfiguration clientConfiguration = new ClientConfiguration().withMaxErrorRetry(0);
+		if (serviceType == ServiceType.EC2) {
+			client = new AmazonEC2Client(credentials, clientConfiguration);
+		}
+		else {
+			client = new AmazonCloudWatchClient(credentials, clientConfiguration);
+		}
+
+		//set the endpoint once, before anyone else gets to see the client.
+		if (endpoint != null) {
+			client.setEndpoint(endpoint);
+		}
+
+		clients.put(key, new CachedClient(client, secretAccessKey));
+		Log.v(TAG, "Created client for " + key + ". " + getStatistics());
+
+		return client;
+	}
+
+	/**
+	 * Evict all of the clients created for this access key, and release their connections.
+	 * Call this when the user logs out. Clients still leased are shut down when the last lease
+	 * is given back.
+	 *
+	 * @param accessKey The access key of the user logging out.
+	 */
+	public static synchronized void evictClients(String accessKey) {
+		Iterator<Map.Entry<String, CachedClient>> clientIter = clients.entrySet().iterator();
+		String keyPrefix = accessKey + "|";
+
+		while (clientIter.hasNext()) {
+			Map.Entry<String, CachedClient> entry = clientIter.next();
+			if (entry.getKey().startsWith(keyPrefix)) {
+				clientIter.remove();
+				retireClient(entry.getValue(), 0);
+			}
+		}
+
+		Log.v(TAG, "Evicted clients. " + getStatistics());
+		Log.v(TAG, "Retries: " + RetryPolicy.getStatistics());
+	}
+
+	/**
+	 * Evict every client in the registry. Clients still leased are shut down when the last
+	 * lease is given back.
+	 */
+	public static synchronized void evictAll() {
+		for (CachedClient cachedClient : clients.values()) {
+			retireClient(cachedClient, 0);
+		}
+		clients.clear();
+	}
+
+	/**
+	 * @return the number of requests satisfied by a cached client.
+	 */
+	public static synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of requests which required a new client.
+	 */
+	public static synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the fraction of requests satisfied by a cached client. 0 if there have been no
+	 * requests.
+	 */
+	public static synchronized float getHitRate() {
+		if (hitCount + missCount == 0) {
+			return 0;
+		}
+
+		return (float) hitCount / (hitCount + missCount);
+	}
+
+	/**
+	 * @return Human-readable summary of the registry statistics. Used for logging.
+	 */
+	public static synchronized String getStatistics() {
+		return "Clients: " + clients.size() + ", hits: " + hitCount + ", misses: " + missCount
+			+ ", hit rate: " + getHitRate();
+	}
+
+	/**
+	 * Build the registry key. The access key goes first so that
+	 * {@link #evictClients(String)} can match on the prefix.
+	 */
+	private static String getKey(String accessKey, ServiceType serviceType, String endpoint) {
+		return accessKey + "|" + serviceType + "|" + (endpoint == null ? DEFAULT_ENDPOINT :
+			endpoint);
+	}
+
+	/**
+	 * Holder for a client, and the secret access key it was created with.
+	 */
+	private static class CachedClient {
+		/** The client */
+		private final AmazonWebServiceClient client;
+		/** The secret access key used to create the client */
+		private final String secretAccessKey;
+		/** The number of outstanding leases on the client */
+		private int leases;
+		/** Set once the client has been aborted; it is shut down when the leases run out */
+		private boolean aborted;
+		/** Set once an aborted client has been shut down */
+		private boolean shutDown;
+
+		private CachedClient(AmazonWebServiceClient client, String secretAccessKey) {
+			this.client = client;
+			this.secretAccessKey = secretAccessKey;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.tpl.GenericListActivity;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Model to retrieve the EC2 dashboard data for every region at once.
+ *
+ * The regions are queried in parallel (at most {@link #MAX_CONCURRENT_REGIONS} at a time), and
+ * each region has {@link #REGION_TIMEOUT} msecs to return its data. A region that fails or times
+ * out is reported as unavailable, and does not hold up the rest. The data for each region is
+ * published as progress as soon as it arrives.
+ */
+public class AllRegionsDashboardModel extends GenericModel<HashMap<?,?>,
+	HashMap<String, HashMap<String, Integer>>, Object> {
+
+	/** The maximum number of regions queried at the same time */
+	private static final int MAX_CONCURRENT_REGIONS = 4;
+	/** The maximum number of AWS requests in flight at any time */
+	private static final int MAX_CONCURRENT_REQUESTS = 8;
+	/** Time (in msecs) each region has to return all of its dashboard data */
+	public static final long REGION_TIMEOUT = 20000;
+	/** Executor on which the regions are queried */
+	private static final ExecutorService regionExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_REGIONS);
+	/** Executor on which the regions issue their requests */
+	private static final ExecutorService requestExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_REQUESTS);
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.AllRegionsDashboardModel";
+
+	/** The regions to query: EC2 endpoints indexed by region name */
+	private HashMap<String, String> regionData;
+	/** The oldest (in msecs) the instances handed out by the {@link InstanceRepository} may be */
+	private long maxAge = InstanceRepository.MAX_AGE;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param genericActivity The activity that started this model.
+	 * @param regionData The regions to query: EC2 endpoints indexed by region name, as returned
+	 * by {@link RetrieveRegionModel}.
+	 */
+	public AllRegionsDashboardModel(GenericListActivity genericActivity, HashMap<String, String>
+		regionData) {
+		super(genericActivity);
+
+		this.regionData = regionData;
+	}
+
+	/**
+	 * Go to AWS for the instances, even if the {@link InstanceRepository} retrieved them
+	 * moments ago. Use this when the user has asked for a refresh.
+	 *
+	 * @param forceRefresh true to bypass the repositories' copies of the instances.
+	 */
+	public void setForceRefresh(boolean forceRefresh) {
+		maxAge = forceRefresh ? 0 : InstanceRepository.MAX_AGE;
+	}
+
+	/**
+	 * Gets the dashboard data for all of the regions in the background thread.
+	 *
+	 * @param This method accepts *ONE* HashMap<String, String> of connection data. Requires
+	 * keys accessKey and secretAccessKey.
+	 *
+	 * @return This method can return:
+	 * <ul>
+	 * <li>{@link IllegalArgumentException}: If there are too many/few arguments.</li>
+	 * <li>HashMap<String, HashMap<String, Integer>>: The dashboard data (same keys as
+	 * {@link EC2DashboardModel}) indexed by region name. The value is null for regions that
+	 * failed or timed out.</li>
+	 * <li>AmazonServiceException/AmazonClientException: If every region failed.</li>
+	 * <li>null: if cancelled.</li>
+	 * </ul>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Object doInBackground(HashMap<?,?>... params) {
+		final HashMap<String, String> connectionData;
+		HashMap<String, HashMap<String, Integer>> allRegionsData = new HashMap<String,
+			HashMap<String, Integer>>();
+		Exception lastException = null;
+
+		if (params.length != 1) {
+			return new IllegalArgumentException("Only one Hashtable<String,String> parameter " +
+					"should be passed.");
+		}
+		connectionData = (HashMap<String, String>) params[0];
+
+		CompletionService<HashMap<String, Integer>> completionService = new
+			ExecutorCompletionService<HashMap<String, Integer>>(regionExecutor);
+		//the region each future is getting data for.
+		HashMap<Future<HashMap<String, Integer>>, String> futureRegions = new
+			HashMap<Future<HashMap<String, Integer>>, String>();
+
+		for (final String regionName : regionData.keySet()) {
+			final String endpoint = regionData.get(regionName);
+
+			futureRegions.put(completionService.submit(new Callable<HashMap<String, Integer>>() {
+				public HashMap<String, Integer> call() throws Exception {
+					return EC2DashboardModel.getDashboardData(getEC2Client(
+							connectionData, endpoint), InstanceRepository.getRepository(
+							connectionData, endpoint), maxAge, requestExecutor, REGION_TIMEOUT);
+				}
+			}), regionName);
+		}
+
+		try {
+			//pass each region on to the view as soon as it arrives
+			for (int count = 0; count < futureRegions.size(); count ++) {
+				Future<HashMap<String, Integer>> future = completionService.take();
+				String regionName = futureRegions.get(future);
+				HashMap<String, Integer> regionDashboardData;
+
+				try {
+					regionDashboardData = future.get();
+				}
+				catch (ExecutionException executionException) {
+					//this region failed or timed out. Report it, and carry on with the rest
+					Log.e(TAG, "Could not get dashboard data for " + regionName + ": " +
+							executionException.getCause());
+					lastException = (Exception) executionException.getCause();
+					regionDashboardData = null;
+				}
+
+				allRegionsData.put(regionName, regionDashboardData);
+
+				HashMap<String, HashMap<String, Integer>> progress = new HashMap<String,
+					HashMap<String, Integer>>();
+				progress.put(regionName, regionDashboardData);
+				publishProgress(progress);
+			}
+		}
+		catch (InterruptedException interruptedException) {
+			//we were cancelled.
+			return null;
+		}
+		finally {
+			for (Future<HashMap<String, Integer>> future : futureRegions.keySet()) {
+				future.cancel(true);
+			}
+		}
+
+		//if every region failed, let the view handle the error as it always does
+		if ((lastException != null) && allFailed(allRegionsData)) {
+			//AmazonServiceException is a subclass of AmazonClientException
+			if (lastException instanceof AmazonClientException) {
+				return lastException;
+			}
+			return new AmazonClientException(lastException.getMessage(), lastException);
+		}
+
+		return allRegionsData;
+	}
+
+	/**
+	 * @return true if there is no data for any region.
+	 */
+	private static boolean allFailed(HashMap<String, HashMap<String, Integer>> allRegionsData) {
+		for (HashMap<String, Integer> regionDashboardData : allRegionsData.values()) {
+			if (regionDashboardData != null) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
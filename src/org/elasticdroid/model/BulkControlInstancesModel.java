@@ -0,0 +1,366 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.elasticdroid.model.ControlInstancesModel.ControlType;
+import org.elasticdroid.model.ds.BulkControlReport;
+import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
+import org.elasticdroid.tpl.GenericActivity;
+import org.elasticdroid.tpl.GenericListActivity;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+import com.amazonaws.services.ec2.model.CreateTagsRequest;
+import com.amazonaws.services.ec2.model.DeleteTagsRequest;
+import com.amazonaws.services.ec2.model.InstanceStateChange;
+import com.amazonaws.services.ec2.model.StartInstancesRequest;
+import com.amazonaws.services.ec2.model.StopInstancesRequest;
+import com.amazonaws.services.ec2.model.Tag;
+
+/**
+ * Model to start, stop or tag a lot of instances at once: an instance group, or a selection
+ * from the list of instances.
+ * 
+ * {@link ControlInstancesModel} sends all of the instances in one request, so one bad 
+ * instance fails the lot, and the user sees nothing until it returns. This model splits the
+ * instances into chunks of {@link #CHUNK_SIZE}, and sends up to 
+ * {@link #MAX_CONCURRENT_REQUESTS} of them at a time. Each chunk succeeds or fails on its own, 
+ * and the results are combined into one {@link BulkControlReport}.
+ * 
+ * Publishes the number of instances done so far as each chunk returns.
+ */
+public class BulkControlInstancesModel extends GenericModel<String, Integer, Object> {
+	
+	/** The maximum number of instances in a single request */
+	public static final int CHUNK_SIZE = 20;
+	/** The maximum number of requests in flight at any time */
+	private static final int MAX_CONCURRENT_REQUESTS = 4;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.BulkControlInstancesModel";
+	/** 
+	 * Executor shared between all bulk models to issue the chunks concurrently. Bounded so that
+	 * a group of hundreds of instances does not open hundreds of connections.
+	 */
+	private static final ExecutorService requestExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_REQUESTS);
+	
+	/** The connection Data for AWS */
+	private HashMap<String, String> connectionData;
+	/** The operation to perform */
+	private ControlType operationType;
+	/** The name tag to set. Used only with {@link ControlType#TAG_INSTANCE}; empty to delete */
+	private String tagName;
+	/** The number of instances we were asked to control. 0 until execute is called. */
+	private volatile int instanceCount;
+	
+	/**
+	 * Initialise the model to start or stop instances.
+	 * 
+	 * @param activity
+	 * @param connectionData The AWS connection data
+	 * @param operationType Start instance or stop instance.
+	 */
+	public BulkControlInstancesModel(GenericActivity activity, HashMap<String, String> 
+		connectionData, ControlType operationType) {
+		this(activity, connectionData, operationType, null);
+	}
+	
+	/**
+	 * Initialise the model to start or stop instances.
+	 * 
+	 * @param listActivity
+	 * @param connectionData The AWS connection data
+	 * @param operationType Start instance or stop instance.
+	 */
+	public BulkControlInstancesModel(GenericListActivity listActivity, HashMap<String, String> 
+		connectionData, ControlType operationType) {
+		this(listActivity, connectionData, operationType, null);
+	}
+	
+	/**
+	 * Initialise the model. 
+	 * 
+	 * @param activity
+	 * @param connectionData The AWS connection data
+	 * @param operationType Start instance, stop instance, or tag instance.
+	 * @param tagName The name tag to give all of the instances, for 
+	 * {@link ControlType#TAG_INSTANCE}. An empty name deletes the name tag.
+	 */
+	public BulkControlInstancesModel(GenericActivity activity, HashMap<String, String> 
+		connectionData, ControlType operationType, String tagName) {
+		super(activity);
+		
+		this.connectionData = connectionData;
+		this.operationType = operationType;
+		this.tagName = tagName;
+	}
+	
+	/**
+	 * Initialise the model. 
+	 * 
+	 * @param listActivity
+	 * @param connectionData The AWS connection data
+	 * @param operationType Start instance, stop instance, or tag instance.
+	 * @param tagName The name tag to give all of the instances, for 
+	 * {@link ControlType#TAG_INSTANCE}. An empty name deletes the name tag.
+	 */
+	public BulkControlInstancesModel(GenericListActivity listActivity, HashMap<String, String> 
+		connectionData, ControlType operationType, String tagName) {
+		super(listActivity);
+		
+		this.connectionData = connectionData;
+		this.operationType = operationType;
+		this.tagName = tagName;
+	}
+	
+	/**
+	 * @return The number of instances the model was asked to control, so that the view can 
+	 * turn the progress published into a fraction.
+	 */
+	public int getInstanceCount() {
+		return instanceCount;
+	}
+	
+	/**
+	 * @return The operation this model performs.
+	 */
+	public ControlType getOperationType() {
+		return operationType;
+	}
+	
+	/**
+	 * @param instanceIds The instances to start, stop or tag.
+	 * @return One of:
+	 * <ul>
+	 * 	<li>{@link BulkControlReport}: the outcome for each instance.</li>
+	 * 	<li>IllegalArgumentException: if asked to tag with no tag name.</li>
+	 * 	<li>null: if cancelled.</li>
+	 * </ul>
+	 */
+	@Override
+	protected Object doInBackground(String... instanceIds) {
+		if ((operationType == ControlType.TAG_INSTANCE) && (tagName == null)) {
+			return new IllegalArgumentException("No tag name supplied.");
+		}
+		
+		instanceCount = instanceIds.length;
+		Log.v(TAG, operationType + ": " + instanceCount + " instances.");
+		
+		//get the shared Amazon EC2 Client object. Uses the default connection endpoint if none
+		//provided.
+		AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, 
+				connectionData.get("endpoint"));
+		BulkControlReport report = new BulkControlReport();
+		
+		//send all of the chunks; the executor holds back all but MAX_CONCURRENT_REQUESTS.
+		CompletionService<BulkControlReport> completionService = new 
+			ExecutorCompletionService<BulkControlReport>(requestExecutor);
+		List<Future<BulkControlReport>> futures = new ArrayList<Future<BulkControlReport>>();
+		for (List<String> chunk : chunk(Arrays.asList(instanceIds), CHUNK_SIZE)) {
+			futures.add(completionService.submit(newChunkTask(amazonEC2Client, chunk)));
+		}
+		
+		int done = 0;
+		try {
+			for (int count = 0; count < futures.size(); count ++) {
+				BulkControlReport chunkReport = completionService.take().get();
+				
+				for (String instanceId : chunkReport.getSucceeded()) {
+					report.addSuccess(instanceId, chunkReport.getNewState(instanceId));
+				}
+				for (String instanceId : chunkReport.getFailures().keySet()) {
+					report.addFailures(Arrays.asList(instanceId), chunkReport.getFailures().get(
+							instanceId));
+				}
+				
+				done += chunkReport.getSucceededCount() + chunkReport.getFailedCount();
+				publishProgress(done);
+			}
+		}
+		catch (InterruptedException interruptedException) {
+			//we were cancelled. The chunks already sent will go through regardless.
+			return null;
+		}
+		catch (ExecutionException executionException) {
+			//the chunk tasks catch AWS exceptions themselves; this is a programming error.
+			return new IllegalArgumentException(executionException.getCause());
+		}
+		finally {
+			for (Future<BulkControlReport> future : futures) {
+				future.cancel(true);
+			}
+			
+			//whatever happened, the instances the views share are out of date now.
+			InstanceRepository.getRepository(connectionData, connectionData.get("endpoint")).
+				invalidate();
+		}
+		
+		Log.v(TAG, operationType + ": " + report.getSucceededCount() + " succeeded, " + 
+				report.getFailedCount() + " failed.");
+		
+		return report;
+	}
+	
+	/**
+	 * Split a list into consecutive chunks.
+	 * 
+	 * @param list The list.
+	 * @param chunkSize The maximum chunk size. Must be 1 or more.
+	 * @return The chunks, as views on list.
+	 */
+	public static <T> List<List<T>> chunk(List<T> list, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be at least 1.");
+		}
+		
+		List<List<T>> chunks = new ArrayList<List<T>>();
+		for (int start = 0; start < list.size(); start += chunkSize) {
+			chunks.add(list.subList(start, Math.min(start + chunkSize, list.size())));
+		}
+		
+		return chunks;
+	}
+	
+	/**
+	 * Create a task that sends one chunk of instances to AWS.
+	 * 
+	 * @return A task which returns the report for the chunk. AWS exceptions are recorded in the
+	 * report as failures for every instance in the chunk, not thrown.
+	 */
+	private Callable<BulkControlReport> newChunkTask(final AmazonEC2Client amazonEC2Client, 
+			final List<String> chunk) {
+		return new Callable<BulkControlReport>() {
+			public BulkControlReport call() {
+				BulkControlReport chunkReport = new BulkControlReport();
+				
+				try {
+					List<InstanceStateChange> stateChanges = null;
+					
+					switch (operationType) {
+					case START_INSTANCE:
+						stateChanges = startInstances(amazonEC2Client, chunk);
+						break;
+					case STOP_INSTANCE:
+						stateChanges = stopInstances(amazonEC2Client, chunk);
+						break;
+					case TAG_INSTANCE:
+						tagInstances(amazonEC2Client, chunk);
+						break;
+					}
+					
+					if (stateChanges != null) {
+						for (InstanceStateChange stateChange : stateChanges) {
+							chunkReport.addSuccess(stateChange.getInstanceId(), stateChange.
+									getCurrentState().getName());
+						}
+					}
+					else {
+						for (String instanceId : chunk) {
+							chunkReport.addSuccess(instanceId, null);
+						}
+					}
+				}
+				catch(AmazonClientException amazonClientException) {
+					Log.e(TAG, "Chunk of " + chunk.size() + " failed: " + amazonClientException.
+							getMessage());
+					chunkReport.addFailures(chunk, amazonClientException.getMessage());
+				}
+				
+				return chunkReport;
+			}
+		};
+	}
+	
+	/**
+	 * Start a chunk of instances.
+	 * @return The state changes AWS reported.
+	 */
+	private static List<InstanceStateChange> startInstances(final AmazonEC2Client 
+			amazonEC2Client, List<String> chunk) throws AmazonClientException {
+		final StartInstancesRequest request = new StartInstancesRequest(chunk);
+		
+		//starting a starting instance does no harm; safe to retry.
+		return RetryPolicy.execute("startInstances", new RetryPolicy.Request<
+				List<InstanceStateChange>>() {
+			public List<InstanceStateChange> execute() {
+				return amazonEC2Client.startInstances(request).getStartingInstances();
+			}
+		});
+	}
+	
+	/**
+	 * Stop a chunk of instances.
+	 * @return The state changes AWS reported.
+	 */
+	private static List<InstanceStateChange> stopInstances(final AmazonEC2Client 
+			amazonEC2Client, List<String> chunk) throws AmazonClientException {
+		final StopInstancesRequest request = new StopInstancesRequest(chunk);
+		
+		return RetryPolicy.execute("stopInstances", new RetryPolicy.Request<
+				List<InstanceStateChange>>() {
+			public List<InstanceStateChange> execute() {
+				return amazonEC2Client.stopInstances(request).getStoppingInstances();
+			}
+		});
+	}
+	
+	/**
+	 * Set the name tag of a chunk of instances, or delete it if {@link #tagName} is empty.
+	 */
+	private void tagInstances(final AmazonEC2Client amazonEC2Client, List<String> chunk) 
+		throws AmazonClientException {
+		if (tagName.length() == 0) {
+			final DeleteTagsRequest request = new DeleteTagsRequest(chunk).withTags(
+					new Tag("Name"));
+			
+			RetryPolicy.execute("deleteTags", new RetryPolicy.Request<Void>() {
+				public Void execute() {
+					amazonEC2Client.deleteTags(request);
+					return null;
+				}
+			});
+		}
+		else {
+			final CreateTagsRequest request = new CreateTagsRequest(chunk, Arrays.asList(
+					new Tag("Name", tagName)));
+			
+			RetryPolicy.execute("createTags", new RetryPolicy.Request<Void>() {
+				public Void execute() {
+					amazonEC2Client.createTags(request);
+					return null;
+				}
+			});
+		}
+	}
+}
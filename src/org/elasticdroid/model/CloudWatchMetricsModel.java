@@ -18,24 +18,18 @@
  */
 package org.elasticdroid.model;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 
 import org.elasticdroid.model.tpl.GenericModel;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
-import org.elasticdroid.utils.AWSConstants;
 
 import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
 import com.amazonaws.services.cloudwatch.model.Dimension;
-import com.amazonaws.services.cloudwatch.model.ListMetricsRequest;
-import com.amazonaws.services.cloudwatch.model.Metric;
 
 /**
  * @author siddhu
@@ -49,9 +43,9 @@ public class CloudWatchMetricsModel extends GenericModel<Dimension, Void, Object
 	 */
 	private HashMap<String, String> connectionData;
 	/**
-	 * The Cloudwatch end point for this region
+	 * The selected region. The Cloudwatch end point is looked up from the RegionRegistry.
 	 */
-	private String cloudWatchEndpoint;
+	private String selectedRegion;
 	
 	/**
 	 * Constructor for GenericActivity
@@ -62,7 +56,9 @@ public class CloudWatchMetricsModel extends GenericModel<Dimension, Void, Object
 		super(activity);
 		
 		this.connectionData = connectionData;
-		cloudWatchEndpoint = AWSConstants.getCloudWatchEndpoint(selectedRegion);
+		this.selectedRegion = selectedRegion;
+		//let the metric catalog get at the DB.
+		MetricCatalog.setContext(activity);
 	}
 	
 	/**
@@ -74,7 +70,9 @@ public class CloudWatchMetricsModel extends GenericModel<Dimension, Void, Object
 		super(listActivity);
 		
 		this.connectionData = connectionData;
-		cloudWatchEndpoint = AWSConstants.getCloudWatchEndpoint(selectedRegion);
+		this.selectedRegion = selectedRegion;
+		//let the metric catalog get at the DB.
+		MetricCatalog.setContext(listActivity);
 	}
 
 	/**
@@ -86,30 +84,28 @@ public class CloudWatchMetricsModel extends GenericModel<Dimension, Void, Object
 	}
 	
 	/**
-	 * Retrieve the list of metrics
+	 * Retrieve the list of measure names available for the dimensions passed in, from
+	 * {@link MetricCatalog}. The catalog only goes to AWS if it is stale, or does not know
+	 * about the dimensions.
 	 * 
 	 * @return Either
 	 * <ul>
 	 * 	<li>AmazonServiceException</li>
 	 *  <li>AmazonClientException</li>
-	 *  <li>List\<Metric\></li>
+	 *  <li>List\<String\> of measure names</li>
 	 * </ul>
 	 */
 	public Object retrieveMetricsList(Dimension... dimensions) {
 		//the cloudwatch client to use
 		AmazonCloudWatchClient cloudWatchClient = null;
-		List<Metric> returnedMetrics = null;
-		ArrayList<String> measureNames = new ArrayList<String>();
-		ListMetricsRequest request = new ListMetricsRequest();
 		
+		//get the shared cloudwatch client for this region's endpoint
+		cloudWatchClient = getCloudWatchClient(connectionData, 
+				RegionRegistry.getCloudWatchEndpoint(selectedRegion));
 		
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		
-		//create a cloudwatch client
 		try {
-			cloudWatchClient = new AmazonCloudWatchClient(credentials);
+			return MetricCatalog.getMeasureNames(cloudWatchClient, connectionData.get(
+					"username"), selectedRegion, dimensions);
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			//if an error response is returned by AmazonIdentityManagement indicating either a 
@@ -124,55 +120,6 @@ public class CloudWatchMetricsModel extends GenericModel<Dimension, Void, Object
 			Log.e(this.getClass().getName(), "Exception:" + amazonClientException.getMessage());
 			return amazonClientException;
 		}
-		
-		cloudWatchClient.setEndpoint(cloudWatchEndpoint);
-		
-		//create the request
-		request = new ListMetricsRequest();
-		//request.setNextToken(nextToken)
-		try {
-			returnedMetrics = cloudWatchClient.listMetrics().getMetrics();
-		}
-		catch(AmazonServiceException amazonServiceException) {
-			//if an error response is returned by AmazonIdentityManagement indicating either a 
-			//problem with the data in the request, or a server side issue.
-			Log.e(this.getClass().getName(), "Exception:" + amazonServiceException.getMessage());
-			return amazonServiceException;
-		}
-		catch(AmazonClientException amazonClientException) { 
-			//If any internal errors are encountered inside the client while attempting to make 
-			//the request or handle the response. For example if a network connection is not 
-			//available. 
-			Log.e(this.getClass().getName(), "Exception:" + amazonClientException.getMessage());
-			return amazonClientException;
-		}
-		
-		//my own disgusting O(mnp) filter. This is REALLY CRAP!
-		//remove all that does not fit into the dimension
-		//for some reason, there isn't a way to provide dimensions using ListMetricsRequest in Java
-		//you can do it in the C# API though :P
-		List<Dimension> returnedDimensions;
-		boolean added;
-		for (Metric metric : returnedMetrics) {
-			returnedDimensions = metric.getDimensions();
-			added = false;
-			for (Dimension returnedDimension : returnedDimensions) {
-				//check if any of the dimensions passed in to the model are equal to this.
-				for (Dimension dimension : dimensions) {
-					if (returnedDimension.getValue().equals(dimension.getValue())) {
-						measureNames.add(metric.getMeasureName());
-						added = true;
-						break;
-					}
-				}
-				
-				if (added) {
-					break;
-				}
-			}
-		}
-
-		return measureNames;
 	}
 
 }
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
 
@@ -31,7 +32,6 @@ import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.CreateTagsRequest;
 import com.amazonaws.services.ec2.model.DeleteTagsRequest;
@@ -176,21 +176,28 @@ public class ControlInstancesModel extends GenericModel<String, Void, Object> {
 			e.printStackTrace();
 		}
 		
-		//call controlInstances to do the actual job.
-		if ((operationType == ControlType.START_INSTANCE) ||
-				(operationType == ControlType.STOP_INSTANCE)) {
-			return controlInstances(Arrays.asList(instances));
-		}
-		else {
-			if (ec2Tags.size() == 0) {
-				Log.v(TAG, "Deleting tags...");
-				return deleteTags(Arrays.asList(instances));
+		try {
+			//call controlInstances to do the actual job.
+			if ((operationType == ControlType.START_INSTANCE) ||
+					(operationType == ControlType.STOP_INSTANCE)) {
+				return controlInstances(Arrays.asList(instances));
 			}
 			else {
-				//tag instance otherwise.
-				return tagInstance(Arrays.asList(instances));
+				if (ec2Tags.size() == 0) {
+					Log.v(TAG, "Deleting tags...");
+					return deleteTags(Arrays.asList(instances));
+				}
+				else {
+					//tag instance otherwise.
+					return tagInstance(Arrays.asList(instances));
+				}
 			}
 		}
+		finally {
+			//whatever happened, the instances the views share are out of date now.
+			InstanceRepository.getRepository(connectionData, connectionData.get("endpoint")).
+				invalidate();
+		}
 	}
 	
 	/**
@@ -214,23 +221,23 @@ public class ControlInstancesModel extends GenericModel<String, Void, Object> {
 			Log.v(TAG, "Starting instance: " + instance);
 		}
 		
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		//override the default connection endpoint if provided.
-		if (connectionData.get("endpoint") != null) {
-			amazonEC2Client.setEndpoint(connectionData.get("endpoint"));
-		}
+		//get the shared Amazon EC2 Client object. Uses the default connection endpoint if none
+		//provided.
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, 
+				connectionData.get("endpoint"));
 		
 		//if you want to start an instance
 		if (operationType == ControlType.START_INSTANCE) {
-			StartInstancesRequest request = new StartInstancesRequest(instances);
+			final StartInstancesRequest request = new StartInstancesRequest(instances);
 			StartInstancesResult result = null;
 			try {
-				result = amazonEC2Client.startInstances(request);
+				//starting a starting instance does no harm; safe to retry.
+				result = RetryPolicy.execute("startInstances", new RetryPolicy.Request<
+						StartInstancesResult>() {
+					public StartInstancesResult execute() {
+						return amazonEC2Client.startInstances(request);
+					}
+				});
 			}
 			catch(AmazonServiceException amazonServiceException) {
 				return amazonServiceException;
@@ -245,11 +252,16 @@ public class ControlInstancesModel extends GenericModel<String, Void, Object> {
 		}
 		//stop = true, start the instance.
 		else {
-			StopInstancesRequest request = new StopInstancesRequest(instances);
+			final StopInstancesRequest request = new StopInstancesRequest(instances);
 			StopInstancesResult result = null;
 			
 			try {
-				result = amazonEC2Client.stopInstances(request);
+				result = RetryPolicy.execute("stopInstances", new RetryPolicy.Request<
+						StopInstancesResult>() {
+					public StopInstancesResult execute() {
+						return amazonEC2Client.stopInstances(request);
+					}
+				});
 			}
 			catch(AmazonServiceException amazonServiceException) {
 				return amazonServiceException;
@@ -282,28 +294,26 @@ public class ControlInstancesModel extends GenericModel<String, Void, Object> {
 			return new IllegalArgumentException("The number of instances should be equal to be " +
 					"the number");
 		}
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		
-		//override the default connection endpoint if provided.
-		if (connectionData.get("endpoint") != null) {
-			amazonEC2Client.setEndpoint(connectionData.get("endpoint"));
-		}
+		//get the shared Amazon EC2 Client object. Uses the default connection endpoint if none
+		//provided.
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, 
+				connectionData.get("endpoint"));
 		
 		//create a TagsRequest
 		for (String instance : instances) {
 			Log.v(TAG, "Tagging " + instance);
 		}
-		CreateTagsRequest request = new CreateTagsRequest(instances, ec2Tags);
+		final CreateTagsRequest request = new CreateTagsRequest(instances, ec2Tags);
 		
 		
 		//okay, tag the instance
 		try {
-			amazonEC2Client.createTags(request);
+			RetryPolicy.execute("createTags", new RetryPolicy.Request<Void>() {
+				public Void execute() {
+					amazonEC2Client.createTags(request);
+					return null;
+				}
+			});
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			return amazonServiceException;
@@ -317,17 +327,10 @@ public class ControlInstancesModel extends GenericModel<String, Void, Object> {
 	
 	public Object deleteTags(List<String> instances) {
 		
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		
-		//override the default connection endpoint if provided.
-		if (connectionData.get("endpoint") != null) {
-			amazonEC2Client.setEndpoint(connectionData.get("endpoint"));
-		}
+		//get the shared Amazon EC2 Client object. Uses the default connection endpoint if none
+		//provided.
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, 
+				connectionData.get("endpoint"));
 		
 		//create empty tags for each of the instances from which the name tag is to be deleted.
 		for (String instance : instances) {
@@ -336,12 +339,17 @@ public class ControlInstancesModel extends GenericModel<String, Void, Object> {
 			ec2Tags.add(new Tag("Name"));
 		}
 
-		DeleteTagsRequest request = new DeleteTagsRequest(instances);
+		final DeleteTagsRequest request = new DeleteTagsRequest(instances);
 		request.setTags(ec2Tags);
 
 		//okay, tag the instance
 		try {
-			amazonEC2Client.deleteTags(request);
+			RetryPolicy.execute("deleteTags", new RetryPolicy.Request<Void>() {
+				public Void execute() {
+					amazonEC2Client.deleteTags(request);
+					return null;
+				}
+			});
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			return amazonServiceException;
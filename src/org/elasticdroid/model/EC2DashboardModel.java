@@ -18,30 +18,56 @@
  */
 package org.elasticdroid.model;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.AWSConstants;
-import org.elasticdroid.utils.AWSConstants.InstanceStateConstants;
 
 import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2Client;
-import com.amazonaws.services.ec2.model.DescribeInstancesResult;
-import com.amazonaws.services.ec2.model.Instance;
-import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.DescribeAddressesResult;
+import com.amazonaws.services.ec2.model.DescribeKeyPairsResult;
+import com.amazonaws.services.ec2.model.DescribeSecurityGroupsResult;
 
 /**
+ * Model to retrieve the data displayed on the EC2 dashboard.
+ * 
+ * The describe* calls are issued concurrently, and each part of the dashboard data is
+ * published as progress as soon as it arrives so that the dashboard fills in progressively.
  * @author Siddhu Warrier
  *
  * 14 Nov 2010
  */
 public class EC2DashboardModel extends GenericModel<HashMap<?,?>, 
-	Void, Object> {
+	HashMap<String, Integer>, Object> {
+	/** The maximum number of AWS requests the dashboard models have in flight at any time */
+	private static final int MAX_CONCURRENT_REQUESTS = 4;
+	/** 
+	 * Executor shared between all dashboard models to issue the AWS requests concurrently. 
+	 * Bounded so that we do not open more connections than the device can cope with.
+	 */
+	private static final ExecutorService requestExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_REQUESTS);
+	
+	/** The oldest (in msecs) the instances handed out by the {@link InstanceRepository} may be */
+	private long maxAge = InstanceRepository.MAX_AGE;
+	
 	/**
 	 * 
 	 * @param genericActivity
@@ -49,6 +75,16 @@ public class EC2DashboardModel extends GenericModel<HashMap<?,?>,
 	public EC2DashboardModel(GenericListActivity genericActivity) {
 		super(genericActivity);
 	}
+	
+	/**
+	 * Go to AWS for the instances, even if the {@link InstanceRepository} retrieved them 
+	 * moments ago. Use this when the user has asked for a refresh.
+	 * 
+	 * @param forceRefresh true to bypass the repository's copy of the instances.
+	 */
+	public void setForceRefresh(boolean forceRefresh) {
+		maxAge = forceRefresh ? 0 : InstanceRepository.MAX_AGE;
+	}
 
 	/**
 	 * Gets the data to populate the EC2 Dashboard with in the background thread, and loads it into
@@ -102,55 +138,169 @@ public class EC2DashboardModel extends GenericModel<HashMap<?,?>,
 		Log.v(this.getClass().getName(), "Getting EC2 dashboard data...");
 		
 		//prepare to get the dashboard data!
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		amazonEC2Client.setEndpoint(connectionData.get("endpoint"));
+		//get the shared Amazon EC2 Client object for the endpoint of the selected region.
+		AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, 
+				connectionData.get("endpoint"));
 		//initialise result holder variable
 		dashboardData = new HashMap<String, Integer>();
 		
+		//issue all of the requests at once. Each of them returns a part of the dashboard data
+		CompletionService<HashMap<String, Integer>> completionService = new 
+			ExecutorCompletionService<HashMap<String, Integer>>(requestExecutor);
+		List<Future<HashMap<String, Integer>>> futures = submitDashboardRequests(
+				completionService, amazonEC2Client, InstanceRepository.getRepository(
+				connectionData, connectionData.get("endpoint")), maxAge);
+		
 		try {
-			//get the number of running and stopped instances
-			DescribeInstancesResult instances = amazonEC2Client.describeInstances();
-			
-			int numOfRunningInstances = 0;
-			int numOfStoppedInstances = 0;
-			//get the list of reservations in the results
-			for (Reservation reservation: instances.getReservations()) {
-				//for each reservation, get the list of instances associated
-				for (Instance instance: reservation.getInstances()) {
-					if (instance.getState().getCode().byteValue() == InstanceStateConstants.RUNNING) {
-						numOfRunningInstances ++;
-					}
-					else if (instance.getState().getCode().byteValue() == InstanceStateConstants.
-							STOPPED) {
-						numOfStoppedInstances ++;
-					}
-				}
+			//pass each part on to the view as soon as it arrives.
+			for (int count = 0; count < futures.size(); count ++) {
+				HashMap<String, Integer> partialData = completionService.take().get();
+				
+				dashboardData.putAll(partialData);
+				publishProgress(partialData);
+			}
+		}
+		catch (InterruptedException interruptedException) {
+			//we were cancelled.
+			return null;
+		}
+		catch (ExecutionException executionException) {
+			//return the AWS exception to the view like we've always done.
+			if (executionException.getCause() instanceof AmazonServiceException) {
+				return (AmazonServiceException) executionException.getCause();
+			}
+			else if (executionException.getCause() instanceof AmazonClientException) {
+				return (AmazonClientException) executionException.getCause();
 			}
-			dashboardData.put("runningInstances", numOfRunningInstances);
-			dashboardData.put("stoppedInstances", numOfStoppedInstances);
-			
-			//get the list of elastic Ips.
-			dashboardData.put("elasticIp", amazonEC2Client.describeAddresses().getAddresses().size());
-	
-			//get the list of security groups
-			dashboardData.put("securityGroups", amazonEC2Client.describeSecurityGroups().getSecurityGroups().size());
 			
-			//get the list of keypairs
-			dashboardData.put("keyPairs", amazonEC2Client.describeKeyPairs().getKeyPairs().size());
+			return new AmazonClientException(executionException.getCause().getMessage(),
+					executionException.getCause());
 		}
-		catch(AmazonServiceException amazonServiceException) {
-			return amazonServiceException;
+		finally {
+			//no point letting the others run if one of them failed.
+			for (Future<HashMap<String, Integer>> future : futures) {
+				future.cancel(true);
+			}
 		}
-		catch(AmazonClientException amazonClientException) {
-			return amazonClientException;
+		
+		return dashboardData;
+	}
+	
+	/**
+	 * Get the dashboard data for a region without publishing progress. This is used to get
+	 * the data for several regions at once.
+	 * 
+	 * @param amazonEC2Client The EC2 client for the region.
+	 * @param instanceRepository The repository for the region's instances.
+	 * @param maxAge The oldest (in msecs) the repository's instances may be.
+	 * @param executor The executor to issue the requests on.
+	 * @param timeout The time (in msecs) to wait for all of the requests to return.
+	 * @return HashMap with the same keys as returned by doInBackground.
+	 * @throws InterruptedException If the calling thread is interrupted.
+	 * @throws ExecutionException If one of the requests failed. The cause is the 
+	 * AmazonServiceException or AmazonClientException.
+	 * @throws TimeoutException If the requests did not return within timeout msecs.
+	 */
+	public static HashMap<String, Integer> getDashboardData(AmazonEC2Client amazonEC2Client, 
+			InstanceRepository instanceRepository, long maxAge, ExecutorService executor, 
+			long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+		HashMap<String, Integer> dashboardData = new HashMap<String, Integer>();
+		long deadline = System.currentTimeMillis() + timeout;
+		
+		CompletionService<HashMap<String, Integer>> completionService = new 
+			ExecutorCompletionService<HashMap<String, Integer>>(executor);
+		List<Future<HashMap<String, Integer>>> futures = submitDashboardRequests(
+				completionService, amazonEC2Client, instanceRepository, maxAge);
+		
+		try {
+			for (int count = 0; count < futures.size(); count ++) {
+				Future<HashMap<String, Integer>> future = completionService.poll(deadline - 
+						System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+				
+				if (future == null) {
+					throw new TimeoutException("Dashboard requests timed out.");
+				}
+				dashboardData.putAll(future.get());
+			}
+		}
+		finally {
+			for (Future<HashMap<String, Integer>> future : futures) {
+				future.cancel(true);
+			}
 		}
 		
 		return dashboardData;
 	}
-
+	
+	/**
+	 * Submit the requests that make up the dashboard data. Each of them returns a part of the
+	 * dashboard data.
+	 * 
+	 * @param completionService The completion service to submit the requests to.
+	 * @param amazonEC2Client The EC2 client to use.
+	 * @param instanceRepository The repository to count the instances from.
+	 * @param maxAge The oldest (in msecs) the repository's instances may be.
+	 * @return the futures for the requests, so that they can be cancelled.
+	 */
+	private static List<Future<HashMap<String, Integer>>> submitDashboardRequests(
+			CompletionService<HashMap<String, Integer>> completionService, 
+			final AmazonEC2Client amazonEC2Client, final InstanceRepository instanceRepository, 
+			final long maxAge) {
+		List<Future<HashMap<String, Integer>>> futures = new ArrayList<Future<HashMap<String, 
+			Integer>>>();
+		
+		//get the number of running and stopped instances. The instance views are likely to want
+		//the instances next, so get them through the repository.
+		futures.add(completionService.submit(new Callable<HashMap<String, Integer>>() {
+			public HashMap<String, Integer> call() {
+				return InstanceRepository.countInstances(instanceRepository.getInstances(maxAge));
+			}
+		}));
+		//get the list of elastic Ips.
+		futures.add(completionService.submit(new Callable<HashMap<String, Integer>>() {
+			public HashMap<String, Integer> call() {
+				return singleCount("elasticIp", RetryPolicy.execute("describeAddresses", 
+						new RetryPolicy.Request<DescribeAddressesResult>() {
+					public DescribeAddressesResult execute() {
+						return amazonEC2Client.describeAddresses();
+					}
+				}).getAddresses().size());
+			}
+		}));
+		//get the list of security groups
+		futures.add(completionService.submit(new Callable<HashMap<String, Integer>>() {
+			public HashMap<String, Integer> call() {
+				return singleCount("securityGroups", RetryPolicy.execute(
+						"describeSecurityGroups", new RetryPolicy.Request<
+						DescribeSecurityGroupsResult>() {
+					public DescribeSecurityGroupsResult execute() {
+						return amazonEC2Client.describeSecurityGroups();
+					}
+				}).getSecurityGroups().size());
+			}
+		}));
+		//get the list of keypairs
+		futures.add(completionService.submit(new Callable<HashMap<String, Integer>>() {
+			public HashMap<String, Integer> call() {
+				return singleCount("keyPairs", RetryPolicy.execute("describeKeyPairs", 
+						new RetryPolicy.Request<DescribeKeyPairsResult>() {
+					public DescribeKeyPairsResult execute() {
+						return amazonEC2Client.describeKeyPairs();
+					}
+				}).getKeyPairs().size());
+			}
+		}));
+		
+		return futures;
+	}
+	
+	/**
+	 * Wrap a single count in a HashMap.
+	 */
+	private static HashMap<String, Integer> singleCount(String key, int count) {
+		HashMap<String, Integer> data = new HashMap<String, Integer>();
+		data.put(key, count);
+		
+		return data;
+	}
 }
@@ -23,23 +23,24 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
+import org.elasticdroid.db.ElasticDroidDB;
 import org.elasticdroid.model.ds.SerializableInstance;
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.ModelExecutor;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.DialogConstants;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
-import com.amazonaws.services.ec2.model.DescribeRegionsRequest;
 import com.amazonaws.services.ec2.model.Filter;
 import com.amazonaws.services.ec2.model.Instance;
-import com.amazonaws.services.ec2.model.Region;
 import com.amazonaws.services.ec2.model.Reservation;
 
 /**
@@ -49,6 +50,20 @@ import com.amazonaws.services.ec2.model.Reservation;
  */
 public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 
+	/**
+	 * Does any work the view needs doing on the instances retrieved (formatting the text for
+	 * the list rows, say) in the model's background thread, so that the UI thread doesn't
+	 * have to.
+	 */
+	public static interface ResultPreparer {
+		/**
+		 * Called in the model's *background* thread with the instances retrieved.
+		 * 
+		 * @param instances The instances. Do not modify!
+		 */
+		public void prepare(List<SerializableInstance> instances);
+	}
+
 	/** AWS Connection data */
 	private HashMap<String, String> connectionData;
 	/** Tag for logging */
@@ -57,9 +72,17 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 	private String selectedRegion;
 	/** The expected instance state code at which to stop autorefreshing */
 	private Integer expectedInstanceStateCode;
-	/** The maximum backoff period for the binary exponential backoff algo used with autorefresh.
-	 * In milliseconds */
-	private static final long MAX_BACKOFF_PERIOD = 30000;
+	/** Context to save the instances retrieved with. null if they are not to be saved. */
+	private Context snapshotContext;
+	/** 
+	 * Set if the view is already showing a (saved) list, and we are only bringing it up to
+	 * date. No progress dialog is shown.
+	 */
+	private boolean revalidating;
+	/** Prepares the instances retrieved for the view, if set */
+	private ResultPreparer resultPreparer;
+	/** The oldest (in msecs) the instances handed out by the {@link InstanceRepository} may be */
+	private long maxAge = InstanceRepository.MAX_AGE;
 	
 	/**
 	 * Start a new EC2InstancesModel object from a GenericListActivity
@@ -105,6 +128,8 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 		this.connectionData = connectionData;
 		this.selectedRegion = selectedRegion;
 		this.expectedInstanceStateCode = expectedInstanceStateCode;
+		//nobody is waiting on autorefresh; let user-initiated models go first.
+		setPriority(ModelExecutor.Priority.BACKGROUND);
 	}
 	
 	/**
@@ -123,6 +148,68 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 		this.connectionData = connectionData;
 		this.selectedRegion = selectedRegion;
 		this.expectedInstanceStateCode = expectedInstanceStateCode;
+		//nobody is waiting on autorefresh; let user-initiated models go first.
+		setPriority(ModelExecutor.Priority.BACKGROUND);
+	}
+	
+	/**
+	 * Save the instances retrieved as a snapshot in {@link ElasticDroidDB}, so that the view can
+	 * show them straight away next time round. See {@link #getSnapshotKey(Filter...)}.
+	 * 
+	 * @param context Any context. Only the application context is held on to.
+	 */
+	public void saveSnapshot(Context context) {
+		snapshotContext = context.getApplicationContext();
+	}
+	
+	/**
+	 * Do not show a progress dialog: the view is already showing a list, and we are only
+	 * bringing it up to date.
+	 * 
+	 * @param revalidating true to retrieve the instances without a progress dialog.
+	 */
+	public void setRevalidating(boolean revalidating) {
+		this.revalidating = revalidating;
+	}
+	
+	/**
+	 * Have the instances retrieved prepared for the view before they are returned.
+	 * 
+	 * @param resultPreparer The preparer. Called in the model's background thread; it should
+	 * not hold on to the Activity.
+	 */
+	public void setResultPreparer(ResultPreparer resultPreparer) {
+		this.resultPreparer = resultPreparer;
+	}
+	
+	/**
+	 * Go to AWS for the instances, even if the {@link InstanceRepository} retrieved them 
+	 * moments ago. Use this when the user has asked for a refresh.
+	 * 
+	 * @param forceRefresh true to bypass the repository's copy of the instances.
+	 */
+	public void setForceRefresh(boolean forceRefresh) {
+		maxAge = forceRefresh ? 0 : InstanceRepository.MAX_AGE;
+	}
+	
+	/**
+	 * Build the key the snapshot of the instances retrieved with these filters is saved under.
+	 * 
+	 * @param filters The filters.
+	 * @return The key; the filter names and values, in the order passed in.
+	 */
+	public static String getSnapshotKey(Filter... filters) {
+		StringBuilder snapshotKey = new StringBuilder();
+		
+		for (Filter filter : filters) {
+			snapshotKey.append(filter.getName()).append('=');
+			for (String value : filter.getValues()) {
+				snapshotKey.append(value).append(',');
+			}
+			snapshotKey.append(';');
+		}
+		
+		return snapshotKey.toString();
 	}
 	
 	/** 
@@ -146,10 +233,6 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 						"\"instance-id\".");
 			}
 			
-			if (filters[0].getValues().size() != 1) {
-				return new IllegalArgumentException("Cannot auto-refresh more than 1 instance."); 
-			}
-			
 			//if all ofthese conditions are met, start the waitForInstanceStateChange(...) method
 			return waitForInstanceStateChange(filters[0]);
 		}
@@ -170,55 +253,31 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 	 * </ul>
 	 */
 	public Object getInstances(Filter... filters) {
-		ArrayList<SerializableInstance> serInstances = new ArrayList<SerializableInstance>(); 
-		//result passed to Activity
-		List<Region> regions;
-		List<Reservation> reservations; //restult from EC2
-		
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		
-		//1. create a filter for this region name
-		Filter regionFilter = new Filter("region-name");
-		regionFilter.setValues(new ArrayList<String>(Arrays.asList(
-				new String[]{selectedRegion})));
-		
-		//2. query using this filter
-		try {
-			regions = amazonEC2Client.describeRegions(new DescribeRegionsRequest().
-				withFilters(regionFilter)).getRegions();
-		}
-		catch(AmazonServiceException exc) {
-			return exc;
-		}
-		catch(AmazonClientException exc) {
-			return exc;
-		}
+		ArrayList<SerializableInstance> serInstances; //result passed to Activity
 		
-		//3. Make sure the region was found.
-		if (regions.size() != 1) {
+		//Make sure the region is one we know of. The registry is filled in by 
+		//RetrieveRegionModel, so we do not have to call describeRegions here.
+		if (!RegionRegistry.isKnownRegion(selectedRegion)) {
 			return new IllegalArgumentException("Invalid region passed to model.");
 		}
 		
+		String endpoint = RegionRegistry.getEC2Endpoint(selectedRegion);
 		Log.v(TAG + ".doInBackground()", "endpoint for region : " + 
-				selectedRegion + "=" + regions.get(0).getEndpoint());
-		//set the endpoint
-		amazonEC2Client.setEndpoint(regions.get(0).getEndpoint());
+				selectedRegion + "=" + endpoint);
 		
 		//now get the instances
 		
 		Log.v(TAG, "Size of filters:" + filters.length);
-		DescribeInstancesRequest request = new DescribeInstancesRequest();
-		request.setFilters(Arrays.asList(filters));
-		
-		//get the list of instances using this filter
 		try {
-			reservations = amazonEC2Client.describeInstances(request).
-				getReservations();
+			//the region's instances are shared between the views; pick ours out of them.
+			if (InstanceRepository.canSelect(filters)) {
+				serInstances = InstanceRepository.select(InstanceRepository.getRepository(
+						connectionData, endpoint).getInstances(maxAge), filters);
+			}
+			else {
+				//a filter we can't match ourselves. Ask AWS.
+				serInstances = describeInstances(endpoint, filters);
+			}
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			return amazonServiceException;
@@ -227,11 +286,49 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 			return amazonClientException;
 		}
 		
+		if (resultPreparer != null) {
+			resultPreparer.prepare(serInstances);
+		}
+		
+		//save it so that the view has something to show straight away next time.
+		if (snapshotContext != null) {
+			ElasticDroidDB.getInstance(snapshotContext).writeInstanceSnapshot(connectionData.get(
+					"username"), selectedRegion, getSnapshotKey(filters), serInstances, 
+					System.currentTimeMillis());
+		}
+		
+		return serInstances;
+	}
+	
+	/**
+	 * Get the instances matching the filters from AWS, bypassing the 
+	 * {@link InstanceRepository}.
+	 * 
+	 * @param endpoint The EC2 endpoint for the region.
+	 * @param filters The filters.
+	 * @return The instances.
+	 * @throws AmazonClientException If they could not be retrieved. AmazonServiceException is a
+	 * subclass.
+	 */
+	private ArrayList<SerializableInstance> describeInstances(String endpoint, Filter... filters)
+		throws AmazonClientException {
+		ArrayList<SerializableInstance> serInstances = new ArrayList<SerializableInstance>();
+		//get the shared client for the region's endpoint
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, endpoint);
+		final DescribeInstancesRequest request = new DescribeInstancesRequest();
+		request.setFilters(Arrays.asList(filters));
+		
+		//get the list of instances using this filter
+		List<Reservation> reservations = RetryPolicy.execute("describeInstances", 
+				new RetryPolicy.Request<List<Reservation>>() {
+			public List<Reservation> execute() {
+				return amazonEC2Client.describeInstances(request).getReservations();
+			}
+		});
+		
 		//add each instance found into the list of instances to return to the view
 		for (Reservation reservation: reservations) {
 			List<String> securityGroups = reservation.getGroupNames();
-			//note to self: List is an interface ArrayList implements.
-			//for each reservation, get the list of instances associated
 			for (Instance instance: reservation.getInstances()) {
 				serInstances.add(new SerializableInstance(instance, securityGroups));
 			}
@@ -244,11 +341,11 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 	 * Called in *UI Thread* before doInBackground executes in a separate thread.
 	 * 
 	 * Overriden to prevent progress dialog from being shown if expected Instance State Code
-	 * is null
+	 * is null, or if we are revalidating a list the view is already showing.
 	 */
 	@Override
 	protected void onPreExecute() {
-		if (expectedInstanceStateCode == null) {
+		if ((expectedInstanceStateCode == null) && !revalidating) {
 			if (!listActivityUsed) {
 				activity.showDialog(DialogConstants.PROGRESS_DIALOG.ordinal()); //the argument is 
 				//not used
@@ -264,55 +361,65 @@ public class EC2InstancesModel extends GenericModel<Filter, Void, Object> {
 	}
 	
 	/**
-	 * Wait for instance state change. This can be used to repeatedly refresh a single instance
-	 * until its state changes from startState to endState
-	 * @param filters
+	 * Wait for the instances in the filter to change state to expectedInstanceStateCode. The
+	 * waiting is done by the region's {@link InstanceStateTracker}, which polls all of the 
+	 * instances anybody is waiting for in one request; this method returns straight away, and
+	 * the result is delivered once all of the instances have arrived (or the tracker has 
+	 * given up on one of them).
+	 * 
+	 * The result delivered is one of:
+	 * <ul>
+	 * <li>ArrayList<SerializableInstance>: the instances, in their expected state.</li>
+	 * <li>AmazonClientException: If there's connectivity problems on the client.</li>
+	 * <li>AmazonServiceException: If there's AWS service problems.</li>
+	 * <li>null: if the tracker gave up.</li>
+	 * </ul>
+	 * 
+	 * @param filter An instance-id filter.
+	 * @return IllegalArgumentException if the region can't be found, null otherwise.
 	 */
-	@SuppressWarnings("unchecked")
 	public Object waitForInstanceStateChange(Filter filter) {
-		ArrayList<SerializableInstance> serInstances;
-		//exponentialBackoff period to use
-		long backoffPeriod = 50; 
-		long sleepPeriod;
-		//teh power of 2 to use in the binary exponential backoff algo 
-		int multiplier = 0;
+		if (!RegionRegistry.isKnownRegion(selectedRegion)) {
+			return new IllegalArgumentException("Invalid region passed to model.");
+		}
 		
-		//keep refreshing till the state of the instance is as expected.
-		while(true) {
-			Object result = getInstances(filter);
+		final List<String> instanceIds = filter.getValues();
+		final ArrayList<SerializableInstance> serInstances = new ArrayList<SerializableInstance>();
+		
+		deferResult();
+		InstanceStateTracker tracker = InstanceStateTracker.getTracker(connectionData, 
+				selectedRegion);
+		InstanceStateTracker.Waiter waiter = new InstanceStateTracker.Waiter() {
+			/** set once a result has been delivered */
+			private volatile boolean delivered;
 			
-			if (result instanceof ArrayList<?>) {
-				serInstances = (ArrayList<SerializableInstance>) result;
-				
-				//we know the list will have a size() = 1.
-				if (serInstances.get(0).getStateCode() == expectedInstanceStateCode) {
-					//stop auto-refreshing if the state of the instance is as expected
-					return result;
+			public boolean isCancelled() {
+				return EC2InstancesModel.this.isCancelled() || delivered;
+			}
+			
+			public synchronized void onWaitFinished(Object result) {
+				if (delivered) {
+					return;
 				}
-				else { //the instance is still not in the right state.
-					//use the exponential backoff algo to sleep the thread for a specific period
-					sleepPeriod = backoffPeriod * (int)((Math.random()* Math.pow(2, multiplier)));
-					Log.v(TAG, "Backoff: Sleep for " + sleepPeriod + "msecs");
-					
-					//if hte backoff interval is getting too long, just call the autorefresh off.
-					if (sleepPeriod >= MAX_BACKOFF_PERIOD) {
-						return null;
-					}
-					
-					try {
-						Thread.sleep(sleepPeriod);
-					} catch (InterruptedException e) {
-						return null; //if interrupted, just stop executing
+				
+				if (result instanceof SerializableInstance) {
+					serInstances.add((SerializableInstance) result);
+					if (serInstances.size() < instanceIds.size()) {
+						return; //wait for the rest
 					}
+					result = serInstances;
 				}
+				
+				//all there, an exception, or the tracker gave up: we're done.
+				delivered = true;
+				deliverResult(result);
 			}
-			else {
-				//not expected result; probably exception.
-				//return the result and let the view worry about it.
-				return result;
-			}
-			
-			multiplier ++; //increase the binary exponential backoff algo multiplier
+		};
+		
+		for (String instanceId : instanceIds) {
+			tracker.track(instanceId, expectedInstanceStateCode, waiter);
 		}
+		
+		return null;
 	}
 }
@@ -25,12 +25,12 @@ import java.util.List;
 
 import org.elasticdroid.model.ds.SerializableAddress;
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.Address;
 import com.amazonaws.services.ec2.model.DescribeAddressesRequest;
@@ -74,20 +74,14 @@ public class ElasticIPsModel extends GenericModel<Filter, Void, Object> {
 	 */
 	@Override
 	protected Object doInBackground(Filter... filters) {
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		//override the default connection endpoint if provided.
-		if (connectionData.get("endpoint") != null) {
-			amazonEC2Client.setEndpoint(connectionData.get("endpoint"));
-		}
+		//get the shared Amazon EC2 Client object. Uses the default connection endpoint if none
+		//provided.
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, 
+				connectionData.get("endpoint"));
 	
 		
 		//create a new DescribeAddressesRequest
-		DescribeAddressesRequest request = new DescribeAddressesRequest();
+		final DescribeAddressesRequest request = new DescribeAddressesRequest();
 		request.setFilters(new ArrayList<Filter>(Arrays.asList(filters)));
 		
 		List<Address> addressList; //result == List<Address>
@@ -95,7 +89,12 @@ public class ElasticIPsModel extends GenericModel<Filter, Void, Object> {
 	
 		//make the request to Amazon EC2
 		try {
-			addressList = amazonEC2Client.describeAddresses(request).getAddresses();
+			addressList = RetryPolicy.execute("describeAddresses", new RetryPolicy.Request<
+					List<Address>>() {
+				public List<Address> execute() {
+					return amazonEC2Client.describeAddresses(request).getAddresses();
+				}
+			});
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			return amazonServiceException;
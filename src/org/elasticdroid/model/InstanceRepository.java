@@ -0,0 +1,367 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.elasticdroid.model.AWSClientFactory.ServiceType;
+import org.elasticdroid.model.ds.SerializableInstance;
+import org.elasticdroid.model.tpl.RetryPolicy;
+import org.elasticdroid.utils.AWSConstants.InstanceStateConstants;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+
+/**
+ * Holds the instances in an AWS account and region, so that the dashboard and the instance
+ * views do not each download them all over again.
+ *
+ * There is one repository per AWS account and EC2 endpoint. It keeps the result of a single
+ * unfiltered describeInstances call for {@link #MAX_AGE}; each caller works out the counts or
+ * the subset it wants from it with {@link #countInstances(List)} and {@link #select(List,
+ * Filter...)}. If it has to go to AWS while somebody else already is, it waits for their
+ * result instead of making a request of its own.
+ *
+ * {@link #getInstances(long)} blocks; do not call it from the UI thread.
+ */
+public class InstanceRepository {
+
+	/** Time (in msecs) for which the instances retrieved are handed out without asking AWS */
+	public static final long MAX_AGE = 30000;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.InstanceRepository";
+
+	/** The repositories, indexed by access key and endpoint */
+	private static HashMap<String, InstanceRepository> repositories = new HashMap<String,
+		InstanceRepository>();
+
+	/**
+	 * The connection data for the account. Replaced, not modified, if the user re-enters his
+	 * credentials.
+	 */
+	private volatile HashMap<String, String> connectionData;
+	/** The EC2 endpoint for the region */
+	private final String endpoint;
+	/** The instances last retrieved; null if none. Never modified, only replaced. */
+	private List<SerializableInstance> instances;
+	/** The time (msecs since epoch) at which instances were retrieved */
+	private long lastUpdated;
+	/** The request to AWS in progress; null if none */
+	private FutureTask<List<SerializableInstance>> inFlight;
+	/**
+	 * Bumped each time the instances are invalidated, so that a request which was already in
+	 * flight does not put back what was invalidated.
+	 */
+	private int generation;
+
+	/**
+	 * Use {@link #getRepository(HashMap, String)}.
+	 */
+	private InstanceRepository(HashMap<String, String> connectionData, String endpoint) {
+		this.connectionData = connectionData;
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Get the repository for an account and region, creating it if need be. If the secret
+	 * access key has changed since the repository was created, it uses the new one from now on.
+	 *
+	 * @param connectionData The AWS connection data. Requires keys accessKey and
+	 * secretAccessKey.
+	 * @param endpoint The EC2 endpoint for the region.
+	 * @return The repository.
+	 */
+	public static synchronized InstanceRepository getRepository(HashMap<String, String>
+		connectionData, String endpoint) {
+		String key = connectionData.get("accessKey") + "|" + endpoint;
+		InstanceRepository repository = repositories.get(key);
+
+		if (repository == null) {
+			repository = new InstanceRepository(new HashMap<String, String>(connectionData),
+					endpoint);
+			repositories.put(key, repository);
+		}
+		else if (!connectionData.get("secretAccessKey").equals(repository.connectionData.get(
+				"secretAccessKey"))) {
+			repository.connectionData = new HashMap<String, String>(connectionData);
+		}
+
+		return repository;
+	}
+
+	/**
+	 * Throw away the repositories for an access key. Call this when the user logs out, along
+	 * with {@link AWSClientFactory#evictClients(String)}.
+	 *
+	 * @param accessKey The access key of the user logging out.
+	 */
+	public static synchronized void evict(String accessKey) {
+		Iterator<InstanceRepository> repositoryIter = repositories.values().iterator();
+
+		while (repositoryIter.hasNext()) {
+			InstanceRepository repository = repositoryIter.next();
+			if (repository.connectionData.get("accessKey").equals(accessKey)) {
+				repository.invalidate();
+				repositoryIter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Get all of the instances in the region. They are retrieved from AWS if the ones we have
+	 * are more than maxAge msecs old; if somebody is already retrieving them, we wait for
+	 * their result.
+	 *
+	 * @param maxAge The oldest (in msecs) the instances may be. Pass {@link #MAX_AGE} unless
+	 * the user has asked for a refresh; pass 0 if so.
+	 * @return The instances. Do not modify!
+	 * @throws AmazonClientException If they could not be retrieved. AmazonServiceException is a
+	 * subclass.
+	 */
+	public List<SerializableInstance> getInstances(long maxAge) throws AmazonClientException {
+		FutureTask<List<SerializableInstance>> fetch;
+		boolean fetching = false;
+
+		synchronized (this) {
+			if ((instances != null) && (System.currentTimeMillis() - lastUpdated < maxAge)) {
+				return instances;
+			}
+
+			//join the request in flight if there is one.
+			if (inFlight == null) {
+				final int fetchGeneration = generation;
+				inFlight = new FutureTask<List<SerializableInstance>>(
+						new Callable<List<SerializableInstance>>() {
+					public List<SerializableInstance> call() {
+						List<SerializableInstance> fetched = retrieveInstances();
+						store(fetched, fetchGeneration);
+						return fetched;
+					}
+				});
+				fetching = true;
+			}
+			fetch = inFlight;
+		}
+
+		if (fetching) {
+			fetch.run();
+
+			//if it failed, let the next caller try again.
+			synchronized (this) {
+				if (inFlight == fetch) {
+					inFlight = null;
+				}
+			}
+		}
+
+		try {
+			return fetch.get();
+		}
+		catch (InterruptedException interruptedException) {
+			//our model was cancelled. Nobody is going to look at this.
+			Thread.currentThread().interrupt();
+			throw new AmazonClientException("Interrupted while retrieving instances.",
+					interruptedException);
+		}
+		catch (ExecutionException executionException) {
+			if (executionException.getCause() instanceof AmazonClientException) {
+				throw (AmazonClientException) executionException.getCause();
+			}
+
+			throw new AmazonClientException(executionException.getCause().getMessage(),
+					executionException.getCause());
+		}
+	}
+
+	/**
+	 * Keep the instances just retrieved, unless they were invalidated while we were at it.
+	 */
+	private synchronized void store(List<SerializableInstance> fetched, int fetchGeneration) {
+		if (fetchGeneration == generation) {
+			instances = fetched;
+			lastUpdated = System.currentTimeMillis();
+			inFlight = null;
+		}
+	}
+
+	/**
+	 * Forget the instances we have, so that the next call to {@link #getInstances(long)} goes
+	 * to AWS. Call this after changing the state of an instance.
+	 */
+	public synchronized void invalidate() {
+		instances = null;
+		inFlight = null;
+		generation ++;
+	}
+
+	/**
+	 * Replace an instance we have with a newer copy. Does nothing if we do not have it.
+	 *
+	 * @param instance The instance, as just retrieved from AWS.
+	 */
+	public synchronized void update(SerializableInstance instance) {
+		if (instances == null) {
+			return;
+		}
+
+		for (int idx = 0; idx < instances.size(); idx ++) {
+			if (instances.get(idx).getInstanceId().equals(instance.getInstanceId())) {
+				//copy; the old list has been handed out.
+				ArrayList<SerializableInstance> updatedInstances = new
+					ArrayList<SerializableInstance>(instances);
+				updatedInstances.set(idx, instance);
+				instances = Collections.unmodifiableList(updatedInstances);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Retrieve all of the instances in the region from AWS.
+	 */
+	private List<SerializableInstance> retrieveInstances() {
+		ArrayList<SerializableInstance> retrievedInstances = new
+			ArrayList<SerializableInstance>();
+		final AmazonEC2Client amazonEC2Client = (AmazonEC2Client) AWSClientFactory.leaseClient(
+				connectionData, ServiceType.EC2, endpoint);
+
+		try {
+			List<Reservation> reservations = RetryPolicy.execute("describeInstances",
+					new RetryPolicy.Request<List<Reservation>>() {
+				public List<Reservation> execute() {
+					return amazonEC2Client.describeInstances().getReservations();
+				}
+			});
+
+			for (Reservation reservation : reservations) {
+				List<String> securityGroups = reservation.getGroupNames();
+				for (Instance instance : reservation.getInstances()) {
+					retrievedInstances.add(new SerializableInstance(instance, securityGroups));
+				}
+			}
+		}
+		finally {
+			AWSClientFactory.releaseClient(amazonEC2Client);
+		}
+
+		Log.v(TAG, "Retrieved " + retrievedInstances.size() + " instances from " + endpoint);
+
+		return Collections.unmodifiableList(retrievedInstances);
+	}
+
+	/**
+	 * @param filters describeInstances filters.
+	 * @return true if {@link #select(List, Filter...)} can match all of the filters. Only 
+	 * instance-id, instance-state-code and instance-state-name filters can be matched locally.
+	 */
+	public static boolean canSelect(Filter... filters) {
+		for (Filter filter : filters) {
+			if (!filter.getName().equals("instance-id") && !filter.getName().equals(
+					"instance-state-code") && !filter.getName().equals("instance-state-name")) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Pick the instances matching a set of filters, as describeInstances would have.
+	 *
+	 * @param instances The instances.
+	 * @param filters The filters. An instance has to match all of them, and a filter matches if
+	 * any of its values do. See {@link #canSelect(Filter...)}.
+	 * @return The matching instances, in a new list.
+	 * @throws IllegalArgumentException If one of the filters cannot be matched locally.
+	 */
+	public static ArrayList<SerializableInstance> select(List<SerializableInstance> instances,
+			Filter... filters) {
+		if (!canSelect(filters)) {
+			throw new IllegalArgumentException("Filters cannot be matched locally.");
+		}
+
+		ArrayList<SerializableInstance> selectedInstances = new
+			ArrayList<SerializableInstance>();
+		for (SerializableInstance instance : instances) {
+			boolean matches = true;
+
+			for (Filter filter : filters) {
+				String value;
+				if (filter.getName().equals("instance-id")) {
+					value = instance.getInstanceId();
+				}
+				else if (filter.getName().equals("instance-state-code")) {
+					value = String.valueOf(instance.getStateCode());
+				}
+				else {
+					value = instance.getStateName();
+				}
+
+				if (!filter.getValues().contains(value)) {
+					matches = false;
+					break;
+				}
+			}
+
+			if (matches) {
+				selectedInstances.add(instance);
+			}
+		}
+
+		return selectedInstances;
+	}
+
+	/**
+	 * Count the running and stopped instances.
+	 *
+	 * @param instances The instances.
+	 * @return HashMap with keys runningInstances and stoppedInstances.
+	 */
+	public static HashMap<String, Integer> countInstances(List<SerializableInstance> instances) {
+		HashMap<String, Integer> instanceCounts = new HashMap<String, Integer>();
+		int numOfRunningInstances = 0;
+		int numOfStoppedInstances = 0;
+
+		for (SerializableInstance instance : instances) {
+			if (instance.getStateCode() == InstanceStateConstants.RUNNING) {
+				numOfRunningInstances ++;
+			}
+			else if (instance.getStateCode() == InstanceStateConstants.STOPPED) {
+				numOfStoppedInstances ++;
+			}
+		}
+
+		instanceCounts.put("runningInstances", numOfRunningInstances);
+		instanceCounts.put("stoppedInstances", numOfStoppedInstances);
+
+		return instanceCounts;
+	}
+}
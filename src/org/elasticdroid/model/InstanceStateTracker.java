@@ -0,0 +1,363 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticdroid.model.AWSClientFactory.ServiceType;
+import org.elasticdroid.model.ds.SerializableInstance;
+import org.elasticdroid.model.tpl.RetryPolicy;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+
+/**
+ * Waits for instances to reach the states they are expected to (running after a start, 
+ * stopped after a stop etc).
+ * 
+ * There is one tracker per AWS account and region. It collects everything being waited for
+ * in the region, and polls them all with a single describeInstances call, filtered on 
+ * instance-id. The polls are scheduled on a single shared timer thread, so no thread is 
+ * tied up (or sleeping) between polls; the requests themselves, which may block and retry, run
+ * on a small pool of poll threads so that a slow region does not hold up the others. The poll
+ * interval starts at {@link #MIN_POLL_INTERVAL}
+ * and doubles after each poll, up to {@link #MAX_POLL_INTERVAL}; it goes back down each time
+ * something new is tracked.
+ */
+public class InstanceStateTracker {
+
+	/** Time (in msecs) to the first poll after something new is tracked */
+	public static final long MIN_POLL_INTERVAL = 1000;
+	/** The longest time (in msecs) between two polls */
+	public static final long MAX_POLL_INTERVAL = 16000;
+	/** Time (in msecs) after which we give up waiting for an instance: 5 minutes */
+	public static final long MAX_WAIT = 5 * 60000L;
+	/** The maximum number of polls (i.e. describeInstances requests) in flight at any time */
+	private static final int MAX_CONCURRENT_POLLS = 3;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.InstanceStateTracker";
+	
+	/**
+	 * Told when the instance it is waiting for has reached its expected state. The calls are
+	 * made on the tracker's poll threads; keep them short.
+	 */
+	public static interface Waiter {
+		/**
+		 * @return true if the waiter is no longer interested; it is then dropped without
+		 * being told anything.
+		 */
+		boolean isCancelled();
+		
+		/**
+		 * Called once, when the wait is over.
+		 * 
+		 * @param result One of:
+		 * <ul>
+		 * <li>{@link SerializableInstance}: the instance, in its expected state.</li>
+		 * <li>AmazonServiceException, AmazonClientException: if the poll failed.</li>
+		 * <li>null: if we gave up after {@link InstanceStateTracker#MAX_WAIT}.</li>
+		 * </ul>
+		 */
+		void onWaitFinished(Object result);
+	}
+	
+	/** The trackers, indexed by access key and region */
+	private static HashMap<String, InstanceStateTracker> trackers = new HashMap<String, 
+		InstanceStateTracker>();
+	/** The timer thread on which all of the trackers schedule their polls */
+	private static final ScheduledExecutorService timer = Executors
+		.newSingleThreadScheduledExecutor();
+	/** The threads on which the polls run */
+	private static final ExecutorService pollExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_POLLS, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					return new Thread(runnable, "InstanceStateTracker poll");
+				}
+			});
+	
+	/**
+	 * The connection data for the account. Replaced, not modified, if the user re-enters his
+	 * credentials.
+	 */
+	private volatile HashMap<String, String> connectionData;
+	/** The region the tracker polls */
+	private final String region;
+	/** The instances being waited for */
+	private final ArrayList<PendingInstance> pendingInstances = new 
+		ArrayList<PendingInstance>();
+	/** The next poll; null if none is scheduled. Guarded by pendingInstances */
+	private ScheduledFuture<?> nextPoll;
+	/** The current poll interval. Guarded by pendingInstances */
+	private long pollInterval = MIN_POLL_INTERVAL;
+	
+	/**
+	 * Use {@link #getTracker(HashMap, String)}.
+	 */
+	private InstanceStateTracker(HashMap<String, String> connectionData, String region) {
+		this.connectionData = connectionData;
+		this.region = region;
+	}
+	
+	/**
+	 * Get the tracker for an account and region, creating it if need be. If the secret access
+	 * key has changed since the tracker was created, it uses the new one from now on.
+	 * 
+	 * @param connectionData The AWS connection data. Requires keys accessKey and 
+	 * secretAccessKey.
+	 * @param region The AWS region.
+	 * @return The tracker.
+	 */
+	public static synchronized InstanceStateTracker getTracker(HashMap<String, String> 
+		connectionData, String region) {
+		String key = connectionData.get("accessKey") + "|" + region;
+		InstanceStateTracker tracker = trackers.get(key);
+		
+		if (tracker == null) {
+			tracker = new InstanceStateTracker(new HashMap<String, String>(connectionData), 
+					region);
+			trackers.put(key, tracker);
+		}
+		else if (!connectionData.get("secretAccessKey").equals(tracker.connectionData.get(
+				"secretAccessKey"))) {
+			tracker.connectionData = new HashMap<String, String>(connectionData);
+		}
+		
+		return tracker;
+	}
+	
+	/**
+	 * Stop tracking anything for an access key, and throw its trackers away. Call this when
+	 * the user logs out, along with {@link AWSClientFactory#evictClients(String)}. The waiters
+	 * are not told.
+	 * 
+	 * @param accessKey The access key of the user logging out.
+	 */
+	public static synchronized void evict(String accessKey) {
+		Iterator<InstanceStateTracker> trackerIter = trackers.values().iterator();
+		
+		while (trackerIter.hasNext()) {
+			InstanceStateTracker tracker = trackerIter.next();
+			if (tracker.connectionData.get("accessKey").equals(accessKey)) {
+				synchronized (tracker.pendingInstances) {
+					tracker.pendingInstances.clear();
+					if (tracker.nextPoll != null) {
+						tracker.nextPoll.cancel(false);
+						tracker.nextPoll = null;
+					}
+				}
+				trackerIter.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Wait for an instance to reach a state. Returns straight away; the waiter is told when 
+	 * the instance gets there.
+	 * 
+	 * @param instanceId The instance ID.
+	 * @param expectedStateCode The state code to wait for.
+	 * @param waiter The waiter to tell.
+	 */
+	public void track(String instanceId, int expectedStateCode, Waiter waiter) {
+		synchronized (pendingInstances) {
+			pendingInstances.add(new PendingInstance(instanceId, expectedStateCode, waiter, 
+					System.currentTimeMillis() + MAX_WAIT));
+			
+			//something has just happened to it; poll soon.
+			pollInterval = MIN_POLL_INTERVAL;
+			if ((nextPoll == null) || (nextPoll.getDelay(TimeUnit.MILLISECONDS) > 
+				MIN_POLL_INTERVAL)) {
+				schedulePoll();
+			}
+		}
+	}
+	
+	/**
+	 * Schedule the next poll in pollInterval msecs, replacing the one scheduled if any. Caller 
+	 * must hold the pendingInstances lock.
+	 */
+	private void schedulePoll() {
+		if (nextPoll != null) {
+			nextPoll.cancel(false);
+		}
+		
+		//the timer only hands the poll over; it must never block.
+		nextPoll = timer.schedule(new Runnable() {
+			public void run() {
+				pollExecutor.execute(new Runnable() {
+					public void run() {
+						poll();
+					}
+				});
+			}
+		}, pollInterval, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Poll all of the instances being waited for, in one request, and tell the waiters whose
+	 * instances have arrived. Runs on a poll thread.
+	 */
+	private void poll() {
+		LinkedHashSet<String> instanceIds = new LinkedHashSet<String>();
+		
+		synchronized (pendingInstances) {
+			nextPoll = null;
+			
+			for (Iterator<PendingInstance> iter = pendingInstances.iterator(); iter.hasNext();) {
+				PendingInstance pendingInstance = iter.next();
+				if (pendingInstance.waiter.isCancelled()) {
+					iter.remove();
+				}
+				else {
+					instanceIds.add(pendingInstance.instanceId);
+				}
+			}
+		}
+		
+		if (instanceIds.size() == 0) {
+			return;
+		}
+		
+		HashMap<String, SerializableInstance> instances = new HashMap<String, 
+			SerializableInstance>();
+		AmazonClientException exception = null;
+		final AmazonEC2Client amazonEC2Client = (AmazonEC2Client) AWSClientFactory.leaseClient(
+				connectionData, ServiceType.EC2, RegionRegistry.getEC2Endpoint(region));
+		try {
+			final DescribeInstancesRequest request = new DescribeInstancesRequest();
+			request.setFilters(Arrays.asList(new Filter[] {new Filter("instance-id", 
+					new ArrayList<String>(instanceIds))}));
+			
+			List<Reservation> reservations = RetryPolicy.execute("describeInstances", 
+					new RetryPolicy.Request<List<Reservation>>() {
+				public List<Reservation> execute() {
+					return amazonEC2Client.describeInstances(request).getReservations();
+				}
+			});
+			
+			for (Reservation reservation : reservations) {
+				List<String> securityGroups = reservation.getGroupNames();
+				for (Instance instance : reservation.getInstances()) {
+					instances.put(instance.getInstanceId(), new SerializableInstance(instance, 
+							securityGroups));
+				}
+			}
+		}
+		catch (AmazonClientException amazonClientException) {
+			//AmazonServiceException is a subclass.
+			Log.e(TAG, "Poll failed: " + amazonClientException.getMessage());
+			exception = amazonClientException;
+		}
+		finally {
+			AWSClientFactory.releaseClient(amazonEC2Client);
+		}
+		
+		Log.v(TAG, "Polled " + instanceIds.size() + " instances in " + region);
+		
+		//keep the instances the views share up to date while we're at it.
+		InstanceRepository instanceRepository = InstanceRepository.getRepository(connectionData,
+				RegionRegistry.getEC2Endpoint(region));
+		for (SerializableInstance instance : instances.values()) {
+			instanceRepository.update(instance);
+		}
+		
+		//work out who is done, and tell them outside the lock
+		ArrayList<PendingInstance> finished = new ArrayList<PendingInstance>();
+		ArrayList<Object> results = new ArrayList<Object>();
+		long now = System.currentTimeMillis();
+		synchronized (pendingInstances) {
+			for (Iterator<PendingInstance> iter = pendingInstances.iterator(); iter.hasNext();) {
+				PendingInstance pendingInstance = iter.next();
+				SerializableInstance instance = instances.get(pendingInstance.instanceId);
+				
+				if (!instanceIds.contains(pendingInstance.instanceId)) {
+					//tracked while we were polling; next time.
+					continue;
+				}
+				else if (exception != null) {
+					results.add(exception);
+				}
+				else if ((instance != null) && (instance.getStateCode() == 
+					pendingInstance.expectedStateCode)) {
+					results.add(instance);
+				}
+				else if (now >= pendingInstance.deadline) {
+					Log.v(TAG, "Gave up waiting for " + pendingInstance.instanceId);
+					results.add(null);
+				}
+				else {
+					continue;
+				}
+				
+				finished.add(pendingInstance);
+				iter.remove();
+			}
+			
+			if ((pendingInstances.size() != 0) && (nextPoll == null)) {
+				pollInterval = Math.min(MAX_POLL_INTERVAL, pollInterval * 2);
+				schedulePoll();
+			}
+		}
+		
+		for (int idx = 0; idx < finished.size(); idx ++) {
+			if (!finished.get(idx).waiter.isCancelled()) {
+				finished.get(idx).waiter.onWaitFinished(results.get(idx));
+			}
+		}
+	}
+	
+	/**
+	 * An instance being waited for.
+	 */
+	private static class PendingInstance {
+		/** The instance ID */
+		private final String instanceId;
+		/** The state code waited for */
+		private final int expectedStateCode;
+		/** Who is waiting */
+		private final Waiter waiter;
+		/** The time (msecs since epoch) at which we give up */
+		private final long deadline;
+		
+		private PendingInstance(String instanceId, int expectedStateCode, Waiter waiter, 
+				long deadline) {
+			this.instanceId = instanceId;
+			this.expectedStateCode = expectedStateCode;
+			this.waiter = waiter;
+			this.deadline = deadline;
+		}
+	}
+}
@@ -23,9 +23,11 @@ import java.util.regex.Pattern;
 import org.elasticdroid.db.ElasticDroidDB;
 import org.elasticdroid.db.tblinfo.LoginTbl;
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericActivity;
 
 import android.content.ContentValues;
+import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
@@ -83,15 +85,19 @@ public class LoginModel extends GenericModel<String, Void, Object> {
 		//create credentials using the BasicAWSCredentials class
 		BasicAWSCredentials credentials = new BasicAWSCredentials(params[1], params[2]);
 		//create an IAM client
-		AmazonIdentityManagementClient idManagementClient = new AmazonIdentityManagementClient
-			(credentials);
+		final AmazonIdentityManagementClient idManagementClient = new 
+			AmazonIdentityManagementClient(credentials);
 		User userData = null;
 		
 		Log.v(this.getClass().getName(), "Executing performLogin AsyncTask...");
 		
 		try {
-			userData = idManagementClient.getUser().getUser();//ensure the user ID is 
-			//matched to the access and secret access keys
+			//ensure the user ID is matched to the access and secret access keys
+			userData = RetryPolicy.execute("getUser", new RetryPolicy.Request<User>() {
+				public User execute() {
+					return idManagementClient.getUser().getUser();
+				}
+			});
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			//if an error response is returned by AmazonIdentityManagement indicating either a 
@@ -135,8 +141,8 @@ public class LoginModel extends GenericModel<String, Void, Object> {
 		
 		/*writing to DB*/
 		// if we get here, then write the data to the DB
-		ElasticDroidDB elasticDroidDB = new ElasticDroidDB(activity);
-		//open the database for writing
+		ElasticDroidDB elasticDroidDB = ElasticDroidDB.getInstance(activity);
+		//the shared connection. Do not close it!
 		SQLiteDatabase db = elasticDroidDB.getWritableDatabase();
 		ContentValues rowValues = new ContentValues();
 		//check if the username already exists
@@ -145,9 +151,13 @@ public class LoginModel extends GenericModel<String, Void, Object> {
 		rowValues.put(LoginTbl.COL_ACCESSKEY, params[1]);
 		rowValues.put(LoginTbl.COL_SECRETACCESSKEY, params[2]);
 		
+		Cursor userCursor = db.query(LoginTbl.TBL_NAME, new String[]{}, LoginTbl.COL_USERNAME 
+			+ "=?", new String[]{params[0]}, null, null, null);
+		boolean userExists = (userCursor.getCount() != 0);
+		userCursor.close();
+		
 		//if data is found, update.
-		if (db.query(LoginTbl.TBL_NAME, new String[]{}, LoginTbl.COL_USERNAME 
-			+ "=?", new String[]{params[0]}, null, null, null).getCount() != 0) {
+		if (userExists) {
 			try {
 				db.update(LoginTbl.TBL_NAME, rowValues, LoginTbl.COL_USERNAME + "=?", 
 						new String[]{params[0]});
@@ -157,9 +167,6 @@ public class LoginModel extends GenericModel<String, Void, Object> {
 				Log.e(this.getClass().getName(), "SQLException: " + sqlException.getMessage());
 				return sqlException; //return the exception for the View to process.
 			}
-			finally {
-				db.close();
-			}
 		}
 		else {
 			//now write the data in, replacing if necessary!
@@ -172,9 +179,6 @@ public class LoginModel extends GenericModel<String, Void, Object> {
 				Log.e(this.getClass().getName(), "SQLException: " + sqlException.getMessage());
 				return sqlException; //return the exception for the View to process.
 			}
-			finally {
-				db.close();
-			}	
 		}
 		
 		return true;
@@ -0,0 +1,245 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.model.tpl.RetryPolicy;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.ListMetricsRequest;
+import com.amazonaws.services.cloudwatch.model.ListMetricsResult;
+import com.amazonaws.services.cloudwatch.model.Metric;
+
+/**
+ * Process-wide catalog of the CloudWatch metrics available to each (user, region).
+ *
+ * listMetrics returns every metric in the account, and the Java API does not let us filter
+ * it by dimension. So we page through it once, index the measure names by dimension value
+ * (instance ID, volume ID etc), and persist the index in {@link ElasticDroidDB}. Lookups are
+ * a HashMap get until the catalog is {@link #METRIC_CATALOG_TTL} old.
+ *
+ * Lookups and refreshes may hit the network or the database, so do not call them from the
+ * UI thread.
+ */
+public class MetricCatalog {
+
+	/** Time (in msecs) for which a catalog retrieved from AWS is considered fresh: 1 day */
+	public static final long METRIC_CATALOG_TTL = 24 * 3600000L;
+	/**
+	 * Time (in msecs) a catalog has to be before a lookup for a dimension value it does not know
+	 * about (a new instance, say) triggers a refresh: 15 minutes. Stops us from re-listing every
+	 * time the user looks at an instance without metrics.
+	 */
+	public static final long MIN_REFRESH_INTERVAL = 15 * 60000L;
+
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.MetricCatalog";
+
+	/** The catalogs, indexed by {@link #getKey(String, String)} */
+	private static HashMap<String, Catalog> catalogs = new HashMap<String, Catalog>();
+	/** The application context, used to get at the DB */
+	private static Context context;
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private MetricCatalog() {
+	}
+
+	/**
+	 * Give the catalog a context it can use to open the DB. Only the application context
+	 * is held on to.
+	 *
+	 * @param ctx Any context.
+	 */
+	public static synchronized void setContext(Context ctx) {
+		if ((context == null) && (ctx != null)) {
+			context = ctx.getApplicationContext();
+		}
+	}
+
+	/**
+	 * Get the measure names available for any of the dimension values passed in, from the
+	 * catalog, refreshing it from AWS first if necessary.
+	 *
+	 * @param cloudWatchClient The client to use if the catalog has to be refreshed.
+	 * @param username The AWS username.
+	 * @param region The AWS region.
+	 * @param dimensions The dimensions whose values we want the measure names for.
+	 * @return The measure names, without duplicates.
+	 * @throws AmazonClientException If the catalog could not be refreshed.
+	 */
+	public static ArrayList<String> getMeasureNames(AmazonCloudWatchClient cloudWatchClient,
+			String username, String region, Dimension... dimensions) throws
+			AmazonClientException {
+		ArrayList<String> measureNames = lookup(username, region, dimensions);
+
+		if (measureNames == null) {
+			refresh(cloudWatchClient, username, region);
+			measureNames = lookup(username, region, dimensions);
+		}
+
+		return (measureNames != null) ? measureNames : new ArrayList<String>();
+	}
+
+	/**
+	 * Look up the measure names for the dimension values without going to AWS.
+	 *
+	 * @return The measure names, without duplicates, or null if the catalog is stale or does
+	 * not know about the dimension values and is due for a refresh.
+	 */
+	private static synchronized ArrayList<String> lookup(String username, String region,
+			Dimension... dimensions) {
+		Catalog catalog = getCatalog(username, region);
+		long age = System.currentTimeMillis() - catalog.lastUpdated;
+
+		if (age >= METRIC_CATALOG_TTL) {
+			return null;
+		}
+
+		LinkedHashSet<String> measureNames = new LinkedHashSet<String>();
+		boolean found = false;
+		for (Dimension dimension : dimensions) {
+			ArrayList<String> dimensionMeasureNames = catalog.index.get(dimension.getValue());
+			if (dimensionMeasureNames != null) {
+				measureNames.addAll(dimensionMeasureNames);
+				found = true;
+			}
+		}
+
+		//never heard of it. Could be new since we listed; list again if it's been a while.
+		if (!found && (age >= MIN_REFRESH_INTERVAL)) {
+			return null;
+		}
+
+		return new ArrayList<String>(measureNames);
+	}
+
+	/**
+	 * Page through listMetrics, and replace the catalog for this user and region with the
+	 * results.
+	 *
+	 * @param cloudWatchClient The client for the region.
+	 * @param username The AWS username.
+	 * @param region The AWS region.
+	 * @throws AmazonClientException If listMetrics fails. The old catalog is left alone.
+	 */
+	public static void refresh(final AmazonCloudWatchClient cloudWatchClient, String username,
+			String region) throws AmazonClientException {
+		HashMap<String, LinkedHashSet<String>> index = new HashMap<String,
+			LinkedHashSet<String>>();
+		final ListMetricsRequest request = new ListMetricsRequest();
+		int pages = 0;
+
+		//not synchronized: we don't want to hold up lookups for other regions while we page.
+		do {
+			ListMetricsResult result = RetryPolicy.execute("listMetrics", 
+					new RetryPolicy.Request<ListMetricsResult>() {
+				public ListMetricsResult execute() {
+					return cloudWatchClient.listMetrics(request);
+				}
+			});
+			pages ++;
+
+			for (Metric metric : result.getMetrics()) {
+				for (Dimension dimension : metric.getDimensions()) {
+					LinkedHashSet<String> measureNames = index.get(dimension.getValue());
+					if (measureNames == null) {
+						measureNames = new LinkedHashSet<String>();
+						index.put(dimension.getValue(), measureNames);
+					}
+					measureNames.add(metric.getMeasureName());
+				}
+			}
+
+			request.setNextToken(result.getNextToken());
+		} while (request.getNextToken() != null);
+
+		Catalog catalog = new Catalog();
+		for (String dimensionValue : index.keySet()) {
+			catalog.index.put(dimensionValue, new ArrayList<String>(index.get(dimensionValue)));
+		}
+		catalog.lastUpdated = System.currentTimeMillis();
+
+		Log.v(TAG, "Listed " + index.size() + " dimension values in " + pages + " pages for "
+				+ region);
+
+		synchronized (MetricCatalog.class) {
+			catalogs.put(getKey(username, region), catalog);
+
+			if (context != null) {
+				ElasticDroidDB.getInstance(context).writeMetricCatalog(username, region,
+						catalog.index, catalog.lastUpdated);
+			}
+		}
+	}
+
+	/**
+	 * Get the catalog for this user and region, reading it from the DB the first time round.
+	 * Caller must hold the class lock.
+	 */
+	private static Catalog getCatalog(String username, String region) {
+		String key = getKey(username, region);
+		Catalog catalog = catalogs.get(key);
+
+		if (catalog == null) {
+			catalog = new Catalog();
+
+			if (context != null) {
+				ElasticDroidDB elasticDroidDB = ElasticDroidDB.getInstance(context);
+				catalog.index = elasticDroidDB.getMetricCatalog(username, region);
+				if (catalog.index.size() != 0) {
+					catalog.lastUpdated = elasticDroidDB.getMetricCatalogLastUpdated(username,
+							region);
+				}
+			}
+
+			catalogs.put(key, catalog);
+		}
+
+		return catalog;
+	}
+
+	/**
+	 * Build the catalog key.
+	 */
+	private static String getKey(String username, String region) {
+		return username + "|" + region;
+	}
+
+	/**
+	 * The measure names indexed by dimension value, and the time at which they were listed.
+	 */
+	private static class Catalog {
+		/** Measure names indexed by dimension value */
+		private HashMap<String, ArrayList<String>> index = new HashMap<String,
+			ArrayList<String>>();
+		/** Time at which the index was retrieved from AWS. 0 if never. */
+		private long lastUpdated;
+	}
+}
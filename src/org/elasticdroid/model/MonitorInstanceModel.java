@@ -18,24 +18,34 @@
  */
 package org.elasticdroid.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.model.ds.MetricTimeSeries;
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
-import org.elasticdroid.utils.AWSConstants;
 import org.elasticdroid.utils.CloudWatchInput;
+import org.elasticdroid.utils.LttbDownsampler;
+import org.elasticdroid.utils.MonitoringDurations;
 
+import android.content.Context;
+import android.database.SQLException;
 import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
 import com.amazonaws.services.cloudwatch.model.Datapoint;
 import com.amazonaws.services.cloudwatch.model.Dimension;
@@ -43,7 +53,13 @@ import com.amazonaws.services.cloudwatch.model.GetMetricStatisticsRequest;
 import com.amazonaws.services.cloudwatch.model.GetMetricStatisticsResult;
 
 /**
- * Retrieve the metric required, and return an Object.
+ * Retrieve the metrics required, and return an Object.
+ * 
+ * The measure in the {@link CloudWatchInput} and any overlay measures are fetched in parallel,
+ * so that comparing measures costs one round trip rather than one per measure.
+ * 
+ * The datapoints are cached in the DB. Only the parts of the time range that are not cached
+ * (usually just the last few minutes, when the user refreshes) are requested from CloudWatch.
  * @author siddhu
  *
  * 30 Dec 2010
@@ -54,31 +70,62 @@ public class MonitorInstanceModel extends GenericModel<Dimension, Void, Object>
 	private HashMap<String, String> connectionData;
 	/** The Cloudwatch input data to tell the CloudWatch API what data we want */
 	private CloudWatchInput cloudWatchInput; 
+	/** The measures to fetch along with the one in cloudWatchInput, to overlay on the chart */
+	private ArrayList<String> overlayMeasureNames;
+	/** The maximum number of datapoints to return; the rest are downsampled away. 0 for all */
+	private int maxDatapoints;
+	/** The application context, used to get at the datapoint cache */
+	private Context context;
 	/** Logging tag */
 	private static final String TAG = "org.elasticdroid.model.MonitorInstanceModel";
+	/** Time (in msecs) for which cached datapoints are kept: as far back as we can chart */
+	public static final long DATAPOINT_RETENTION = MonitoringDurations.LAST_DAY.getDuration();
+	/** The maximum number of CloudWatch requests in flight at any time */
+	private static final int MAX_CONCURRENT_REQUESTS = 4;
+	/** Executor on which the measures are fetched */
+	private static final ExecutorService requestExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_REQUESTS);
 
 	/**
 	 * Constructor for type GenericActivity
 	 * @param activity
+	 * @param overlayMeasureNames The measures to fetch along with the one in cloudWatchInput. 
+	 * May be null.
+	 * @param maxDatapoints The maximum number of datapoints to return for each measure. Longer 
+	 * time series are downsampled using {@link LttbDownsampler}. Pass about twice the width of 
+	 * the chart (in pixels), or 0 to get all of the datapoints.
 	 */
 	public MonitorInstanceModel(GenericActivity genericActivity, HashMap<String, String> 
-		connectionData, CloudWatchInput cloudWatchInput) {
+		connectionData, CloudWatchInput cloudWatchInput, ArrayList<String> overlayMeasureNames,
+		int maxDatapoints) {
 		super(genericActivity);
 		
 		this.connectionData = connectionData;
 		this.cloudWatchInput = cloudWatchInput;
+		this.overlayMeasureNames = overlayMeasureNames;
+		this.maxDatapoints = maxDatapoints;
+		this.context = genericActivity.getApplicationContext();
 	}
 	
 	/**
 	 * Another Constructor for type GenericListActivity
 	 * @param activity
+	 * @param overlayMeasureNames The measures to fetch along with the one in cloudWatchInput. 
+	 * May be null.
+	 * @param maxDatapoints The maximum number of datapoints to return for each measure. Longer 
+	 * time series are downsampled using {@link LttbDownsampler}. Pass about twice the width of 
+	 * the chart (in pixels), or 0 to get all of the datapoints.
 	 */
 	public MonitorInstanceModel(GenericListActivity genericListActivity, HashMap<String, String>
-		connectionData, CloudWatchInput cloudWatchInput) {
+		connectionData, CloudWatchInput cloudWatchInput, ArrayList<String> overlayMeasureNames,
+		int maxDatapoints) {
 		super(genericListActivity);
 		
 		this.connectionData = connectionData;
 		this.cloudWatchInput = cloudWatchInput;
+		this.overlayMeasureNames = overlayMeasureNames;
+		this.maxDatapoints = maxDatapoints;
+		this.context = genericListActivity.getApplicationContext();
 	}
 
 	/**
@@ -89,98 +136,250 @@ public class MonitorInstanceModel extends GenericModel<Dimension, Void, Object>
 		return retrieveMetrics(dimensions);
 	}	
 	
-	/** 
-	 * Perform the actual work of retrieving the metrics
+	/**
+	 * Retrieve the time series for the measure in the {@link CloudWatchInput} and each of the
+	 * overlay measures, in parallel.
+	 * 
+	 * @return Either
+	 * <ul>
+	 * 	<li>AmazonServiceException</li>
+	 *  <li>AmazonClientException</li>
+	 *  <li>LinkedHashMap\<String, {@link MetricTimeSeries}\> indexed by measure name. The 
+	 *  measure in the CloudWatchInput comes first, followed by the overlays.</li>
+	 *  <li>null: if interrupted.</li>
+	 * </ul>
 	 */
-	public Object retrieveMetrics(Dimension... dimensions) {
-		//the cloudwatch client to use
-		AmazonCloudWatchClient cloudWatchClient = null;
-		//the request to send to cloudwatch
-		GetMetricStatisticsRequest request;
-		//the metric stats result.
-		GetMetricStatisticsResult result;
-		
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create a cloudwatch client
+	public Object retrieveMetrics(final Dimension... dimensions) {
+		LinkedHashMap<String, Future<MetricTimeSeries>> futures = new LinkedHashMap<String, 
+			Future<MetricTimeSeries>>();
+		LinkedHashMap<String, MetricTimeSeries> timeSeries = new LinkedHashMap<String, 
+			MetricTimeSeries>();
+		
+		//get the shared cloudwatch client for this region's endpoint
+		final AmazonCloudWatchClient cloudWatchClient = getCloudWatchClient(connectionData, 
+				RegionRegistry.getCloudWatchEndpoint(cloudWatchInput.getRegion()));
+		
+		ArrayList<String> measureNames = new ArrayList<String>();
+		measureNames.add(cloudWatchInput.getMeasureName());
+		if (overlayMeasureNames != null) {
+			for (String overlayMeasureName : overlayMeasureNames) {
+				if (!measureNames.contains(overlayMeasureName)) {
+					measureNames.add(overlayMeasureName);
+				}
+			}
+		}
+		
+		for (String measureName : measureNames) {
+			//same input, different measure.
+			final CloudWatchInput measureInput = new CloudWatchInput(cloudWatchInput
+					.getStartTime(), cloudWatchInput.getEndTime(), cloudWatchInput.getPeriod(), 
+					measureName, cloudWatchInput.getNamespace(), cloudWatchInput.getStatistics(), 
+					cloudWatchInput.getRegion());
+			
+			futures.put(measureName, requestExecutor.submit(new Callable<MetricTimeSeries>() {
+				public MetricTimeSeries call() throws Exception {
+					return retrieveTimeSeries(cloudWatchClient, measureInput, dimensions);
+				}
+			}));
+		}
+		
 		try {
-			cloudWatchClient = new AmazonCloudWatchClient(credentials);
+			for (String measureName : futures.keySet()) {
+				timeSeries.put(measureName, futures.get(measureName).get());
+			}
+		}
+		catch (InterruptedException interruptedException) {
+			//we were cancelled.
+			return null;
 		}
-		catch(AmazonServiceException amazonServiceException) {
-			//if an error response is returned by AmazonIdentityManagement indicating either a 
-			//problem with the data in the request, or a server side issue.
-			Log.e(this.getClass().getName(), "Exception:" + amazonServiceException.getMessage());
-			return amazonServiceException;
+		catch (ExecutionException executionException) {
+			if (executionException.getCause() instanceof AmazonServiceException) {
+				//if an error response is returned by AmazonIdentityManagement indicating either 
+				//a problem with the data in the request, or a server side issue.
+				Log.e(this.getClass().getName(), "Exception:" + executionException.getCause()
+						.getMessage());
+				return (AmazonServiceException) executionException.getCause();
+			}
+			else if (executionException.getCause() instanceof AmazonClientException) {
+				//If any internal errors are encountered inside the client while attempting to 
+				//make the request or handle the response. For example if a network connection 
+				//is not available. 
+				Log.e(this.getClass().getName(), "Exception:" + executionException.getCause()
+						.getMessage());
+				return (AmazonClientException) executionException.getCause();
+			}
+			
+			return new AmazonClientException(executionException.getCause().getMessage(), 
+					executionException.getCause());
 		}
-		catch(AmazonClientException amazonClientException) { 
-			//If any internal errors are encountered inside the client while attempting to make 
-			//the request or handle the response. For example if a network connection is not
-			//available. 
-			Log.e(this.getClass().getName(), "Exception:" + amazonClientException.getMessage());
-			return amazonClientException;
+		finally {
+			//give up on the rest if one failed, or we were cancelled.
+			for (Future<MetricTimeSeries> future : futures.values()) {
+				future.cancel(true);
+			}
 		}
 		
-		//prepare request
-		request = new GetMetricStatisticsRequest();
-		request.setStartTime(new Date(cloudWatchInput.getStartTime()));
-		request.setEndTime(new Date(cloudWatchInput.getEndTime()));
-		request.setPeriod(cloudWatchInput.getPeriod());
-		request.setMeasureName(cloudWatchInput.getMeasureName());
-		request.setNamespace(cloudWatchInput.getNamespace());
-		request.setStatistics(cloudWatchInput.getStatistics());
-		request.setDimensions(Arrays.asList(dimensions));
-		//tell the cloudwatch client where to look!
-		cloudWatchClient.setEndpoint(AWSConstants.getCloudWatchEndpoint(cloudWatchInput.
-				getRegion()));
+		return timeSeries;
+	}
+	
+	/** 
+	 * Retrieve the time series for one measure, downsampled to maxDatapoints.
+	 * 
+	 * @return The time series, downsampled to maxDatapoints.
+	 * @throws AmazonClientException If the request fails.
+	 */
+	private MetricTimeSeries retrieveTimeSeries(AmazonCloudWatchClient cloudWatchClient, 
+			CloudWatchInput measureInput, Dimension... dimensions) throws AmazonClientException {
+		MetricTimeSeries data = fetchTimeSeries(context, cloudWatchClient, connectionData.get(
+				"username"), measureInput, true, dimensions);
 		
-		//get the monitoring result!
-		try {
-			result = cloudWatchClient.getMetricStatistics(request);
+		//there is no point drawing more points than the chart has pixels for.
+		if (maxDatapoints >= 3) {
+			int size = data.size();
+			data = LttbDownsampler.downsample(data, getChartedStatistic(), maxDatapoints);
+			Log.v(TAG, "Downsampled " + size + " datapoints to " + data.size());
 		}
-		catch(AmazonServiceException amazonServiceException) {
-			//if an error response is returned by AmazonIdentityManagement indicating either a 
-			//problem with the data in the request, or a server side issue.
-			Log.e(this.getClass().getName(), "Exception:" + amazonServiceException.getMessage());
-			return amazonServiceException;
+		
+		//return the data, in ascending order of timestamps
+		return data;
+	}
+	
+	/** 
+	 * Bring the datapoint cache for one measure up to date, and optionally read the time 
+	 * series back. Uses the cached datapoints where possible, and only requests the gaps 
+	 * from CloudWatch:
+	 * <ul>
+	 * <li>the time after the newest cached datapoint (which is re-fetched, as CloudWatch may
+	 * not have had all of its samples last time round). Skipped if the cache was brought up to
+	 * date less than a period ago (by {@link WatchPoller}, say): there will not be a new 
+	 * datapoint yet.</li>
+	 * <li>the time before the oldest cached datapoint, if the user has asked for a longer 
+	 * time range than before.</li>
+	 * </ul>
+	 * 
+	 * Used by the model and by {@link WatchPoller}; do not call it from the UI thread.
+	 * 
+	 * @param context The context to open the DB with.
+	 * @param cloudWatchClient The cloudwatch client to use.
+	 * @param username The AWS username.
+	 * @param measureInput The measure, period, statistics, region and time range.
+	 * @param readBack Whether to read the time series back from the cache.
+	 * @param dimensions The dimensions. The first one's value is the resource ID.
+	 * @return The time series, in ascending order of timestamps. null if readBack is false.
+	 * @throws AmazonClientException If the request fails.
+	 */
+	static MetricTimeSeries fetchTimeSeries(Context context, AmazonCloudWatchClient 
+			cloudWatchClient, String username, CloudWatchInput measureInput, boolean readBack,
+			Dimension... dimensions) throws AmazonClientException {
+		//the datapoints fetched from cloudwatch
+		List<Datapoint> fetchedData = new ArrayList<Datapoint>();
+		//the resource the datapoints are for
+		String awsId = dimensions[0].getValue();
+		long startTime = measureInput.getStartTime();
+		long endTime = measureInput.getEndTime();
+		long periodMsecs = measureInput.getPeriod() * 1000L;
+		ElasticDroidDB elasticDroidDB = ElasticDroidDB.getInstance(context);
+		long[] series;
+		
+		//no locking of our own: the measures share the process' one connection, which
+		//serialises them.
+		try {
+			series = elasticDroidDB.getMetricSeries(username, awsId, measureInput);
 		}
-		catch(AmazonClientException amazonClientException) { 
-			//If any internal errors are encountered inside the client while attempting to make 
-			//the request or handle the response. For example if a network connection is not 
-			//available. 
-			Log.e(this.getClass().getName(), "Exception:" + amazonClientException.getMessage());
-			return amazonClientException;
+		catch (SQLException sqlException) {
+			Log.e(TAG, "Could not read datapoint cache: " + sqlException.getMessage());
+			series = null;
 		}
 		
-		//get the data and print it out.
-		List<Datapoint> data = result.getDatapoints();
-		for (Datapoint datum : data) {
-			Log.v(TAG, "Datum:" + datum.getAverage());
+		//nothing cached, or nothing we can use: get the lot.
+		if ((series == null) || (series[2] < startTime) || (series[1] > endTime)) {
+			fetchedData.addAll(getMetricStatistics(cloudWatchClient, measureInput, startTime, 
+					endTime, dimensions));
+			series = new long[] {-1, startTime, endTime};
+		}
+		else {
+			if (startTime < series[1]) {
+				fetchedData.addAll(getMetricStatistics(cloudWatchClient, measureInput, 
+						startTime, series[1], dimensions));
+			}
+			if (endTime - series[2] >= periodMsecs) {
+				fetchedData.addAll(getMetricStatistics(cloudWatchClient, measureInput, 
+						Math.max(startTime, series[2] - periodMsecs), endTime, dimensions));
+				series[2] = endTime;
+			}
+			series[1] = Math.min(startTime, series[1]);
 		}
 		
-		//sort the data in ascending order of timestamps
-		Collections.sort(data, new CloudWatchDataSorter());
+		Log.v(TAG, "Fetched " + fetchedData.size() + " " + measureInput.getMeasureName() + 
+				" datapoints from CloudWatch.");
+		
+		//merge the fetched datapoints into the cache, and read the full range back.
+		MetricTimeSeries data = null;
+		try {
+			long seriesId = elasticDroidDB.writeDatapoints(username, awsId, measureInput, 
+					fetchedData, series[1], series[2], System.currentTimeMillis() - 
+					DATAPOINT_RETENTION);
+			if (readBack) {
+				data = elasticDroidDB.getTimeSeries(seriesId, startTime, endTime);
+			}
+		}
+		catch (SQLException sqlException) {
+			//the cache is broken; show what we have. Nothing is lost but the cached points.
+			Log.e(TAG, "Could not write datapoint cache: " + sqlException.getMessage());
+			if (readBack) {
+				data = MetricTimeSeries.fromDatapoints(fetchedData);
+			}
+		}
 		
-		//return the sorted data
 		return data;
 	}
-}
-
-class CloudWatchDataSorter implements Comparator<Datapoint> {
-
+	
 	/**
-	 * Sort two datapoint objects according to their timestamps.
+	 * @return The statistic to downsample with: the first one asked for, or the average.
 	 */
-	@Override
-	public int compare(Datapoint o1, Datapoint o2) {
-		if (o1.getTimestamp().getTime() > o2.getTimestamp().getTime()) {
-			return -1;
-		}
-		else if (o1.getTimestamp().getTime() == o2.getTimestamp().getTime()) {
-			return 0;
+	private MetricTimeSeries.Statistic getChartedStatistic() {
+		for (String statisticName : cloudWatchInput.getStatistics()) {
+			for (MetricTimeSeries.Statistic statistic : MetricTimeSeries.Statistic.values()) {
+				if (statistic.getName().equals(statisticName)) {
+					return statistic;
+				}
+			}
 		}
 		
-		return 1;
+		return MetricTimeSeries.Statistic.AVERAGE;
 	}
 	
+	/**
+	 * Get the datapoints for a time range from CloudWatch.
+	 * 
+	 * @param cloudWatchClient The cloudwatch client to use.
+	 * @param measureInput The measure, period, statistics etc to get.
+	 * @param startTime The start of the time range (msecs since epoch).
+	 * @param endTime The end of the time range (msecs since epoch).
+	 * @param dimensions The dimensions to get the datapoints for.
+	 * @return The datapoints, in no particular order.
+	 * @throws AmazonClientException If the request fails.
+	 */
+	private static List<Datapoint> getMetricStatistics(final AmazonCloudWatchClient 
+			cloudWatchClient, CloudWatchInput measureInput, long startTime, long endTime, 
+			Dimension... dimensions) throws AmazonClientException {
+		//prepare request
+		final GetMetricStatisticsRequest request = new GetMetricStatisticsRequest();
+		request.setStartTime(new Date(startTime));
+		request.setEndTime(new Date(endTime));
+		request.setPeriod(measureInput.getPeriod());
+		request.setMeasureName(measureInput.getMeasureName());
+		request.setNamespace(measureInput.getNamespace());
+		request.setStatistics(measureInput.getStatistics());
+		request.setDimensions(Arrays.asList(dimensions));
+		
+		GetMetricStatisticsResult result = RetryPolicy.execute("getMetricStatistics", 
+				new RetryPolicy.Request<GetMetricStatisticsResult>() {
+			public GetMetricStatisticsResult execute() {
+				return cloudWatchClient.getMetricStatistics(request);
+			}
+		});
+		
+		return result.getDatapoints();
+	}
 }
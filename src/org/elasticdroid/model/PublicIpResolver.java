@@ -0,0 +1,304 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.util.Log;
+
+/**
+ * Process-wide resolver of the device's public (WAN) IP address, which is what the security
+ * groups see when we connect to an instance.
+ *
+ * The address is asked of several "what is my IP" services at once, and the first plausible
+ * answer wins, so that one service being slow or down costs nothing. The answer is cached for
+ * {@link #PUBLIC_IP_TTL}, or until the device's connectivity changes (from Wi-Fi to 3G, say),
+ * whichever is sooner.
+ *
+ * {@link #resolve()} blocks; do not call it from the UI thread. {@link #resolveAsync()} does
+ * not, so that the caller can get on with something else (fetching the security groups, say)
+ * while the services answer.
+ */
+public class PublicIpResolver {
+
+	/** Time (in msecs) for which a resolved address is used without asking again: 5 minutes */
+	public static final long PUBLIC_IP_TTL = 5 * 60000L;
+	/** Time (in msecs) we wait for any of the services to answer */
+	public static final int TIMEOUT = 5000;
+	/** The services asked by default. Each returns the address and nothing else. */
+	public static final String[] DEFAULT_SOURCES = new String[] {
+		"http://checkip.amazonaws.com/",
+		"http://icanhazip.com/",
+		"http://www.whatismyip.com/automation/n09230945.asp"
+	};
+
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.PublicIpResolver";
+	/** What a dotted quad looks like */
+	private static final Pattern IP_ADDRESS_PATTERN = Pattern.compile(
+			"(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})");
+
+	/** The threads asking the services. They die off when idle. */
+	private static final ExecutorService executor = Executors.newCachedThreadPool(
+			new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger(1);
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "PublicIpResolver #" + 
+							count.getAndIncrement());
+					//don't keep the process alive for a slow service.
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/** The services to ask */
+	private static List<String> sources = new ArrayList<String>(Arrays.asList(DEFAULT_SOURCES));
+	/** The address last resolved; null if none */
+	private static String publicIp;
+	/** The time (msecs since epoch) at which publicIp was resolved */
+	private static long lastUpdated;
+	/**
+	 * Bumped each time the address is invalidated, so that an answer to a question asked
+	 * before (on the old network, say) is not cached.
+	 */
+	private static int generation;
+	/** The context the connectivity receiver is registered with; null if none */
+	private static Context context;
+
+	/** Forgets the address when the device's connectivity changes; created with context */
+	private static BroadcastReceiver connectivityReceiver;
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private PublicIpResolver() {
+	}
+
+	/**
+	 * Give the resolver a context it can use to hear of connectivity changes. Only the
+	 * application context is held on to.
+	 *
+	 * @param ctx Any context.
+	 */
+	public static synchronized void setContext(Context ctx) {
+		if ((context == null) && (ctx != null)) {
+			context = ctx.getApplicationContext();
+			connectivityReceiver = new BroadcastReceiver() {
+				@Override
+				public void onReceive(Context context, Intent intent) {
+					invalidate();
+				}
+			};
+			context.registerReceiver(connectivityReceiver, new IntentFilter(
+					ConnectivityManager.CONNECTIVITY_ACTION));
+		}
+	}
+
+	/**
+	 * Change the services asked. Forgets the address resolved, if any.
+	 *
+	 * @param urls The URLs of the services. Each must return the address as plain text.
+	 */
+	public static synchronized void setSources(String... urls) {
+		sources = new ArrayList<String>(Arrays.asList(urls));
+		invalidate();
+	}
+
+	/**
+	 * Forget the address resolved, so that the next call to {@link #resolve()} asks again.
+	 */
+	public static synchronized void invalidate() {
+		publicIp = null;
+		generation ++;
+	}
+
+	/**
+	 * Get the address we resolved, if it is recent enough.
+	 *
+	 * @return the address, or null if we have to ask.
+	 */
+	private static synchronized String getCachedIp() {
+		if ((publicIp != null) && (System.currentTimeMillis() - lastUpdated < PUBLIC_IP_TTL)) {
+			return publicIp;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the device's public IP address, asking the services if we don't have a recent one.
+	 *
+	 * @return the address, or null if none of the services answered in {@link #TIMEOUT}.
+	 */
+	public static String resolve() {
+		String cachedIp = getCachedIp();
+		if (cachedIp != null) {
+			return cachedIp;
+		}
+
+		List<String> resolveSources;
+		int resolveGeneration;
+		synchronized (PublicIpResolver.class) {
+			resolveSources = sources;
+			resolveGeneration = generation;
+		}
+
+		CompletionService<String> completionService = new ExecutorCompletionService<String>(
+				executor);
+		List<Future<String>> requests = new ArrayList<Future<String>>();
+		for (final String source : resolveSources) {
+			requests.add(completionService.submit(new Callable<String>() {
+				public String call() throws Exception {
+					return ask(source);
+				}
+			}));
+		}
+
+		String resolvedIp = null;
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			//take the answers as they come in, until one of them looks like an address.
+			for (int answers = 0; (answers < requests.size()) && (resolvedIp == null); 
+				answers ++) {
+				Future<String> answer = completionService.poll(deadline - 
+						System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+				if (answer == null) {
+					break; //timed out
+				}
+
+				try {
+					resolvedIp = answer.get();
+				} catch (ExecutionException exception) {
+					Log.v(TAG, "Public IP source failed: " + exception.getCause());
+				}
+			}
+		} catch (InterruptedException interruptedException) {
+			//the model was cancelled.
+			Thread.currentThread().interrupt();
+		} finally {
+			//we've got what we came for; don't wait for the stragglers.
+			for (Future<String> request : requests) {
+				request.cancel(true);
+			}
+		}
+
+		synchronized (PublicIpResolver.class) {
+			if ((resolvedIp != null) && (resolveGeneration == generation)) {
+				publicIp = resolvedIp;
+				lastUpdated = System.currentTimeMillis();
+			}
+		}
+
+		return resolvedIp;
+	}
+
+	/**
+	 * Start resolving the device's public IP address in the background.
+	 *
+	 * @return Future which returns what {@link #resolve()} would have. Already done if we had a
+	 * recent address.
+	 */
+	public static Future<String> resolveAsync() {
+		FutureTask<String> resolution = new FutureTask<String>(new Callable<String>() {
+			public String call() {
+				return resolve();
+			}
+		});
+
+		if (getCachedIp() != null) {
+			resolution.run();
+		}
+		else {
+			executor.execute(resolution);
+		}
+
+		return resolution;
+	}
+
+	/**
+	 * Ask a service for our address.
+	 *
+	 * @param source The URL of the service.
+	 * @return The address.
+	 * @throws Exception If the service could not be reached, or did not return an address.
+	 */
+	private static String ask(String source) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL(source).openConnection();
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+
+		try {
+			String answer = new BufferedReader(new InputStreamReader(connection
+					.getInputStream())).readLine();
+
+			//just a check in case they change the way the service works
+			if ((answer == null) || !isIpAddress(answer.trim())) {
+				throw new IllegalStateException("Not an IP address: " + answer);
+			}
+
+			return answer.trim();
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * @param address The string to check.
+	 * @return true if address is a dotted quad, with each part between 0 and 255.
+	 */
+	static boolean isIpAddress(String address) {
+		Matcher matcher = IP_ADDRESS_PATTERN.matcher(address);
+		if (!matcher.matches()) {
+			return false;
+		}
+
+		for (int part = 1; part <= 4; part ++) {
+			if (Integer.parseInt(matcher.group(part)) > 255) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.HashMap;
+
+import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.utils.AWSConstants;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Process-wide registry of AWS regions and their EC2 and CloudWatch endpoints.
+ *
+ * Filled in by {@link RetrieveRegionModel} from describeRegions, and persisted in
+ * {@link ElasticDroidDB} so that we do not have to ask AWS again until the data is
+ * {@link #REGION_DATA_TTL} old. The models use it to resolve endpoints with a HashMap lookup
+ * instead of calling describeRegions before every request.
+ *
+ * Endpoint lookups may hit the database the first time they are called in a process, so do not
+ * call them from the UI thread.
+ */
+public class RegionRegistry {
+
+	/** Time (in msecs) for which region data retrieved from AWS is considered fresh: 1 week */
+	public static final long REGION_DATA_TTL = 7 * 24 * 3600000L;
+
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.RegionRegistry";
+
+	/** String[]{EC2 endpoint, CloudWatch endpoint}, indexed by region name */
+	private static HashMap<String, String[]> regions = new HashMap<String, String[]>();
+	/** Time at which {@link #regions} was retrieved from AWS. 0 if never. */
+	private static long lastUpdated;
+	/** Set once we have tried to read the region data from the DB */
+	private static boolean loadedFromDb;
+	/** The application context, used to get at the DB */
+	private static Context context;
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private RegionRegistry() {
+	}
+
+	/**
+	 * Give the registry a context it can use to open the DB. Only the application context
+	 * is held on to, so passing in an Activity does not leak it.
+	 *
+	 * @param ctx Any context.
+	 */
+	public static synchronized void setContext(Context ctx) {
+		if ((context == null) && (ctx != null)) {
+			context = ctx.getApplicationContext();
+		}
+	}
+
+	/**
+	 * Check if the region data is fresh enough to be used without asking AWS.
+	 *
+	 * @return true if region data younger than {@link #REGION_DATA_TTL} is available.
+	 */
+	public static synchronized boolean isFresh() {
+		loadFromDb();
+
+		return (regions.size() != 0) &&
+			(System.currentTimeMillis() - lastUpdated < REGION_DATA_TTL);
+	}
+
+	/**
+	 * Get the region data in the format used by the views.
+	 *
+	 * @return HashMap of EC2 endpoints indexed by region name. Empty if no region data.
+	 */
+	public static synchronized HashMap<String, String> getRegionData() {
+		HashMap<String, String> regionData = new HashMap<String, String>();
+
+		loadFromDb();
+		for (String regionName : regions.keySet()) {
+			regionData.put(regionName, regions.get(regionName)[0]);
+		}
+
+		return regionData;
+	}
+
+	/**
+	 * Replace the region data with data retrieved from AWS, and persist it.
+	 *
+	 * @param regionData HashMap of EC2 endpoints indexed by region name.
+	 */
+	public static synchronized void update(HashMap<String, String> regionData) {
+		HashMap<String, String[]> newRegions = new HashMap<String, String[]>();
+
+		for (String regionName : regionData.keySet()) {
+			newRegions.put(regionName, new String[] {regionData.get(regionName),
+					AWSConstants.getCloudWatchEndpoint(regionName)});
+		}
+
+		regions = newRegions;
+		lastUpdated = System.currentTimeMillis();
+		loadedFromDb = true; //whatever is in the DB is older than this.
+
+		if (context != null) {
+			ElasticDroidDB.getInstance(context).writeRegions(regions, lastUpdated);
+		}
+	}
+
+	/**
+	 * @param region The region name
+	 * @return true if the region is in the registry, or if the registry is empty (in which
+	 * case we cannot tell).
+	 */
+	public static synchronized boolean isKnownRegion(String region) {
+		loadFromDb();
+
+		return (regions.size() == 0) || regions.containsKey(region);
+	}
+
+	/**
+	 * Get the EC2 endpoint for the region.
+	 *
+	 * @param region The region name
+	 * @return The EC2 endpoint. Falls back to {@link AWSConstants#getEC2Endpoint(String)} if
+	 * the region is not in the registry.
+	 */
+	public static synchronized String getEC2Endpoint(String region) {
+		loadFromDb();
+
+		String[] endpoints = regions.get(region);
+		if (endpoints != null) {
+			return endpoints[0];
+		}
+
+		return AWSConstants.getEC2Endpoint(region);
+	}
+
+	/**
+	 * Get the CloudWatch endpoint for the region.
+	 *
+	 * @param region The region name
+	 * @return The CloudWatch endpoint. Falls back to
+	 * {@link AWSConstants#getCloudWatchEndpoint(String)} if the region is not in the registry.
+	 */
+	public static synchronized String getCloudWatchEndpoint(String region) {
+		loadFromDb();
+
+		String[] endpoints = regions.get(region);
+		if (endpoints != null) {
+			return endpoints[1];
+		}
+
+		return AWSConstants.getCloudWatchEndpoint(region);
+	}
+
+	/**
+	 * Read the region data from the DB, once per process. Caller must hold the class lock.
+	 */
+	private static void loadFromDb() {
+		if (loadedFromDb || (context == null)) {
+			return;
+		}
+
+		loadedFromDb = true;
+
+		ElasticDroidDB elasticDroidDB = ElasticDroidDB.getInstance(context);
+		HashMap<String, String[]> dbRegions = elasticDroidDB.listRegions();
+
+		if (dbRegions.size() != 0) {
+			regions = dbRegions;
+			lastUpdated = elasticDroidDB.getRegionsLastUpdated();
+		}
+
+		Log.v(TAG, "Loaded " + regions.size() + " regions from DB.");
+	}
+}
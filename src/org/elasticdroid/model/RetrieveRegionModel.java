@@ -22,13 +22,13 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericListActivity;
 
 import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.Region;
 
@@ -64,17 +64,24 @@ public class RetrieveRegionModel extends GenericModel<HashMap<?,?>, Void, Object
 		connectionData = (HashMap<String, String>)params[0]; //convenience variable, so that
 		//i dont have to keep typing params[0] everywhere in this method.;)
 		
+		//the regions hardly ever change. Use the cached data unless it has gone stale.
+		if (RegionRegistry.isFresh()) {
+			Log.v(this.getClass().getName(), "Using cached EC2 region data...");
+			return RegionRegistry.getRegionData();
+		}
+		
 		Log.v(this.getClass().getName(), "Getting EC2 region data...");
 		
 		//prepare to get region data
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
+		//get the shared Amazon EC2 Client object for the default endpoint
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, null);
 		try {
-			regions = amazonEC2Client.describeRegions().getRegions();
+			regions = RetryPolicy.execute("describeRegions", new RetryPolicy.Request<
+					List<Region>>() {
+				public List<Region> execute() {
+					return amazonEC2Client.describeRegions().getRegions();
+				}
+			});
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			//this is an unchecked exception subclassed from RuntimeException. So throw it manually
@@ -97,6 +104,9 @@ public class RetrieveRegionModel extends GenericModel<HashMap<?,?>, Void, Object
 			Log.v("AWSUtilities.getRegions", region.getRegionName());
 		}
 		
+		//save the region data so that the other models can resolve endpoints without asking AWS
+		RegionRegistry.update(regionData);
+		
 		return regionData;
 	}
 }
@@ -0,0 +1,345 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.elasticdroid.model.AWSClientFactory.ServiceType;
+import org.elasticdroid.model.ds.SerializableSecurityGroup;
+import org.elasticdroid.model.tpl.RetryPolicy;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+import com.amazonaws.services.ec2.model.DescribeSecurityGroupsRequest;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+
+/**
+ * Holds the security groups in an AWS account and region, so that the security groups view,
+ * the SSH connector view and the SSH connector model do not each download the same groups.
+ *
+ * There is one cache per AWS account and EC2 endpoint. Groups are kept by name, each with the
+ * time at which it was retrieved, and are handed out until they are {@link #MAX_AGE} old.
+ * Groups we do not have (or have had too long) are retrieved with a single
+ * describeSecurityGroups call. Call {@link #invalidate(String...)} when a group may have been
+ * changed behind our back, for instance when it turns out not to let the user in.
+ *
+ * The get methods block; do not call them from the UI thread.
+ */
+public class SecurityGroupCache {
+
+	/** Time (in msecs) for which the security groups retrieved are handed out without asking AWS */
+	public static final long MAX_AGE = 60000;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.SecurityGroupCache";
+
+	/** The caches, indexed by access key and endpoint */
+	private static HashMap<String, SecurityGroupCache> caches = new HashMap<String,
+		SecurityGroupCache>();
+
+	/**
+	 * The connection data for the account. Replaced, not modified, if the user re-enters his
+	 * credentials.
+	 */
+	private volatile HashMap<String, String> connectionData;
+	/** The EC2 endpoint for the region */
+	private final String endpoint;
+	/** The security groups we have, indexed by name, in the order AWS returned them */
+	private LinkedHashMap<String, CachedGroup> securityGroups = new LinkedHashMap<String,
+		CachedGroup>();
+	/**
+	 * The time (msecs since epoch) at which all of the security groups were last retrieved;
+	 * 0 if never, or if some have been invalidated since.
+	 */
+	private long allRetrieved;
+	/**
+	 * Bumped each time groups are invalidated, so that a request which was already in flight
+	 * does not put back what was invalidated.
+	 */
+	private int generation;
+
+	/**
+	 * Use {@link #getCache(HashMap, String)}.
+	 */
+	private SecurityGroupCache(HashMap<String, String> connectionData, String endpoint) {
+		this.connectionData = connectionData;
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Get the cache for an account and region, creating it if need be. If the secret access key
+	 * has changed since the cache was created, it uses the new one from now on.
+	 *
+	 * @param connectionData The AWS connection data. Requires keys accessKey and
+	 * secretAccessKey.
+	 * @param endpoint The EC2 endpoint for the region.
+	 * @return The cache.
+	 */
+	public static synchronized SecurityGroupCache getCache(HashMap<String, String>
+		connectionData, String endpoint) {
+		String key = connectionData.get("accessKey") + "|" + endpoint;
+		SecurityGroupCache cache = caches.get(key);
+
+		if (cache == null) {
+			cache = new SecurityGroupCache(new HashMap<String, String>(connectionData),
+					endpoint);
+			caches.put(key, cache);
+		}
+		else if (!connectionData.get("secretAccessKey").equals(cache.connectionData.get(
+				"secretAccessKey"))) {
+			cache.connectionData = new HashMap<String, String>(connectionData);
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Throw away the caches for an access key. Call this when the user logs out, along with
+	 * {@link AWSClientFactory#evictClients(String)}.
+	 *
+	 * @param accessKey The access key of the user logging out.
+	 */
+	public static synchronized void evict(String accessKey) {
+		Iterator<SecurityGroupCache> cacheIter = caches.values().iterator();
+
+		while (cacheIter.hasNext()) {
+			SecurityGroupCache cache = cacheIter.next();
+			if (cache.connectionData.get("accessKey").equals(accessKey)) {
+				cache.invalidate();
+				cacheIter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Get all of the security groups in the region, retrieving them from AWS if we have not
+	 * listed them all in the last maxAge msecs.
+	 *
+	 * @param maxAge The oldest (in msecs) the groups may be. Pass {@link #MAX_AGE} unless the
+	 * user has asked for a refresh; pass 0 if so.
+	 * @return The security groups, in a new list. Do not modify the groups themselves!
+	 * @throws AmazonClientException If they could not be retrieved. AmazonServiceException is a
+	 * subclass.
+	 */
+	public ArrayList<SerializableSecurityGroup> getAllSecurityGroups(long maxAge) throws
+		AmazonClientException {
+		int fetchGeneration;
+
+		synchronized (this) {
+			if ((allRetrieved != 0) && (System.currentTimeMillis() - allRetrieved < maxAge)) {
+				ArrayList<SerializableSecurityGroup> allGroups = new
+					ArrayList<SerializableSecurityGroup>();
+				for (CachedGroup cachedGroup : securityGroups.values()) {
+					allGroups.add(cachedGroup.securityGroup);
+				}
+				return allGroups;
+			}
+
+			fetchGeneration = generation;
+		}
+
+		ArrayList<SerializableSecurityGroup> retrievedGroups = retrieveSecurityGroups();
+
+		synchronized (this) {
+			if (fetchGeneration == generation) {
+				//a full listing; groups deleted since the last one go.
+				long now = System.currentTimeMillis();
+				securityGroups.clear();
+				for (SerializableSecurityGroup securityGroup : retrievedGroups) {
+					securityGroups.put(securityGroup.getGroupName(), new CachedGroup(
+							securityGroup, now));
+				}
+				allRetrieved = now;
+			}
+		}
+
+		return retrievedGroups;
+	}
+
+	/**
+	 * Get the named security groups. Those we have had for less than maxAge msecs are handed
+	 * out straight away; the rest are retrieved from AWS in one request.
+	 *
+	 * @param maxAge The oldest (in msecs) the groups may be. Pass {@link #MAX_AGE} unless the
+	 * user has asked for a refresh; pass 0 if so.
+	 * @param groupNames The names of the groups.
+	 * @return The security groups, in the order of groupNames, in a new list. Names AWS does
+	 * not know about are left out. Do not modify the groups themselves!
+	 * @throws AmazonClientException If they could not be retrieved. AmazonServiceException is a
+	 * subclass.
+	 */
+	public ArrayList<SerializableSecurityGroup> getSecurityGroups(long maxAge,
+			String... groupNames) throws AmazonClientException {
+		LinkedHashSet<String> missingNames = new LinkedHashSet<String>();
+		int fetchGeneration;
+
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (String groupName : groupNames) {
+				CachedGroup cachedGroup = securityGroups.get(groupName);
+				if ((cachedGroup == null) || (now - cachedGroup.retrieved >= maxAge)) {
+					missingNames.add(groupName);
+				}
+			}
+
+			fetchGeneration = generation;
+		}
+
+		HashMap<String, SerializableSecurityGroup> found = new HashMap<String,
+			SerializableSecurityGroup>();
+		if (missingNames.size() != 0) {
+			ArrayList<SerializableSecurityGroup> retrievedGroups = retrieveSecurityGroups(
+					new Filter("group-name").withValues(missingNames));
+
+			synchronized (this) {
+				long now = System.currentTimeMillis();
+				for (SerializableSecurityGroup securityGroup : retrievedGroups) {
+					found.put(securityGroup.getGroupName(), securityGroup);
+					if (fetchGeneration == generation) {
+						securityGroups.put(securityGroup.getGroupName(), new CachedGroup(
+								securityGroup, now));
+					}
+				}
+			}
+		}
+
+		ArrayList<SerializableSecurityGroup> namedGroups = new
+			ArrayList<SerializableSecurityGroup>();
+		synchronized (this) {
+			for (String groupName : groupNames) {
+				//prefer what we just retrieved, in case it was invalidated meanwhile.
+				SerializableSecurityGroup securityGroup = found.get(groupName);
+				if ((securityGroup == null) && !missingNames.contains(groupName)) {
+					CachedGroup cachedGroup = securityGroups.get(groupName);
+					securityGroup = (cachedGroup != null) ? cachedGroup.securityGroup : null;
+				}
+
+				if ((securityGroup != null) && !namedGroups.contains(securityGroup)) {
+					namedGroups.add(securityGroup);
+				}
+			}
+		}
+
+		return namedGroups;
+	}
+
+	/**
+	 * Forget the named security groups, so that they are retrieved from AWS the next time they
+	 * are asked for.
+	 *
+	 * @param groupNames The names of the groups.
+	 */
+	public synchronized void invalidate(String... groupNames) {
+		for (String groupName : groupNames) {
+			securityGroups.remove(groupName);
+		}
+		allRetrieved = 0;
+		generation ++;
+	}
+
+	/**
+	 * Forget all of the security groups.
+	 */
+	public synchronized void invalidate() {
+		securityGroups.clear();
+		allRetrieved = 0;
+		generation ++;
+	}
+
+	/**
+	 * Retrieve security groups from AWS.
+	 *
+	 * @param filters The describeSecurityGroups filters; none for all of the groups.
+	 */
+	private ArrayList<SerializableSecurityGroup> retrieveSecurityGroups(Filter... filters) {
+		ArrayList<SerializableSecurityGroup> retrievedGroups = new
+			ArrayList<SerializableSecurityGroup>();
+		final AmazonEC2Client amazonEC2Client = (AmazonEC2Client) AWSClientFactory.leaseClient(
+				connectionData, ServiceType.EC2, endpoint);
+		final DescribeSecurityGroupsRequest request = new DescribeSecurityGroupsRequest();
+		for (Filter filter : filters) {
+			request.withFilters(filter);
+		}
+
+		try {
+			List<SecurityGroup> securityGroups = RetryPolicy.execute("describeSecurityGroups",
+					new RetryPolicy.Request<List<SecurityGroup>>() {
+				public List<SecurityGroup> execute() {
+					return amazonEC2Client.describeSecurityGroups(request).getSecurityGroups();
+				}
+			});
+
+			for (SecurityGroup securityGroup : securityGroups) {
+				retrievedGroups.add(new SerializableSecurityGroup(securityGroup));
+			}
+		}
+		finally {
+			AWSClientFactory.releaseClient(amazonEC2Client);
+		}
+
+		Log.v(TAG, "Retrieved " + retrievedGroups.size() + " security groups from " + endpoint);
+
+		return retrievedGroups;
+	}
+
+	/**
+	 * Work out which groups a set of describeSecurityGroups filters asks for. Only a single
+	 * group-name filter is answered from the cache: EC2 ANDs separate filters, so several
+	 * group-name filters ask for their intersection, and those go to AWS like any other.
+	 *
+	 * @param filters The filters.
+	 * @return The group names, if there is a single group-name filter; an empty array if there
+	 * are no filters (i.e. all of the groups); null otherwise, in which case they have to be
+	 * sent to AWS.
+	 */
+	public static String[] getGroupNames(Filter... filters) {
+		if (filters.length == 0) {
+			return new String[0];
+		}
+		else if ((filters.length > 1) || !filters[0].getName().equals("group-name") || 
+				(filters[0].getValues() == null) || filters[0].getValues().isEmpty()) {
+			return null;
+		}
+
+		LinkedHashSet<String> groupNames = new LinkedHashSet<String>(filters[0].getValues());
+		return groupNames.toArray(new String[groupNames.size()]);
+	}
+
+	/**
+	 * A security group, and the time at which it was retrieved.
+	 */
+	private static class CachedGroup {
+		/** The security group */
+		private final SerializableSecurityGroup securityGroup;
+		/** Time (msecs since epoch) at which it was retrieved from AWS */
+		private final long retrieved;
+
+		private CachedGroup(SerializableSecurityGroup securityGroup, long retrieved) {
+			this.securityGroup = securityGroup;
+			this.retrieved = retrieved;
+		}
+	}
+}
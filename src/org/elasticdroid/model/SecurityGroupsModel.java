@@ -25,12 +25,12 @@ import java.util.List;
 
 import org.elasticdroid.model.ds.SerializableSecurityGroup;
 import org.elasticdroid.model.tpl.GenericModel;
+import org.elasticdroid.model.tpl.RetryPolicy;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.DescribeSecurityGroupsRequest;
 import com.amazonaws.services.ec2.model.Filter;
@@ -47,6 +47,8 @@ public class SecurityGroupsModel extends GenericModel<Filter, Void, Object> {
 	private HashMap<String,String> connectionData;
 	/** Tag for printing log messages */
 	private static final String TAG = "org.elasticdroid.model.SecurityGroupsModel";
+	/** The oldest (in msecs) the groups handed out by the {@link SecurityGroupCache} may be */
+	private long maxAge = SecurityGroupCache.MAX_AGE;
 	
 	/**
 	 * Constructor
@@ -83,6 +85,16 @@ public class SecurityGroupsModel extends GenericModel<Filter, Void, Object> {
 		//and returns 0.0.0.0 when using the network
 	}
 	
+	/**
+	 * Go to AWS for the security groups, even if the {@link SecurityGroupCache} retrieved them 
+	 * moments ago. Use this when the user has asked for a refresh.
+	 * 
+	 * @param forceRefresh true to bypass the cache's copy of the security groups.
+	 */
+	public void setForceRefresh(boolean forceRefresh) {
+		maxAge = forceRefresh ? 0 : SecurityGroupCache.MAX_AGE;
+	}
+	
 	/**
 	 * Method that executes in background thread and does the actual work.
 	 * @param []filters: A list of filters
@@ -98,25 +110,28 @@ public class SecurityGroupsModel extends GenericModel<Filter, Void, Object> {
 	/**
 	 * The method that does the actual work 
 	 * 
-	 * Can return
+	 * Groups asked for by name (or all of them, if there are no filters) come from the 
+	 * {@link SecurityGroupCache} for the account and region. Any other filter goes to AWS.
+	 * 
+	 * @return List of SerializableSecurityGroup, AmazonServiceException or AmazonClientException.
 	 */
 	public Object getSecurityGroupData(Filter... filters) {
-		//create credentials using the BasicAWSCredentials class
-		BasicAWSCredentials credentials = new BasicAWSCredentials(connectionData.get("accessKey"),
-				connectionData.get("secretAccessKey"));
-		//create Amazon EC2 Client object, and set tye end point to the region. params[3]
-		//contains endpoint
-		AmazonEC2Client amazonEC2Client = new AmazonEC2Client(credentials);
-		amazonEC2Client.setEndpoint(connectionData.get("endpoint"));
-		
-		DescribeSecurityGroupsRequest securityGroupsRequest = new DescribeSecurityGroupsRequest();
-		//add filters to the request
-		securityGroupsRequest.withFilters(new ArrayList<Filter>(Arrays.asList(filters)));
+		String endpoint = connectionData.get("endpoint");
+		String[] groupNames = SecurityGroupCache.getGroupNames(filters);
 		
-		List<SecurityGroup> securityGroups;
 		try {
-			securityGroups = amazonEC2Client.describeSecurityGroups(securityGroupsRequest).
-				getSecurityGroups();
+			if (groupNames == null) {
+				return describeSecurityGroups(endpoint, filters);
+			}
+			
+			SecurityGroupCache securityGroupCache = SecurityGroupCache.getCache(connectionData, 
+					endpoint);
+			if (groupNames.length == 0) {
+				return securityGroupCache.getAllSecurityGroups(maxAge);
+			}
+			else {
+				return securityGroupCache.getSecurityGroups(maxAge, groupNames);
+			}
 		}
 		catch(AmazonServiceException amazonServiceException) {
 			return amazonServiceException;
@@ -124,8 +139,37 @@ public class SecurityGroupsModel extends GenericModel<Filter, Void, Object> {
 		catch(AmazonClientException amazonClientException) {
 			return amazonClientException;
 		}
+	}
+	
+	/**
+	 * Get the security groups matching the filters from AWS, bypassing the 
+	 * {@link SecurityGroupCache}.
+	 * 
+	 * @param endpoint The EC2 endpoint for the region.
+	 * @param filters The filters.
+	 * @return The security groups.
+	 * @throws AmazonClientException If they could not be retrieved. AmazonServiceException is a
+	 * subclass.
+	 */
+	private ArrayList<SerializableSecurityGroup> describeSecurityGroups(String endpoint, 
+			Filter... filters) throws AmazonClientException {
+		//get the shared Amazon EC2 Client object for the endpoint of the selected region.
+		final AmazonEC2Client amazonEC2Client = getEC2Client(connectionData, endpoint);
+		
+		final DescribeSecurityGroupsRequest securityGroupsRequest = new 
+			DescribeSecurityGroupsRequest();
+		//add filters to the request
+		securityGroupsRequest.withFilters(new ArrayList<Filter>(Arrays.asList(filters)));
+		
+		List<SecurityGroup> securityGroups = RetryPolicy.execute("describeSecurityGroups", 
+				new RetryPolicy.Request<List<SecurityGroup>>() {
+			public List<SecurityGroup> execute() {
+				return amazonEC2Client.describeSecurityGroups(securityGroupsRequest).
+					getSecurityGroups();
+			}
+		});
 		
-		List<SerializableSecurityGroup> serSecurityGroups = new ArrayList
+		ArrayList<SerializableSecurityGroup> serSecurityGroups = new ArrayList
 			<SerializableSecurityGroup>();
 		for (SecurityGroup securityGroup: securityGroups) {
 			serSecurityGroups.add(new SerializableSecurityGroup(securityGroup));
@@ -18,22 +18,17 @@
  */
 package org.elasticdroid.model;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.http.ConnectionClosedException;
 import org.elasticdroid.R;
-import org.elasticdroid.model.ds.SerializableIpPermission;
 import org.elasticdroid.model.ds.SerializableSecurityGroup;
 import org.elasticdroid.model.tpl.GenericModel;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
-import org.elasticdroid.utils.MiscUtils;
+import org.elasticdroid.utils.CidrMatcher;
 
 import android.util.Log;
 
@@ -154,52 +149,26 @@ public class SshConnectorModel extends GenericModel<String, Void, Object> {
 	public Object prepareSshUri(String... secGroups) {
 		
 		String sourceIpAddress = null;
-		//first, get the source IP address
-		try {
-			URL ipAddressUri = new URL("http://www.whatismyip.com/automation/n09230945.asp");
-			HttpURLConnection connection = (HttpURLConnection) ipAddressUri.openConnection();
-			connection.setConnectTimeout(5000); //time out in 5 seconds
-			sourceIpAddress = new BufferedReader(new InputStreamReader(connection.getInputStream())).
-				readLine();
-		}
-		catch(Exception exception) {
-			//if you can't retrieve it, just return a ConnectionClosedexception
-			sourceIpAddress = null;
-		}
-		//just a check in case they change the way whatismyip.org works
-		if (sourceIpAddress == null) {
-			if (!listActivityUsed) {
-				return new ConnectionClosedException(
-					activity.getString(R.string.sshconnector_cannotretrievehostip));
-			} else {
-				return new ConnectionClosedException(
-						listActivity.getString(R.string.sshconnector_cannotretrievehostip));
-			}
-		}
-		Log.v(TAG, "Your Device's IP address is: " + sourceIpAddress);
-		
-		
-		
-		//get the information on the security groups in list
-		ArrayList<Filter> secGroupFilters = new ArrayList<Filter>();
+		//first, start resolving the source IP address. It comes back while we get the security
+		//groups.
+		PublicIpResolver.setContext(listActivityUsed ? listActivity : activity);
+		Future<String> sourceIpResolution = PublicIpResolver.resolveAsync();
+		
+		//get the information on the security groups in list. The groups come from the
+		//SecurityGroupCache, so if SshConnectorView has just retrieved them to fill the
+		//port spinner, this doesn't go to AWS again.
 		List<SerializableSecurityGroup> securityGroups = null;//initialise it
-		boolean portFound = false; //set to indicate port was found
-		//used to identify whether the fail was cuz of the port failing, or cuz of the IP address
-		//ranges.
+		Filter secGroupFilter = new Filter("group-name").withValues(secGroups);
 		
-		for (String secGroup : secGroups) {
-			//add filters for each of the security groups
-			secGroupFilters.add(new Filter("group-name").withValues(secGroup));
-		}
-		//pass the filters to the SecurityGroupsModel
+		//pass the filter to the SecurityGroupsModel
 		//do not use the execute method so as to have it run in this thread
 		Object result;
 		if (!listActivityUsed) {
 			result = new SecurityGroupsModel(activity, connectionData).getSecurityGroupData(
-				secGroupFilters.toArray(new Filter[secGroupFilters.size()]));
+				secGroupFilter);
 		} else {
 			result = new SecurityGroupsModel(listActivity, connectionData).getSecurityGroupData(
-					secGroupFilters.toArray(new Filter[secGroupFilters.size()]));			
+					secGroupFilter);			
 		}
 		
 		if (result instanceof List<?>) {
@@ -214,46 +183,47 @@ public class SshConnectorModel extends GenericModel<String, Void, Object> {
 			return (AmazonClientException) result;
 		}
 		
+		//now we need the source IP address.
+		try {
+			sourceIpAddress = sourceIpResolution.get();
+		}
+		catch(Exception exception) {
+			//if you can't retrieve it, just return a ConnectionClosedexception
+			sourceIpAddress = null;
+		}
+		if (sourceIpAddress == null) {
+			if (!listActivityUsed) {
+				return new ConnectionClosedException(
+					activity.getString(R.string.sshconnector_cannotretrievehostip));
+			} else {
+				return new ConnectionClosedException(
+						listActivity.getString(R.string.sshconnector_cannotretrievehostip));
+			}
+		}
+		Log.v(TAG, "Your Device's IP address is: " + sourceIpAddress);
 		
-		//now scan through each of the security groups, and check if toPort is open in any of them.
-		//If so, check if this IP address is in the acceptable list
-		for (SerializableSecurityGroup securityGroup: securityGroups) {
-			
-			List<SerializableIpPermission> permissions = securityGroup.getIpPermissions();
+		
+		//now check if toPort is open in any of the security groups, and if so, if this IP
+		//address is in one of the acceptable ranges.
+		CidrMatcher allowedRanges = CidrMatcher.forPort(securityGroups, toPort);
+		boolean portFound = (allowedRanges != null); //set to indicate port was found
+		//used to identify whether the fail was cuz of the port failing, or cuz of the IP address
+		//ranges.
+		
+		if (portFound && allowedRanges.matches(sourceIpAddress)) {
+			//success, everything is fine. IP permissions, the works.
+			String sshUri = "ssh://" + username + "@" + hostname + ":" + toPort;
 			
-			//loop through the permissions
-			for (SerializableIpPermission permission : permissions) {
-				if (permission.getToPort() == toPort) {
-					//check if the IP address is right
-					Log.v(this.getClass().getName(), "" + permission.getIpRanges().toString());
-					
-					portFound = true;
-					
-					//if source IP address is null, i.e. our WAN IP resolver is down, don't
-					//check if this port is blocked for our IP address
-					if (sourceIpAddress != null) {
-						//loop through the acceptable IP address ranges
-						for (String sourceCidr : permission.getIpRanges()) {
-							//split the source IP address along the dots
-							//split the source CIDR along the / to remove CIDR ignore bits, followed 
-							//by along the dots.					
-							if (MiscUtils.checkIpPermissions(sourceIpAddress.split("\\."), 
-									sourceCidr.split("/")[0].split("\\."), 
-									Integer.valueOf(sourceCidr.split("/")[1]))) {
-								//success, everything is fine. IP permissions, the works.
-								String sshUri = "ssh://" + username + "@" + hostname + ":" + toPort;
-								
-								//add nickname to show on ConnectBot screen
-								sshUri += "#" + username + "@" + hostname;
-								return sshUri; 
-							}
-						}
-					}
-				}
-			}
+			//add nickname to show on ConnectBot screen
+			sshUri += "#" + username + "@" + hostname;
+			return sshUri; 
 		}
 		
-		//if we get here, we failed
+		//if we get here, we failed. The user may well go and open up the security groups, so
+		//don't hold on to them.
+		SecurityGroupCache.getCache(connectionData, connectionData.get("endpoint")).invalidate(
+				secGroups);
+		
 		if (portFound) {
 			
 			Log.v(TAG, "Val: " + R.string.sshconnector_ipaddressblocked);
@@ -0,0 +1,231 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.elasticdroid.db.ElasticDroidDB;
+import org.elasticdroid.model.AWSClientFactory.ServiceType;
+import org.elasticdroid.model.orm.WatchedResource;
+import org.elasticdroid.utils.CloudWatchInput;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+
+/**
+ * Polls CloudWatch for all of the watched instances, and writes the datapoints into the
+ * datapoint cache, so that {@link MonitorInstanceModel} finds them there when the user opens
+ * a watched instance.
+ * 
+ * The watched instances are grouped by user, region, namespace, measure and period. Each 
+ * group shares a CloudWatch client, and is polled once per period: CloudWatch does not 
+ * have a new datapoint for it any sooner. The requests for the groups that are due are run 
+ * at most {@link #MAX_CONCURRENT_REQUESTS} at a time.
+ * 
+ * Polling blocks, so do not call it from the UI thread. It is run by 
+ * {@link org.elasticdroid.service.WatchService}.
+ */
+public class WatchPoller {
+
+	/** The shortest time (in msecs) between two polls of a group: 1 minute */
+	public static final long MIN_POLL_INTERVAL = 60000L;
+	/** The maximum number of CloudWatch requests in flight at any time */
+	private static final int MAX_CONCURRENT_REQUESTS = 2;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.WatchPoller";
+	
+	/** The time (msecs since epoch) at which each group was last polled, indexed by group key */
+	private static HashMap<String, Long> lastPolled = new HashMap<String, Long>();
+	/** Executor on which the requests are run. Background priority: nobody is waiting. */
+	private static final ExecutorService pollExecutor = Executors.newFixedThreadPool(
+			MAX_CONCURRENT_REQUESTS, new ThreadFactory() {
+				public Thread newThread(final Runnable runnable) {
+					return new Thread(new Runnable() {
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							runnable.run();
+						}
+					}, "WatchPoller");
+				}
+			});
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private WatchPoller() {
+	}
+	
+	/**
+	 * Poll the groups of watched instances that are due.
+	 * 
+	 * @param context The context to open the DB with.
+	 * @return The time (in msecs) until the next group is due, or -1 if nothing is watched.
+	 * @throws InterruptedException If interrupted while waiting for the requests.
+	 */
+	public static synchronized long poll(Context context) throws InterruptedException {
+		ElasticDroidDB elasticDroidDB = ElasticDroidDB.getInstance(context);
+		ArrayList<WatchedResource> watchedResources;
+		Hashtable<String, ArrayList<String>> userData;
+		
+		try {
+			watchedResources = elasticDroidDB.listWatchedResources("instance");
+			userData = elasticDroidDB.listUserData();
+		}
+		catch (SQLException sqlException) {
+			Log.e(TAG, "Could not read the watch list: " + sqlException.getMessage());
+			return -1;
+		}
+		
+		//group the instances
+		LinkedHashMap<String, ArrayList<WatchedResource>> groups = new LinkedHashMap<String, 
+			ArrayList<WatchedResource>>();
+		for (WatchedResource watchedResource : watchedResources) {
+			ArrayList<WatchedResource> group = groups.get(watchedResource.getGroupKey());
+			if (group == null) {
+				group = new ArrayList<WatchedResource>();
+				groups.put(watchedResource.getGroupKey(), group);
+			}
+			group.add(watchedResource);
+		}
+		//forget about groups nobody watches any more
+		lastPolled.keySet().retainAll(groups.keySet());
+		
+		if (groups.size() == 0) {
+			return -1;
+		}
+		
+		long now = System.currentTimeMillis();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		ArrayList<AmazonCloudWatchClient> leasedClients = new ArrayList<AmazonCloudWatchClient>();
+		try {
+			for (String groupKey : groups.keySet()) {
+				ArrayList<WatchedResource> group = groups.get(groupKey);
+				CloudWatchInput groupInput = group.get(0).getCloudWatchInput();
+				ArrayList<String> credentials = userData.get(group.get(0).getUsername());
+				
+				if ((credentials == null) || (now < getNextPoll(groupKey, groupInput))) {
+					continue;
+				}
+				
+				//one client for the group
+				HashMap<String, String> connectionData = new HashMap<String, String>();
+				connectionData.put("username", group.get(0).getUsername());
+				connectionData.put("accessKey", credentials.get(0));
+				connectionData.put("secretAccessKey", credentials.get(1));
+				AmazonCloudWatchClient cloudWatchClient = (AmazonCloudWatchClient) 
+					AWSClientFactory.leaseClient(connectionData, ServiceType.CLOUDWATCH, 
+							RegionRegistry.getCloudWatchEndpoint(groupInput.getRegion()));
+				leasedClients.add(cloudWatchClient);
+				
+				for (WatchedResource watchedResource : group) {
+					futures.add(pollExecutor.submit(newPollTask(context, cloudWatchClient, 
+							watchedResource)));
+				}
+				lastPolled.put(groupKey, now);
+			}
+			
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException executionException) {
+					//not much we can do about it; we'll try again next time round.
+					Log.e(TAG, "Poll failed: " + executionException.getCause().getMessage());
+				}
+			}
+		}
+		finally {
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+			for (AmazonCloudWatchClient cloudWatchClient : leasedClients) {
+				AWSClientFactory.releaseClient(cloudWatchClient);
+			}
+		}
+		
+		Log.v(TAG, "Polled " + futures.size() + " watched instances in " + groups.size() + 
+				" groups.");
+		
+		//when is the next group due?
+		long nextPoll = Long.MAX_VALUE;
+		for (String groupKey : groups.keySet()) {
+			nextPoll = Math.min(nextPoll, getNextPoll(groupKey, groups.get(groupKey).get(0)
+					.getCloudWatchInput()));
+		}
+		
+		return Math.max(0, nextPoll - System.currentTimeMillis());
+	}
+	
+	/**
+	 * @return The time (msecs since epoch) at which the group is next due. 0 if never polled.
+	 */
+	private static long getNextPoll(String groupKey, CloudWatchInput groupInput) {
+		Long groupLastPolled = lastPolled.get(groupKey);
+		
+		if (groupLastPolled == null) {
+			return 0;
+		}
+		
+		return groupLastPolled + Math.max(MIN_POLL_INTERVAL, groupInput.getPeriod() * 1000L);
+	}
+	
+	/**
+	 * Create a task which brings the datapoint cache for one watched instance up to date, 
+	 * over its default duration.
+	 */
+	private static Runnable newPollTask(final Context context, final AmazonCloudWatchClient 
+			cloudWatchClient, final WatchedResource watchedResource) {
+		return new Runnable() {
+			public void run() {
+				CloudWatchInput cloudWatchInput = watchedResource.getCloudWatchInput();
+				Dimension dimension = new Dimension();
+				dimension.setName("InstanceId");
+				dimension.setValue(watchedResource.getAwsId());
+				
+				//the default duration, ending now.
+				long duration = cloudWatchInput.getEndTime() - cloudWatchInput.getStartTime();
+				cloudWatchInput.setEndTime(System.currentTimeMillis());
+				cloudWatchInput.setStartTime(cloudWatchInput.getEndTime() - duration);
+				
+				try {
+					MonitorInstanceModel.fetchTimeSeries(context, cloudWatchClient, 
+							watchedResource.getUsername(), cloudWatchInput, false, dimension);
+				}
+				catch (AmazonClientException amazonClientException) {
+					Log.e(TAG, "Could not poll " + watchedResource.getAwsId() + ": " + 
+							amazonClientException.getMessage());
+				}
+			}
+		};
+	}
+}
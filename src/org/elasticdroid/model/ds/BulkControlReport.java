@@ -0,0 +1,118 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model.ds;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The combined outcome of a bulk start, stop or tag (see 
+ * {@link org.elasticdroid.model.BulkControlInstancesModel}): for each instance, either the
+ * state it moved to (start/stop) or the error message of the request that covered it.
+ * 
+ * Serializable so that the view can hold on to it across a screen rotation.
+ */
+public class BulkControlReport implements Serializable {
+
+	/**
+	 * Serial Version UID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/** The instances the operation succeeded for, in the order in which they were reported */
+	private ArrayList<String> succeeded;
+	/** The new state name of each instance started or stopped. Empty for tags. */
+	private LinkedHashMap<String, String> newStates;
+	/** The error message for each instance the operation failed for */
+	private LinkedHashMap<String, String> failures;
+	
+	/**
+	 * Create an empty report.
+	 */
+	public BulkControlReport() {
+		succeeded = new ArrayList<String>();
+		newStates = new LinkedHashMap<String, String>();
+		failures = new LinkedHashMap<String, String>();
+	}
+	
+	/**
+	 * Record an instance the operation succeeded for.
+	 * 
+	 * @param instanceId The instance ID.
+	 * @param newState The name of the state it moved to, or null if this was a tag.
+	 */
+	public void addSuccess(String instanceId, String newState) {
+		succeeded.add(instanceId);
+		if (newState != null) {
+			newStates.put(instanceId, newState);
+		}
+	}
+	
+	/**
+	 * Record instances the operation failed for.
+	 * 
+	 * @param instanceIds The instance IDs covered by the failed request.
+	 * @param message The error message.
+	 */
+	public void addFailures(List<String> instanceIds, String message) {
+		for (String instanceId : instanceIds) {
+			failures.put(instanceId, message);
+		}
+	}
+	
+	/**
+	 * @return The number of instances the operation succeeded for.
+	 */
+	public int getSucceededCount() {
+		return succeeded.size();
+	}
+	
+	/**
+	 * @return The number of instances the operation failed for.
+	 */
+	public int getFailedCount() {
+		return failures.size();
+	}
+	
+	/**
+	 * @return The instances the operation succeeded for. Do not modify!
+	 */
+	public List<String> getSucceeded() {
+		return succeeded;
+	}
+	
+	/**
+	 * @param instanceId The instance ID.
+	 * @return The name of the state the instance moved to, or null if it was not started or
+	 * stopped.
+	 */
+	public String getNewState(String instanceId) {
+		return newStates.get(instanceId);
+	}
+	
+	/**
+	 * @return The error message for each instance the operation failed for, in the order in 
+	 * which they were reported. Do not modify!
+	 */
+	public LinkedHashMap<String, String> getFailures() {
+		return failures;
+	}
+}
@@ -0,0 +1,265 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model.ds;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.amazonaws.services.cloudwatch.model.Datapoint;
+
+/**
+ * Holds a CloudWatch time series in columns: one long[] of timestamps, and one double[] of
+ * values per statistic retrieved.
+ *
+ * A List of Datapoints costs a Datapoint, a Date and up to five boxed Doubles per point;
+ * this costs 8 bytes per point per column. It is Encodable, so that we can save it when
+ * the Activity is destroyed.
+ *
+ * The timestamps are in ascending order. Values missing from a point are NaN.
+ */
+public class MetricTimeSeries implements Serializable, ModelCodec.Encodable {
+
+	/**
+	 * The statistics CloudWatch can return for a datapoint.
+	 */
+	public static enum Statistic {
+		AVERAGE("Average"),
+		SUM("Sum"),
+		MINIMUM("Minimum"),
+		MAXIMUM("Maximum"),
+		SAMPLES("Samples");
+
+		/** The name CloudWatch uses for the statistic */
+		private final String name;
+
+		private Statistic(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return The name CloudWatch uses for the statistic.
+		 */
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Serial Version UID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/** The unit of the values. May be null if there are no datapoints. */
+	private final String unit;
+	/** The timestamps (in msecs since epoch), in ascending order */
+	private final long[] timestamps;
+	/** The values, indexed by {@link Statistic#ordinal()}. null for statistics not retrieved */
+	private final double[][] values;
+
+	/**
+	 * Reads time series written by {@link #writeTo(DataOutput)}
+	 */
+	public static final ModelCodec.Decoder<MetricTimeSeries> DECODER = new
+		ModelCodec.Decoder<MetricTimeSeries>() {
+		public MetricTimeSeries readFrom(DataInput in, int version) throws IOException {
+			String unit = ModelCodec.readString(in);
+			long[] timestamps = new long[in.readInt()];
+			double[][] values = new double[Statistic.values().length][];
+
+			for (int idx = 0; idx < timestamps.length; idx ++) {
+				timestamps[idx] = in.readLong();
+			}
+			for (int statistic = 0; statistic < values.length; statistic ++) {
+				if (in.readBoolean()) {
+					values[statistic] = new double[timestamps.length];
+					for (int idx = 0; idx < timestamps.length; idx ++) {
+						values[statistic][idx] = in.readDouble();
+					}
+				}
+			}
+
+			return new MetricTimeSeries(unit, timestamps, values);
+		}
+	};
+
+	/**
+	 * Constructor. The arrays are used as they are, not copied.
+	 *
+	 * @param unit The unit of the values.
+	 * @param timestamps The timestamps (in msecs since epoch), in ascending order.
+	 * @param values The values, indexed by {@link Statistic#ordinal()}. Each array must be as
+	 * long as timestamps, or null if the statistic was not retrieved.
+	 */
+	public MetricTimeSeries(String unit, long[] timestamps, double[][] values) {
+		if (values.length != Statistic.values().length) {
+			throw new IllegalArgumentException("values must have an entry for each statistic.");
+		}
+
+		for (double[] statisticValues : values) {
+			if ((statisticValues != null) && (statisticValues.length != timestamps.length)) {
+				throw new IllegalArgumentException("values and timestamps differ in length.");
+			}
+		}
+
+		this.unit = unit;
+		this.timestamps = timestamps;
+		this.values = values;
+	}
+
+	/**
+	 * Convert a list of datapoints returned by CloudWatch.
+	 *
+	 * @param datapoints The datapoints, in any order.
+	 * @return The time series, in ascending order of timestamp.
+	 */
+	public static MetricTimeSeries fromDatapoints(List<Datapoint> datapoints) {
+		ArrayList<Datapoint> sortedDatapoints = new ArrayList<Datapoint>(datapoints);
+		String unit = null;
+
+		Collections.sort(sortedDatapoints, new Comparator<Datapoint>() {
+			public int compare(Datapoint datapoint1, Datapoint datapoint2) {
+				long timestamp1 = datapoint1.getTimestamp().getTime();
+				long timestamp2 = datapoint2.getTimestamp().getTime();
+
+				return (timestamp1 < timestamp2) ? -1 : ((timestamp1 == timestamp2) ? 0 : 1);
+			}
+		});
+
+		int size = sortedDatapoints.size();
+		long[] timestamps = new long[size];
+		double[][] values = new double[Statistic.values().length][];
+		for (int idx = 0; idx < size; idx ++) {
+			Datapoint datapoint = sortedDatapoints.get(idx);
+
+			if (unit == null) {
+				unit = datapoint.getUnit();
+			}
+
+			timestamps[idx] = datapoint.getTimestamp().getTime();
+			setValue(values, Statistic.AVERAGE, idx, size, datapoint.getAverage());
+			setValue(values, Statistic.SUM, idx, size, datapoint.getSum());
+			setValue(values, Statistic.MINIMUM, idx, size, datapoint.getMinimum());
+			setValue(values, Statistic.MAXIMUM, idx, size, datapoint.getMaximum());
+			setValue(values, Statistic.SAMPLES, idx, size, datapoint.getSamples());
+		}
+
+		return new MetricTimeSeries(unit, timestamps, values);
+	}
+
+	/**
+	 * Set a value in the column for the statistic, creating the column (filled with NaN) if
+	 * need be. Null values are left as NaN.
+	 */
+	private static void setValue(double[][] values, Statistic statistic, int position, int size,
+			Double value) {
+		if (value == null) {
+			return;
+		}
+
+		if (values[statistic.ordinal()] == null) {
+			values[statistic.ordinal()] = new double[size];
+			Arrays.fill(values[statistic.ordinal()], Double.NaN);
+		}
+		values[statistic.ordinal()][position] = value;
+	}
+
+	/**
+	 * @return The number of datapoints.
+	 */
+	public int size() {
+		return timestamps.length;
+	}
+
+	/**
+	 * @return The unit of the values. May be null if there are no datapoints.
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * @param index The datapoint index.
+	 * @return The timestamp (in msecs since epoch) of the datapoint.
+	 */
+	public long getTimestamp(int index) {
+		return timestamps[index];
+	}
+
+	/**
+	 * @param statistic The statistic.
+	 * @param index The datapoint index.
+	 * @return The value of the statistic for the datapoint. NaN if the statistic was not
+	 * retrieved.
+	 */
+	public double getValue(Statistic statistic, int index) {
+		double[] statisticValues = values[statistic.ordinal()];
+
+		return (statisticValues == null) ? Double.NaN : statisticValues[index];
+	}
+
+	/**
+	 * @param statistic The statistic.
+	 * @return true if the statistic was retrieved.
+	 */
+	public boolean hasStatistic(Statistic statistic) {
+		return values[statistic.ordinal()] != null;
+	}
+
+	/**
+	 * @return The timestamps (in msecs since epoch), in ascending order. Do not modify!
+	 */
+	public long[] getTimestamps() {
+		return timestamps;
+	}
+
+	/**
+	 * @param statistic The statistic.
+	 * @return The values for the statistic, or null if it was not retrieved. Do not modify!
+	 */
+	public double[] getValues(Statistic statistic) {
+		return values[statistic.ordinal()];
+	}
+
+	/**
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		ModelCodec.writeString(out, unit);
+		out.writeInt(timestamps.length);
+		for (long timestamp : timestamps) {
+			out.writeLong(timestamp);
+		}
+		//a flag for each statistic saying whether it was retrieved, then its values
+		for (double[] statisticValues : values) {
+			out.writeBoolean(statisticValues != null);
+			if (statisticValues != null) {
+				for (double value : statisticValues) {
+					out.writeDouble(value);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model.ds;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.util.Log;
+
+/**
+ * Compact binary form for the model data we save, to use instead of Java serialization.
+ * 
+ * Java serialization writes out the class descriptors and field names along with the data, 
+ * and uses reflection to do so. The classes here write their fields out by hand, in a fixed
+ * order, much as they do for their Parcelable implementation. Single objects go into Bundles
+ * and Intents as Parcelables. Lists go in as this binary form (see 
+ * {@link #putList(Bundle, String, List)}): a Parcelled list carries the class name of every
+ * item and UTF-16 strings, which makes it about twice the size, and Bundles have to get 
+ * through the binder. The instance snapshots in the DB use this form too.
+ * 
+ * Lists are written with a header holding {@link #MAGIC} and {@link #FORMAT_VERSION}. The 
+ * version is passed on to each class's {@link Decoder}, so that data written by an older 
+ * version can still be read after a class changes what it writes.
+ */
+public class ModelCodec {
+	
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.ds.ModelCodec";
+	/** Identifies data written by this codec: "EDMC" */
+	private static final int MAGIC = 0x45444d43;
+	/** 
+	 * The version of the binary form. Bump this when a class changes what it writes, and 
+	 * teach its Decoder to read the previous version.
+	 */
+	public static final int FORMAT_VERSION = 1;
+	
+	/**
+	 * Implemented by the classes which can write themselves out in the binary form.
+	 */
+	public static interface Encodable {
+		/**
+		 * Write the fields out.
+		 * 
+		 * @param out The output to write to.
+		 * @throws IOException If out does.
+		 */
+		void writeTo(DataOutput out) throws IOException;
+	}
+	
+	/**
+	 * Reads an object back in. Each Encodable class has one, much like a Parcelable's CREATOR.
+	 */
+	public static interface Decoder<T> {
+		/**
+		 * Read the fields in.
+		 * 
+		 * @param in The input to read from.
+		 * @param version The {@link ModelCodec#FORMAT_VERSION} the data was written with.
+		 * @return The object.
+		 * @throws IOException If in does, or the data is not what we expected.
+		 */
+		T readFrom(DataInput in, int version) throws IOException;
+	}
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private ModelCodec() {
+	}
+	
+	/**
+	 * Write a list out in the binary form.
+	 * 
+	 * @param items The items.
+	 * @return The binary form of the list.
+	 */
+	public static byte[] encodeList(List<? extends Encodable> items) {
+		ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(byteStream);
+		
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(items.size());
+			for (Encodable item : items) {
+				item.writeTo(out);
+			}
+			out.flush();
+		}
+		catch (IOException exception) {
+			//writing to a byte array doesn't fail.
+			throw new IllegalStateException(exception);
+		}
+		
+		return byteStream.toByteArray();
+	}
+	
+	/**
+	 * Read a list written by {@link #encodeList(List)} back in.
+	 * 
+	 * @param data The binary form of the list.
+	 * @param decoder The decoder for the items.
+	 * @return The list.
+	 * @throws IOException If the data was not written by this codec, was written by a newer
+	 * version of it, or is truncated.
+	 */
+	public static <T> ArrayList<T> decodeList(byte[] data, Decoder<T> decoder) throws
+		IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not written by ModelCodec.");
+		}
+		
+		int version = in.readInt();
+		if ((version < 1) || (version > FORMAT_VERSION)) {
+			throw new IOException("Unknown format version " + version);
+		}
+		
+		int size = in.readInt();
+		ArrayList<T> items = new ArrayList<T>(size);
+		for (int idx = 0; idx < size; idx ++) {
+			items.add(decoder.readFrom(in, version));
+		}
+		
+		return items;
+	}
+	
+	/**
+	 * Save a list in a Bundle, in the binary form.
+	 * 
+	 * @param bundle The Bundle (from onSaveInstanceState, say).
+	 * @param key The key to save it under.
+	 * @param items The items.
+	 */
+	public static void putList(Bundle bundle, String key, List<? extends Encodable> items) {
+		bundle.putByteArray(key, encodeList(items));
+	}
+	
+	/**
+	 * Get a list saved by {@link #putList(Bundle, String, List)} back.
+	 * 
+	 * @param bundle The Bundle.
+	 * @param key The key it was saved under.
+	 * @param decoder The decoder for the items.
+	 * @return The list, or null if none was saved or it could not be read.
+	 */
+	public static <T> ArrayList<T> getList(Bundle bundle, String key, Decoder<T> decoder) {
+		byte[] data = bundle.getByteArray(key);
+		
+		if (data == null) {
+			return null;
+		}
+		
+		try {
+			return decodeList(data, decoder);
+		}
+		catch (IOException exception) {
+			Log.e(TAG, "Could not read " + key + ": " + exception.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Write a String which may be null.
+	 */
+	public static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+	
+	/**
+	 * Read a String written by {@link #writeString(DataOutput, String)}.
+	 */
+	public static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+	
+	/**
+	 * Write an Integer which may be null.
+	 */
+	public static void writeInteger(DataOutput out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+	
+	/**
+	 * Read an Integer written by {@link #writeInteger(DataOutput, Integer)}.
+	 */
+	public static Integer readInteger(DataInput in) throws IOException {
+		return in.readBoolean() ? Integer.valueOf(in.readInt()) : null;
+	}
+	
+	/**
+	 * Write a collection of Strings, which may be null.
+	 */
+	public static void writeStrings(DataOutput out, Collection<String> values) throws 
+		IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+		
+		out.writeInt(values.size());
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+	
+	/**
+	 * Read the Strings written by {@link #writeStrings(DataOutput, Collection)} into a list.
+	 * 
+	 * @return The Strings, or null if the collection written was null.
+	 */
+	public static ArrayList<String> readStrings(DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		
+		ArrayList<String> values = new ArrayList<String>(size);
+		for (int idx = 0; idx < size; idx ++) {
+			values.add(readString(in));
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Write an Integer which may be null to a Parcel.
+	 */
+	public static void writeInteger(Parcel dest, Integer value) {
+		dest.writeInt((value != null) ? 1 : 0);
+		if (value != null) {
+			dest.writeInt(value);
+		}
+	}
+	
+	/**
+	 * Read an Integer written by {@link #writeInteger(Parcel, Integer)}.
+	 */
+	public static Integer readInteger(Parcel source) {
+		return (source.readInt() != 0) ? Integer.valueOf(source.readInt()) : null;
+	}
+}
@@ -18,18 +18,25 @@
  */
 package org.elasticdroid.model.ds;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 /**
  * Holds information about an IP address.
  * 
  * This is Serializable, and has been created so that we can save the object
- * when the Activity is destroyed.
+ * when the Activity is destroyed. It is Parcelled rather than serialized into Bundles; see
+ * {@link ModelCodec}.
  * @author siddhu
  *
  * 26 Dec 2010
  */
-public class SerializableAddress implements Serializable {
+public class SerializableAddress implements Serializable, Parcelable, ModelCodec.Encodable {
 
 	/**
 	 * Serial Version UID 
@@ -45,6 +52,42 @@ public class SerializableAddress implements Serializable {
 	 */
 	private String instanceId;
 	
+	/** Creates SerializableAddresses from Parcels */
+	public static final Parcelable.Creator<SerializableAddress> CREATOR = new 
+		Parcelable.Creator<SerializableAddress>() {
+		public SerializableAddress createFromParcel(Parcel source) {
+			SerializableAddress address = new SerializableAddress();
+			
+			address.publicIp = source.readString();
+			address.instanceId = source.readString();
+			
+			return address;
+		}
+		
+		public SerializableAddress[] newArray(int size) {
+			return new SerializableAddress[size];
+		}
+	};
+	
+	/** Reads SerializableAddresses written by {@link #writeTo(DataOutput)} */
+	public static final ModelCodec.Decoder<SerializableAddress> DECODER = new 
+		ModelCodec.Decoder<SerializableAddress>() {
+		public SerializableAddress readFrom(DataInput in, int version) throws IOException {
+			SerializableAddress address = new SerializableAddress();
+			
+			address.publicIp = ModelCodec.readString(in);
+			address.instanceId = ModelCodec.readString(in);
+			
+			return address;
+		}
+	};
+	
+	/**
+	 * Used by {@link #CREATOR} and {@link #DECODER}, which fill in the fields.
+	 */
+	private SerializableAddress() {
+	}
+	
 	/**
 	 * Constructor to create a SerializableAddress object
 	 * @param publicIp: IP Address
@@ -75,4 +118,27 @@ public class SerializableAddress implements Serializable {
 	public String getPublicIp() {
 		return publicIp;
 	}
+	
+	/**
+	 * @see android.os.Parcelable#describeContents()
+	 */
+	public int describeContents() {
+		return 0;
+	}
+	
+	/**
+	 * @see android.os.Parcelable#writeToParcel(android.os.Parcel, int)
+	 */
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeString(publicIp);
+		dest.writeString(instanceId);
+	}
+	
+	/**
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		ModelCodec.writeString(out, publicIp);
+		ModelCodec.writeString(out, instanceId);
+	}
 }
@@ -18,9 +18,15 @@
  */
 package org.elasticdroid.model.ds;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.amazonaws.services.ec2.model.Instance;
 import com.amazonaws.services.ec2.model.Tag;
 
@@ -44,14 +50,72 @@ import com.amazonaws.services.ec2.model.Tag;
  * Hence, this. This class may require some additional maintenance if the AWS API changes 
  * significantly.
  * 
+ * It is still Serializable, but is Parcelled into Bundles and Intents, and saved in the 
+ * {@link ModelCodec} binary form; both are a lot smaller and quicker than serialization. 
+ * Add any new field to writeToParcel, writeTo and both readers.
+ * 
  * @author Siddhu Warrier
  *
  * 8 Dec 2010
  */
-public class SerializableInstance implements Serializable {
+public class SerializableInstance implements Serializable, Parcelable, ModelCodec.Encodable {
 
 	private static final long serialVersionUID = 1L;
 	
+	/** Creates SerializableInstances from Parcels */
+	public static final Parcelable.Creator<SerializableInstance> CREATOR = new 
+		Parcelable.Creator<SerializableInstance>() {
+		public SerializableInstance createFromParcel(Parcel source) {
+			SerializableInstance instance = new SerializableInstance();
+			
+			instance.instanceId = source.readString();
+			instance.stateName = source.readString();
+			instance.stateCode = ModelCodec.readInteger(source);
+			instance.tagName = source.readString();
+			instance.keyName = source.readString();
+			instance.securityGroupNames = source.createStringArrayList();
+			instance.instanceType = source.readString();
+			instance.platform = source.readString();
+			instance.launchTime = source.readLong();
+			instance.publicIpAddress = source.readString();
+			instance.publicDnsName = source.readString();
+			instance.imageId = source.readString();
+			instance.rootDeviceType = source.readString();
+			instance.lastUpdated = source.readLong();
+			
+			return instance;
+		}
+		
+		public SerializableInstance[] newArray(int size) {
+			return new SerializableInstance[size];
+		}
+	};
+	
+	/** Reads SerializableInstances written by {@link #writeTo(DataOutput)} */
+	public static final ModelCodec.Decoder<SerializableInstance> DECODER = new 
+		ModelCodec.Decoder<SerializableInstance>() {
+		public SerializableInstance readFrom(DataInput in, int version) throws IOException {
+			SerializableInstance instance = new SerializableInstance();
+			
+			instance.instanceId = ModelCodec.readString(in);
+			instance.stateName = ModelCodec.readString(in);
+			instance.stateCode = ModelCodec.readInteger(in);
+			instance.tagName = ModelCodec.readString(in);
+			instance.keyName = ModelCodec.readString(in);
+			instance.securityGroupNames = ModelCodec.readStrings(in);
+			instance.instanceType = ModelCodec.readString(in);
+			instance.platform = ModelCodec.readString(in);
+			instance.launchTime = in.readLong();
+			instance.publicIpAddress = ModelCodec.readString(in);
+			instance.publicDnsName = ModelCodec.readString(in);
+			instance.imageId = ModelCodec.readString(in);
+			instance.rootDeviceType = ModelCodec.readString(in);
+			instance.lastUpdated = in.readLong();
+			
+			return instance;
+		}
+	};
+	
 	//all of the private members required by the Activities. Add as required
 	/**Tag with key=name (if any). We are not interested in any other sort of tag.*/
 	private String tagName;
@@ -84,6 +148,11 @@ public class SerializableInstance implements Serializable {
 	 * Accepted values: ebs | instance-store
 	 */
 	private String rootDeviceType;
+	/** 
+	 * The time (msecs since epoch) at which this data was retrieved from AWS. Lets the views
+	 * mark instances shown from a saved snapshot as out of date.
+	 */
+	private long lastUpdated;
 	
 	/**
 	 * Constructor. Initialises all of the members with data from the instance passed in as param.
@@ -104,6 +173,7 @@ public class SerializableInstance implements Serializable {
 		publicDnsName = instance.getPublicDnsName();
 		imageId = instance.getImageId();
 		rootDeviceType = instance.getRootDeviceType();
+		lastUpdated = System.currentTimeMillis();
 		
 		//security groups are not per-instance, but per-reservation
 		//AWS allows you to launch multiple instances with the same characteristics. These 
@@ -124,6 +194,12 @@ public class SerializableInstance implements Serializable {
 		}
 	}
 	
+	/**
+	 * Used by {@link #CREATOR} and {@link #DECODER}, which fill in the fields.
+	 */
+	private SerializableInstance() {
+	}
+	
 	/**
 	 * Get the instance Id for this {@link SerializableInstance}.
 	 * @return {@link SerializableInstance#instanceId}
@@ -156,6 +232,14 @@ public class SerializableInstance implements Serializable {
 		return launchTime;
 	}
 
+	/**
+	 * Get the time at which this data was retrieved from AWS.
+	 * @return {@link SerializableInstance#lastUpdated}
+	 */
+	public long getLastUpdated() {
+		return lastUpdated;
+	}
+	
 	/**
 	 * Get the public IP Address for this {@link SerializableInstance}
 	 * @return {@link SerializableInstance#publicIpAddress}
@@ -251,4 +335,80 @@ public class SerializableInstance implements Serializable {
 	public void setTag(String tag) {
 		this.tagName = tag;
 	}
+	
+	/**
+	 * Check whether another {@link SerializableInstance} holds the same data as this one.
+	 * {@link SerializableInstance#lastUpdated} is not compared.
+	 * 
+	 * @param other The other instance.
+	 * @return true if all of the data we hold about the instance is the same.
+	 */
+	public boolean hasSameData(SerializableInstance other) {
+		return isEqual(instanceId, other.instanceId) && isEqual(stateCode, other.stateCode) &&
+			isEqual(stateName, other.stateName) && isEqual(tagName, other.tagName) && 
+			isEqual(keyName, other.keyName) && isEqual(instanceType, other.instanceType) &&
+			isEqual(platform, other.platform) && (launchTime == other.launchTime) &&
+			isEqual(publicIpAddress, other.publicIpAddress) && 
+			isEqual(publicDnsName, other.publicDnsName) && isEqual(imageId, other.imageId) &&
+			isEqual(rootDeviceType, other.rootDeviceType) && 
+			isEqual(securityGroupNames, other.securityGroupNames);
+	}
+	
+	/**
+	 * @see android.os.Parcelable#describeContents()
+	 */
+	public int describeContents() {
+		return 0;
+	}
+	
+	/**
+	 * Write the fields out in the order {@link #CREATOR} reads them.
+	 * 
+	 * @see android.os.Parcelable#writeToParcel(android.os.Parcel, int)
+	 */
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeString(instanceId);
+		dest.writeString(stateName);
+		ModelCodec.writeInteger(dest, stateCode);
+		dest.writeString(tagName);
+		dest.writeString(keyName);
+		dest.writeStringList(securityGroupNames);
+		dest.writeString(instanceType);
+		dest.writeString(platform);
+		dest.writeLong(launchTime);
+		dest.writeString(publicIpAddress);
+		dest.writeString(publicDnsName);
+		dest.writeString(imageId);
+		dest.writeString(rootDeviceType);
+		dest.writeLong(lastUpdated);
+	}
+	
+	/**
+	 * Write the fields out in the order {@link #DECODER} reads them.
+	 * 
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		ModelCodec.writeString(out, instanceId);
+		ModelCodec.writeString(out, stateName);
+		ModelCodec.writeInteger(out, stateCode);
+		ModelCodec.writeString(out, tagName);
+		ModelCodec.writeString(out, keyName);
+		ModelCodec.writeStrings(out, securityGroupNames);
+		ModelCodec.writeString(out, instanceType);
+		ModelCodec.writeString(out, platform);
+		out.writeLong(launchTime);
+		ModelCodec.writeString(out, publicIpAddress);
+		ModelCodec.writeString(out, publicDnsName);
+		ModelCodec.writeString(out, imageId);
+		ModelCodec.writeString(out, rootDeviceType);
+		out.writeLong(lastUpdated);
+	}
+	
+	/**
+	 * null-safe equals.
+	 */
+	private static boolean isEqual(Object object1, Object object2) {
+		return (object1 == null) ? (object2 == null) : object1.equals(object2);
+	}
 }
@@ -18,17 +18,27 @@
  */
 package org.elasticdroid.model.ds;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.amazonaws.services.ec2.model.IpPermission;
 
 /**
+ * Holds an IP permission of a security group. Parcelled into Bundles along with the 
+ * {@link SerializableSecurityGroup}; see {@link ModelCodec}.
+ * 
  * @author siddhu
  *
  * 27 Dec 2010
  */
-public class SerializableIpPermission implements Serializable {
+public class SerializableIpPermission implements Serializable, Parcelable, 
+	ModelCodec.Encodable {
 
 	/** From port */
 	private Integer fromPort;
@@ -44,6 +54,47 @@ public class SerializableIpPermission implements Serializable {
 	 */
 	private static final long serialVersionUID = 1L;
 	
+	/** Creates SerializableIpPermissions from Parcels */
+	public static final Parcelable.Creator<SerializableIpPermission> CREATOR = new 
+		Parcelable.Creator<SerializableIpPermission>() {
+		public SerializableIpPermission createFromParcel(Parcel source) {
+			SerializableIpPermission ipPermission = new SerializableIpPermission();
+			
+			ipPermission.fromPort = ModelCodec.readInteger(source);
+			ipPermission.toPort = ModelCodec.readInteger(source);
+			ipPermission.ipProtocol = source.readString();
+			ipPermission.ipRanges = source.createStringArrayList();
+			
+			return ipPermission;
+		}
+		
+		public SerializableIpPermission[] newArray(int size) {
+			return new SerializableIpPermission[size];
+		}
+	};
+	
+	/** Reads SerializableIpPermissions written by {@link #writeTo(DataOutput)} */
+	public static final ModelCodec.Decoder<SerializableIpPermission> DECODER = new 
+		ModelCodec.Decoder<SerializableIpPermission>() {
+		public SerializableIpPermission readFrom(DataInput in, int version) throws 
+			IOException {
+			SerializableIpPermission ipPermission = new SerializableIpPermission();
+			
+			ipPermission.fromPort = ModelCodec.readInteger(in);
+			ipPermission.toPort = ModelCodec.readInteger(in);
+			ipPermission.ipProtocol = ModelCodec.readString(in);
+			ipPermission.ipRanges = ModelCodec.readStrings(in);
+			
+			return ipPermission;
+		}
+	};
+	
+	/**
+	 * Used by {@link #CREATOR} and {@link #DECODER}, which fill in the fields.
+	 */
+	private SerializableIpPermission() {
+	}
+	
 	/**
 	 * Constructor to build SerializableIpPermission from IpPermission
 	 * @param ipPermission
@@ -87,4 +138,31 @@ public class SerializableIpPermission implements Serializable {
 	public String getIpProtocol() {
 		return ipProtocol;
 	}
+	
+	/**
+	 * @see android.os.Parcelable#describeContents()
+	 */
+	public int describeContents() {
+		return 0;
+	}
+	
+	/**
+	 * @see android.os.Parcelable#writeToParcel(android.os.Parcel, int)
+	 */
+	public void writeToParcel(Parcel dest, int flags) {
+		ModelCodec.writeInteger(dest, fromPort);
+		ModelCodec.writeInteger(dest, toPort);
+		dest.writeString(ipProtocol);
+		dest.writeStringList(ipRanges);
+	}
+	
+	/**
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		ModelCodec.writeInteger(out, fromPort);
+		ModelCodec.writeInteger(out, toPort);
+		ModelCodec.writeString(out, ipProtocol);
+		ModelCodec.writeStrings(out, ipRanges);
+	}
 }
@@ -1,10 +1,15 @@
 package org.elasticdroid.model.ds;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.Log;
 
 import com.amazonaws.services.ec2.model.IpPermission;
@@ -32,15 +37,59 @@ import com.amazonaws.services.ec2.model.SecurityGroup;
  * Hence, this. This class may require some additional maintenance if the AWS
  * API changes significantly.
  * 
+ * It is Parcelled rather than serialized into Bundles; see {@link ModelCodec}.
+ * 
  * @author Rodolfo Cartas
  * 
  *         27 Dec 2010
  */
 
-public class SerializableSecurityGroup implements Serializable {
+public class SerializableSecurityGroup implements Serializable, Parcelable,
+		ModelCodec.Encodable {
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Creates SerializableSecurityGroups from Parcels
+	 */
+	public static final Parcelable.Creator<SerializableSecurityGroup> CREATOR =
+		new Parcelable.Creator<SerializableSecurityGroup>() {
+		public SerializableSecurityGroup createFromParcel(Parcel source) {
+			SerializableSecurityGroup securityGroup = new SerializableSecurityGroup(
+					source.readString(), source.readString(), source.readString());
+
+			source.readTypedList(securityGroup.ipPermissions,
+					SerializableIpPermission.CREATOR);
+
+			return securityGroup;
+		}
+
+		public SerializableSecurityGroup[] newArray(int size) {
+			return new SerializableSecurityGroup[size];
+		}
+	};
+
+	/**
+	 * Reads SerializableSecurityGroups written by {@link #writeTo(DataOutput)}
+	 */
+	public static final ModelCodec.Decoder<SerializableSecurityGroup> DECODER =
+		new ModelCodec.Decoder<SerializableSecurityGroup>() {
+		public SerializableSecurityGroup readFrom(DataInput in, int version)
+				throws IOException {
+			SerializableSecurityGroup securityGroup = new SerializableSecurityGroup(
+					ModelCodec.readString(in), ModelCodec.readString(in),
+					ModelCodec.readString(in));
+
+			int size = in.readInt();
+			for (int idx = 0; idx < size; idx ++) {
+				securityGroup.ipPermissions.add(SerializableIpPermission.DECODER
+						.readFrom(in, version));
+			}
+
+			return securityGroup;
+		}
+	};
+
 	/**
 	 * Owner Id
 	 */
@@ -156,4 +205,39 @@ public class SerializableSecurityGroup implements Serializable {
 		return new ArrayList<String>(Arrays.asList(openPorts.keySet().toArray(
 				new String[openPorts.keySet().size()])));
 	}
+
+	/**
+	 * @see android.os.Parcelable#describeContents()
+	 */
+	public int describeContents() {
+		return 0;
+	}
+
+	/**
+	 * Write the fields out in the order {@link #CREATOR} reads them.
+	 * 
+	 * @see android.os.Parcelable#writeToParcel(android.os.Parcel, int)
+	 */
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeString(ownerId);
+		dest.writeString(groupName);
+		dest.writeString(description);
+		dest.writeTypedList(ipPermissions);
+	}
+
+	/**
+	 * Write the fields out in the order {@link #DECODER} reads them.
+	 * 
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		ModelCodec.writeString(out, ownerId);
+		ModelCodec.writeString(out, groupName);
+		ModelCodec.writeString(out, description);
+
+		out.writeInt(ipPermissions.size());
+		for (SerializableIpPermission ipPermission : ipPermissions) {
+			ipPermission.writeTo(out);
+		}
+	}
 }
@@ -23,16 +23,26 @@ package org.elasticdroid.model.orm;
  * Holds information about an InstanceGroup
  * 
  * This is Serializable, and has been created so that we can save the object
- * when the Activity is destroyed.
+ * when the Activity is destroyed. It can also be Parcelled; see {@link ModelCodec}.
  * @author rodolfo
  *
  * 17 Ene 2011
  */
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Set;
 
+import org.elasticdroid.model.ds.ModelCodec;
 
-public class InstanceGroup implements Serializable {
+import android.os.Parcel;
+import android.os.Parcelable;
+
+
+public class InstanceGroup implements Serializable, Parcelable, ModelCodec.Encodable {
 
 	/**
 	 * Serial Version UID 
@@ -54,6 +64,38 @@ public class InstanceGroup implements Serializable {
 	 */
 	private Set<String> instanceIds;
 	
+	/**
+	 * Creates InstanceGroups from Parcels
+	 */
+	public static final Parcelable.Creator<InstanceGroup> CREATOR = new 
+		Parcelable.Creator<InstanceGroup>() {
+		public InstanceGroup createFromParcel(Parcel source) {
+			InstanceGroup instanceGroup = new InstanceGroup(source.readLong(), 
+					source.readString());
+			
+			instanceGroup.instanceIds = toSet(source.createStringArrayList());
+			return instanceGroup;
+		}
+		
+		public InstanceGroup[] newArray(int size) {
+			return new InstanceGroup[size];
+		}
+	};
+	
+	/**
+	 * Reads InstanceGroups written by {@link #writeTo(DataOutput)}
+	 */
+	public static final ModelCodec.Decoder<InstanceGroup> DECODER = new 
+		ModelCodec.Decoder<InstanceGroup>() {
+		public InstanceGroup readFrom(DataInput in, int version) throws IOException {
+			InstanceGroup instanceGroup = new InstanceGroup(in.readLong(), 
+					ModelCodec.readString(in));
+			
+			instanceGroup.instanceIds = toSet(ModelCodec.readStrings(in));
+			return instanceGroup;
+		}
+	};
+	
 	/**
 	 * Constructor to create an instance group
 	 * 
@@ -89,4 +131,36 @@ public class InstanceGroup implements Serializable {
 		this.instanceIds = instanceIds;
 	}
 	
+	/**
+	 * @see android.os.Parcelable#describeContents()
+	 */
+	public int describeContents() {
+		return 0;
+	}
+	
+	/**
+	 * @see android.os.Parcelable#writeToParcel(android.os.Parcel, int)
+	 */
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeLong(id);
+		dest.writeString(groupName);
+		dest.writeStringList((instanceIds != null) ? new ArrayList<String>(instanceIds) : null);
+	}
+	
+	/**
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(id);
+		ModelCodec.writeString(out, groupName);
+		ModelCodec.writeStrings(out, instanceIds);
+	}
+	
+	/**
+	 * @return The instance IDs in a HashSet, or null if there were none.
+	 */
+	private static Set<String> toSet(ArrayList<String> instanceIds) {
+		return (instanceIds != null) ? new HashSet<String>(instanceIds) : null;
+	}
+	
 }
@@ -0,0 +1,81 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model.orm;
+
+import org.elasticdroid.utils.CloudWatchInput;
+
+/**
+ * Holds a resource on a user's watch list, along with the monitoring defaults it is to be
+ * polled with. Read from MonitorTbl by
+ * {@link org.elasticdroid.db.ElasticDroidDB#listWatchedResources(String)}.
+ */
+public class WatchedResource {
+
+	/** The AWS username the resource belongs to */
+	private final String username;
+	/** The AWS ID of the resource (instance ID) */
+	private final String awsId;
+	/** The default measure name, namespace, period and region for the resource */
+	private final CloudWatchInput cloudWatchInput;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param username The AWS username the resource belongs to.
+	 * @param awsId The AWS ID of the resource.
+	 * @param cloudWatchInput The monitoring defaults. The start and end times cover the 
+	 * default duration, ending at the time the resource was read from the DB.
+	 */
+	public WatchedResource(String username, String awsId, CloudWatchInput cloudWatchInput) {
+		this.username = username;
+		this.awsId = awsId;
+		this.cloudWatchInput = cloudWatchInput;
+	}
+	
+	/**
+	 * @return The AWS username the resource belongs to.
+	 */
+	public String getUsername() {
+		return username;
+	}
+	
+	/**
+	 * @return The AWS ID of the resource.
+	 */
+	public String getAwsId() {
+		return awsId;
+	}
+	
+	/**
+	 * @return The monitoring defaults for the resource.
+	 */
+	public CloudWatchInput getCloudWatchInput() {
+		return cloudWatchInput;
+	}
+	
+	/**
+	 * @return The key of the group this resource is polled with: resources of the same user,
+	 * region, namespace, measure and period are polled together.
+	 */
+	public String getGroupKey() {
+		return username + "|" + cloudWatchInput.getRegion() + "|" + cloudWatchInput
+			.getNamespace() + "|" + cloudWatchInput.getMeasureName() + "|" + cloudWatchInput
+			.getPeriod();
+	}
+}
@@ -18,7 +18,14 @@
  */
 package org.elasticdroid.model.tpl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.Future;
+
 import org.elasticdroid.R;
+import org.elasticdroid.model.AWSClientFactory;
+import org.elasticdroid.model.RegionRegistry;
 import org.elasticdroid.tpl.GenericActivity;
 import org.elasticdroid.tpl.GenericListActivity;
 import org.elasticdroid.utils.DialogConstants;
@@ -26,18 +33,63 @@ import org.elasticdroid.utils.DialogConstants;
 import android.app.Dialog;
 import android.app.ProgressDialog;
 import android.app.Service;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+
 /**
- * Abstract class to add a few additional must-implement methods to AsyncTask.
+ * Abstract class for the models. Works like AsyncTask (doInBackground in a background thread,
+ * the rest in the UI thread), with a few additional must-implement methods.
  * 
- * This stays abstract so that I don't have to implement ASyncTask methods here.
+ * Unlike AsyncTask, the models run on {@link ModelExecutor}, which has its own threads and 
+ * serves {@link ModelExecutor.Priority#USER_INITIATED} models before 
+ * {@link ModelExecutor.Priority#BACKGROUND} ones. And cancelling a model aborts the AWS 
+ * requests it has in flight, as long as it gets its clients using 
+ * {@link #getEC2Client(HashMap, String)} and {@link #getCloudWatchClient(HashMap, String)}.
+ * 
+ * This stays abstract so that I don't have to implement doInBackground here.
  * @author Siddhu Warrier
  *
  * 3 Nov 2010
  */
-public abstract class GenericModel<T,U,V> extends AsyncTask<T, U, V> {
+public abstract class GenericModel<T,U,V> {
+	
+	/**
+	 * The state the model is in. Same as AsyncTask.Status.
+	 */
+	public static enum Status {
+		/** Not executed yet */
+		PENDING,
+		/** Executing */
+		RUNNING,
+		/** onPostExecute or onCancelled has been called */
+		FINISHED
+	}
+	
+	/** Handler used to get back on to the UI thread */
+	private static final Handler uiHandler = new Handler(Looper.getMainLooper());
+	
+	/** The state the model is in. Only changed on the UI thread. */
+	private volatile Status status = Status.PENDING;
+	/** Set when the model is cancelled */
+	private volatile boolean cancelled;
+	/** Set by doInBackground if the result is to be passed in later by deliverResult */
+	private volatile boolean resultDeferred;
+	/** The lane the model is executed in */
+	private ModelExecutor.Priority priority = ModelExecutor.Priority.USER_INITIATED;
+	/** The future for doInBackground, used to interrupt it */
+	private Future<?> future;
+	/** true while execute() is running doInBackground; clients are only leased then */
+	private volatile boolean inBackground;
+	/** The AWS clients leased by this model; a client appears once per lease */
+	private final ArrayList<AmazonWebServiceClient> leasedClients = new 
+		ArrayList<AmazonWebServiceClient>();
+	
 	/** The activity to call */
 	protected GenericActivity activity;
 	/** The list activity to call */
@@ -54,6 +106,8 @@ public abstract class GenericModel<T,U,V> extends AsyncTask<T, U, V> {
 	public GenericModel(GenericActivity activity) {
 		this.activity = activity;
 		this.listActivity = null; //redundant instruction. But ah well...
+		//let the region registry get at the DB.
+		RegionRegistry.setContext(activity);
 	}
 	
 	/**
@@ -66,12 +120,297 @@ public abstract class GenericModel<T,U,V> extends AsyncTask<T, U, V> {
 		this.listActivity = listActivity;
 		this.activity = null; //redundant instruction. But ah well...
 		this.listActivityUsed = true; //this will be used in onPreExecute and onPostExcecute()
+		//let the region registry get at the DB.
+		RegionRegistry.setContext(listActivity);
+	}
+	
+	/**
+	 * Execute the model. Must be called from the UI thread, and only once per model.
+	 * 
+	 * @param params The parameters passed on to doInBackground.
+	 * @return this model.
+	 * @throws IllegalStateException if the model has already been executed.
+	 */
+	@SuppressWarnings("unchecked")
+	public final GenericModel<T,U,V> execute(final T... params) {
+		if (status != Status.PENDING) {
+			throw new IllegalStateException("Cannot execute model: it has already been " +
+					"executed.");
+		}
+		
+		status = Status.RUNNING;
+		onPreExecute();
+		
+		future = ModelExecutor.execute(new Runnable() {
+			public void run() {
+				V result = null;
+				
+				inBackground = true;
+				try {
+					if (!cancelled) {
+						result = doInBackground(params);
+					}
+				}
+				catch (final RuntimeException exception) {
+					//the clients were aborted under our feet, or we could not get one. Nobody 
+					//is waiting for the results anyway.
+					if (cancelled) {
+						return;
+					}
+					//same as AsyncTask: blow up in the UI thread.
+					uiHandler.post(new Runnable() {
+						public void run() {
+							throw new RuntimeException("An error occured while executing " +
+									"doInBackground()", exception);
+						}
+					});
+					return;
+				}
+				finally {
+					releaseClients();
+				}
+				
+				//somebody else will call deliverResult.
+				if (resultDeferred) {
+					return;
+				}
+				
+				final V finalResult = result;
+				uiHandler.post(new Runnable() {
+					public void run() {
+						finish(finalResult);
+					}
+				});
+			}
+		}, priority);
+		
+		return this;
+	}
+	
+	/**
+	 * Called in the *background thread* to do the model's work.
+	 * 
+	 * @param params The parameters passed to execute.
+	 * @return The result passed to onPostExecute.
+	 */
+	@SuppressWarnings("unchecked")
+	protected abstract V doInBackground(T... params);
+	
+	/**
+	 * Cancel the model. doInBackground is interrupted if mayInterruptIfRunning is set, the AWS
+	 * requests it has in flight are aborted, and onCancelled is called in the UI thread 
+	 * instead of onPostExecute.
+	 * 
+	 * @param mayInterruptIfRunning true if the background thread should be interrupted.
+	 * @return false if the model could not be cancelled because it had already finished or
+	 * had already been cancelled.
+	 */
+	public final boolean cancel(boolean mayInterruptIfRunning) {
+		if ((status == Status.FINISHED) || cancelled) {
+			return false;
+		}
+		
+		cancelled = true;
+		if (future != null) {
+			future.cancel(mayInterruptIfRunning);
+		}
+		abortClients();
+		
+		//doInBackground may not return for a while (or at all, if it never got a thread), so 
+		//let the activity know right away.
+		uiHandler.post(new Runnable() {
+			public void run() {
+				finish(null);
+			}
+		});
+		
+		return true;
+	}
+	
+	/**
+	 * @return true if the model has been cancelled. doInBackground should check this 
+	 * between requests, and give up if set.
+	 */
+	public final boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * @return The state the model is in.
+	 */
+	public final Status getStatus() {
+		return status;
+	}
+	
+	/**
+	 * Set the lane the model executes in. Must be called before execute.
+	 * Defaults to {@link ModelExecutor.Priority#USER_INITIATED}.
+	 * 
+	 * @param priority The priority
+	 */
+	public void setPriority(ModelExecutor.Priority priority) {
+		this.priority = priority;
+	}
+	
+	/**
+	 * Called from doInBackground to pass partial results on to the UI thread. Ignored once the
+	 * model has been cancelled.
+	 * 
+	 * @param values The partial results.
+	 */
+	@SuppressWarnings("unchecked")
+	protected final void publishProgress(final U... values) {
+		if (cancelled) {
+			return;
+		}
+		
+		uiHandler.post(new Runnable() {
+			public void run() {
+				if (!cancelled && (status != Status.FINISHED)) {
+					onProgressUpdate(values);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Called from doInBackground to say that the result will be passed in later using 
+	 * {@link #deliverResult(Object)}, rather than returned. This lets a model wait for 
+	 * something (an instance changing state, say) without holding on to a thread. The value
+	 * doInBackground returns is ignored.
+	 */
+	protected final void deferResult() {
+		resultDeferred = true;
+	}
+	
+	/**
+	 * Pass in the result of a model whose doInBackground called {@link #deferResult()}. May be
+	 * called from any thread. Ignored if the model has been cancelled or has already finished.
+	 * 
+	 * @param result The result passed to onPostExecute.
+	 */
+	protected final void deliverResult(final V result) {
+		uiHandler.post(new Runnable() {
+			public void run() {
+				finish(result);
+			}
+		});
+	}
+	
+	/**
+	 * Get a shared EC2 client, which is aborted if the model is cancelled. When the model is
+	 * called directly rather than through execute(), the client is not leased, as there is
+	 * nothing to cancel and nothing to release the lease.
+	 * 
+	 * @param connectionData The AWS connection data. Requires keys accessKey and secretAccessKey.
+	 * @param endpoint The EC2 endpoint to talk to. Pass null to use the SDK default.
+	 * @return A (possibly shared) AmazonEC2Client with its endpoint set.
+	 * @throws AmazonClientException If the model has been cancelled.
+	 */
+	protected AmazonEC2Client getEC2Client(HashMap<String, String> connectionData, 
+			String endpoint) {
+		return (AmazonEC2Client) leaseClient(connectionData, AWSClientFactory.ServiceType.EC2, 
+				endpoint);
+	}
+	
+	/**
+	 * Get a shared CloudWatch client, which is aborted if the model is cancelled. Not leased
+	 * when the model is called directly; see {@link #getEC2Client(HashMap, String)}.
+	 * 
+	 * @param connectionData The AWS connection data. Requires keys accessKey and secretAccessKey.
+	 * @param endpoint The CloudWatch endpoint to talk to. Pass null to use the SDK default.
+	 * @return A (possibly shared) AmazonCloudWatchClient with its endpoint set.
+	 * @throws AmazonClientException If the model has been cancelled.
+	 */
+	protected AmazonCloudWatchClient getCloudWatchClient(HashMap<String, String> connectionData, 
+			String endpoint) {
+		return (AmazonCloudWatchClient) leaseClient(connectionData, 
+				AWSClientFactory.ServiceType.CLOUDWATCH, endpoint);
+	}
+	
+	/**
+	 * Lease a client from {@link AWSClientFactory}, and remember it so that it can be aborted
+	 * on cancel and released when doInBackground is done. Outside execute(), the shared client is
+	 * returned without a lease.
+	 */
+	private AmazonWebServiceClient leaseClient(HashMap<String, String> connectionData, 
+			AWSClientFactory.ServiceType serviceType, String endpoint) {
+		synchronized (leasedClients) {
+			//checked under the lock, so that abortClients cannot miss this client.
+			if (cancelled) {
+				throw new AmazonClientException("Model cancelled.");
+			}
+			//called directly, not from execute(): nothing would ever release the lease.
+			if (!inBackground) {
+				return (serviceType == AWSClientFactory.ServiceType.EC2) ? 
+						AWSClientFactory.getEC2Client(connectionData, endpoint) : 
+						AWSClientFactory.getCloudWatchClient(connectionData, endpoint);
+			}
+			
+			AmazonWebServiceClient client = AWSClientFactory.leaseClient(connectionData, 
+					serviceType, endpoint);
+			leasedClients.add(client);
+			
+			return client;
+		}
+	}
+	
+	/**
+	 * Abort the clients this model holds leases on.
+	 */
+	private void abortClients() {
+		IdentityHashMap<AmazonWebServiceClient, Integer> leaseCounts = new 
+			IdentityHashMap<AmazonWebServiceClient, Integer>();
+		
+		synchronized (leasedClients) {
+			for (AmazonWebServiceClient client : leasedClients) {
+				Integer count = leaseCounts.get(client);
+				leaseCounts.put(client, (count == null) ? 1 : count + 1);
+			}
+		}
+		
+		for (AmazonWebServiceClient client : leaseCounts.keySet()) {
+			AWSClientFactory.abortClient(client, leaseCounts.get(client));
+		}
+	}
+	
+	/**
+	 * Release the clients this model holds leases on.
+	 */
+	private void releaseClients() {
+		synchronized (leasedClients) {
+			//under the lock, so that leaseClient cannot add a client once we are done.
+			inBackground = false;
+			for (AmazonWebServiceClient client : leasedClients) {
+				AWSClientFactory.releaseClient(client);
+			}
+			leasedClients.clear();
+		}
+	}
+	
+	/**
+	 * Called in the *UI thread* when the model is done, or has been cancelled. Calls 
+	 * onCancelled or onPostExecute, once.
+	 * 
+	 * @param result The results returned by doInBackground
+	 */
+	private void finish(V result) {
+		if (status == Status.FINISHED) {
+			return;
+		}
+		
+		status = Status.FINISHED;
+		if (cancelled) {
+			onCancelled();
+		}
+		else {
+			onPostExecute(result);
+		}
 	}
 	
 	/**
 	 * Called in *UI Thread* before doInBackground executes in a separate thread.
 	 */
-	@Override
 	protected void onPreExecute() {
 		if (!listActivityUsed) {
 			activity.showDialog(DialogConstants.PROGRESS_DIALOG.ordinal()); //the argument is not 
@@ -124,8 +463,7 @@ public abstract class GenericModel<T,U,V> extends AsyncTask<T, U, V> {
 	 * 
 	 * @param result The results returned by doInBackground
 	 */
-	@Override
-	protected void onPostExecute(Object result) {
+	protected void onPostExecute(V result) {
 		//just return the result produced to the Activity.
 		//we could process it here, but I want to keep the MVC pattern clean.
 		//Call me a f*cking pedant, if you will.
@@ -144,6 +482,29 @@ public abstract class GenericModel<T,U,V> extends AsyncTask<T, U, V> {
 		}
 	}
 	
+	/**
+	 * Called in the *UI thread* when doInBackground publishes progress.
+	 * 
+	 * Passes each partial result on to the Activity, if it is still around.
+	 * 
+	 * @param values The partial results published by doInBackground
+	 */
+	@SuppressWarnings("unchecked")
+	protected void onProgressUpdate(U... values) {
+		for (U value : values) {
+			if (!listActivityUsed) {
+				if (activity != null) {
+					activity.processModelProgress(value);
+				}
+			}
+			else {
+				if (listActivity != null) {
+					listActivity.processModelProgress(value);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Executed on the UI thread when the progress bar is cancelled.
 	 * It returns null to the activity; the activity can process this if it likes.
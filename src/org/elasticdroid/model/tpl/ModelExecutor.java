@@ -0,0 +1,129 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model.tpl;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Process;
+
+/**
+ * The thread pool on which {@link GenericModel}s run their doInBackground().
+ *
+ * AsyncTask gives us one executor shared with everything else in the process, and runs the
+ * tasks in the order they were submitted. This executor has its own threads, and a queue
+ * ordered by {@link Priority}, so that a fetch the user is waiting for goes ahead of any
+ * background refresh waiting for a thread. Tasks of the same priority run in the order
+ * they were submitted.
+ */
+public final class ModelExecutor {
+
+	/**
+	 * The priority lanes. Declared in the order in which they are served.
+	 */
+	public static enum Priority {
+		/** The user is waiting for the results (usually with a progress dialog up) */
+		USER_INITIATED,
+		/** Refreshes and polling nobody is actively waiting for */
+		BACKGROUND
+	}
+
+	/** The number of models that can run at the same time */
+	private static final int POOL_SIZE = 4;
+	/** Time (in secs) idle threads above the core pool size hang around for */
+	private static final long KEEP_ALIVE = 10;
+
+	/** Sequence number used to keep tasks of the same priority in FIFO order */
+	private static final AtomicLong sequence = new AtomicLong();
+
+	/** The executor. The queue only ever holds {@link PrioritizedTask}s */
+	private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE,
+			POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+			new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger(1);
+
+				public Thread newThread(Runnable runnable) {
+					return new Thread(runnable, "ModelExecutor #" + count.getAndIncrement());
+				}
+			});
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private ModelExecutor() {
+	}
+
+	/**
+	 * Queue a task for execution.
+	 *
+	 * @param task The task to run.
+	 * @param priority The lane to queue the task in.
+	 * @return Future that can be used to cancel (and interrupt) the task.
+	 */
+	public static Future<?> execute(Runnable task, Priority priority) {
+		PrioritizedTask prioritizedTask = new PrioritizedTask(task, priority,
+				sequence.getAndIncrement());
+
+		//do not use submit(): it wraps the task in a FutureTask, which the priority queue
+		//cannot order.
+		executor.execute(prioritizedTask);
+
+		return prioritizedTask;
+	}
+
+	/**
+	 * A FutureTask which the priority queue knows how to order: by priority, then by
+	 * submission order.
+	 */
+	private static class PrioritizedTask extends FutureTask<Void> implements
+		Comparable<PrioritizedTask> {
+		/** The task priority */
+		private final Priority priority;
+		/** The submission sequence number */
+		private final long sequenceNumber;
+
+		private PrioritizedTask(Runnable task, Priority priority, long sequenceNumber) {
+			super(task, null);
+			this.priority = priority;
+			this.sequenceNumber = sequenceNumber;
+		}
+
+		@Override
+		public void run() {
+			//same as AsyncTask: keep the model threads from competing with the UI thread
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			super.run();
+		}
+
+		public int compareTo(PrioritizedTask another) {
+			if (priority != another.priority) {
+				return priority.ordinal() - another.priority.ordinal();
+			}
+
+			return (sequenceNumber < another.sequenceNumber) ? -1 :
+				((sequenceNumber == another.sequenceNumber) ? 0 : 1);
+		}
+	}
+}
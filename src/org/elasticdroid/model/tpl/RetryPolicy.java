@@ -0,0 +1,248 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.model.tpl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+/**
+ * Retries AWS requests which fail for reasons that may go away by themselves: throttling
+ * (RequestLimitExceeded etc), AWS having a bad moment (5xx), and dropped or timed out 
+ * connections. Anything else (bad credentials, bad parameters, no network at all) is 
+ * thrown straight away.
+ * 
+ * Retries are spaced using capped exponential backoff with full jitter: before retry n, we
+ * sleep for a random time between 0 and min({@link #MAX_DELAY}, {@link #BASE_DELAY} * 2^n).
+ * The jitter stops every model throttled at the same time from coming back at the same time.
+ * We give up (and throw the last exception) once the next sleep would take us past
+ * {@link #DEADLINE} from the first attempt.
+ * 
+ * The AWS clients are created with their own retries turned off (see 
+ * {@link org.elasticdroid.model.AWSClientFactory}), so that this is the only retry layer.
+ * 
+ * The number of retries is recorded for each request name, so that we can see where we 
+ * are being throttled; see {@link #getStatistics()}.
+ */
+public final class RetryPolicy {
+
+	/** The backoff (in msecs) before the first retry */
+	public static final long BASE_DELAY = 100;
+	/** The longest backoff (in msecs) before any retry */
+	public static final long MAX_DELAY = 5000;
+	/** Time (in msecs) from the first attempt after which we stop retrying */
+	public static final long DEADLINE = 20000;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.model.tpl.RetryPolicy";
+	
+	/** The AWS error codes which mean we are being throttled */
+	private static final HashSet<String> THROTTLING_ERROR_CODES = new HashSet<String>(
+			Arrays.asList(new String[] {"RequestLimitExceeded", "Throttling", 
+					"ThrottlingException", "RequestThrottled", "SlowDown"}));
+	/** The AWS error codes which mean the service is having a bad moment */
+	private static final HashSet<String> TRANSIENT_ERROR_CODES = new HashSet<String>(
+			Arrays.asList(new String[] {"InternalError", "InternalFailure", "ServiceUnavailable",
+					"Unavailable"}));
+	
+	/** Random number generator for the jitter */
+	private static final Random random = new Random();
+	/** Index of the request count in the statistics */
+	private static final int REQUESTS = 0;
+	/** Index of the retry count in the statistics */
+	private static final int RETRIES = 1;
+	/** Index of the count of retries caused by throttling in the statistics */
+	private static final int THROTTLED = 2;
+	/** Index of the count of requests which failed for good in the statistics */
+	private static final int FAILURES = 3;
+	/** int[]{requests, retries, throttled retries, failures}, indexed by request name */
+	private static HashMap<String, int[]> statistics = new HashMap<String, int[]>();
+	
+	/**
+	 * An AWS request to execute (and maybe retry).
+	 * 
+	 * @param <R> The request result type.
+	 */
+	public static interface Request<R> {
+		/**
+		 * Make the request. Called once per attempt.
+		 * 
+		 * @return The result.
+		 * @throws AmazonClientException If the request fails.
+		 */
+		R execute() throws AmazonClientException;
+	}
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private RetryPolicy() {
+	}
+	
+	/**
+	 * Execute a request, retrying it if it fails for a retryable reason.
+	 * 
+	 * @param requestName The name to record the retries under; usually the AWS operation 
+	 * (describeInstances etc).
+	 * @param request The request.
+	 * @return The result of the request.
+	 * @throws AmazonClientException The last exception, if the request fails for a reason 
+	 * that is not retryable, runs out of time, or the thread is interrupted.
+	 */
+	public static <R> R execute(String requestName, Request<R> request) throws 
+		AmazonClientException {
+		long deadline = System.currentTimeMillis() + DEADLINE;
+		
+		record(requestName, REQUESTS);
+		for (int retry = 0; ; retry ++) {
+			AmazonClientException exception;
+			try {
+				return request.execute();
+			}
+			catch (AmazonClientException amazonClientException) {
+				exception = amazonClientException;
+			}
+			
+			//the model was cancelled: its clients have been aborted, so don't bother.
+			if (!isRetryable(exception) || Thread.currentThread().isInterrupted()) {
+				record(requestName, FAILURES);
+				throw exception;
+			}
+			
+			long delay = getBackoff(retry, random.nextDouble());
+			if (System.currentTimeMillis() + delay > deadline) {
+				Log.w(TAG, requestName + " failed after " + retry + " retries: " + exception
+						.getMessage());
+				record(requestName, FAILURES);
+				throw exception;
+			}
+			
+			record(requestName, RETRIES);
+			if (isThrottled(exception)) {
+				record(requestName, THROTTLED);
+			}
+			Log.v(TAG, "Retrying " + requestName + " in " + delay + "msecs: " + exception
+					.getMessage());
+			
+			try {
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException interruptedException) {
+				//restore the flag for whoever is above us, and give up.
+				Thread.currentThread().interrupt();
+				record(requestName, FAILURES);
+				throw exception;
+			}
+		}
+	}
+	
+	/**
+	 * Work out the backoff before a retry.
+	 * 
+	 * @param retry The retry number, starting from 0.
+	 * @param random A random number in [0, 1).
+	 * @return The backoff (in msecs): random * min(MAX_DELAY, BASE_DELAY * 2^retry).
+	 */
+	public static long getBackoff(int retry, double random) {
+		//stop shifting before it overflows; we are well past MAX_DELAY by then.
+		long ceiling = (retry >= 30) ? MAX_DELAY : Math.min(MAX_DELAY, BASE_DELAY << retry);
+		
+		return (long) (random * ceiling);
+	}
+	
+	/**
+	 * @param exception The exception thrown by an AWS request.
+	 * @return true if retrying the request might help.
+	 */
+	public static boolean isRetryable(AmazonClientException exception) {
+		if (exception instanceof AmazonServiceException) {
+			AmazonServiceException serviceException = (AmazonServiceException) exception;
+			
+			return isThrottled(exception) || TRANSIENT_ERROR_CODES.contains(serviceException
+					.getErrorCode()) || (serviceException.getStatusCode() >= 500);
+		}
+		
+		//connection dropped or timed out. If we can't resolve the host, the phone is offline;
+		//retrying won't help. If we were interrupted, we've been cancelled.
+		Throwable cause = exception.getCause();
+		if ((cause instanceof UnknownHostException) || ((cause instanceof 
+				InterruptedIOException) && !(cause instanceof SocketTimeoutException))) {
+			return false;
+		}
+		
+		return cause instanceof IOException;
+	}
+	
+	/**
+	 * @return true if the exception says we are being throttled.
+	 */
+	private static boolean isThrottled(AmazonClientException exception) {
+		return (exception instanceof AmazonServiceException) && THROTTLING_ERROR_CODES.contains(
+				((AmazonServiceException) exception).getErrorCode());
+	}
+	
+	/**
+	 * Increment one of the statistics for a request name.
+	 */
+	private static synchronized void record(String requestName, int statistic) {
+		int[] counts = statistics.get(requestName);
+		
+		if (counts == null) {
+			counts = new int[4];
+			statistics.put(requestName, counts);
+		}
+		counts[statistic] ++;
+	}
+	
+	/**
+	 * @param requestName The request name.
+	 * @return The number of times requests of this name have been retried.
+	 */
+	public static synchronized int getRetryCount(String requestName) {
+		int[] counts = statistics.get(requestName);
+		
+		return (counts == null) ? 0 : counts[RETRIES];
+	}
+	
+	/**
+	 * @return Human-readable summary of the retry statistics. Used for logging.
+	 */
+	public static synchronized String getStatistics() {
+		StringBuilder summary = new StringBuilder();
+		
+		for (String requestName : statistics.keySet()) {
+			int[] counts = statistics.get(requestName);
+			summary.append(requestName).append(": requests: ").append(counts[REQUESTS])
+				.append(", retries: ").append(counts[RETRIES]).append(" (throttled: ")
+				.append(counts[THROTTLED]).append("), failures: ").append(counts[FAILURES])
+				.append("\n");
+		}
+		
+		return summary.toString();
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.service;
+
+import org.elasticdroid.model.RegionRegistry;
+import org.elasticdroid.model.WatchPoller;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Service which keeps the datapoint cache for watched instances up to date, so that 
+ * MonitorInstanceView can show them without waiting for CloudWatch.
+ * 
+ * Each time it is started, the service runs {@link WatchPoller#poll(Context)} on a 
+ * background thread, sets an alarm to start it again when the next group of watched 
+ * instances is due, and stops itself. So it is only running while it is polling. The alarm 
+ * does not wake the device up; polls missed while asleep are made up when it wakes.
+ */
+public class WatchService extends Service {
+
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.service.WatchService";
+	
+	/** The thread running the current poll; null if not polling */
+	private Thread pollThread;
+	
+	/**
+	 * Start the service, if it is not already running. Call this when an instance is added to
+	 * the watch list, and when the app starts (in case the alarm was lost to a reboot).
+	 * 
+	 * @param context Any context.
+	 */
+	public static void start(Context context) {
+		context.startService(new Intent(context, WatchService.class));
+	}
+	
+	/**
+	 * Start polling, unless a poll is already in progress.
+	 */
+	@Override
+	public int onStartCommand(Intent intent, int flags, final int startId) {
+		if (pollThread != null) {
+			//the running poll will set the alarm and stop the service when done.
+			return START_NOT_STICKY;
+		}
+		
+		RegionRegistry.setContext(this);
+		pollThread = new Thread(new Runnable() {
+			public void run() {
+				long delay = -1;
+				
+				try {
+					delay = WatchPoller.poll(WatchService.this);
+				}
+				catch (InterruptedException interruptedException) {
+					Log.v(TAG, "Interrupted while polling.");
+				}
+				finally {
+					scheduleNextPoll(delay);
+					stopSelf();
+				}
+			}
+		}, "WatchService");
+		pollThread.start();
+		
+		return START_NOT_STICKY;
+	}
+	
+	/**
+	 * Interrupt the poll in progress, if any.
+	 */
+	@Override
+	public void onDestroy() {
+		if (pollThread != null) {
+			pollThread.interrupt();
+			pollThread = null;
+		}
+		
+		super.onDestroy();
+	}
+	
+	/**
+	 * Not bound to.
+	 */
+	@Override
+	public IBinder onBind(Intent intent) {
+		return null;
+	}
+	
+	/**
+	 * Set (or cancel) the alarm that starts the service again.
+	 * 
+	 * @param delay The time (in msecs) to the next poll, or -1 if nothing is watched.
+	 */
+	private void scheduleNextPoll(long delay) {
+		AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+		PendingIntent pollIntent = PendingIntent.getService(this, 0, new Intent(this, 
+				WatchService.class), 0);
+		
+		if (delay < 0) {
+			Log.v(TAG, "Nothing watched. Not polling again.");
+			alarmManager.cancel(pollIntent);
+		}
+		else {
+			Log.v(TAG, "Polling again in " + (delay / 1000) + " secs.");
+			alarmManager.set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + 
+					delay, pollIntent);
+		}
+	}
+}
@@ -53,6 +53,15 @@ public abstract class GenericActivity extends Activity implements OnCancelListen
 	 */
 	public abstract void processModelResults(Object result);	
 	
+	/**
+	 * Process partial results from a model. Called by onProgressUpdate() in any given Model 
+	 * class that publishes progress. Does nothing by default; override it if your model
+	 * publishes partial results.
+	 * @param progress
+	 */
+	public void processModelProgress(Object progress) {
+	}
+	
 	/**
 	 * Function that handles the display of a progress dialog. Overriden from
 	 * Activity and not GenericActivity
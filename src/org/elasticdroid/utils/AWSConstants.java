@@ -18,6 +18,7 @@
  */
 package org.elasticdroid.utils;
 
+import java.util.HashMap;
 
 /**
  * AWS constants. Stored in a separate file. 
@@ -118,41 +119,63 @@ public class AWSConstants {
 		public static final int STOPPED = 80;
 	}
 	
+	/**
+	 * Known CloudWatch endpoints, indexed by region name. Used only when the region registry
+	 * has not been filled in yet. {@see org.elasticdroid.model.RegionRegistry}.
+	 */
+	private static final HashMap<String, String> CLOUDWATCH_ENDPOINTS = 
+		new HashMap<String, String>();
+	/**
+	 * Known EC2 endpoints, indexed by region name. Used only when the region registry
+	 * has not been filled in yet. {@see org.elasticdroid.model.RegionRegistry}.
+	 */
+	private static final HashMap<String, String> EC2_ENDPOINTS = new HashMap<String, String>();
+	
+	static {
+		CLOUDWATCH_ENDPOINTS.put("eu-west-1", EndPoints.CLOUDWATCH_EU_WEST);
+		CLOUDWATCH_ENDPOINTS.put("us-east-1", EndPoints.CLOUDWATCH_US_EAST);
+		CLOUDWATCH_ENDPOINTS.put("us-west-1", EndPoints.CLOUDWATCH_US_WEST);
+		CLOUDWATCH_ENDPOINTS.put("ap-southeast-1", EndPoints.CLOUDWATCH_APAC);
+		
+		EC2_ENDPOINTS.put("eu-west-1", EndPoints.EC2_EU_WEST);
+		EC2_ENDPOINTS.put("us-east-1", EndPoints.EC2_US_EAST);
+		EC2_ENDPOINTS.put("us-west-1", EndPoints.EC2_US_WEST);
+		EC2_ENDPOINTS.put("ap-southeast-1", EndPoints.EC2_APAC);
+	}
+	
 	/**
 	 * Utility method to return the Cloudwatch endpoint for the region selected
+	 * 
+	 * Regions we don't know of get the endpoint AWS uses for all its regions; we no longer 
+	 * silently fall back to APAC.
 	 * @param region Region selected
 	 * @return The CloudWatch end point for the region selected.
 	 */
 	public static String getCloudWatchEndpoint(String region) {
-		if (region.equals("eu-west-1")) {
-			return EndPoints.CLOUDWATCH_EU_WEST;
-		}
-		else if (region.equals("us-east-1")) {
-			return EndPoints.CLOUDWATCH_US_EAST;
+		String endpoint = CLOUDWATCH_ENDPOINTS.get(region);
+		
+		if (endpoint == null) {
+			endpoint = "monitoring." + region + ".amazonaws.com";
 		}
-		else if (region.equals("us-west-1")) {
-			return EndPoints.CLOUDWATCH_US_WEST;
-		}		
-
-		return EndPoints.CLOUDWATCH_APAC;
+		
+		return endpoint;
 	}
 	
 	/**
 	 * Utility method to return the endpoint for the region selected
+	 * 
+	 * Regions we don't know of get the endpoint AWS uses for all its regions; we no longer 
+	 * silently fall back to APAC.
 	 * @param region Region selected
 	 * @return The EC2 end point for the region selected.
 	 */
 	public static String getEC2Endpoint(String region) {
-		if (region.equals("eu-west-1")) {
-			return EndPoints.EC2_EU_WEST;
-		}
-		else if (region.equals("us-east-1")) {
-			return EndPoints.EC2_US_EAST;
+		String endpoint = EC2_ENDPOINTS.get(region);
+		
+		if (endpoint == null) {
+			endpoint = "ec2." + region + ".amazonaws.com";
 		}
-		else if (region.equals("us-west-1")) {
-			return EndPoints.EC2_US_WEST;
-		}		
-
-		return EndPoints.EC2_APAC;
+		
+		return endpoint;
 	}
 }
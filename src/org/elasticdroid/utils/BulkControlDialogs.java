@@ -0,0 +1,111 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.utils;
+
+import java.util.Map;
+
+import org.elasticdroid.R;
+import org.elasticdroid.model.ds.BulkControlReport;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.widget.EditText;
+
+/**
+ * Dialogs shared by the views that start, stop or tag several instances at once (see
+ * {@link org.elasticdroid.model.BulkControlInstancesModel}).
+ */
+public class BulkControlDialogs {
+	
+	/** The maximum number of failed instances to list in the report message */
+	private static final int MAX_FAILURES_LISTED = 10;
+	
+	/**
+	 * Called with the tag name the user typed in.
+	 */
+	public static interface TagNameListener {
+		/**
+		 * @param tagName The name tag. Empty if the user wants it removed.
+		 */
+		public void onTagName(String tagName);
+	}
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private BulkControlDialogs() {
+	}
+	
+	/**
+	 * Ask the user for the name tag to give the instances.
+	 * 
+	 * @param context The activity to show the dialog in.
+	 * @param listener Called if the user presses OK.
+	 */
+	public static void showTagNameDialog(Context context, final TagNameListener listener) {
+		final EditText tagNameInput = new EditText(context);
+		tagNameInput.setSingleLine();
+		
+		new AlertDialog.Builder(context)
+			.setTitle(R.string.bulkcontrol_tag_prompt)
+			.setView(tagNameInput)
+			.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int which) {
+					listener.onTagName(tagNameInput.getText().toString().trim());
+				}
+			})
+			.setNegativeButton(android.R.string.cancel, null)
+			.show();
+	}
+	
+	/**
+	 * Summarise a report for the user: how many instances were done, and why the others
+	 * failed.
+	 * 
+	 * @param context Context to get the strings from.
+	 * @param report The report returned by the model.
+	 * @param instanceCount The number of instances the model was asked to control.
+	 * @return The message to display.
+	 */
+	public static String getReportMessage(Context context, BulkControlReport report, 
+			int instanceCount) {
+		StringBuilder message = new StringBuilder(String.format(context.getString(
+				R.string.bulkcontrol_report), report.getSucceededCount(), instanceCount));
+		
+		if (report.getFailedCount() != 0) {
+			message.append("\n\n").append(String.format(context.getString(
+					R.string.bulkcontrol_report_failures), report.getFailedCount()));
+			
+			//a chunk fails as a whole, so the messages repeat. Only list the first few.
+			int listed = 0;
+			for (Map.Entry<String, String> failure : report.getFailures().entrySet()) {
+				if (listed ++ == MAX_FAILURES_LISTED) {
+					message.append("\n...");
+					break;
+				}
+				message.append("\n").append(String.format(context.getString(
+						R.string.bulkcontrol_report_failure), failure.getKey(), 
+						failure.getValue()));
+			}
+		}
+		
+		return message.toString();
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.elasticdroid.model.ds.SerializableIpPermission;
+import org.elasticdroid.model.ds.SerializableSecurityGroup;
+
+/**
+ * Matches IPv4 addresses against a set of CIDR ranges (the IP ranges of a security group
+ * permission, say).
+ *
+ * The ranges are compiled once into (network, mask) pairs, turned into [first, last] address
+ * intervals, sorted and merged where they overlap. Matching an address is then a binary search
+ * over the intervals: a handful of integer operations, and no allocation.
+ *
+ * Addresses are ints, as in {@link #parseAddress(String)}. Java has no unsigned int, so the
+ * intervals are stored with the sign bit flipped, which makes signed comparison order them the
+ * way unsigned comparison would.
+ */
+public class CidrMatcher {
+
+	/** The first address of each interval, sign bit flipped, in ascending order */
+	private final int[] firsts;
+	/** The last address of each interval, sign bit flipped */
+	private final int[] lasts;
+
+	/**
+	 * Compile a set of CIDR ranges. Ranges which can't be parsed (IPv6 ones, say) are left out.
+	 *
+	 * @param cidrs The ranges, e.g. 10.0.0.0/8.
+	 */
+	public CidrMatcher(List<String> cidrs) {
+		long[] intervals = new long[cidrs.size()];
+		int count = 0;
+
+		for (String cidr : cidrs) {
+			int slash = cidr.indexOf('/');
+			int network, prefixLength;
+
+			try {
+				network = parseAddress((slash == -1) ? cidr : cidr.substring(0, slash));
+				prefixLength = (slash == -1) ? 32 : Integer.parseInt(cidr.substring(slash + 1));
+			} catch (IllegalArgumentException exception) {
+				continue;
+			}
+			if ((prefixLength < 0) || (prefixLength > 32)) {
+				continue;
+			}
+
+			//a /0 is everything; shifting an int by 32 does nothing.
+			int mask = (prefixLength == 0) ? 0 : (-1 << (32 - prefixLength));
+			int first = (network & mask) ^ Integer.MIN_VALUE;
+			int last = (network | ~mask) ^ Integer.MIN_VALUE;
+
+			//pack the interval into a long so that sorting the longs sorts by first address.
+			intervals[count ++] = ((long) first << 32) | (last & 0xffffffffL);
+		}
+
+		Arrays.sort(intervals, 0, count);
+
+		//merge the overlapping and adjacent intervals
+		int[] mergedFirsts = new int[count];
+		int[] mergedLasts = new int[count];
+		int merged = 0;
+		for (int idx = 0; idx < count; idx ++) {
+			int first = (int) (intervals[idx] >> 32);
+			int last = (int) intervals[idx];
+
+			if ((merged != 0) && ((long) first <= (long) mergedLasts[merged - 1] + 1)) {
+				mergedLasts[merged - 1] = Math.max(mergedLasts[merged - 1], last);
+			}
+			else {
+				mergedFirsts[merged] = first;
+				mergedLasts[merged] = last;
+				merged ++;
+			}
+		}
+
+		//no Arrays.copyOf before Gingerbread.
+		firsts = new int[merged];
+		lasts = new int[merged];
+		System.arraycopy(mergedFirsts, 0, firsts, 0, merged);
+		System.arraycopy(mergedLasts, 0, lasts, 0, merged);
+	}
+
+	/**
+	 * Build a matcher for all of the IP ranges allowed to connect to a port, in any of a set
+	 * of security groups.
+	 *
+	 * @param securityGroups The security groups.
+	 * @param toPort The port.
+	 * @return The matcher, or null if none of the groups has a permission for the port.
+	 */
+	public static CidrMatcher forPort(List<SerializableSecurityGroup> securityGroups,
+			int toPort) {
+		List<String> cidrs = new ArrayList<String>();
+		boolean portFound = false;
+
+		for (SerializableSecurityGroup securityGroup : securityGroups) {
+			for (SerializableIpPermission permission : securityGroup.getIpPermissions()) {
+				if (permission.getToPort() == toPort) {
+					portFound = true;
+					cidrs.addAll(permission.getIpRanges());
+				}
+			}
+		}
+
+		return portFound ? new CidrMatcher(cidrs) : null;
+	}
+
+	/**
+	 * @param address The address, as returned by {@link #parseAddress(String)}.
+	 * @return true if the address is in one of the ranges.
+	 */
+	public boolean matches(int address) {
+		int flipped = address ^ Integer.MIN_VALUE;
+
+		//find the last interval starting at or before the address
+		int low = 0;
+		int high = firsts.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (firsts[mid] <= flipped) {
+				low = mid + 1;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+
+		return (high >= 0) && (flipped <= lasts[high]);
+	}
+
+	/**
+	 * @param address The address, as a dotted quad.
+	 * @return true if the address is in one of the ranges.
+	 * @throws IllegalArgumentException If the address is not a dotted quad.
+	 */
+	public boolean matches(String address) {
+		return matches(parseAddress(address));
+	}
+
+	/**
+	 * @return true if there are no ranges, so that nothing matches.
+	 */
+	public boolean isEmpty() {
+		return firsts.length == 0;
+	}
+
+	/**
+	 * Parse a dotted quad, without splitting it into Strings.
+	 *
+	 * @param address The address, e.g. 192.168.0.1
+	 * @return The address as an int: the first part in the top byte, the last in the bottom.
+	 * @throws IllegalArgumentException If the address is not a dotted quad, with each part
+	 * between 0 and 255.
+	 */
+	public static int parseAddress(String address) {
+		int result = 0;
+		int part = 0;
+		int parts = 0;
+		int digits = 0;
+
+		for (int idx = 0; idx <= address.length(); idx ++) {
+			char character = (idx < address.length()) ? address.charAt(idx) : '.';
+
+			if ((character >= '0') && (character <= '9')) {
+				part = part * 10 + (character - '0');
+				if ((++ digits > 3) || (part > 255)) {
+					throw new IllegalArgumentException("Not an IPv4 address: " + address);
+				}
+			}
+			else if ((character == '.') && (digits != 0) && (parts < 4)) {
+				result = (result << 8) | part;
+				parts ++;
+				part = 0;
+				digits = 0;
+			}
+			else {
+				throw new IllegalArgumentException("Not an IPv4 address: " + address);
+			}
+		}
+
+		if (parts != 4) {
+			throw new IllegalArgumentException("Not an IPv4 address: " + address);
+		}
+
+		return result;
+	}
+}
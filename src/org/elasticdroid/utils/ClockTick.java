@@ -0,0 +1,130 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.utils;
+
+import java.util.ArrayList;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * One clock for all of the time-dependent labels on screen ("started 2.5 hrs ago" and the
+ * like), ticking once every {@link #TICK_INTERVAL}.
+ * 
+ * Rather than each row setting its own timer, or reformatting its label every time it is 
+ * bound, rows cache their label along with the tick it was formatted in, and reformat it only
+ * once the tick has moved on. Views that want their visible rows refreshed as the clock ticks
+ * add a {@link Listener} while they are in the foreground.
+ * 
+ * All of the methods must be called on the UI thread.
+ */
+public class ClockTick {
+	
+	/** Time (in msecs) between ticks: 1 minute */
+	public static final long TICK_INTERVAL = 60000L;
+	
+	/**
+	 * Called on the UI thread on each tick.
+	 */
+	public static interface Listener {
+		/**
+		 * @param tick The new tick. See {@link ClockTick#getTick()}.
+		 */
+		public void onTick(long tick);
+	}
+	
+	/** The listeners */
+	private static ArrayList<Listener> listeners = new ArrayList<Listener>();
+	/** Handler to run the ticks on the UI thread; created with the first listener */
+	private static Handler handler;
+	/** Runnable which ticks, and sets up the next tick */
+	private static final Runnable tickRunnable = new Runnable() {
+		public void run() {
+			long tick = getTick();
+			
+			//copy: listeners may remove themselves.
+			for (Listener listener : new ArrayList<Listener>(listeners)) {
+				listener.onTick(tick);
+			}
+			scheduleNextTick();
+		}
+	};
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private ClockTick() {
+	}
+	
+	/**
+	 * Get the current tick. Ticks are worked out from the clock, so that this is right even if 
+	 * no one is listening.
+	 * 
+	 * @return The number of {@link #TICK_INTERVAL}s since boot.
+	 */
+	public static long getTick() {
+		return SystemClock.elapsedRealtime() / TICK_INTERVAL;
+	}
+	
+	/**
+	 * Start calling a listener on each tick. Starts the clock if need be.
+	 * 
+	 * @param listener The listener. Remember to remove it in onPause.
+	 */
+	public static void addListener(Listener listener) {
+		if (listeners.contains(listener)) {
+			return;
+		}
+		
+		listeners.add(listener);
+		if (listeners.size() == 1) {
+			if (handler == null) {
+				handler = new Handler(Looper.getMainLooper());
+			}
+			scheduleNextTick();
+		}
+	}
+	
+	/**
+	 * Stop calling a listener. Stops the clock if no one is listening.
+	 * 
+	 * @param listener The listener.
+	 */
+	public static void removeListener(Listener listener) {
+		listeners.remove(listener);
+		if (listeners.isEmpty() && (handler != null)) {
+			handler.removeCallbacks(tickRunnable);
+		}
+	}
+	
+	/**
+	 * Schedule the next tick for the start of the next interval, if anyone is listening.
+	 * 
+	 * The ticks are counted on the elapsedRealtime clock, which keeps going while the phone is
+	 * asleep; postAtTime works on the uptime clock, which doesn't. So post a delay instead.
+	 */
+	private static void scheduleNextTick() {
+		handler.removeCallbacks(tickRunnable);
+		if (!listeners.isEmpty()) {
+			long now = SystemClock.elapsedRealtime();
+			handler.postDelayed(tickRunnable, TICK_INTERVAL - (now % TICK_INTERVAL));
+		}
+	}
+}
@@ -18,16 +18,25 @@
  */
 package org.elasticdroid.utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+import org.elasticdroid.model.ds.ModelCodec;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
 /**
- * Utility class to hold input requried by the AWS CloudWatch API
+ * Utility class to hold input requried by the AWS CloudWatch API. Parcelled rather than 
+ * serialized into Bundles; see {@link ModelCodec}.
  * @author siddhu
  *
  * 2 Jan 2011
  */
-public class CloudWatchInput implements Serializable {
+public class CloudWatchInput implements Serializable, Parcelable, ModelCodec.Encodable {
 
 	/**
 	 * Serial version UID
@@ -52,6 +61,30 @@ public class CloudWatchInput implements Serializable {
 	/** Logging tag */
 	private final static String TAG = "org.elasticdroid.utils.CloudWatchInput";
 	
+	/** Creates CloudWatchInputs from Parcels */
+	public static final Parcelable.Creator<CloudWatchInput> CREATOR = new 
+		Parcelable.Creator<CloudWatchInput>() {
+		public CloudWatchInput createFromParcel(Parcel source) {
+			return new CloudWatchInput(source.readLong(), source.readLong(), 
+					ModelCodec.readInteger(source), source.readString(), source.readString(), 
+					source.createStringArrayList(), source.readString());
+		}
+		
+		public CloudWatchInput[] newArray(int size) {
+			return new CloudWatchInput[size];
+		}
+	};
+	
+	/** Reads CloudWatchInputs written by {@link #writeTo(DataOutput)} */
+	public static final ModelCodec.Decoder<CloudWatchInput> DECODER = new 
+		ModelCodec.Decoder<CloudWatchInput>() {
+		public CloudWatchInput readFrom(DataInput in, int version) throws IOException {
+			return new CloudWatchInput(in.readLong(), in.readLong(), ModelCodec.readInteger(in),
+					ModelCodec.readString(in), ModelCodec.readString(in), 
+					ModelCodec.readStrings(in), ModelCodec.readString(in));
+		}
+	};
+	
 	/**
 	 * The CloudWatch input constructor, for all values.
 	 * 
@@ -177,6 +210,45 @@ public class CloudWatchInput implements Serializable {
 		this.statistics = statistics;
 	}
 	
+	/**
+	 * @see android.os.Parcelable#describeContents()
+	 */
+	public int describeContents() {
+		return 0;
+	}
+	
+	/**
+	 * Write the fields out in the order of the constructor's arguments, which is how 
+	 * {@link #CREATOR} reads them.
+	 * 
+	 * @see android.os.Parcelable#writeToParcel(android.os.Parcel, int)
+	 */
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeLong(startTime);
+		dest.writeLong(endTime);
+		ModelCodec.writeInteger(dest, period);
+		dest.writeString(measureName);
+		dest.writeString(namespace);
+		dest.writeStringList(statistics);
+		dest.writeString(region);
+	}
+	
+	/**
+	 * Write the fields out in the order of the constructor's arguments, which is how 
+	 * {@link #DECODER} reads them.
+	 * 
+	 * @see org.elasticdroid.model.ds.ModelCodec.Encodable#writeTo(java.io.DataOutput)
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(startTime);
+		out.writeLong(endTime);
+		ModelCodec.writeInteger(out, period);
+		ModelCodec.writeString(out, measureName);
+		ModelCodec.writeString(out, namespace);
+		ModelCodec.writeStrings(out, statistics);
+		ModelCodec.writeString(out, region);
+	}
+	
 	//other methods not implemented as ElDroid does not support switching region in the
 	//Cloudwatch view atm
 }
@@ -0,0 +1,209 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.elasticdroid.model.ds.SerializableInstance;
+
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+/**
+ * Brings the list of instances shown by a view up to date with a newly retrieved list, 
+ * keyed on instance ID, so that the ListView does not have to be given a new adapter.
+ * 
+ * A new adapter throws away the scroll position and rebuilds every row. Instead, the 
+ * adapter's own list is changed in place: instances no longer there are removed, new ones
+ * inserted, and instances whose data changed replaced. The {@link Result} says what 
+ * happened, and {@link Result#updateListView(ListView, BaseAdapter)} redraws only what it has
+ * to: nothing if nothing changed, the changed rows on screen if no rows came or went, and 
+ * the rows on screen otherwise.
+ */
+public class InstanceListDiff {
+	
+	/**
+	 * Decides whether a row has to be redrawn.
+	 */
+	public static interface RowComparer {
+		/**
+		 * @param shown The instance the row shows.
+		 * @param updated The instance with the same ID, just retrieved.
+		 * @return true if the row has to be redrawn.
+		 */
+		public boolean isRowChanged(SerializableInstance shown, SerializableInstance updated);
+	}
+	
+	/** Row comparer that redraws rows whose data has changed */
+	public static final RowComparer DATA_CHANGED = new RowComparer() {
+		public boolean isRowChanged(SerializableInstance shown, SerializableInstance updated) {
+			return !shown.hasSameData(updated);
+		}
+	};
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private InstanceListDiff() {
+	}
+	
+	/**
+	 * Make shown look like updated, in place.
+	 * 
+	 * @param shown The list the adapter is showing. Changed in place.
+	 * @param updated The newly retrieved list. Not changed.
+	 * @param rowComparer Decides which of the instances in both lists need their rows redrawn.
+	 * @return What changed.
+	 */
+	public static Result apply(List<SerializableInstance> shown, 
+			List<SerializableInstance> updated, RowComparer rowComparer) {
+		Result result = new Result();
+		HashSet<String> updatedIds = new HashSet<String>();
+		HashMap<String, SerializableInstance> shownInstances = new HashMap<String, 
+			SerializableInstance>();
+		
+		for (SerializableInstance instance : updated) {
+			updatedIds.add(instance.getInstanceId());
+		}
+		
+		//remove the instances that have gone, from the end so that removals are cheap.
+		for (int position = shown.size() - 1; position >= 0; position --) {
+			if (!updatedIds.contains(shown.get(position).getInstanceId())) {
+				shown.remove(position);
+				result.removed ++;
+			}
+			else {
+				shownInstances.put(shown.get(position).getInstanceId(), shown.get(position));
+			}
+		}
+		
+		//shown now holds a subset of updated. Walk along both, inserting what's new and moving
+		//what's moved (AWS usually keeps the order, so moves are rare).
+		for (int position = 0; position < updated.size(); position ++) {
+			SerializableInstance updatedInstance = updated.get(position);
+			SerializableInstance shownInstance = shownInstances.get(updatedInstance.
+					getInstanceId());
+			
+			if (shownInstance == null) {
+				shown.add(position, updatedInstance);
+				result.inserted ++;
+				continue;
+			}
+			
+			if (shown.get(position) != shownInstance) {
+				shown.remove(shownInstance);
+				shown.add(position, updatedInstance);
+				result.moved ++;
+				continue;
+			}
+			
+			//same place; always take the new one (it's more recent), but only redraw if need be.
+			shown.set(position, updatedInstance);
+			if (rowComparer.isRowChanged(shownInstance, updatedInstance)) {
+				result.changedPositions.add(position);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * What {@link InstanceListDiff#apply(List, List, RowComparer)} changed.
+	 */
+	public static class Result {
+		/** The number of instances removed */
+		private int removed;
+		/** The number of instances inserted */
+		private int inserted;
+		/** The number of instances moved to a different position */
+		private int moved;
+		/** The positions of the rows that have to be redrawn, if no rows came, went or moved */
+		private ArrayList<Integer> changedPositions = new ArrayList<Integer>();
+		
+		/**
+		 * @return true if instances came, went or moved, i.e. positions have changed.
+		 */
+		public boolean isStructureChanged() {
+			return (removed + inserted + moved) != 0;
+		}
+		
+		/**
+		 * @return true if nothing has to be redrawn.
+		 */
+		public boolean isUnchanged() {
+			return !isStructureChanged() && changedPositions.isEmpty();
+		}
+		
+		/**
+		 * @return The number of instances removed.
+		 */
+		public int getRemovedCount() {
+			return removed;
+		}
+		
+		/**
+		 * @return The number of instances inserted.
+		 */
+		public int getInsertedCount() {
+			return inserted;
+		}
+		
+		/**
+		 * @return The number of instances moved.
+		 */
+		public int getMovedCount() {
+			return moved;
+		}
+		
+		/**
+		 * @return The positions of the rows whose instances changed, in ascending order. Only 
+		 * complete if {@link #isStructureChanged()} is false.
+		 */
+		public List<Integer> getChangedPositions() {
+			return changedPositions;
+		}
+		
+		/**
+		 * Redraw what has to be redrawn. Call on the UI thread.
+		 * 
+		 * @param listView The list view.
+		 * @param adapter Its adapter, whose list was passed to 
+		 * {@link InstanceListDiff#apply(List, List, RowComparer)}.
+		 */
+		public void updateListView(ListView listView, BaseAdapter adapter) {
+			if (isStructureChanged()) {
+				//the ListView keeps its scroll position, and only rebinds the rows on screen.
+				adapter.notifyDataSetChanged();
+				return;
+			}
+			
+			//redraw the changed rows that are on screen. The others are drawn when scrolled to.
+			int firstVisible = listView.getFirstVisiblePosition();
+			for (int position : changedPositions) {
+				int childIdx = position - firstVisible;
+				if ((childIdx >= 0) && (childIdx < listView.getChildCount())) {
+					adapter.getView(position, listView.getChildAt(childIdx), listView);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.utils;
+
+import org.elasticdroid.model.ds.MetricTimeSeries;
+import org.elasticdroid.model.ds.MetricTimeSeries.Statistic;
+
+/**
+ * Downsamples time series for charting, using Largest-Triangle-Three-Buckets (Steinarsson,
+ * 2013).
+ *
+ * The first and last points are always kept. The points in between are split into
+ * (threshold - 2) buckets, and from each bucket we keep the point which forms the largest
+ * triangle with the point kept from the previous bucket and the average of the next bucket.
+ * Unlike taking every nth point, or averaging buckets, this keeps spikes visible.
+ *
+ * Runs in O(n); call it from the model, not the UI thread.
+ */
+public class LttbDownsampler {
+
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private LttbDownsampler() {
+	}
+
+	/**
+	 * Downsample a time series. The points are chosen using the values of one statistic, and
+	 * the same points are kept for all of the statistics.
+	 *
+	 * @param timeSeries The time series.
+	 * @param statistic The statistic to choose the points with. If the time series does not
+	 * have it, the time series is returned unchanged.
+	 * @param threshold The maximum number of points to keep. Must be 3 or more.
+	 * @return The downsampled time series, or timeSeries itself if it already has threshold
+	 * points or fewer.
+	 */
+	public static MetricTimeSeries downsample(MetricTimeSeries timeSeries, Statistic statistic,
+			int threshold) {
+		if ((timeSeries.size() <= threshold) || !timeSeries.hasStatistic(statistic)) {
+			return timeSeries;
+		}
+
+		int[] selected = selectIndices(timeSeries.getTimestamps(), timeSeries.getValues(
+				statistic), threshold);
+
+		long[] timestamps = new long[selected.length];
+		double[][] values = new double[Statistic.values().length][];
+		for (int idx = 0; idx < selected.length; idx ++) {
+			timestamps[idx] = timeSeries.getTimestamp(selected[idx]);
+		}
+		for (Statistic stat : Statistic.values()) {
+			double[] statValues = timeSeries.getValues(stat);
+			if (statValues == null) {
+				continue;
+			}
+
+			values[stat.ordinal()] = new double[selected.length];
+			for (int idx = 0; idx < selected.length; idx ++) {
+				values[stat.ordinal()][idx] = statValues[selected[idx]];
+			}
+		}
+
+		return new MetricTimeSeries(timeSeries.getUnit(), timestamps, values);
+	}
+
+	/**
+	 * Choose the points to keep.
+	 *
+	 * @param x The x values, in ascending order.
+	 * @param y The y values. NaNs are treated as 0 when comparing triangles.
+	 * @param threshold The number of points to keep. Must be 3 or more, and less than x.length.
+	 * @return The indices of the points to keep, in ascending order.
+	 */
+	public static int[] selectIndices(long[] x, double[] y, int threshold) {
+		if (threshold < 3) {
+			throw new IllegalArgumentException("threshold must be at least 3.");
+		}
+
+		int length = x.length;
+		int[] selected = new int[threshold];
+		//the bucket size, not counting the first and last points.
+		double bucketSize = (double) (length - 2) / (threshold - 2);
+		//the point kept from the previous bucket
+		int previous = 0;
+
+		selected[0] = 0;
+		for (int bucket = 0; bucket < threshold - 2; bucket ++) {
+			//the average of the next bucket (the last point, for the last bucket).
+			int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+			int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+			if (bucket == threshold - 3) {
+				nextStart = length - 1;
+				nextEnd = length;
+			}
+			double averageX = 0;
+			double averageY = 0;
+			for (int idx = nextStart; idx < nextEnd; idx ++) {
+				averageX += x[idx];
+				averageY += valueOf(y[idx]);
+			}
+			averageX /= (nextEnd - nextStart);
+			averageY /= (nextEnd - nextStart);
+
+			//pick the point in this bucket making the largest triangle with previous and the
+			//next bucket's average. x is relative to the previous point, to keep the
+			//products of millisecond timestamps from losing precision.
+			int start = (int) Math.floor(bucket * bucketSize) + 1;
+			int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+			double previousY = valueOf(y[previous]);
+			double relativeAverageX = averageX - x[previous];
+			double maxArea = -1;
+			int maxIdx = start;
+			for (int idx = start; idx < end; idx ++) {
+				double area = Math.abs((x[idx] - x[previous]) * (averageY - previousY) -
+						relativeAverageX * (valueOf(y[idx]) - previousY));
+				if (area > maxArea) {
+					maxArea = area;
+					maxIdx = idx;
+				}
+			}
+
+			selected[bucket + 1] = maxIdx;
+			previous = maxIdx;
+		}
+		selected[threshold - 1] = length - 1;
+
+		return selected;
+	}
+
+	/**
+	 * @return 0 for NaN, the value otherwise.
+	 */
+	private static double valueOf(double value) {
+		return Double.isNaN(value) ? 0 : value;
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.util.Arrays;
+
+import org.elasticdroid.utils.CidrMatcher;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link CidrMatcher}.
+ */
+public class CidrMatcherTest extends TestCase {
+	
+	/**
+	 * Dotted quads parse into ints, top byte first; anything else is rejected.
+	 */
+	public void testParseAddress() {
+		assertEquals(0xc0a80001, CidrMatcher.parseAddress("192.168.0.1"));
+		assertEquals(0, CidrMatcher.parseAddress("0.0.0.0"));
+		assertEquals(-1, CidrMatcher.parseAddress("255.255.255.255"));
+		
+		for (String address : new String[] { "", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3",
+				"1.2.3.4.", "01234.1.1.1", "a.b.c.d", "::1" }) {
+			try {
+				CidrMatcher.parseAddress(address);
+				fail("Parsed " + address);
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+	
+	/**
+	 * Prefixes of every length match the addresses they should, on both sides of the sign bit.
+	 */
+	public void testPrefixLengths() {
+		CidrMatcher matcher = new CidrMatcher(Arrays.asList("10.1.2.0/23", "200.0.0.7/32", 
+				"172.16.0.0/12"));
+		
+		assertTrue(matcher.matches("10.1.2.0"));
+		assertTrue(matcher.matches("10.1.3.255"));
+		assertFalse(matcher.matches("10.1.4.0"));
+		assertFalse(matcher.matches("10.1.1.255"));
+		assertTrue(matcher.matches("200.0.0.7"));
+		assertFalse(matcher.matches("200.0.0.8"));
+		assertTrue(matcher.matches("172.31.255.255"));
+		assertFalse(matcher.matches("172.32.0.0"));
+		assertFalse(matcher.matches("9.255.255.255"));
+		
+		CidrMatcher everything = new CidrMatcher(Arrays.asList("0.0.0.0/0"));
+		assertTrue(everything.matches("0.0.0.0"));
+		assertTrue(everything.matches("127.255.255.255"));
+		assertTrue(everything.matches("128.0.0.0"));
+		assertTrue(everything.matches("255.255.255.255"));
+	}
+	
+	/**
+	 * Overlapping and nested ranges are merged; host bits set in the network are ignored, and
+	 * ranges that can't be parsed are left out.
+	 */
+	public void testMergingAndBadRanges() {
+		CidrMatcher matcher = new CidrMatcher(Arrays.asList("10.0.0.0/8", "10.20.0.0/16", 
+				"11.0.0.0/8", "192.168.1.77/24", "::/0", "1.2.3.4/33", "garbage"));
+		
+		assertTrue(matcher.matches("10.20.1.1"));
+		assertTrue(matcher.matches("11.255.0.1"));
+		assertFalse(matcher.matches("12.0.0.0"));
+		assertTrue(matcher.matches("192.168.1.0"));
+		assertTrue(matcher.matches("192.168.1.255"));
+		assertFalse(matcher.matches("1.2.3.4"));
+		
+		assertTrue(new CidrMatcher(Arrays.asList("::/0")).isEmpty());
+		assertFalse(new CidrMatcher(Arrays.<String>asList()).matches("1.2.3.4"));
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.elasticdroid.model.ds.SerializableInstance;
+
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.Tag;
+
+/**
+ * Instances for the tests to work with.
+ */
+final class InstanceFixtures {
+	
+	/**
+	 * Utility class. Do not instantiate.
+	 */
+	private InstanceFixtures() {
+	}
+	
+	/**
+	 * Build an instance with an ID and state, and nothing much else.
+	 * 
+	 * @param instanceId The instance ID.
+	 * @param stateCode The state code.
+	 * @param stateName The state name.
+	 * @return The instance, in security group default.
+	 */
+	static SerializableInstance buildInstance(String instanceId, int stateCode, 
+			String stateName) {
+		Instance instance = new Instance().withInstanceId(instanceId).withState(
+				new InstanceState().withCode(stateCode).withName(stateName))
+				.withLaunchTime(new Date(0));
+		
+		return new SerializableInstance(instance, Arrays.asList("default"));
+	}
+	
+	/**
+	 * Build an instance with an ID and state code. The state name is the code.
+	 */
+	static SerializableInstance buildInstance(String instanceId, int stateCode) {
+		return buildInstance(instanceId, stateCode, String.valueOf(stateCode));
+	}
+	
+	/**
+	 * Build an instance with most of its fields set, and a few left null. Like the AWS SDK, 
+	 * this makes a new String for every field; serialization would otherwise get away with
+	 * writing shared literals once.
+	 * 
+	 * @param idx Makes the instance ID, launch time etc different for each instance.
+	 * @return The instance, running.
+	 */
+	static SerializableInstance buildFullInstance(int idx) {
+		Instance instance = new Instance().withInstanceId("i-" + idx).withState(
+				new InstanceState().withCode(16).withName(new String("running")))
+				.withLaunchTime(new Date(1000L * idx)).withInstanceType(new String("m1.small"))
+				.withKeyName(new String("key")).withImageId(new String("ami-12345678"))
+				.withRootDeviceType(new String("ebs")).withPublicDnsName("ec2-" + idx + 
+				".compute.amazonaws.com").withPublicIpAddress("10.0.0." + (idx % 256))
+				.withTags(new Tag("Name", "web" + idx));
+		
+		return new SerializableInstance(instance, Arrays.asList(new String("default"), 
+				new String("web")));
+	}
+	
+	/**
+	 * @return The instance IDs in the list, in order.
+	 */
+	static List<String> getInstanceIds(List<SerializableInstance> instances) {
+		List<String> instanceIds = new ArrayList<String>();
+		for (SerializableInstance instance : instances) {
+			instanceIds.add(instance.getInstanceId());
+		}
+		
+		return instanceIds;
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.elasticdroid.model.ds.SerializableInstance;
+import org.elasticdroid.utils.InstanceListDiff;
+
+import static org.elasticdroid.test.InstanceFixtures.buildInstance;
+import static org.elasticdroid.test.InstanceFixtures.getInstanceIds;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link InstanceListDiff}.
+ */
+public class InstanceListDiffTest extends TestCase {
+	
+	/**
+	 * Identical lists: nothing to redraw, but the newer objects are taken.
+	 */
+	public void testUnchanged() {
+		ArrayList<SerializableInstance> shown = new ArrayList<SerializableInstance>(
+				Arrays.asList(buildInstance("i-1", 16), buildInstance("i-2", 16)));
+		List<SerializableInstance> updated = Arrays.asList(buildInstance("i-1", 16), 
+				buildInstance("i-2", 16));
+		
+		InstanceListDiff.Result result = InstanceListDiff.apply(shown, updated, 
+				InstanceListDiff.DATA_CHANGED);
+		
+		assertTrue(result.isUnchanged());
+		assertSame(updated.get(1), shown.get(1));
+	}
+	
+	/**
+	 * A state change with no rows coming or going redraws only that row.
+	 */
+	public void testChangedRow() {
+		ArrayList<SerializableInstance> shown = new ArrayList<SerializableInstance>(
+				Arrays.asList(buildInstance("i-1", 16), buildInstance("i-2", 16), 
+						buildInstance("i-3", 16)));
+		List<SerializableInstance> updated = Arrays.asList(buildInstance("i-1", 16), 
+				buildInstance("i-2", 64), buildInstance("i-3", 16));
+		
+		InstanceListDiff.Result result = InstanceListDiff.apply(shown, updated, 
+				InstanceListDiff.DATA_CHANGED);
+		
+		assertFalse(result.isStructureChanged());
+		assertEquals(Arrays.asList(1), result.getChangedPositions());
+		assertEquals(64, shown.get(1).getStateCode());
+	}
+	
+	/**
+	 * Removals, insertions and moves all end up in the order of the updated list.
+	 */
+	public void testStructureChanged() {
+		ArrayList<SerializableInstance> shown = new ArrayList<SerializableInstance>(
+				Arrays.asList(buildInstance("i-1", 16), buildInstance("i-2", 16), 
+						buildInstance("i-3", 16), buildInstance("i-4", 16)));
+		List<SerializableInstance> updated = Arrays.asList(buildInstance("i-5", 16), 
+				buildInstance("i-3", 16), buildInstance("i-1", 16), buildInstance("i-4", 16));
+		
+		InstanceListDiff.Result result = InstanceListDiff.apply(shown, updated, 
+				InstanceListDiff.DATA_CHANGED);
+		
+		assertTrue(result.isStructureChanged());
+		assertEquals(1, result.getRemovedCount());
+		assertEquals(1, result.getInsertedCount());
+		assertEquals(getInstanceIds(updated), getInstanceIds(shown));
+	}
+}
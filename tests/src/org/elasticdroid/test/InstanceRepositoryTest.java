@@ -0,0 +1,90 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.elasticdroid.model.InstanceRepository;
+import org.elasticdroid.model.ds.SerializableInstance;
+
+import static org.elasticdroid.test.InstanceFixtures.buildInstance;
+import static org.elasticdroid.test.InstanceFixtures.getInstanceIds;
+
+import junit.framework.TestCase;
+
+import com.amazonaws.services.ec2.model.Filter;
+
+/**
+ * Tests for the local filtering and counting in {@link InstanceRepository}.
+ */
+public class InstanceRepositoryTest extends TestCase {
+	
+	/** The instances to filter: two running, one stopped, one terminated */
+	private List<SerializableInstance> instances;
+	
+	@Override
+	protected void setUp() {
+		instances = Arrays.asList(buildInstance("i-1", 16, "running"), 
+				buildInstance("i-2", 80, "stopped"), buildInstance("i-3", 16, "running"),
+				buildInstance("i-4", 48, "terminated"));
+	}
+	
+	/**
+	 * The filters the instance views use pick out the same instances describeInstances would.
+	 */
+	public void testSelect() {
+		assertEquals(Arrays.asList("i-1", "i-3"), getInstanceIds(InstanceRepository.select(
+				instances, new Filter("instance-state-code").withValues("16"))));
+		assertEquals(Arrays.asList("i-2", "i-4"), getInstanceIds(InstanceRepository.select(
+				instances, new Filter("instance-id").withValues("i-4", "i-2", "i-9"))));
+		//all of the filters have to match
+		assertEquals(Arrays.asList("i-3"), getInstanceIds(InstanceRepository.select(
+				instances, new Filter("instance-state-name").withValues("running"), 
+				new Filter("instance-id").withValues("i-2", "i-3"))));
+		//no filters: everything
+		assertEquals(4, InstanceRepository.select(instances).size());
+	}
+	
+	/**
+	 * Filters we cannot match ourselves are refused.
+	 */
+	public void testCannotSelect() {
+		Filter groupFilter = new Filter("group-name").withValues("default");
+		
+		assertFalse(InstanceRepository.canSelect(groupFilter));
+		try {
+			InstanceRepository.select(instances, groupFilter);
+			fail("group-name filter matched locally.");
+		}
+		catch (IllegalArgumentException expected) {
+		}
+	}
+	
+	/**
+	 * Only running and stopped instances are counted for the dashboard.
+	 */
+	public void testCountInstances() {
+		HashMap<String, Integer> counts = InstanceRepository.countInstances(instances);
+		
+		assertEquals(2, counts.get("runningInstances").intValue());
+		assertEquals(1, counts.get("stoppedInstances").intValue());
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import org.elasticdroid.model.ds.MetricTimeSeries;
+import org.elasticdroid.model.ds.MetricTimeSeries.Statistic;
+import org.elasticdroid.utils.LttbDownsampler;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LttbDownsampler}.
+ */
+public class LttbDownsamplerTest extends TestCase {
+	
+	/**
+	 * Build a time series of averages, one datapoint a minute.
+	 */
+	private MetricTimeSeries buildTimeSeries(double[] averages) {
+		long[] timestamps = new long[averages.length];
+		double[][] values = new double[Statistic.values().length][];
+		
+		for (int idx = 0; idx < averages.length; idx ++) {
+			timestamps[idx] = 1300000000000L + idx * 60000L;
+		}
+		values[Statistic.AVERAGE.ordinal()] = averages;
+		
+		return new MetricTimeSeries("Percent", timestamps, values);
+	}
+	
+	/**
+	 * Series no longer than the threshold are returned as they are.
+	 */
+	public void testShortSeriesUnchanged() {
+		MetricTimeSeries timeSeries = buildTimeSeries(new double[] {1, 2, 3, 4});
+		
+		assertSame(timeSeries, LttbDownsampler.downsample(timeSeries, Statistic.AVERAGE, 4));
+	}
+	
+	/**
+	 * The result has threshold points, keeps the first and last points, and stays in order.
+	 */
+	public void testThresholdAndEndpoints() {
+		double[] averages = new double[1000];
+		for (int idx = 0; idx < averages.length; idx ++) {
+			averages[idx] = Math.sin(idx / 20.0);
+		}
+		MetricTimeSeries timeSeries = buildTimeSeries(averages);
+		
+		MetricTimeSeries downsampled = LttbDownsampler.downsample(timeSeries, Statistic.AVERAGE, 
+				100);
+		
+		assertEquals(100, downsampled.size());
+		assertEquals(timeSeries.getTimestamp(0), downsampled.getTimestamp(0));
+		assertEquals(timeSeries.getTimestamp(999), downsampled.getTimestamp(99));
+		for (int idx = 1; idx < downsampled.size(); idx ++) {
+			assertTrue(downsampled.getTimestamp(idx) > downsampled.getTimestamp(idx - 1));
+		}
+		assertEquals("Percent", downsampled.getUnit());
+		assertFalse(downsampled.hasStatistic(Statistic.MAXIMUM));
+	}
+	
+	/**
+	 * A single spike in a flat series survives downsampling.
+	 */
+	public void testSpikeKept() {
+		double[] averages = new double[2000];
+		averages[1234] = 100;
+		
+		MetricTimeSeries downsampled = LttbDownsampler.downsample(buildTimeSeries(averages), 
+				Statistic.AVERAGE, 50);
+		
+		boolean spikeFound = false;
+		for (int idx = 0; idx < downsampled.size(); idx ++) {
+			if (downsampled.getValue(Statistic.AVERAGE, idx) == 100) {
+				spikeFound = true;
+			}
+		}
+		assertTrue(spikeFound);
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.util.ArrayList;
+
+import org.elasticdroid.model.ds.ModelCodec;
+import org.elasticdroid.model.ds.SerializableInstance;
+
+import junit.framework.TestCase;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.util.Log;
+
+/**
+ * Compares the ways of getting a list of instances the size of a large fleet through a 
+ * Bundle: Java serialization (what the views used to do), a Parcelable list, and the 
+ * {@link ModelCodec} binary form (what they do now). The size is that of the Parcel the
+ * Bundle is written to, which is what has to get through the binder. Needs a device; the 
+ * timings and sizes are logged.
+ */
+public class ModelCodecBenchmarkTest extends TestCase {
+	
+	/** The number of instances in the list */
+	private static final int FLEET_SIZE = 500;
+	/** The number of times each round trip is timed */
+	private static final int ITERATIONS = 20;
+	/** Logging tag */
+	private static final String TAG = "org.elasticdroid.test.ModelCodecBenchmarkTest";
+	
+	/** The instances */
+	private ArrayList<SerializableInstance> instances;
+	
+	/**
+	 * One way of saving the instances in a Bundle.
+	 */
+	private static abstract class BundleCodec {
+		/** Put the instances in the Bundle */
+		abstract void put(Bundle bundle, ArrayList<SerializableInstance> instances);
+		/** Get them back out */
+		abstract ArrayList<SerializableInstance> get(Bundle bundle);
+	}
+	
+	@Override
+	protected void setUp() {
+		instances = new ArrayList<SerializableInstance>();
+		for (int idx = 0; idx < FLEET_SIZE; idx ++) {
+			instances.add(InstanceFixtures.buildFullInstance(idx));
+		}
+	}
+	
+	/**
+	 * Write the instances to a Bundle, the Bundle to a Parcel, and read them back.
+	 * 
+	 * @return The size of the Parcel.
+	 */
+	private int roundTrip(BundleCodec codec) {
+		Bundle bundle = new Bundle();
+		codec.put(bundle, instances);
+		
+		Parcel parcel = Parcel.obtain();
+		try {
+			bundle.writeToParcel(parcel, 0);
+			int size = parcel.dataSize();
+			
+			parcel.setDataPosition(0);
+			Bundle restored = parcel.readBundle(SerializableInstance.class.getClassLoader());
+			assertEquals(FLEET_SIZE, codec.get(restored).size());
+			
+			return size;
+		}
+		finally {
+			parcel.recycle();
+		}
+	}
+	
+	/**
+	 * Time a round trip, and log it.
+	 * 
+	 * @return The size of the Parcel.
+	 */
+	private int benchmark(String name, BundleCodec codec) {
+		int size = roundTrip(codec); //warm up; not timed.
+		
+		long start = System.nanoTime();
+		for (int count = 0; count < ITERATIONS; count ++) {
+			roundTrip(codec);
+		}
+		long time = (System.nanoTime() - start) / ITERATIONS;
+		
+		Log.i(TAG, name + ": " + FLEET_SIZE + " instances, " + size + " bytes, " + time / 1000
+				+ " usecs per round trip.");
+		return size;
+	}
+	
+	/**
+	 * Time the three, and check the binary form the views use is the smallest.
+	 */
+	public void testCompareWithSerialization() {
+		int serializedSize = benchmark("Serializable", new BundleCodec() {
+			void put(Bundle bundle, ArrayList<SerializableInstance> instances) {
+				bundle.putSerializable("instanceData", instances);
+			}
+			
+			@SuppressWarnings("unchecked")
+			ArrayList<SerializableInstance> get(Bundle bundle) {
+				return (ArrayList<SerializableInstance>) bundle.getSerializable("instanceData");
+			}
+		});
+		int parcelSize = benchmark("Parcelable", new BundleCodec() {
+			void put(Bundle bundle, ArrayList<SerializableInstance> instances) {
+				bundle.putParcelableArrayList("instanceData", instances);
+			}
+			
+			ArrayList<SerializableInstance> get(Bundle bundle) {
+				return bundle.getParcelableArrayList("instanceData");
+			}
+		});
+		int codecSize = benchmark("ModelCodec", new BundleCodec() {
+			void put(Bundle bundle, ArrayList<SerializableInstance> instances) {
+				ModelCodec.putList(bundle, "instanceData", instances);
+			}
+			
+			ArrayList<SerializableInstance> get(Bundle bundle) {
+				return ModelCodec.getList(bundle, "instanceData", SerializableInstance.DECODER);
+			}
+		});
+		
+		assertTrue(codecSize < serializedSize);
+		assertTrue(codecSize < parcelSize);
+	}
+}
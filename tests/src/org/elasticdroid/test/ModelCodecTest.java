@@ -0,0 +1,152 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.elasticdroid.model.ds.MetricTimeSeries;
+import org.elasticdroid.model.ds.ModelCodec;
+import org.elasticdroid.model.ds.SerializableInstance;
+import org.elasticdroid.model.ds.SerializableSecurityGroup;
+import org.elasticdroid.model.orm.InstanceGroup;
+import org.elasticdroid.utils.CloudWatchInput;
+
+import static org.elasticdroid.test.InstanceFixtures.buildFullInstance;
+
+import junit.framework.TestCase;
+
+import com.amazonaws.services.ec2.model.IpPermission;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+
+/**
+ * Tests for the binary form written by {@link ModelCodec}. The Parcelable implementations
+ * need a device; see {@link ModelCodecBenchmarkTest}.
+ */
+public class ModelCodecTest extends TestCase {
+	
+	/**
+	 * Instances come back with all of their data, nulls included.
+	 */
+	public void testInstances() throws IOException {
+		List<SerializableInstance> instances = Arrays.asList(buildFullInstance(1), 
+				buildFullInstance(2));
+		
+		ArrayList<SerializableInstance> decoded = ModelCodec.decodeList(ModelCodec.encodeList(
+				instances), SerializableInstance.DECODER);
+		
+		assertEquals(2, decoded.size());
+		for (int idx = 0; idx < instances.size(); idx ++) {
+			assertTrue(instances.get(idx).hasSameData(decoded.get(idx)));
+			assertEquals(instances.get(idx).getLastUpdated(), decoded.get(idx).getLastUpdated());
+		}
+		assertNull(decoded.get(0).getPlatform());
+		assertEquals("web1", decoded.get(0).getTag());
+	}
+	
+	/**
+	 * Security groups come back with their IP permissions.
+	 */
+	public void testSecurityGroups() throws IOException {
+		SecurityGroup securityGroup = new SecurityGroup().withOwnerId("owner").withGroupName(
+				"web").withDescription("Web servers").withIpPermissions(new IpPermission()
+				.withFromPort(80).withToPort(80).withIpProtocol("tcp").withIpRanges(
+				"0.0.0.0/0"), new IpPermission().withFromPort(8000).withToPort(8080)
+				.withIpProtocol("tcp").withIpRanges("10.0.0.0/8", "192.168.0.0/16"));
+		
+		SerializableSecurityGroup decoded = ModelCodec.decodeList(ModelCodec.encodeList(
+				Arrays.asList(new SerializableSecurityGroup(securityGroup))), 
+				SerializableSecurityGroup.DECODER).get(0);
+		
+		assertEquals("web", decoded.getGroupName());
+		assertEquals("Web servers", decoded.getDescription());
+		assertEquals(2, decoded.getIpPermissions().size());
+		assertEquals(8080, decoded.getIpPermissions().get(1).getToPort());
+		assertEquals(Arrays.asList("10.0.0.0/8", "192.168.0.0/16"), decoded.getIpPermissions()
+				.get(1).getIpRanges());
+	}
+	
+	/**
+	 * Instance groups and CloudWatch inputs come back as they went in.
+	 */
+	public void testInstanceGroupsAndCloudWatchInputs() throws IOException {
+		InstanceGroup instanceGroup = new InstanceGroup(3, "web");
+		instanceGroup.setInstanceIds(new HashSet<String>(Arrays.asList("i-1", "i-2")));
+		CloudWatchInput cloudWatchInput = new CloudWatchInput(1000, 2000, 60, "CPUUtilization",
+				"AWS/EC2", new ArrayList<String>(Arrays.asList("Average")), "eu-west-1");
+		
+		InstanceGroup decodedGroup = ModelCodec.decodeList(ModelCodec.encodeList(Arrays.asList(
+				instanceGroup)), InstanceGroup.DECODER).get(0);
+		CloudWatchInput decodedInput = ModelCodec.decodeList(ModelCodec.encodeList(
+				Arrays.asList(cloudWatchInput)), CloudWatchInput.DECODER).get(0);
+		
+		assertEquals(3, decodedGroup.getId().longValue());
+		assertEquals(instanceGroup.getInstanceIds(), decodedGroup.getInstanceIds());
+		assertEquals(2000, decodedInput.getEndTime());
+		assertEquals(60, decodedInput.getPeriod().intValue());
+		assertNull(new InstanceGroup(4, null).getInstanceIds());
+	}
+	
+	/**
+	 * Time series come back with their unit, timestamps and the statistics retrieved; the
+	 * others stay missing.
+	 */
+	public void testMetricTimeSeries() throws IOException {
+		double[][] values = new double[MetricTimeSeries.Statistic.values().length][];
+		values[MetricTimeSeries.Statistic.AVERAGE.ordinal()] = new double[] {1.5, Double.NaN};
+		MetricTimeSeries timeSeries = new MetricTimeSeries("Percent", new long[] {1000, 2000}, 
+				values);
+		
+		MetricTimeSeries decoded = ModelCodec.decodeList(ModelCodec.encodeList(Arrays.asList(
+				timeSeries)), MetricTimeSeries.DECODER).get(0);
+		
+		assertEquals("Percent", decoded.getUnit());
+		assertTrue(Arrays.equals(timeSeries.getTimestamps(), decoded.getTimestamps()));
+		assertEquals(1.5, decoded.getValue(MetricTimeSeries.Statistic.AVERAGE, 0));
+		assertTrue(Double.isNaN(decoded.getValue(MetricTimeSeries.Statistic.AVERAGE, 1)));
+		assertFalse(decoded.hasStatistic(MetricTimeSeries.Statistic.SUM));
+	}
+	
+	/**
+	 * Anything not written by the codec (an old serialized snapshot, say), or written by a 
+	 * newer version of it, is refused.
+	 */
+	public void testRejectsUnknownData() {
+		byte[] encoded = ModelCodec.encodeList(Arrays.asList(buildFullInstance(1)));
+		
+		encoded[7] = (byte) (ModelCodec.FORMAT_VERSION + 1); //low byte of the version
+		try {
+			ModelCodec.decodeList(encoded, SerializableInstance.DECODER);
+			fail("Newer version accepted.");
+		}
+		catch (IOException expected) {
+		}
+		
+		try {
+			ModelCodec.decodeList(new byte[] {(byte) 0xac, (byte) 0xed, 0, 5, 0, 0, 0, 0}, 
+					SerializableInstance.DECODER);
+			fail("Serialized data accepted.");
+		}
+		catch (IOException expected) {
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.elasticdroid.model.PublicIpResolver;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link PublicIpResolver}, against "what is my IP" services running on localhost.
+ */
+public class PublicIpResolverTest extends TestCase {
+	
+	/** The services started by the test */
+	private IpSource fastSource, slowSource, brokenSource;
+	
+	@Override
+	protected void setUp() throws IOException {
+		fastSource = new IpSource("10.0.0.1", 0);
+		slowSource = new IpSource("10.0.0.2", 1000);
+		brokenSource = new IpSource("<html>Service unavailable</html>", 0);
+	}
+	
+	@Override
+	protected void tearDown() throws IOException {
+		fastSource.close();
+		slowSource.close();
+		brokenSource.close();
+		PublicIpResolver.setSources(PublicIpResolver.DEFAULT_SOURCES);
+	}
+	
+	/**
+	 * The first answer which looks like an address wins; garbage is ignored.
+	 */
+	public void testFirstAddressWins() {
+		PublicIpResolver.setSources(brokenSource.getUrl(), slowSource.getUrl(), 
+				fastSource.getUrl());
+		
+		long startTime = System.currentTimeMillis();
+		assertEquals("10.0.0.1", PublicIpResolver.resolve());
+		assertTrue("Waited for the slow source", System.currentTimeMillis() - startTime < 1000);
+		
+		//only garbage and a slow answer: we wait for the slow one.
+		PublicIpResolver.setSources(brokenSource.getUrl(), slowSource.getUrl());
+		assertEquals("10.0.0.2", PublicIpResolver.resolve());
+	}
+	
+	/**
+	 * The address is cached until invalidated.
+	 */
+	public void testCachedUntilInvalidated() throws Exception {
+		PublicIpResolver.setSources(fastSource.getUrl());
+		assertEquals("10.0.0.1", PublicIpResolver.resolveAsync().get());
+		
+		fastSource.answer = "10.0.0.3";
+		assertEquals("10.0.0.1", PublicIpResolver.resolve());
+		assertTrue(PublicIpResolver.resolveAsync().isDone());
+		
+		PublicIpResolver.invalidate();
+		assertEquals("10.0.0.3", PublicIpResolver.resolve());
+	}
+	
+	/**
+	 * null if none of the sources answers with an address.
+	 */
+	public void testNoAddress() throws IOException {
+		IpSource deadSource = new IpSource("", 0);
+		deadSource.close();
+		
+		PublicIpResolver.setSources(brokenSource.getUrl(), deadSource.getUrl());
+		assertNull(PublicIpResolver.resolve());
+	}
+	
+	/**
+	 * A minimal HTTP server which answers every request with the same text, after a delay.
+	 */
+	private static class IpSource implements Runnable {
+		/** The socket we listen on */
+		private final ServerSocket serverSocket;
+		/** The delay (in msecs) before answering */
+		private final long delay;
+		/** The answer */
+		private volatile String answer;
+		
+		private IpSource(String answer, long delay) throws IOException {
+			this.answer = answer;
+			this.delay = delay;
+			serverSocket = new ServerSocket(0);
+			
+			Thread thread = new Thread(this, "IpSource " + answer);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		private String getUrl() {
+			return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+		}
+		
+		private void close() throws IOException {
+			serverSocket.close();
+		}
+		
+		public void run() {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					try {
+						//read the request headers
+						BufferedReader reader = new BufferedReader(new InputStreamReader(
+								socket.getInputStream()));
+						String line;
+						do {
+							line = reader.readLine();
+						} while ((line != null) && (line.length() != 0));
+						
+						Thread.sleep(delay);
+						
+						OutputStream out = socket.getOutputStream();
+						out.write(("HTTP/1.0 200 OK\r\nContent-Type: text/plain\r\n\r\n" + answer
+								+ "\n").getBytes("US-ASCII"));
+						out.flush();
+					} finally {
+						socket.close();
+					}
+				} catch (Exception exception) {
+					//closed, or the client gave up on us.
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+
+import org.elasticdroid.model.tpl.RetryPolicy;
+
+import junit.framework.TestCase;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+/**
+ * Tests for {@link RetryPolicy}.
+ */
+public class RetryPolicyTest extends TestCase {
+	
+	/**
+	 * Build a service exception with an error code and HTTP status.
+	 */
+	private AmazonServiceException buildServiceException(String errorCode, int statusCode) {
+		AmazonServiceException exception = new AmazonServiceException(errorCode);
+		exception.setErrorCode(errorCode);
+		exception.setStatusCode(statusCode);
+		
+		return exception;
+	}
+	
+	/**
+	 * Throttling, 5xx and dropped connections are retryable; the rest are not.
+	 */
+	public void testClassification() {
+		assertTrue(RetryPolicy.isRetryable(buildServiceException("RequestLimitExceeded", 400)));
+		assertTrue(RetryPolicy.isRetryable(buildServiceException("Unavailable", 503)));
+		assertTrue(RetryPolicy.isRetryable(new AmazonClientException("reset", 
+				new IOException("Connection reset"))));
+		
+		assertFalse(RetryPolicy.isRetryable(buildServiceException("AuthFailure", 401)));
+		assertFalse(RetryPolicy.isRetryable(buildServiceException("InvalidInstanceID.NotFound", 
+				400)));
+		assertFalse(RetryPolicy.isRetryable(new AmazonClientException("offline", 
+				new UnknownHostException("ec2.amazonaws.com"))));
+		assertFalse(RetryPolicy.isRetryable(new AmazonClientException("no cause")));
+	}
+	
+	/**
+	 * The backoff grows exponentially up to the cap, and is scaled by the jitter.
+	 */
+	public void testBackoff() {
+		assertEquals(0, RetryPolicy.getBackoff(3, 0));
+		assertEquals(RetryPolicy.BASE_DELAY / 2, RetryPolicy.getBackoff(0, 0.5));
+		assertEquals(RetryPolicy.BASE_DELAY * 4 / 2, RetryPolicy.getBackoff(2, 0.5));
+		assertEquals(RetryPolicy.MAX_DELAY / 2, RetryPolicy.getBackoff(20, 0.5));
+		assertEquals(RetryPolicy.MAX_DELAY / 2, RetryPolicy.getBackoff(100, 0.5));
+	}
+	
+	/**
+	 * Throttled requests are retried until they succeed, and the retries are counted.
+	 */
+	public void testRetriesThrottledRequest() {
+		final int[] attempts = new int[1];
+		int retryCount = RetryPolicy.getRetryCount("testThrottled");
+		
+		String result = RetryPolicy.execute("testThrottled", new RetryPolicy.Request<String>() {
+			public String execute() {
+				if (++ attempts[0] < 3) {
+					throw buildServiceException("RequestLimitExceeded", 400);
+				}
+				return "done";
+			}
+		});
+		
+		assertEquals("done", result);
+		assertEquals(3, attempts[0]);
+		assertEquals(retryCount + 2, RetryPolicy.getRetryCount("testThrottled"));
+	}
+	
+	/**
+	 * Fatal errors are thrown straight away.
+	 */
+	public void testDoesNotRetryFatalError() {
+		final int[] attempts = new int[1];
+		
+		try {
+			RetryPolicy.execute("testFatal", new RetryPolicy.Request<String>() {
+				public String execute() {
+					attempts[0] ++;
+					throw buildServiceException("AuthFailure", 401);
+				}
+			});
+			fail("Expected AmazonServiceException");
+		}
+		catch (AmazonServiceException expected) {
+			assertEquals("AuthFailure", expected.getErrorCode());
+		}
+		
+		assertEquals(1, attempts[0]);
+	}
+}
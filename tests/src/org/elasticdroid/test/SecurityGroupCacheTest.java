@@ -0,0 +1,53 @@
+/**
+ *  This file is part of ElasticDroid.
+ *
+ * ElasticDroid is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * ElasticDroid is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with ElasticDroid.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Authored by Siddhu Warrier on 17 Oct 2026
+ */
+package org.elasticdroid.test;
+
+import java.util.Arrays;
+
+import org.elasticdroid.model.SecurityGroupCache;
+
+import junit.framework.TestCase;
+
+import com.amazonaws.services.ec2.model.Filter;
+
+/**
+ * Tests for the working out of which groups a request is for in {@link SecurityGroupCache}.
+ */
+public class SecurityGroupCacheTest extends TestCase {
+	
+	/**
+	 * A single group-name filter is served from the cache; no filters means all of the groups.
+	 */
+	public void testGetGroupNames() {
+		assertEquals(Arrays.asList("default", "web"), Arrays.asList(SecurityGroupCache.
+				getGroupNames(new Filter("group-name").withValues("default", "web"))));
+		assertEquals(0, SecurityGroupCache.getGroupNames().length);
+	}
+	
+	/**
+	 * Any other filter, or more than one group-name filter, has to go to AWS.
+	 */
+	public void testOtherFilters() {
+		assertNull(SecurityGroupCache.getGroupNames(new Filter("group-name").withValues(
+				"default"), new Filter("ip-permission.to-port").withValues("22")));
+		//EC2 ANDs the filters, so this is only web
+		assertNull(SecurityGroupCache.getGroupNames(new Filter("group-name").withValues("web"), 
+				new Filter("group-name").withValues("default", "web")));
+	}
+}